@@ -0,0 +1,70 @@
+package de.plath.csc.machinelearning.neural.api;
+
+import java.util.Objects;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ *
+ * Interface for an activation function together with its derivative
+ */
+public interface Activation extends DoubleUnaryOperator {
+
+	/**
+	 * @param output an output of this activation function
+	 * @return the derivative at the input which produced the output
+	 */
+	double derivative(double output);
+
+	/**
+	 * Applies the activation function to a range of values in place
+	 *
+	 * @param values the values
+	 * @param from   the first index, inclusive
+	 * @param to     the last index, exclusive
+	 */
+	default void apply(final double[] values, final int from, final int to) {
+
+		for (int i = from; i < to; i++) {
+			values[i] = applyAsDouble(values[i]);
+		}
+	}
+
+	/**
+	 * Replaces a range of outputs of the activation function by their derivatives in place
+	 *
+	 * @param outputs the outputs
+	 * @param from    the first index, inclusive
+	 * @param to      the last index, exclusive
+	 */
+	default void derivative(final double[] outputs, final int from, final int to) {
+
+		for (int i = from; i < to; i++) {
+			outputs[i] = derivative(outputs[i]);
+		}
+	}
+
+	/**
+	 * @param activation the activation function
+	 * @param derivative the derivative, expressed in terms of the output of the activation
+	 *                   function
+	 * @return the activation
+	 */
+	static Activation of(final DoubleUnaryOperator activation, final DoubleUnaryOperator derivative) {
+
+		Objects.requireNonNull(activation, "Activation function is null.");
+		Objects.requireNonNull(derivative, "Derivative function is null.");
+
+		return new Activation() {
+
+			@Override
+			public double applyAsDouble(final double x) {
+				return activation.applyAsDouble(x);
+			}
+
+			@Override
+			public double derivative(final double output) {
+				return derivative.applyAsDouble(output);
+			}
+		};
+	}
+}
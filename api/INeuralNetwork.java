@@ -1,5 +1,9 @@
 package de.plath.csc.machinelearning.neural.api;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -16,10 +20,182 @@ public interface INeuralNetwork {
 	 */
 	void learn(List<List<Double>> trainingData, List<Integer> labels);
 
+	/**
+	 * Trains the net based on the given training set, reading it once per epoch. By default
+	 * the training set is read onto the heap once and learned with {@link #learn(List, List)}.
+	 *
+	 * @param trainingSource the inputs and their labels
+	 * @throws java.io.UncheckedIOException if the training set cannot be read
+	 * @throws IllegalArgumentException     if the training set has no samples
+	 */
+	default void learn(final TrainingSource trainingSource) {
+
+		final int inputSize = trainingSource.getInputSize();
+		final List<List<Double>> trainingData = new ArrayList<>();
+		final List<Integer> labels = new ArrayList<>();
+
+		final double[] inputs = new double[inputSize];
+		try (TrainingSource.Reader reader = trainingSource.open()) {
+
+			while (reader.next(inputs, 0)) {
+
+				final List<Double> input = new ArrayList<>(inputSize);
+				for (final double value : inputs) {
+					input.add(value);
+				}
+				trainingData.add(input);
+				labels.add(reader.getTarget());
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		if (trainingData.isEmpty()) {
+			throw new IllegalArgumentException("The training source has no samples.");
+		}
+		learn(trainingData, labels);
+	}
+
+	/**
+	 * Trains the net based on the given training set, reading it once per epoch, and notifies
+	 * the listener after every epoch instead of the one of the parameters. By default only
+	 * training without a listener is supported, since the epochs of
+	 * {@link #learn(TrainingSource)} cannot be observed from here.
+	 *
+	 * @param trainingSource the inputs and their labels
+	 * @param listener       the listener, or {@code null} to train without measuring
+	 * @throws java.io.UncheckedIOException  if the training set cannot be read
+	 * @throws UnsupportedOperationException by default, if a listener is given
+	 */
+	default void learn(final TrainingSource trainingSource, final TrainingListener listener) {
+
+		if (listener != null) {
+			throw new UnsupportedOperationException("The network does not notify training listeners.");
+		}
+		learn(trainingSource);
+	}
+
+	/**
+	 * Trains the net based on the given sparse training set, reading it once per epoch. By
+	 * default the samples are learned as dense inputs.
+	 *
+	 * @param trainingSource the non-zero inputs and the labels
+	 * @throws java.io.UncheckedIOException if the training set cannot be read
+	 */
+	default void learn(final SparseTrainingSource trainingSource) {
+		learn(trainingSource.toDense());
+	}
+
 	/**
 	 *
 	 * @param input a list of real numbers
 	 * @return the output of the network given the input
 	 */
 	List<Double> getOutput(List<Double> input);
+
+	/**
+	 * @return the number of inputs of the network
+	 */
+	int getInputLayerSize();
+
+	/**
+	 * @return the number of outputs of the network
+	 */
+	int getOutputLayerSize();
+
+	/**
+	 * Scores a batch of inputs
+	 *
+	 * @param inputs one input per row
+	 * @return the outputs of the network, one row per input
+	 * @throws IllegalArgumentException if a row does not match the size of the input layer
+	 */
+	default double[][] getOutputs(final double[][] inputs) {
+
+		if (inputs.length == 0) {
+			return new double[0][];
+		}
+
+		final int inputSize = getInputLayerSize();
+		final int outputSize = getOutputLayerSize();
+
+		for (int row = 0; row < inputs.length; row++) {
+			if (inputs[row] == null || inputs[row].length != inputSize) {
+				throw new IllegalArgumentException("Row " + row + " has " + (inputs[row] == null ? "no" : inputs[row].length)
+						+ " inputs, the input layer has " + inputSize + ".");
+			}
+		}
+
+		final double[] flatInputs = new double[inputs.length * inputSize];
+		for (int row = 0; row < inputs.length; row++) {
+			System.arraycopy(inputs[row], 0, flatInputs, row * inputSize, inputSize);
+		}
+
+		final double[] flatOutputs = new double[inputs.length * outputSize];
+		getOutputs(flatInputs, flatOutputs);
+
+		final double[][] outputs = new double[inputs.length][];
+		for (int row = 0; row < inputs.length; row++) {
+			outputs[row] = Arrays.copyOfRange(flatOutputs, row * outputSize, (row + 1) * outputSize);
+		}
+		return outputs;
+	}
+
+	/**
+	 * Scores a batch of inputs stored row-major in a flat array, writing the outputs to a
+	 * caller-supplied array. By default every row is scored with {@link #getOutput(List)}.
+	 *
+	 * @param inputs  the inputs, one row of the input layer size per sample
+	 * @param outputs receives the outputs, one row of the output layer size per sample
+	 */
+	default void getOutputs(final double[] inputs, final double[] outputs) {
+
+		final int inputSize = getInputLayerSize();
+		final int outputSize = getOutputLayerSize();
+
+		final List<Double> input = new ArrayList<>(inputSize);
+		for (int row = 0; row < inputs.length / inputSize; row++) {
+
+			input.clear();
+			for (int i = 0; i < inputSize; i++) {
+				input.add(inputs[row * inputSize + i]);
+			}
+
+			final List<Double> output = getOutput(input);
+			for (int o = 0; o < outputSize; o++) {
+				outputs[row * outputSize + o] = output.get(o);
+			}
+		}
+	}
+
+	/**
+	 * Scores a batch of sparse inputs in compressed sparse row format. By default every row is
+	 * filled in and scored as a dense input.
+	 *
+	 * @param offsets the index of the first non-zero input of every row in {@code indices} and
+	 *                {@code values}, followed by the number of non-zero inputs
+	 * @param indices the indices of the non-zero inputs, ascending within a row
+	 * @param values  the non-zero inputs
+	 * @param outputs receives the outputs, one row of the output layer size per row
+	 */
+	default void getOutputs(final int[] offsets, final int[] indices, final double[] values, final double[] outputs) {
+
+		final int outputSize = getOutputLayerSize();
+		final double[] input = new double[getInputLayerSize()];
+		final double[] output = new double[outputSize];
+
+		for (int row = 0; row < offsets.length - 1; row++) {
+
+			for (int i = offsets[row]; i < offsets[row + 1]; i++) {
+				input[indices[i]] = values[i];
+			}
+
+			getOutputs(input, output);
+			System.arraycopy(output, 0, outputs, row * outputSize, outputSize);
+
+			for (int i = offsets[row]; i < offsets[row + 1]; i++) {
+				input[indices[i]] = 0d;
+			}
+		}
+	}
 }
@@ -2,6 +2,7 @@ package de.plath.csc.machinelearning.neural.api;
 
 import java.util.Random;
 import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
 import java.util.function.Function;
 
 /**
@@ -26,17 +27,44 @@ public interface IParameters {
 	int getNumberOfHiddenLayers();
 
 	/**
-	 * @return the number of neurons of a hidden layer
+	 * @return the number of neurons of a hidden layer, of the first one if their sizes differ
 	 */
 	int getHiddenLayersSize();
 
+	/**
+	 * @param layer the index of a hidden layer, or {@link #getNumberOfHiddenLayers()} for the
+	 *              output layer
+	 * @return the number of neurons of the layer
+	 */
+	default int getLayerSize(final int layer) {
+		return layer < getNumberOfHiddenLayers() ? getHiddenLayersSize() : getOutputLayerSize();
+	}
+
+	/**
+	 * @param layer the index of a hidden layer, or {@link #getNumberOfHiddenLayers()} for the
+	 *              output layer
+	 * @return the activation function of the neurons of the layer, with its derivative
+	 */
+	default Activation getLayerActivation(final int layer) {
+		return layer < getNumberOfHiddenLayers() ? getActivation() : getOutputActivation();
+	}
+
+	/**
+	 * @param layer the index of a hidden layer, or {@link #getNumberOfHiddenLayers()} for the
+	 *              output layer
+	 * @return the initialization function of the weights of the layer
+	 */
+	default Function<Integer, Double> getLayerInitializationFunction(final int layer) {
+		return getInitializationFunction();
+	}
+
 	/**
 	 * @return the number of neurons in the output layer
 	 */
 	int getOutputLayerSize();
 
 	/**
-	 * @return the momentum rate of the learning algorithm
+	 * @return the momentum rate of the learning algorithm, 0 if it has none
 	 */
 	double getMomentum();
 
@@ -45,11 +73,83 @@ public interface IParameters {
 	 */
 	double getLearningRate();
 
+	/**
+	 * @return the rule updating the weights from their gradients, by default stochastic
+	 *         gradient descent with {@link #getMomentum()}
+	 */
+	default Optimizer getOptimizer() {
+		return Optimizer.sgd(getMomentum());
+	}
+
+	/**
+	 * @return the learning rate of every epoch, based on {@link #getLearningRate()}, by
+	 *         default the learning rate in every epoch
+	 */
+	default LearningRateSchedule getLearningRateSchedule() {
+		return LearningRateSchedule.CONSTANT;
+	}
+
 	/**
 	 * @return the number of iterations for training
 	 */
 	int getEpochs();
 
+	/**
+	 * @return the number of samples per weight update, 1 for per-sample learning, which is
+	 *         the default
+	 */
+	default int getBatchSize() {
+		return 1;
+	}
+
+	/**
+	 * @return the number of threads sharing the work of a mini-batch, 0 to learn on the
+	 *         calling thread, which is the default
+	 */
+	default int getParallelism() {
+		return 0;
+	}
+
+	/**
+	 * @return whether the packed engine computes with the Vector API, if it is available,
+	 *         {@code false} by default
+	 */
+	default boolean isVectorized() {
+		return false;
+	}
+
+	/**
+	 * @return the listener notified after every training epoch, or {@code null}, which is the
+	 *         default
+	 */
+	default TrainingListener getTrainingListener() {
+		return null;
+	}
+
+	/**
+	 * @return the samples scored after every epoch to stop the training early, or {@code null}
+	 *         to always learn {@link #getEpochs()} epochs, which is the default
+	 */
+	default TrainingSource getValidationSource() {
+		return null;
+	}
+
+	/**
+	 * @return the number of epochs without an improvement of the validation error after which
+	 *         the training stops, 5 by default
+	 */
+	default int getPatience() {
+		return 5;
+	}
+
+	/**
+	 * @return the decrease of the validation error that counts as an improvement, 0 by
+	 *         default
+	 */
+	default double getMinimumDelta() {
+		return 0d;
+	}
+
 	/**
 	 * @return the initialization of weights function
 	 */
@@ -80,4 +180,37 @@ public interface IParameters {
 	 */
 	Function<Double, Double> getOutputDerivativeFunction();
 
+	/**
+	 * @return the activation function of neurons in the network, with its derivative; the
+	 *         inputs and the hidden layers without an activation of their own use it. By
+	 *         default {@link #getActivationFunction()} and {@link #getDerivativeFunction()}.
+	 */
+	default Activation getActivation() {
+
+		final Function<Double, Double> activation = getActivationFunction();
+		final Function<Double, Double> derivative = getDerivativeFunction();
+		return Activation.of(activation::apply, derivative::apply);
+	}
+
+	/**
+	 * @return the activation function of output neurons, with its derivative. By default
+	 *         {@link #getOutputActivationFunction()} and {@link #getOutputDerivativeFunction()}.
+	 */
+	default Activation getOutputActivation() {
+
+		final Function<Double, Double> activation = getOutputActivationFunction();
+		final Function<Double, Double> derivative = getOutputDerivativeFunction();
+		return Activation.of(activation::apply, derivative::apply);
+	}
+
+	/**
+	 * @return the error function of an output and its target, by default
+	 *         {@link #getErrorFunction()}
+	 */
+	default DoubleBinaryOperator getErrorOperator() {
+
+		final BiFunction<Double, Double, Double> error = getErrorFunction();
+		return error::apply;
+	}
+
 }
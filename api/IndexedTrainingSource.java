@@ -0,0 +1,27 @@
+package de.plath.csc.machinelearning.neural.api;
+
+import java.io.IOException;
+
+/**
+ *
+ * Interface for training data whose samples can also be read in any order, e.g. to shuffle
+ * them
+ */
+public interface IndexedTrainingSource extends TrainingSource {
+
+	/**
+	 * @return the number of samples
+	 */
+	long getSize();
+
+	/**
+	 * Reads the inputs of a sample. Several threads can read at the same time.
+	 *
+	 * @param index  the index of the sample, from 0 to {@link #getSize()}, exclusive
+	 * @param inputs receives the {@link #getInputSize()} inputs
+	 * @param offset the index of the first input in {@code inputs}
+	 * @return the label of the sample
+	 * @throws IOException if the sample cannot be read
+	 */
+	int read(long index, double[] inputs, int offset) throws IOException;
+}
@@ -0,0 +1,21 @@
+package de.plath.csc.machinelearning.neural.api;
+
+/**
+ *
+ * Interface for a learning rate which changes from epoch to epoch
+ */
+@FunctionalInterface
+public interface LearningRateSchedule {
+
+	/**
+	 * The learning rate of the parameters in every epoch
+	 */
+	LearningRateSchedule CONSTANT = (epoch, learningRate) -> learningRate;
+
+	/**
+	 * @param epoch        the number of the epoch, starting at 1
+	 * @param learningRate the learning rate of the parameters
+	 * @return the learning rate of the epoch
+	 */
+	double getLearningRate(int epoch, double learningRate);
+}
@@ -0,0 +1,37 @@
+package de.plath.csc.machinelearning.neural.api;
+
+/**
+ *
+ * Interface for the rule which turns the gradients of a layer into a weight update. Any state
+ * of the rule, e.g. the moments of Adam, is kept in arrays parallel to the weights.
+ */
+public interface Optimizer {
+
+	/**
+	 * @param momentum the momentum rate
+	 * @return stochastic gradient descent with momentum
+	 */
+	static Optimizer sgd(final double momentum) {
+
+		assert (momentum >= 0d && momentum < 1d) : "Momentum must be between 0 and 1.";
+		return new SgdOptimizer(momentum);
+	}
+
+	/**
+	 * @return the number of state arrays per weight array, e.g. 2 for the two moments of Adam
+	 */
+	int getStateSize();
+
+	/**
+	 * Updates the weights of one layer in place
+	 *
+	 * @param gradients    the gradients of the error with respect to the weights, averaged over
+	 *                     the batch
+	 * @param weights      the weights
+	 * @param states       {@link #getStateSize()} arrays parallel to the weights, filled with 0
+	 *                     before the first update and kept between updates
+	 * @param learningRate the learning rate of the current epoch
+	 * @param step         the number of the update, starting at 1
+	 */
+	void update(double[] gradients, double[] weights, double[][] states, double learningRate, long step);
+}
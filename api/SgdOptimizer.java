@@ -0,0 +1,43 @@
+package de.plath.csc.machinelearning.neural.api;
+
+/**
+ *
+ * Stochastic gradient descent with momentum, the update the networks have always used. The
+ * networks recognize it by type to apply it fused into back-propagation.
+ */
+public final class SgdOptimizer implements Optimizer {
+
+	private final double momentum;
+
+	SgdOptimizer(final double momentum) {
+		this.momentum = momentum;
+	}
+
+	/**
+	 * @return the momentum rate
+	 */
+	public double getMomentum() {
+		return momentum;
+	}
+
+	@Override
+	public int getStateSize() {
+		return 1;
+	}
+
+	@Override
+	public void update(final double[] gradients,
+			final double[] weights,
+			final double[][] states,
+			final double learningRate,
+			final long step) {
+
+		final double[] velocities = states[0];
+
+		for (int i = 0; i < weights.length; i++) {
+
+			velocities[i] = learningRate * gradients[i] + momentum * velocities[i];
+			weights[i] -= velocities[i];
+		}
+	}
+}
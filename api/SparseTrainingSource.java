@@ -0,0 +1,102 @@
+package de.plath.csc.machinelearning.neural.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ *
+ * Interface for training data whose inputs are mostly zero, read one epoch at a time as the
+ * indices and values of the non-zero inputs of every sample
+ */
+public interface SparseTrainingSource {
+
+	/**
+	 * @return the number of inputs of every sample, zero or not
+	 */
+	int getInputSize();
+
+	/**
+	 * Starts reading the samples from the beginning, once per epoch
+	 *
+	 * @return a reader positioned before the first sample, to be closed by the caller
+	 * @throws IOException if the samples cannot be read
+	 */
+	Reader open() throws IOException;
+
+	/**
+	 * @return the same samples with their zero inputs filled in, for the engines which only
+	 *         learn dense inputs
+	 */
+	default TrainingSource toDense() {
+
+		final SparseTrainingSource sparse = this;
+
+		return new TrainingSource() {
+
+			@Override
+			public int getInputSize() {
+				return sparse.getInputSize();
+			}
+
+			@Override
+			public TrainingSource.Reader open() throws IOException {
+
+				final SparseTrainingSource.Reader reader = sparse.open();
+				final int[] indices = new int[sparse.getInputSize()];
+				final double[] values = new double[sparse.getInputSize()];
+
+				return new TrainingSource.Reader() {
+
+					@Override
+					public boolean next(final double[] inputs, final int offset) throws IOException {
+
+						final int count = reader.next(indices, values);
+						if (count < 0) {
+							return false;
+						}
+
+						Arrays.fill(inputs, offset, offset + sparse.getInputSize(), 0d);
+						for (int i = 0; i < count; i++) {
+							inputs[offset + indices[i]] = values[i];
+						}
+						return true;
+					}
+
+					@Override
+					public int getTarget() {
+						return reader.getTarget();
+					}
+
+					@Override
+					public void close() throws IOException {
+						reader.close();
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 *
+	 * Reads the samples of one epoch in order
+	 */
+	interface Reader extends Closeable {
+
+		/**
+		 * Reads the non-zero inputs of the next sample
+		 *
+		 * @param indices receives the indices of the non-zero inputs in ascending order, room
+		 *                for {@link SparseTrainingSource#getInputSize()} of them
+		 * @param values  receives the non-zero inputs, in the order of their indices
+		 * @return the number of non-zero inputs, or -1 if there was no next sample
+		 * @throws IOException if the sample cannot be read
+		 */
+		int next(int[] indices, double[] values) throws IOException;
+
+		/**
+		 * @return the label of the sample read last
+		 */
+		int getTarget();
+	}
+}
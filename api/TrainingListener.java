@@ -0,0 +1,110 @@
+package de.plath.csc.machinelearning.neural.api;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *
+ * Interface for a callback which is notified after every training epoch. Without a listener
+ * the networks do not measure anything.
+ */
+public interface TrainingListener {
+
+	/**
+	 * Called on the training thread after every epoch
+	 *
+	 * @param epoch the statistics of the epoch, only valid during the call
+	 */
+	void onEpoch(Epoch epoch);
+
+	/**
+	 * @return whether to also measure the time spent in every layer, which costs a clock read
+	 *         per layer and sample
+	 */
+	default boolean isDetailed() {
+		return false;
+	}
+
+	/**
+	 *
+	 * The statistics of one training epoch. The layers are the hidden layers followed by the
+	 * output layer; their times are 0 unless the listener is detailed.
+	 */
+	interface Epoch {
+
+		/**
+		 * @return the number of the epoch, starting at 1
+		 */
+		int getEpoch();
+
+		/**
+		 * @return the number of samples learned in the epoch
+		 */
+		long getSamples();
+
+		/**
+		 * @return the mean error over the samples of the epoch
+		 */
+		double getLoss();
+
+		/**
+		 * @return the mean error over the validation samples after the epoch, or {@code NaN}
+		 *         without validation samples
+		 */
+		double getValidationLoss();
+
+		/**
+		 * @param unit the unit of the result
+		 * @return the time the epoch took, including reading the samples
+		 */
+		long getDuration(TimeUnit unit);
+
+		/**
+		 * @return the number of samples learned per second of the epoch
+		 */
+		double getSamplesPerSecond();
+
+		/**
+		 * @param unit the unit of the result
+		 * @return the time spent in forward passes
+		 */
+		long getForwardTime(TimeUnit unit);
+
+		/**
+		 * @param unit the unit of the result
+		 * @return the time spent calculating the weight deltas
+		 */
+		long getBackwardTime(TimeUnit unit);
+
+		/**
+		 * @param unit the unit of the result
+		 * @return the time spent updating the weights
+		 */
+		long getUpdateTime(TimeUnit unit);
+
+		/**
+		 * @return the number of hidden and output layers
+		 */
+		int getLayers();
+
+		/**
+		 * @param layer the index of the layer
+		 * @param unit  the unit of the result
+		 * @return the time spent in forward passes of the layer
+		 */
+		long getForwardTime(int layer, TimeUnit unit);
+
+		/**
+		 * @param layer the index of the layer
+		 * @param unit  the unit of the result
+		 * @return the time spent calculating the weight deltas of the layer
+		 */
+		long getBackwardTime(int layer, TimeUnit unit);
+
+		/**
+		 * @param layer the index of the layer
+		 * @param unit  the unit of the result
+		 * @return the time spent updating the weights of the layer
+		 */
+		long getUpdateTime(int layer, TimeUnit unit);
+	}
+}
@@ -0,0 +1,47 @@
+package de.plath.csc.machinelearning.neural.api;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ *
+ * Interface for training data which is read one epoch at a time, so that it does not need to
+ * fit on the heap
+ */
+public interface TrainingSource {
+
+	/**
+	 * @return the number of inputs of every sample
+	 */
+	int getInputSize();
+
+	/**
+	 * Starts reading the samples from the beginning, once per epoch
+	 *
+	 * @return a reader positioned before the first sample, to be closed by the caller
+	 * @throws IOException if the samples cannot be read
+	 */
+	Reader open() throws IOException;
+
+	/**
+	 *
+	 * Reads the samples of one epoch in order
+	 */
+	interface Reader extends Closeable {
+
+		/**
+		 * Reads the inputs of the next sample
+		 *
+		 * @param inputs receives the {@link TrainingSource#getInputSize()} inputs
+		 * @param offset the index of the first input in {@code inputs}
+		 * @return whether there was a next sample
+		 * @throws IOException if the sample cannot be read
+		 */
+		boolean next(double[] inputs, int offset) throws IOException;
+
+		/**
+		 * @return the label of the sample read last
+		 */
+		int getTarget();
+	}
+}
@@ -0,0 +1,78 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Many threads scoring single samples on a {@link PackedNeuralNetwork}, each on its own with
+ * {@code getOutput}, versus through a {@link BatchingScorer} which scores them in batches. The
+ * scores are samples per second over all threads.
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+@State(Scope.Benchmark)
+public class BatchingScorerBenchmark {
+
+	private static final int SAMPLES = 1024;
+	private static final int MAXIMUM_BATCH_SIZE = 64;
+	private static final int WORKERS = 2;
+
+	@Param({ "256" })
+	private int width;
+
+	private PackedNeuralNetwork neuralNetwork;
+	private BatchingScorer scorer;
+
+	private List<List<Double>> inputList;
+	private double[][] inputs;
+
+	@Setup
+	public void setUp() {
+
+		neuralNetwork = new NeuralNetworkFactory(BenchmarkData.parameters(width, 2).build()).createPacked();
+		scorer = new BatchingScorer(neuralNetwork, MAXIMUM_BATCH_SIZE, 1L, TimeUnit.MILLISECONDS, WORKERS);
+
+		inputList = BenchmarkData.trainingData(SAMPLES, width);
+
+		final double[] data = BenchmarkData.inputs(SAMPLES, width);
+		inputs = new double[SAMPLES][width];
+		for (int sample = 0; sample < SAMPLES; sample++) {
+			System.arraycopy(data, sample * width, inputs[sample], 0, width);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		scorer.close();
+	}
+
+	@Benchmark
+	public List<Double> single() {
+		return neuralNetwork.getOutput(inputList.get(ThreadLocalRandom.current().nextInt(SAMPLES)));
+	}
+
+	@Benchmark
+	public double[] batched() {
+		return scorer.score(inputs[ThreadLocalRandom.current().nextInt(SAMPLES)]).join();
+	}
+}
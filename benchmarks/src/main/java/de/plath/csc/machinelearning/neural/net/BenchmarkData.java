@@ -0,0 +1,79 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Parameters and random samples shared by the benchmarks. Everything is seeded, so that every
+ * fork measures the same network on the same data.
+ *
+ */
+final class BenchmarkData {
+
+	private static final long SEED = 42L;
+	private static final int OUTPUT_LAYER_SIZE = 10;
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * @param width the size of the input layer and of every hidden layer
+	 * @param depth the number of hidden layers
+	 * @return a builder for a network of the given shape with a single training epoch
+	 */
+	protected static NNParameters.Builder parameters(final int width, final int depth) {
+
+		return new NNParameters.Builder()
+				.setRandom(new Random(SEED))
+				.setInputLayerSize(width)
+				.setHiddenLayers(depth)
+				.setHiddenLayersSize(width)
+				.setOutputLayerSize(OUTPUT_LAYER_SIZE)
+				.setMomentum(0.3d)
+				.setLearningRate(0.01d)
+				.setEpochs(1);
+	}
+
+	protected static double[] inputs(final int samples, final int width) {
+
+		final Random random = new Random(SEED);
+		final double[] inputs = new double[samples * width];
+		for (int i = 0; i < inputs.length; i++) {
+			inputs[i] = random.nextDouble();
+		}
+		return inputs;
+	}
+
+	protected static List<List<Double>> trainingData(final int samples, final int width) {
+
+		final double[] inputs = inputs(samples, width);
+		final List<List<Double>> trainingData = new ArrayList<>(samples);
+		for (int sample = 0; sample < samples; sample++) {
+
+			final List<Double> input = new ArrayList<>(width);
+			for (int i = 0; i < width; i++) {
+				input.add(inputs[sample * width + i]);
+			}
+			trainingData.add(input);
+		}
+		return trainingData;
+	}
+
+	protected static List<Integer> targets(final int samples) {
+
+		final Random random = new Random(SEED);
+		final List<Integer> targets = new ArrayList<>(samples);
+		for (int sample = 0; sample < samples; sample++) {
+			targets.add(random.nextInt(OUTPUT_LAYER_SIZE));
+		}
+		return targets;
+	}
+
+	protected static double[] binaryTarget(final int target) {
+
+		final double[] binaryTarget = new double[OUTPUT_LAYER_SIZE];
+		binaryTarget[target] = 1d;
+		return binaryTarget;
+	}
+}
@@ -0,0 +1,28 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks with the gc profiler, so that every result reports the allocation
+ * rate next to the throughput. Accepts the usual JMH command line, e.g. a benchmark name
+ * pattern or {@code -p width=128}.
+ *
+ */
+public final class Benchmarks {
+
+	private Benchmarks() {
+	}
+
+	public static void main(final String[] args) throws CommandLineOptionException, RunnerException {
+
+		new Runner(new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build()).run();
+	}
+}
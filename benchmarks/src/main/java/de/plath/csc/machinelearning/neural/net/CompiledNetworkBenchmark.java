@@ -0,0 +1,65 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of scoring a single sample with a small network, by the {@link PackedNeuralNetwork}
+ * and by the class {@link NetworkCompiler} generates from it
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompiledNetworkBenchmark {
+
+	@Param({ "16", "32" })
+	private int width;
+
+	private PackedNeuralNetwork packedNetwork;
+	private CompiledNeuralNetwork compiledNetwork;
+
+	private double[] input;
+	private double[] output;
+
+	@Setup
+	public void setUp() {
+
+		packedNetwork = new NeuralNetworkFactory(BenchmarkData.parameters(width, 2)
+				.setActivation(Activations.RELU)
+				.build()).createPacked();
+
+		compiledNetwork = NetworkCompiler.compile(packedNetwork);
+
+		input = BenchmarkData.inputs(1, width);
+		output = new double[packedNetwork.getOutputLayerSize()];
+	}
+
+	@Benchmark
+	public double[] packed() {
+
+		packedNetwork.getOutputs(input, output);
+		return output;
+	}
+
+	@Benchmark
+	public double[] compiled() {
+
+		compiledNetwork.getOutput(input, output);
+		return output;
+	}
+}
@@ -0,0 +1,89 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.plath.csc.machinelearning.neural.api.INeuralNetwork;
+
+/**
+ * Scoring of a trained network one sample at a time with
+ * {@link INeuralNetwork#getOutput(List)} versus all samples at once with
+ * {@link INeuralNetwork#getOutputs(double[], double[])}, for both engines and for the int8
+ * quantization of the packed engine. The scores are per sample.
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InferenceBenchmark {
+
+	private static final int SAMPLES = 1024;
+
+	@Param({ "16", "128", "512" })
+	private int width;
+
+	@Param({ "1", "2", "4" })
+	private int depth;
+
+	@Param({ "graph", "packed", "int8" })
+	private String engine;
+
+	private INeuralNetwork neuralNetwork;
+
+	private List<List<Double>> inputList;
+	private double[] inputs;
+	private double[] outputs;
+
+	@Setup
+	public void setUp() {
+
+		final NeuralNetworkFactory factory = new NeuralNetworkFactory(BenchmarkData.parameters(width, depth).build());
+
+		inputList = BenchmarkData.trainingData(SAMPLES, width);
+
+		if ("graph".equals(engine)) {
+			neuralNetwork = factory.create();
+		} else if ("packed".equals(engine)) {
+			neuralNetwork = factory.createPacked();
+		} else {
+			neuralNetwork = Quantizer.quantize(factory.createPacked(), inputList);
+		}
+
+		inputs = BenchmarkData.inputs(SAMPLES, width);
+		outputs = new double[SAMPLES * neuralNetwork.getOutputLayerSize()];
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public void single(final Blackhole blackhole) {
+
+		for (final List<Double> input : inputList) {
+			blackhole.consume(neuralNetwork.getOutput(input));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public double[] batch() {
+
+		neuralNetwork.getOutputs(inputs, outputs);
+		return outputs;
+	}
+}
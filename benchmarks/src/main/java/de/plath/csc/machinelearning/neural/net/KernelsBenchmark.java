@@ -0,0 +1,90 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ScalarKernels} versus {@link VectorKernels} in {@link PackedNeuralNetwork}, per
+ * sample for per-sample and mini-batch training and for batch inference. The forks add the
+ * {@code jdk.incubator.vector} module, without it both variants run the scalar kernels.
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+@State(Scope.Benchmark)
+public class KernelsBenchmark {
+
+	private static final int SAMPLES = 256;
+	private static final int BATCH_SIZE = 64;
+
+	@Param({ "64", "256", "784" })
+	private int width;
+
+	@Param({ "false", "true" })
+	private boolean vectorized;
+
+	private PackedNeuralNetwork neuralNetwork;
+	private PackedNeuralNetwork batchNeuralNetwork;
+
+	private List<List<Double>> trainingData;
+	private List<Integer> targets;
+	private double[] inputs;
+	private double[] outputs;
+
+	@Setup
+	public void setUp() {
+
+		neuralNetwork = new NeuralNetworkFactory(BenchmarkData.parameters(width, 2)
+				.setVectorized(vectorized)
+				.build()).createPacked();
+		batchNeuralNetwork = new NeuralNetworkFactory(BenchmarkData.parameters(width, 2)
+				.setVectorized(vectorized)
+				.setBatchSize(BATCH_SIZE)
+				.build()).createPacked();
+
+		trainingData = BenchmarkData.trainingData(SAMPLES, width);
+		targets = BenchmarkData.targets(SAMPLES);
+		inputs = BenchmarkData.inputs(SAMPLES, width);
+		outputs = new double[SAMPLES * neuralNetwork.getOutputLayerSize()];
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public double epoch() {
+
+		neuralNetwork.learn(trainingData, targets);
+		return neuralNetwork.getLearningError();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public double batchEpoch() {
+
+		batchNeuralNetwork.learn(trainingData, targets);
+		return batchNeuralNetwork.getLearningError();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public double[] inference() {
+
+		neuralNetwork.getOutputs(inputs, outputs);
+		return outputs;
+	}
+}
@@ -0,0 +1,105 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Hot paths of {@link NeuralNetwork}, the graph of {@link Neuron} and {@link Synapse}
+ * objects: forward pass, backward pass, one training epoch and construction.
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NeuralNetworkBenchmark {
+
+	private static final int EPOCH_SAMPLES = 64;
+
+	@Param({ "16", "128", "512" })
+	private int width;
+
+	@Param({ "1", "2", "4" })
+	private int depth;
+
+	private NNParameters nnParameters;
+
+	private FeedForward feedForward;
+	private Backpropagation backPropagation;
+	private NeuralNetwork neuralNetwork;
+
+	private double[] input;
+	private double[] binaryTarget;
+	private List<List<Double>> trainingData;
+	private List<Integer> targets;
+
+	@Setup
+	public void setUp() {
+
+		nnParameters = BenchmarkData.parameters(width, depth).build();
+
+		final NetworkLayers networkLayers = new NetworkLayers(nnParameters);
+		networkLayers.initializeLayers();
+		networkLayers.connectLayers();
+
+		feedForward = new FeedForward(networkLayers.getInputLayer(),
+				networkLayers.getHiddenLayers(),
+				networkLayers.getOutputLayer());
+		backPropagation = new Backpropagation(networkLayers.getInputLayer(),
+				networkLayers.getHiddenLayers(),
+				networkLayers.getOutputLayer(),
+				nnParameters);
+
+		neuralNetwork = new NeuralNetworkFactory(nnParameters).create();
+
+		trainingData = BenchmarkData.trainingData(EPOCH_SAMPLES, width);
+		targets = BenchmarkData.targets(EPOCH_SAMPLES);
+		input = BenchmarkData.inputs(1, width);
+		binaryTarget = BenchmarkData.binaryTarget(targets.get(0));
+
+		// the backward pass works on the outputs of a forward pass
+		feedForward.apply(input);
+	}
+
+	@Benchmark
+	public void forward() {
+		feedForward.apply(input);
+	}
+
+	@Benchmark
+	public double backward() {
+		return backPropagation.apply(binaryTarget);
+	}
+
+	@Benchmark
+	public double epoch() {
+
+		neuralNetwork.learn(trainingData, targets);
+		return neuralNetwork.getLearningError();
+	}
+
+	@Benchmark
+	public void construction(final Blackhole blackhole) {
+
+		final NetworkLayers networkLayers = new NetworkLayers(nnParameters);
+		networkLayers.initializeLayers();
+		networkLayers.connectLayers();
+
+		blackhole.consume(networkLayers);
+	}
+}
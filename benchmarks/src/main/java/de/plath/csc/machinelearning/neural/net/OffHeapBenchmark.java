@@ -0,0 +1,90 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Batch scoring with the weights on the heap in a {@link PackedNeuralNetwork}, in native
+ * memory and mapped from a model file in an {@link OffHeapNeuralNetwork}. The forks add the
+ * {@code jdk.incubator.foreign} module.
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.foreign" })
+@State(Scope.Benchmark)
+public class OffHeapBenchmark {
+
+	private static final int BATCH_SIZE = 1024;
+
+	@Param({ "256", "1024" })
+	private int width;
+
+	private PackedNeuralNetwork packedNetwork;
+	private OffHeapNeuralNetwork allocatedNetwork;
+	private OffHeapNeuralNetwork mappedNetwork;
+	private Path modelFile;
+
+	private double[] inputs;
+	private double[] outputs;
+
+	@Setup
+	public void setUp() throws IOException {
+
+		packedNetwork = new NeuralNetworkFactory(BenchmarkData.parameters(width, 2).build()).createPacked();
+		allocatedNetwork = OffHeapNeuralNetwork.allocate(packedNetwork);
+
+		modelFile = Files.createTempFile("offheap", ".jann");
+		ModelFile.save(packedNetwork, modelFile);
+		mappedNetwork = ModelFile.loadOffHeap(modelFile);
+
+		inputs = BenchmarkData.inputs(BATCH_SIZE, width);
+		outputs = new double[BATCH_SIZE * packedNetwork.getOutputLayerSize()];
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+
+		allocatedNetwork.close();
+		mappedNetwork.close();
+		Files.delete(modelFile);
+	}
+
+	@Benchmark
+	public double[] packed() {
+
+		packedNetwork.getOutputs(inputs, outputs);
+		return outputs;
+	}
+
+	@Benchmark
+	public double[] allocated() {
+
+		allocatedNetwork.getOutputs(inputs, outputs);
+		return outputs;
+	}
+
+	@Benchmark
+	public double[] mapped() {
+
+		mappedNetwork.getOutputs(inputs, outputs);
+		return outputs;
+	}
+}
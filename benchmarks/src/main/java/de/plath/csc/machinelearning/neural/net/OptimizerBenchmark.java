@@ -0,0 +1,57 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to train a fresh {@link PackedNeuralNetwork} to the target loss of
+ * {@link OptimizerComparison}, per optimizer and batch size.
+ *
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OptimizerBenchmark {
+
+	private static final long SEED = 42L;
+
+	@Param({ "sgd", "nesterov", "rmsprop", "adam" })
+	private String optimizer;
+
+	@Param({ "1", "16" })
+	private int batchSize;
+
+	private ReferenceTasks tasks;
+	private PackedNeuralNetwork neuralNetwork;
+
+	@Setup
+	public void setUpTasks() {
+		tasks = new ReferenceTasks(new Random(SEED));
+	}
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		neuralNetwork = new NeuralNetworkFactory(OptimizerComparison.parameters(optimizer, batchSize).build()).createPacked();
+	}
+
+	@Benchmark
+	public int timeToTargetLoss() {
+		return OptimizerComparison.train(neuralNetwork, tasks);
+	}
+}
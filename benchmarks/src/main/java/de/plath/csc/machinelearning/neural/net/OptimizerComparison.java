@@ -0,0 +1,92 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports the epochs and the time each {@link Optimizers optimizer} of
+ * {@link PackedNeuralNetwork} needs to reach a target training loss on the clusters of
+ * {@link ReferenceTasks}, per sample and in mini-batches.
+ *
+ */
+public final class OptimizerComparison {
+
+	private static final long SEED = 42L;
+	private static final int HIDDEN_LAYERS_SIZE = 32;
+
+	protected static final double TARGET_LOSS = 0.01d;
+	protected static final int MAXIMUM_EPOCHS = 200;
+
+	private OptimizerComparison() {
+	}
+
+	/**
+	 * @param optimizer sgd, nesterov, rmsprop or adam
+	 * @param batchSize the size of the mini-batches
+	 * @return the parameters of a network trained for one epoch per call of learn, with the
+	 *         learning rate suited to the optimizer
+	 */
+	protected static NNParameters.Builder parameters(final String optimizer, final int batchSize) {
+
+		final NNParameters.Builder builder = new NNParameters.Builder()
+				.setRandom(new Random(SEED))
+				.setInputLayerSize(ReferenceTasks.FEATURES)
+				.setHiddenLayers(1)
+				.setHiddenLayersSize(HIDDEN_LAYERS_SIZE)
+				.setOutputLayerSize(ReferenceTasks.CLASSES)
+				.setBatchSize(batchSize)
+				.setEpochs(1);
+
+		switch (optimizer) {
+		case "sgd":
+			return builder.setOptimizer(Optimizers.sgd(0.3d)).setLearningRate(0.2d);
+		case "nesterov":
+			return builder.setOptimizer(Optimizers.nesterov(0.9d)).setLearningRate(0.05d);
+		case "rmsprop":
+			return builder.setOptimizer(Optimizers.rmsProp()).setLearningRate(0.003d);
+		case "adam":
+			return builder.setOptimizer(Optimizers.adam()).setLearningRate(0.003d);
+		default:
+			throw new IllegalArgumentException("Unknown optimizer: " + optimizer);
+		}
+	}
+
+	/**
+	 * Trains one epoch at a time until the training loss reaches {@link #TARGET_LOSS}
+	 *
+	 * @return the number of epochs, or {@link #MAXIMUM_EPOCHS} + 1 if the target was missed
+	 */
+	protected static int train(final PackedNeuralNetwork neuralNetwork, final ReferenceTasks tasks) {
+
+		for (int epoch = 1; epoch <= MAXIMUM_EPOCHS; epoch++) {
+
+			neuralNetwork.learn(tasks.getTrainingData(), tasks.getTrainingTargets());
+
+			if (neuralNetwork.getLearningError() <= TARGET_LOSS) {
+				return epoch;
+			}
+		}
+		return MAXIMUM_EPOCHS + 1;
+	}
+
+	public static void main(final String[] args) {
+
+		final ReferenceTasks tasks = new ReferenceTasks(new Random(SEED));
+
+		for (final int batchSize : new int[] { 1, 16 }) {
+			for (final String optimizer : new String[] { "sgd", "nesterov", "rmsprop", "adam" }) {
+
+				final PackedNeuralNetwork neuralNetwork = new NeuralNetworkFactory(parameters(optimizer, batchSize).build())
+						.createPacked();
+
+				final long start = System.nanoTime();
+				final int epochs = train(neuralNetwork, tasks);
+				final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+				System.out.printf("Clusters, batch size %d, %s: %s epochs, %d ms to loss %.3f, accuracy %.4f%n",
+						batchSize, optimizer, epochs > MAXIMUM_EPOCHS ? "> " + MAXIMUM_EPOCHS : String.valueOf(epochs),
+						millis, TARGET_LOSS, ReferenceTasks.accuracy(neuralNetwork, tasks.getTestData(), tasks.getTestTargets()));
+			}
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Hot paths of {@link PackedNeuralNetwork}: forward pass, backward pass, one training epoch
+ * per sample and in mini-batches, and construction. Same shapes as
+ * {@link NeuralNetworkBenchmark}, so that both engines can be compared.
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PackedNeuralNetworkBenchmark {
+
+	private static final int EPOCH_SAMPLES = 64;
+	private static final int BATCH_SIZE = 16;
+
+	@Param({ "16", "128", "512" })
+	private int width;
+
+	@Param({ "1", "2", "4" })
+	private int depth;
+
+	private NNParameters nnParameters;
+
+	private PackedFeedForward feedForward;
+	private PackedBackpropagation backPropagation;
+	private PackedNeuralNetwork neuralNetwork;
+	private PackedNeuralNetwork batchNeuralNetwork;
+
+	private double[] input;
+	private double[] binaryTarget;
+	private List<List<Double>> trainingData;
+	private List<Integer> targets;
+
+	@Setup
+	public void setUp() {
+
+		nnParameters = BenchmarkData.parameters(width, depth).build();
+
+		final PackedNetworkLayers networkLayers = new PackedNetworkLayers(nnParameters);
+		networkLayers.initializeLayers();
+		networkLayers.connectLayers();
+
+		final Kernels kernels = Kernels.create(false);
+
+		feedForward = new PackedFeedForward(nnParameters.getActivation(), width, networkLayers.getLayers(), kernels);
+		backPropagation = new PackedBackpropagation(networkLayers.getLayers(), feedForward.getOutputs(), kernels,
+				new WeightUpdate(nnParameters), nnParameters);
+
+		neuralNetwork = new NeuralNetworkFactory(nnParameters).createPacked();
+		batchNeuralNetwork = new NeuralNetworkFactory(BenchmarkData.parameters(width, depth)
+				.setBatchSize(BATCH_SIZE)
+				.build()).createPacked();
+
+		trainingData = BenchmarkData.trainingData(EPOCH_SAMPLES, width);
+		targets = BenchmarkData.targets(EPOCH_SAMPLES);
+		input = BenchmarkData.inputs(1, width);
+		binaryTarget = BenchmarkData.binaryTarget(targets.get(0));
+
+		// the backward pass works on the outputs of a forward pass
+		feedForward.apply(input);
+	}
+
+	@Benchmark
+	public void forward() {
+		feedForward.apply(input);
+	}
+
+	@Benchmark
+	public double backward() {
+		return backPropagation.apply(binaryTarget);
+	}
+
+	@Benchmark
+	public double epoch() {
+
+		neuralNetwork.learn(trainingData, targets);
+		return neuralNetwork.getLearningError();
+	}
+
+	@Benchmark
+	public double batchEpoch() {
+
+		batchNeuralNetwork.learn(trainingData, targets);
+		return batchNeuralNetwork.getLearningError();
+	}
+
+	@Benchmark
+	public void construction(final Blackhole blackhole) {
+
+		final PackedNetworkLayers networkLayers = new PackedNetworkLayers(nnParameters);
+		networkLayers.initializeLayers();
+		networkLayers.connectLayers();
+
+		blackhole.consume(networkLayers);
+	}
+}
@@ -0,0 +1,67 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scaling of mini-batch training of {@link PackedNeuralNetwork} with the number of threads,
+ * 0 being the sequential trainer. The scores are samples per second.
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelTrainingBenchmark {
+
+	private static final int SAMPLES = 1024;
+
+	@Param({ "128", "512" })
+	private int width;
+
+	@Param({ "256" })
+	private int batchSize;
+
+	@Param({ "0", "1", "2", "4", "8" })
+	private int parallelism;
+
+	private PackedNeuralNetwork neuralNetwork;
+
+	private List<List<Double>> trainingData;
+	private List<Integer> targets;
+
+	@Setup
+	public void setUp() {
+
+		neuralNetwork = new NeuralNetworkFactory(BenchmarkData.parameters(width, 2)
+				.setBatchSize(batchSize)
+				.setParallelism(parallelism)
+				.build()).createPacked();
+
+		trainingData = BenchmarkData.trainingData(SAMPLES, width);
+		targets = BenchmarkData.targets(SAMPLES);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public double epoch() {
+
+		neuralNetwork.learn(trainingData, targets);
+		return neuralNetwork.getLearningError();
+	}
+}
@@ -0,0 +1,72 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.plath.csc.machinelearning.neural.api.INeuralNetwork;
+
+/**
+ * {@link PackedNeuralNetwork} versus {@link FloatNeuralNetwork}, per sample for learning and
+ * for scoring one sample at a time. See {@link PrecisionComparison} for their accuracy.
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrecisionBenchmark {
+
+	private static final int SAMPLES = 64;
+
+	@Param({ "128", "512", "1024" })
+	private int width;
+
+	@Param({ "double", "float" })
+	private String precision;
+
+	private INeuralNetwork neuralNetwork;
+
+	private List<List<Double>> trainingData;
+	private List<Integer> targets;
+
+	@Setup
+	public void setUp() {
+
+		final NeuralNetworkFactory factory = new NeuralNetworkFactory(BenchmarkData.parameters(width, 2).build());
+		neuralNetwork = "float".equals(precision) ? factory.createFloat() : factory.createPacked();
+
+		trainingData = BenchmarkData.trainingData(SAMPLES, width);
+		targets = BenchmarkData.targets(SAMPLES);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public void epoch() {
+		neuralNetwork.learn(trainingData, targets);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public void single(final Blackhole blackhole) {
+
+		for (final List<Double> input : trainingData) {
+			blackhole.consume(neuralNetwork.getOutput(input));
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the accuracy of {@link FloatNeuralNetwork} with {@link PackedNeuralNetwork} on the
+ * {@link ReferenceTasks}. Both engines start from the same weights and learn from the same
+ * samples in the same order.
+ *
+ */
+public final class PrecisionComparison {
+
+	private static final long SEED = 42L;
+
+	private PrecisionComparison() {
+	}
+
+	public static void main(final String[] args) {
+
+		compare("XOR", new NNParameters.Builder()
+				.setInputLayerSize(2)
+				.setHiddenLayers(1)
+				.setHiddenLayersSize(16)
+				.setOutputLayerSize(2)
+				.setMomentum(0.5d)
+				.setLearningRate(3d)
+				.setEpochs(3000),
+				ReferenceTasks.XOR_INPUTS, ReferenceTasks.XOR_TARGETS,
+				ReferenceTasks.XOR_INPUTS, ReferenceTasks.XOR_TARGETS);
+
+		final ReferenceTasks tasks = new ReferenceTasks(new Random(SEED));
+
+		compare("Clusters", new NNParameters.Builder()
+				.setInputLayerSize(ReferenceTasks.FEATURES)
+				.setHiddenLayers(1)
+				.setHiddenLayersSize(32)
+				.setOutputLayerSize(ReferenceTasks.CLASSES)
+				.setMomentum(0.3d)
+				.setLearningRate(0.2d)
+				.setEpochs(20),
+				tasks.getTrainingData(), tasks.getTrainingTargets(),
+				tasks.getTestData(), tasks.getTestTargets());
+	}
+
+	private static void compare(final String task,
+			final NNParameters.Builder builder,
+			final List<List<Double>> trainingData,
+			final List<Integer> trainingTargets,
+			final List<List<Double>> testData,
+			final List<Integer> testTargets) {
+
+		final PackedNeuralNetwork doubleNetwork = new NeuralNetworkFactory(builder.setRandom(new Random(SEED)).build()).createPacked();
+		final FloatNeuralNetwork floatNetwork = new NeuralNetworkFactory(builder.setRandom(new Random(SEED)).build()).createFloat();
+
+		doubleNetwork.learn(trainingData, trainingTargets);
+		floatNetwork.learn(trainingData, trainingTargets);
+
+		double maximumDifference = 0d;
+		for (final List<Double> input : testData) {
+
+			final List<Double> doubleOutput = doubleNetwork.getOutput(input);
+			final List<Double> floatOutput = floatNetwork.getOutput(input);
+			for (int o = 0; o < doubleOutput.size(); o++) {
+				maximumDifference = Math.max(maximumDifference, Math.abs(doubleOutput.get(o) - floatOutput.get(o)));
+			}
+		}
+
+		System.out.printf("%-9s double: accuracy %.4f, error %.6f%n", task,
+				ReferenceTasks.accuracy(doubleNetwork, testData, testTargets), doubleNetwork.getLearningError());
+		System.out.printf("%-9s float:  accuracy %.4f, error %.6f, maximum output difference %.2e%n", task,
+				ReferenceTasks.accuracy(floatNetwork, testData, testTargets), floatNetwork.getLearningError(), maximumDifference);
+	}
+}
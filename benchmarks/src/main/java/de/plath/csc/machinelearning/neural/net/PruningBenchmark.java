@@ -0,0 +1,71 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Batch scoring of a magnitude pruned network, by the dense {@link PackedNeuralNetwork} which
+ * multiplies the zero weights and by the {@link PrunedNeuralNetwork} which leaves them out
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PruningBenchmark {
+
+	private static final int BATCH_SIZE = 1024;
+
+	@Param({ "256", "1024" })
+	private int width;
+
+	@Param({ "0.5", "0.9", "0.95" })
+	private double sparsity;
+
+	private PackedNeuralNetwork packedNetwork;
+	private PrunedNeuralNetwork prunedNetwork;
+
+	private double[] inputs;
+	private double[] outputs;
+
+	@Setup
+	public void setUp() {
+
+		packedNetwork = new NeuralNetworkFactory(BenchmarkData.parameters(width, 2)
+				.setActivation(Activations.RELU)
+				.build()).createPacked();
+
+		Pruner.prune(packedNetwork, sparsity);
+		prunedNetwork = Pruner.compress(packedNetwork);
+
+		inputs = BenchmarkData.inputs(BATCH_SIZE, width);
+		outputs = new double[BATCH_SIZE * packedNetwork.getOutputLayerSize()];
+	}
+
+	@Benchmark
+	public double[] packed() {
+
+		packedNetwork.getOutputs(inputs, outputs);
+		return outputs;
+	}
+
+	@Benchmark
+	public double[] pruned() {
+
+		prunedNetwork.getOutputs(inputs, outputs);
+		return outputs;
+	}
+}
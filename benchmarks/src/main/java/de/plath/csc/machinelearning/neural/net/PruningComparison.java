@@ -0,0 +1,73 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Reports the accuracy, the scoring speedup and the model file size of
+ * {@link PrunedNeuralNetwork} at growing sparsity against the trained
+ * {@link PackedNeuralNetwork} on the clusters of {@link ReferenceTasks}, fine-tuning between
+ * the pruning rounds.
+ *
+ */
+public final class PruningComparison {
+
+	private static final long SEED = 42L;
+	private static final int HIDDEN_LAYERS_SIZE = 256;
+	// every call of learn runs this many epochs, both in training and in fine-tuning
+	private static final int FINE_TUNING_EPOCHS = 2;
+	private static final int TRAINING_CALLS = 5;
+	private static final int ROUNDS = 3;
+
+	private PruningComparison() {
+	}
+
+	public static void main(final String[] args) throws IOException {
+
+		final ReferenceTasks tasks = new ReferenceTasks(new Random(SEED));
+
+		final PackedNeuralNetwork reference = new NeuralNetworkFactory(new NNParameters.Builder()
+				.setRandom(new Random(SEED))
+				.setInputLayerSize(ReferenceTasks.FEATURES)
+				.setHiddenLayers(2)
+				.setHiddenLayersSize(HIDDEN_LAYERS_SIZE)
+				.setOutputLayerSize(ReferenceTasks.CLASSES)
+				.setActivation(Activations.RELU)
+				.setMomentum(0.3d)
+				.setLearningRate(0.05d)
+				.setEpochs(FINE_TUNING_EPOCHS)
+				.build()).createPacked();
+
+		for (int i = 0; i < TRAINING_CALLS; i++) {
+			reference.learn(tasks.getTrainingData(), tasks.getTrainingTargets());
+		}
+
+		final Path denseFile = Files.createTempFile("dense", ".jann");
+		final Path prunedFile = Files.createTempFile("pruned", ".jann");
+
+		try {
+			ModelFile.save(reference, denseFile);
+
+			for (final double sparsity : new double[] { 0.5d, 0.7d, 0.8d, 0.9d, 0.95d }) {
+
+				// a copy of the trained network, pruned in place
+				final PackedNeuralNetwork neuralNetwork = ModelFile.loadPacked(denseFile);
+
+				Pruner.prune(neuralNetwork, sparsity, ROUNDS,
+						network -> network.learn(tasks.getTrainingData(), tasks.getTrainingTargets()));
+
+				final PrunedNeuralNetwork pruned = Pruner.compress(neuralNetwork);
+				ModelFile.save(pruned, prunedFile);
+
+				System.out.printf("Clusters, %d hidden: %s (model file %d -> %d bytes)%n", HIDDEN_LAYERS_SIZE,
+						Pruner.report(reference, pruned, tasks.getTestData(), tasks.getTestTargets()),
+						Files.size(denseFile), Files.size(prunedFile));
+			}
+		} finally {
+			Files.delete(denseFile);
+			Files.delete(prunedFile);
+		}
+	}
+}
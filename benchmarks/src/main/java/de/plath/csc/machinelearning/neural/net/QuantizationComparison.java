@@ -0,0 +1,48 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.Random;
+
+/**
+ * Reports the accuracy drop of {@link QuantizedNeuralNetwork} against the trained
+ * {@link PackedNeuralNetwork} on the clusters of {@link ReferenceTasks}, calibrated on a part
+ * of the training samples.
+ *
+ */
+public final class QuantizationComparison {
+
+	private static final long SEED = 42L;
+	private static final int CALIBRATION_SAMPLES = 200;
+
+	private QuantizationComparison() {
+	}
+
+	public static void main(final String[] args) {
+
+		final ReferenceTasks tasks = new ReferenceTasks(new Random(SEED));
+
+		for (final int hiddenLayersSize : new int[] { 32, 128 }) {
+
+			final PackedNeuralNetwork neuralNetwork = new NeuralNetworkFactory(new NNParameters.Builder()
+					.setRandom(new Random(SEED))
+					.setInputLayerSize(ReferenceTasks.FEATURES)
+					.setHiddenLayers(1)
+					.setHiddenLayersSize(hiddenLayersSize)
+					.setOutputLayerSize(ReferenceTasks.CLASSES)
+					.setMomentum(0.3d)
+					.setLearningRate(0.2d)
+					.setEpochs(20)
+					.build()).createPacked();
+
+			neuralNetwork.learn(tasks.getTrainingData(), tasks.getTrainingTargets());
+
+			final QuantizedNeuralNetwork quantized = Quantizer.quantize(neuralNetwork,
+					tasks.getTrainingData().subList(0, CALIBRATION_SAMPLES));
+
+			final long doubleBytes = (long) (ReferenceTasks.FEATURES + 1) * hiddenLayersSize * Double.BYTES
+					+ (long) (hiddenLayersSize + 1) * ReferenceTasks.CLASSES * Double.BYTES;
+
+			System.out.printf("Clusters, %d hidden: %s (double weights %d bytes)%n", hiddenLayersSize,
+					Quantizer.report(neuralNetwork, quantized, tasks.getTestData(), tasks.getTestTargets()), doubleBytes);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import de.plath.csc.machinelearning.neural.api.INeuralNetwork;
+
+/**
+ * Small classification tasks for comparing the accuracy of engines: XOR, and Gaussian clusters
+ * around random centers with separate training and test samples.
+ *
+ */
+final class ReferenceTasks {
+
+	protected static final List<List<Double>> XOR_INPUTS = List.of(List.of(0d, 0d), List.of(0d, 1d), List.of(1d, 0d), List.of(1d, 1d));
+	protected static final List<Integer> XOR_TARGETS = List.of(0, 1, 1, 0);
+
+	protected static final int CLASSES = 5;
+	protected static final int FEATURES = 16;
+
+	private static final int TRAINING_SAMPLES = 2000;
+	private static final int TEST_SAMPLES = 1000;
+
+	private final List<List<Double>> trainingData = new ArrayList<>();
+	private final List<Integer> trainingTargets = new ArrayList<>();
+	private final List<List<Double>> testData = new ArrayList<>();
+	private final List<Integer> testTargets = new ArrayList<>();
+
+	/**
+	 * Draws the clusters
+	 *
+	 * @param random the source of the centers and samples
+	 */
+	protected ReferenceTasks(final Random random) {
+
+		final double[][] centers = new double[CLASSES][FEATURES];
+		for (final double[] center : centers) {
+			for (int i = 0; i < FEATURES; i++) {
+				center[i] = random.nextGaussian();
+			}
+		}
+
+		sample(random, centers, TRAINING_SAMPLES, trainingData, trainingTargets);
+		sample(random, centers, TEST_SAMPLES, testData, testTargets);
+	}
+
+	protected List<List<Double>> getTrainingData() {
+		return trainingData;
+	}
+
+	protected List<Integer> getTrainingTargets() {
+		return trainingTargets;
+	}
+
+	protected List<List<Double>> getTestData() {
+		return testData;
+	}
+
+	protected List<Integer> getTestTargets() {
+		return testTargets;
+	}
+
+	/**
+	 * @return the share of samples whose largest output is the one of their label
+	 */
+	protected static double accuracy(final INeuralNetwork neuralNetwork,
+			final List<List<Double>> data,
+			final List<Integer> targets) {
+
+		int correct = 0;
+		for (int sample = 0; sample < data.size(); sample++) {
+
+			final List<Double> output = neuralNetwork.getOutput(data.get(sample));
+
+			int predicted = 0;
+			for (int o = 1; o < output.size(); o++) {
+				if (output.get(o) > output.get(predicted)) {
+					predicted = o;
+				}
+			}
+			if (predicted == targets.get(sample)) {
+				correct++;
+			}
+		}
+		return (double) correct / data.size();
+	}
+
+	private static void sample(final Random random,
+			final double[][] centers,
+			final int samples,
+			final List<List<Double>> data,
+			final List<Integer> targets) {
+
+		for (int sample = 0; sample < samples; sample++) {
+
+			final int target = random.nextInt(CLASSES);
+			final List<Double> input = new ArrayList<>(FEATURES);
+			for (int i = 0; i < FEATURES; i++) {
+				input.add(centers[target][i] + random.nextGaussian());
+			}
+			data.add(input);
+			targets.add(target);
+		}
+	}
+}
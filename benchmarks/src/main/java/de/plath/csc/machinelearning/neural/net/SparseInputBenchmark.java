@@ -0,0 +1,115 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.plath.csc.machinelearning.neural.api.TrainingSource;
+
+/**
+ * One training epoch and batch scoring of {@link PackedNeuralNetwork} on wide inputs with few
+ * non-zeros, learned and scored as sparse rows or as dense ones
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SparseInputBenchmark {
+
+	private static final long SEED = 42L;
+	private static final int EPOCH_SAMPLES = 64;
+	private static final int NON_ZEROS = 50;
+	private static final int HIDDEN_LAYERS_SIZE = 64;
+
+	@Param({ "10000", "100000" })
+	private int width;
+
+	@Param({ "true", "false" })
+	private boolean sparse;
+
+	private PackedNeuralNetwork neuralNetwork;
+
+	private CsrTrainingSource sparseSource;
+	private TrainingSource denseSource;
+
+	private int[] offsets;
+	private int[] indices;
+	private double[] values;
+	private double[] inputs;
+	private double[] outputs;
+
+	@Setup
+	public void setUp() {
+
+		neuralNetwork = new NeuralNetworkFactory(BenchmarkData.parameters(width, 1)
+				.setHiddenLayersSize(HIDDEN_LAYERS_SIZE)
+				.setActivation(Activations.RELU)
+				.build()).createPacked();
+
+		final Random random = new Random(SEED);
+
+		offsets = new int[EPOCH_SAMPLES + 1];
+		indices = new int[EPOCH_SAMPLES * NON_ZEROS];
+		values = new double[EPOCH_SAMPLES * NON_ZEROS];
+		inputs = new double[EPOCH_SAMPLES * width];
+
+		final int[] targets = new int[EPOCH_SAMPLES];
+
+		for (int sample = 0; sample < EPOCH_SAMPLES; sample++) {
+
+			// ascending indices, one in every stride of the width
+			final int stride = width / NON_ZEROS;
+
+			for (int i = 0; i < NON_ZEROS; i++) {
+
+				final int k = sample * NON_ZEROS + i;
+
+				indices[k] = i * stride + random.nextInt(stride);
+				values[k] = random.nextDouble();
+				inputs[sample * width + indices[k]] = values[k];
+			}
+			offsets[sample + 1] = (sample + 1) * NON_ZEROS;
+			targets[sample] = random.nextInt(neuralNetwork.getOutputLayerSize());
+		}
+
+		sparseSource = new CsrTrainingSource(offsets, indices, values, targets, width);
+		denseSource = sparseSource.toDense();
+		outputs = new double[EPOCH_SAMPLES * neuralNetwork.getOutputLayerSize()];
+	}
+
+	@Benchmark
+	public double epoch() {
+
+		if (sparse) {
+			neuralNetwork.learn(sparseSource);
+		} else {
+			neuralNetwork.learn(denseSource);
+		}
+		return neuralNetwork.getLearningError();
+	}
+
+	@Benchmark
+	public double[] score() {
+
+		if (sparse) {
+			neuralNetwork.getOutputs(offsets, indices, values, outputs);
+		} else {
+			neuralNetwork.getOutputs(inputs, outputs);
+		}
+		return outputs;
+	}
+}
@@ -0,0 +1,86 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.plath.csc.machinelearning.neural.api.TrainingListener;
+
+/**
+ * Per-sample learning of {@link PackedNeuralNetwork} without a {@link TrainingListener},
+ * with one measuring the phases and with a detailed one measuring every layer. Narrow layers
+ * show the cost of the clock reads best.
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrainingListenerBenchmark {
+
+	private static final int SAMPLES = 256;
+
+	@Param({ "16", "128" })
+	private int width;
+
+	@Param({ "none", "phases", "detailed" })
+	private String listener;
+
+	private PackedNeuralNetwork neuralNetwork;
+
+	private List<List<Double>> trainingData;
+	private List<Integer> targets;
+
+	@Setup
+	public void setUp() {
+
+		final NNParameters.Builder builder = BenchmarkData.parameters(width, 2);
+		if (!"none".equals(listener)) {
+			builder.setTrainingListener(new BlackholeListener("detailed".equals(listener)));
+		}
+		neuralNetwork = new NeuralNetworkFactory(builder.build()).createPacked();
+
+		trainingData = BenchmarkData.trainingData(SAMPLES, width);
+		targets = BenchmarkData.targets(SAMPLES);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public void epoch() {
+		neuralNetwork.learn(trainingData, targets);
+	}
+
+	private static final class BlackholeListener implements TrainingListener {
+
+		private final boolean detailed;
+		private double loss;
+
+		private BlackholeListener(final boolean detailed) {
+			this.detailed = detailed;
+		}
+
+		@Override
+		public void onEpoch(final Epoch epoch) {
+			loss += epoch.getLoss();
+		}
+
+		@Override
+		public boolean isDetailed() {
+			return detailed;
+		}
+	}
+}
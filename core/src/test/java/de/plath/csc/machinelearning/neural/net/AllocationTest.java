@@ -0,0 +1,124 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+
+import de.plath.csc.machinelearning.neural.api.INeuralNetwork;
+
+/**
+ * Checks that steady-state training and batch scoring allocate nothing per sample: a call on
+ * twice the samples must allocate exactly as many bytes as a call on the samples once, so
+ * only the fixed cost of a call is left.
+ *
+ */
+class AllocationTest {
+
+	private static final int SAMPLES = 256;
+	private static final int INPUTS = 8;
+	private static final int OUTPUTS = 4;
+	// the kernels only stop allocating once the JIT has compiled them
+	private static final int WARM_UP_CALLS = 100;
+	private static final int ATTEMPTS = 20;
+
+	private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	@BeforeAll
+	static void enableAllocationMeasurement() {
+
+		assumeTrue(THREADS.isThreadAllocatedMemorySupported(), "the JVM cannot measure allocations per thread");
+		THREADS.setThreadAllocatedMemoryEnabled(true);
+	}
+
+	@Test
+	void objectGraphNetworkLearnsWithoutAllocatingPerSample() {
+		assertLearnsWithoutAllocatingPerSample(new NeuralNetworkFactory(parameters()).create());
+	}
+
+	@Test
+	void objectGraphNetworkScoresWithoutAllocatingPerSample() {
+		assertScoresWithoutAllocatingPerSample(new NeuralNetworkFactory(parameters()).create());
+	}
+
+	@Test
+	void packedNetworkLearnsWithoutAllocatingPerSample() {
+		assertLearnsWithoutAllocatingPerSample(new NeuralNetworkFactory(parameters()).createPacked());
+	}
+
+	@Test
+	void packedNetworkScoresWithoutAllocatingPerSample() {
+		assertScoresWithoutAllocatingPerSample(new NeuralNetworkFactory(parameters()).createPacked());
+	}
+
+	private static void assertLearnsWithoutAllocatingPerSample(final INeuralNetwork network) {
+
+		final List<List<Double>> trainingData = TestFixtures.trainingData(1, SAMPLES, INPUTS);
+		final List<Integer> labels = TestFixtures.labels(SAMPLES, OUTPUTS);
+		final List<List<Double>> doubleTrainingData = TestFixtures.trainingData(1, 2 * SAMPLES, INPUTS);
+		final List<Integer> doubleLabels = TestFixtures.labels(2 * SAMPLES, OUTPUTS);
+
+		assertSameAllocations(() -> network.learn(trainingData, labels), () -> network.learn(doubleTrainingData, doubleLabels));
+	}
+
+	private static void assertScoresWithoutAllocatingPerSample(final INeuralNetwork network) {
+
+		final double[] inputs = new double[SAMPLES * INPUTS];
+		final double[] outputs = new double[SAMPLES * OUTPUTS];
+		final double[] doubleInputs = new double[2 * SAMPLES * INPUTS];
+		final double[] doubleOutputs = new double[2 * SAMPLES * OUTPUTS];
+
+		final Random random = new Random(9);
+		for (int i = 0; i < doubleInputs.length; i++) {
+			doubleInputs[i] = random.nextGaussian();
+		}
+		System.arraycopy(doubleInputs, 0, inputs, 0, inputs.length);
+
+		assertSameAllocations(() -> network.getOutputs(inputs, outputs), () -> network.getOutputs(doubleInputs, doubleOutputs));
+	}
+
+	/**
+	 * Warms both calls up and measures them until they allocate the same number of bytes
+	 */
+	private static void assertSameAllocations(final Runnable call, final Runnable doubleCall) {
+
+		long bytes = 0;
+		long doubleBytes = 0;
+
+		for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+
+			for (int i = 0; i < WARM_UP_CALLS; i++) {
+				call.run();
+				doubleCall.run();
+			}
+
+			bytes = allocatedBytes(call);
+			doubleBytes = allocatedBytes(doubleCall);
+			if (bytes == doubleBytes) {
+				return;
+			}
+		}
+		fail(SAMPLES + " samples allocated " + bytes + " bytes, " + 2 * SAMPLES + " samples " + doubleBytes + " bytes.");
+	}
+
+	private static long allocatedBytes(final Runnable call) {
+
+		final long before = THREADS.getCurrentThreadAllocatedBytes();
+		call.run();
+		return THREADS.getCurrentThreadAllocatedBytes() - before;
+	}
+
+	private static NNParameters parameters() {
+		return TestFixtures.parameters(13, INPUTS, 2, 16, OUTPUTS)
+				.setLearningRate(0.1)
+				.setEpochs(1)
+				.build();
+	}
+}
@@ -0,0 +1,331 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Scores samples through a {@link BatchingScorer} and checks the outputs, the limits of its
+ * batches, its statistics and what happens to requests around {@link BatchingScorer#close()}.
+ *
+ */
+class BatchingScorerTest {
+
+	private static final int INPUTS = 4;
+	private static final int OUTPUTS = 2;
+	private static final long TIMEOUT_SECONDS = 10L;
+	// batches are scored by another kernel than single samples, which sums in another order
+	private static final double TOLERANCE = 1e-12;
+
+	@Test
+	void batchedOutputsMatchSingleScoring() throws Exception {
+
+		final RecordingNetwork network = new RecordingNetwork();
+		final List<double[]> inputs = inputs(200);
+		final List<CompletableFuture<double[]>> futures = new ArrayList<>();
+
+		try (BatchingScorer scorer = new BatchingScorer(network, 16, 1L, TimeUnit.MILLISECONDS, 3)) {
+
+			for (final double[] input : inputs) {
+				futures.add(scorer.score(input));
+			}
+			for (int sample = 0; sample < inputs.size(); sample++) {
+
+				final List<Double> input = new ArrayList<>(INPUTS);
+				for (final double value : inputs.get(sample)) {
+					input.add(value);
+				}
+				final List<Double> output = network.getOutput(input);
+
+				final double[] expected = new double[OUTPUTS];
+				for (int o = 0; o < OUTPUTS; o++) {
+					expected[o] = output.get(o);
+				}
+				assertArrayEquals(expected, futures.get(sample).get(TIMEOUT_SECONDS, TimeUnit.SECONDS), TOLERANCE);
+			}
+		}
+	}
+
+	@Test
+	void batchesNeverExceedTheMaximumSize() throws Exception {
+
+		final int maximumBatchSize = 5;
+		final RecordingNetwork network = new RecordingNetwork();
+		final List<CompletableFuture<double[]>> futures = new ArrayList<>();
+
+		try (BatchingScorer scorer = new BatchingScorer(network, maximumBatchSize, 10L, TimeUnit.MILLISECONDS, 1)) {
+
+			// the queue fills up while the worker is held in the first batch
+			network.hold();
+			futures.add(scorer.score(new double[INPUTS]));
+			network.awaitHeld();
+			for (final double[] input : inputs(52)) {
+				futures.add(scorer.score(input));
+			}
+			network.release();
+
+			for (final CompletableFuture<double[]> future : futures) {
+				future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			}
+
+			final ScoringStatistics statistics = scorer.getStatistics();
+			assertEquals(futures.size(), statistics.getRequests());
+			assertEquals(network.batchSizes.size(), statistics.getBatches());
+			assertEquals(0, statistics.getQueueLength());
+
+			final long[] histogram = statistics.getBatchSizeHistogram();
+			assertEquals(maximumBatchSize + 1, histogram.length);
+			assertTrue(histogram[maximumBatchSize] >= 52 / maximumBatchSize, "Full batches " + histogram[maximumBatchSize]);
+		}
+
+		int samples = 0;
+		for (final int batchSize : network.batchSizes) {
+			assertTrue(batchSize > 0 && batchSize <= maximumBatchSize, "Batch size " + batchSize);
+			samples += batchSize;
+		}
+		assertEquals(futures.size(), samples);
+	}
+
+	@Test
+	void failingBatchCompletesEveryFutureExceptionally() throws Exception {
+
+		final RecordingNetwork network = new RecordingNetwork();
+
+		try (BatchingScorer scorer = new BatchingScorer(network, 8, 0L, TimeUnit.MILLISECONDS, 1)) {
+
+			network.hold();
+			final CompletableFuture<double[]> first = scorer.score(new double[INPUTS]);
+			network.awaitHeld();
+
+			// queued together, so that the worker scores them in one batch
+			final List<CompletableFuture<double[]>> failing = new ArrayList<>();
+			for (int sample = 0; sample < 4; sample++) {
+
+				final double[] input = new double[INPUTS];
+				input[0] = sample == 2 ? Double.NaN : sample;
+				failing.add(scorer.score(input));
+			}
+			network.release();
+
+			first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			for (final CompletableFuture<double[]> future : failing) {
+
+				final ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+				assertSame(RecordingNetwork.FAILURE, e.getCause());
+			}
+
+			// the worker still scores
+			assertEquals(OUTPUTS, scorer.score(new double[INPUTS]).get(TIMEOUT_SECONDS, TimeUnit.SECONDS).length);
+			assertEquals(2, scorer.getStatistics().getRequests());
+		}
+	}
+
+	@Test
+	void virtualMachineErrorFailsTheBatchAndStopsItsWorker() throws Exception {
+
+		final RecordingNetwork network = new RecordingNetwork();
+
+		try (BatchingScorer scorer = new BatchingScorer(network, 8, 0L, TimeUnit.MILLISECONDS, 2)) {
+
+			final double[] input = new double[INPUTS];
+			input[0] = Double.POSITIVE_INFINITY;
+			final CompletableFuture<double[]> failing = scorer.score(input);
+
+			final ExecutionException e = assertThrows(ExecutionException.class, () -> failing.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+			assertSame(RecordingNetwork.VIRTUAL_MACHINE_ERROR, e.getCause());
+
+			// the error is rethrown, so its worker stops, and the other one scores on
+			network.awaitStopped();
+			assertEquals(OUTPUTS, scorer.score(new double[INPUTS]).get(TIMEOUT_SECONDS, TimeUnit.SECONDS).length);
+		}
+	}
+
+	@Test
+	void requestsQueuedBeforeCloseComplete() throws Exception {
+
+		final RecordingNetwork network = new RecordingNetwork();
+		final BatchingScorer scorer = new BatchingScorer(network, 4, 1L, TimeUnit.MILLISECONDS, 2);
+		final List<CompletableFuture<double[]>> futures = new ArrayList<>();
+
+		network.hold();
+		futures.add(scorer.score(new double[INPUTS]));
+		network.awaitHeld();
+		for (final double[] input : inputs(20)) {
+			futures.add(scorer.score(input));
+		}
+
+		final Thread closer = new Thread(scorer::close);
+		closer.start();
+		// closed once it waits for the workers
+		while (closer.getState() != Thread.State.WAITING) {
+			assertTrue(closer.isAlive());
+			Thread.sleep(1L);
+		}
+
+		final CompletableFuture<double[]> late = scorer.score(new double[INPUTS]);
+		final ExecutionException e = assertThrows(ExecutionException.class, () -> late.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		assertInstanceOf(IllegalStateException.class, e.getCause());
+
+		network.release();
+		closer.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+
+		for (final CompletableFuture<double[]> future : futures) {
+			assertTrue(future.isDone());
+			assertEquals(OUTPUTS, future.get().length);
+		}
+		assertEquals(futures.size(), scorer.getStatistics().getRequests());
+	}
+
+	@Test
+	void requestsAfterCloseFail() {
+
+		final BatchingScorer scorer = new BatchingScorer(new RecordingNetwork());
+		scorer.close();
+		// closing twice does nothing
+		scorer.close();
+
+		final CompletableFuture<double[]> future = scorer.score(new double[INPUTS]);
+		assertTrue(future.isCompletedExceptionally());
+		final ExecutionException e = assertThrows(ExecutionException.class, future::get);
+		assertInstanceOf(IllegalStateException.class, e.getCause());
+	}
+
+	@Test
+	void closeRacingWithRequestsLeavesNoFuturePending() throws Exception {
+
+		final int threads = 4;
+		final int requests = 2000;
+
+		for (int round = 0; round < 20; round++) {
+
+			final RecordingNetwork network = new RecordingNetwork();
+			final BatchingScorer scorer = new BatchingScorer(network, 8, 100L, TimeUnit.MICROSECONDS, 2);
+			final List<CompletableFuture<double[]>> futures = Collections.synchronizedList(new ArrayList<>());
+			final CountDownLatch started = new CountDownLatch(threads);
+
+			final List<Thread> submitters = new ArrayList<>();
+			for (int thread = 0; thread < threads; thread++) {
+
+				final Thread submitter = new Thread(() -> {
+
+					started.countDown();
+					final double[] input = new double[INPUTS];
+					for (int request = 0; request < requests; request++) {
+						futures.add(scorer.score(input));
+					}
+				});
+				submitter.start();
+				submitters.add(submitter);
+			}
+
+			started.await();
+			scorer.close();
+			for (final Thread submitter : submitters) {
+				submitter.join();
+			}
+
+			long completed = 0;
+			for (final CompletableFuture<double[]> future : futures) {
+
+				assertTrue(future.isDone(), "A future is pending after close.");
+				if (future.isCompletedExceptionally()) {
+					final ExecutionException e = assertThrows(ExecutionException.class, future::get);
+					assertInstanceOf(IllegalStateException.class, e.getCause());
+				} else {
+					completed++;
+				}
+			}
+			assertEquals(threads * requests, futures.size());
+			assertEquals(completed, scorer.getStatistics().getRequests());
+		}
+	}
+
+	private static List<double[]> inputs(final int samples) {
+
+		final List<double[]> inputs = new ArrayList<>(samples);
+		for (final List<Double> sample : TestFixtures.trainingData(7, samples, INPUTS)) {
+			inputs.add(TestFixtures.flatten(List.of(sample), INPUTS));
+		}
+		return inputs;
+	}
+
+	/**
+	 * A packed network which records the size of every batch, can hold the worker scoring a
+	 * batch until it is released, fails every batch with a NaN input and throws a virtual
+	 * machine error for an infinite input
+	 */
+	private static final class RecordingNetwork extends PackedNeuralNetwork {
+
+		private static final RuntimeException FAILURE = new IllegalArgumentException("NaN input");
+		private static final VirtualMachineError VIRTUAL_MACHINE_ERROR = new OutOfMemoryError("Infinite input");
+
+		private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+		private volatile CountDownLatch held = new CountDownLatch(0);
+		private volatile CountDownLatch gate = new CountDownLatch(0);
+		private final CountDownLatch stopped = new CountDownLatch(1);
+
+		private RecordingNetwork() {
+			this(new NeuralNetworkFactory(TestFixtures.parameters(19, INPUTS, 1, 6, OUTPUTS).build()).createPacked());
+		}
+
+		private RecordingNetwork(final PackedNeuralNetwork network) {
+			super(network.getParameters(), network.getLayers());
+		}
+
+		private void hold() {
+
+			held = new CountDownLatch(1);
+			gate = new CountDownLatch(1);
+		}
+
+		private void awaitHeld() throws InterruptedException {
+			assertTrue(held.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		}
+
+		private void release() {
+			gate.countDown();
+		}
+
+		private void awaitStopped() throws InterruptedException {
+			assertTrue(stopped.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		}
+
+		@Override
+		public void getOutputs(final double[] inputs, final double[] outputs) {
+
+			held.countDown();
+			try {
+				assertTrue(gate.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			batchSizes.add(inputs.length / INPUTS);
+			for (final double input : inputs) {
+				if (Double.isNaN(input)) {
+					throw FAILURE;
+				}
+				if (Double.isInfinite(input)) {
+					// counted down by the worker thread as it dies
+					Thread.currentThread().setUncaughtExceptionHandler((thread, e) -> stopped.countDown());
+					throw VIRTUAL_MACHINE_ERROR;
+				}
+			}
+			super.getOutputs(inputs, outputs);
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import de.plath.csc.machinelearning.neural.api.INeuralNetwork;
+
+/**
+ * Scores the same inputs on one trained network from many threads at once and checks that
+ * every thread gets exactly the outputs of serial scoring.
+ *
+ */
+class ConcurrentScoringTest {
+
+	private static final int THREADS = 8;
+	private static final int ROUNDS = 50;
+	private static final int SAMPLES = 64;
+	private static final int INPUTS = 6;
+	private static final int OUTPUTS = 3;
+
+	@Test
+	void objectGraphNetworkScoresConcurrently() throws Exception {
+
+		final NeuralNetwork network = new NeuralNetworkFactory(parameters()).create();
+		network.learn(TestFixtures.trainingData(5, SAMPLES, INPUTS), TestFixtures.labels(SAMPLES, OUTPUTS));
+
+		assertConcurrentOutputs(network);
+	}
+
+	@Test
+	void packedNetworkScoresConcurrently() throws Exception {
+
+		final PackedNeuralNetwork network = new NeuralNetworkFactory(parameters()).createPacked();
+		network.learn(TestFixtures.trainingData(5, SAMPLES, INPUTS), TestFixtures.labels(SAMPLES, OUTPUTS));
+
+		assertConcurrentOutputs(network);
+	}
+
+	@Test
+	void floatNetworkScoresConcurrently() throws Exception {
+
+		final FloatNeuralNetwork network = new NeuralNetworkFactory(parameters()).createFloat();
+		network.learn(TestFixtures.trainingData(5, SAMPLES, INPUTS), TestFixtures.labels(SAMPLES, OUTPUTS));
+
+		assertConcurrentOutputs(network);
+	}
+
+	private static void assertConcurrentOutputs(final INeuralNetwork network) throws Exception {
+
+		final List<List<Double>> inputs = TestFixtures.trainingData(5, SAMPLES, INPUTS);
+		final double[] batch = TestFixtures.flatten(inputs, INPUTS);
+
+		final double[] serialOutputs = scoreOneByOne(network, inputs);
+		final double[] serialBatchOutputs = new double[SAMPLES * OUTPUTS];
+		network.getOutputs(batch, serialBatchOutputs);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			final CountDownLatch start = new CountDownLatch(1);
+			final List<Future<List<double[]>>> results = new ArrayList<>();
+
+			for (int thread = 0; thread < THREADS; thread++) {
+
+				// half of the threads score one input at a time, the other half whole batches
+				final boolean batched = thread % 2 == 1;
+				final Callable<List<double[]>> scorer = () -> {
+
+					start.await();
+					final List<double[]> rounds = new ArrayList<>(ROUNDS);
+					for (int round = 0; round < ROUNDS; round++) {
+
+						if (batched) {
+							final double[] outputs = new double[SAMPLES * OUTPUTS];
+							network.getOutputs(batch, outputs);
+							rounds.add(outputs);
+						} else {
+							rounds.add(scoreOneByOne(network, inputs));
+						}
+					}
+					return rounds;
+				};
+				results.add(executor.submit(scorer));
+			}
+			start.countDown();
+
+			for (int thread = 0; thread < THREADS; thread++) {
+
+				final double[] expected = thread % 2 == 1 ? serialBatchOutputs : serialOutputs;
+				for (final double[] outputs : results.get(thread).get()) {
+					assertArrayEquals(expected, outputs);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static double[] scoreOneByOne(final INeuralNetwork network, final List<List<Double>> inputs) {
+
+		final double[] outputs = new double[inputs.size() * OUTPUTS];
+		for (int sample = 0; sample < inputs.size(); sample++) {
+
+			final List<Double> output = network.getOutput(inputs.get(sample));
+			for (int o = 0; o < OUTPUTS; o++) {
+				outputs[sample * OUTPUTS + o] = output.get(o);
+			}
+		}
+		return outputs;
+	}
+
+	private static NNParameters parameters() {
+		return TestFixtures.parameters(11, INPUTS, 2, 10, OUTPUTS).setEpochs(5).build();
+	}
+}
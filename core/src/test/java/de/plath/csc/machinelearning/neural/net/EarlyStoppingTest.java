@@ -0,0 +1,98 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import de.plath.csc.machinelearning.neural.api.TrainingListener;
+
+/**
+ * Trains a network which overfits its training samples, so that the validation error first
+ * falls and then rises, and checks that early stopping ends up with the weights of the epoch
+ * with the lowest validation error.
+ *
+ */
+class EarlyStoppingTest {
+
+	private static final int SAMPLES = 30;
+	private static final int INPUTS = 5;
+	private static final int OUTPUTS = 3;
+	private static final int EPOCHS = 200;
+	private static final int PATIENCE = 4;
+
+	@Test
+	void weightsOfTheBestEpochAreRestored() {
+
+		final List<Double> validationLosses = new ArrayList<>();
+		final List<double[][]> weights = new ArrayList<>();
+		final PackedNeuralNetwork[] network = new PackedNeuralNetwork[1];
+
+		final TrainingListener listener = epoch -> {
+
+			validationLosses.add(epoch.getValidationLoss());
+			final List<PackedLayer> layers = network[0].getLayers();
+			final double[][] snapshot = new double[layers.size()][];
+			for (int l = 0; l < layers.size(); l++) {
+				snapshot[l] = layers.get(l).getWeights().clone();
+			}
+			weights.add(snapshot);
+		};
+
+		// the labels of the validation samples are unrelated to those learned, so that the
+		// network improves on them while it learns the frequencies of the labels and gets worse
+		// once it learns the training samples by heart
+		final Random random = new Random(79);
+		final List<Integer> validationLabels = new ArrayList<>();
+		for (int sample = 0; sample < SAMPLES; sample++) {
+			validationLabels.add(random.nextInt(OUTPUTS));
+		}
+
+		network[0] = new NeuralNetworkFactory(parameters()
+				.setValidationData(TestFixtures.trainingData(83, SAMPLES, INPUTS), validationLabels)
+				.setPatience(PATIENCE)
+				.setTrainingListener(listener)
+				.build()).createPacked();
+		network[0].learn(TestFixtures.trainingData(89, SAMPLES, INPUTS), TestFixtures.labels(SAMPLES, OUTPUTS));
+
+		int best = 0;
+		for (int epoch = 1; epoch < validationLosses.size(); epoch++) {
+			if (validationLosses.get(epoch) < validationLosses.get(best)) {
+				best = epoch;
+			}
+		}
+
+		// the validation error rose after an epoch in the middle, until the patience ran out
+		assertTrue(best > 0, "Best epoch " + (best + 1));
+		assertEquals(best + 1 + PATIENCE, validationLosses.size());
+		assertTrue(validationLosses.size() < EPOCHS);
+
+		assertEquals(validationLosses.get(best), network[0].getValidationError());
+		final List<PackedLayer> layers = network[0].getLayers();
+		for (int l = 0; l < layers.size(); l++) {
+			assertArrayEquals(weights.get(best)[l], layers.get(l).getWeights(), "layer " + l);
+		}
+	}
+
+	@Test
+	void emptyValidationSourceIsRejected() {
+
+		final PackedNeuralNetwork network = new NeuralNetworkFactory(parameters()
+				.setValidationSource(new ArrayTrainingSource(new double[0], new int[0], INPUTS))
+				.build()).createPacked();
+
+		final IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+				() -> network.learn(TestFixtures.trainingData(89, SAMPLES, INPUTS), TestFixtures.labels(SAMPLES, OUTPUTS)));
+		assertEquals("The validation source has no samples.", e.getMessage());
+	}
+
+	private static NNParameters.Builder parameters() {
+		return TestFixtures.parameters(97, INPUTS, 1, 20, OUTPUTS).setLearningRate(0.5).setMomentum(0.5).setEpochs(EPOCHS);
+	}
+}
@@ -0,0 +1,82 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Trains the float engine and the packed double engine from the same seed and checks that
+ * they follow the same trajectory up to the rounding of floats.
+ *
+ */
+class FloatNeuralNetworkTest {
+
+	private static final int SAMPLES = 60;
+	private static final int INPUTS = 6;
+	private static final int OUTPUTS = 3;
+	private static final double WEIGHT_TOLERANCE = 1e-4;
+	private static final double OUTPUT_TOLERANCE = 1e-4;
+
+	@Test
+	void initialWeightsAreTheRoundedDoubleWeights() {
+
+		final List<PackedLayer> expected = new NeuralNetworkFactory(parameters().build()).createPacked().getLayers();
+		final List<FloatLayer> actual = new NeuralNetworkFactory(parameters().build()).createFloat().getLayers();
+
+		assertEquals(expected.size(), actual.size());
+		for (int l = 0; l < expected.size(); l++) {
+
+			final double[] expectedWeights = expected.get(l).getWeights();
+			final float[] actualWeights = actual.get(l).getWeights();
+			for (int w = 0; w < expectedWeights.length; w++) {
+				assertEquals((float) expectedWeights[w], actualWeights[w], "layer " + l + ", weight " + w);
+			}
+		}
+	}
+
+	@Test
+	void floatTrainingFollowsDoubleTraining() {
+
+		final List<List<Double>> trainingData = TestFixtures.trainingData(149, SAMPLES, INPUTS);
+		final List<Integer> labels = TestFixtures.labels(SAMPLES, OUTPUTS);
+
+		final PackedNeuralNetwork packed = new NeuralNetworkFactory(parameters().build()).createPacked();
+		final FloatNeuralNetwork single = new NeuralNetworkFactory(parameters().build()).createFloat();
+		packed.learn(trainingData, labels);
+		single.learn(trainingData, labels);
+
+		final List<PackedLayer> initial = new NeuralNetworkFactory(parameters().build()).createPacked().getLayers();
+		final List<PackedLayer> expected = packed.getLayers();
+		final List<FloatLayer> actual = single.getLayers();
+		double largestStep = 0d;
+		for (int l = 0; l < expected.size(); l++) {
+
+			final double[] expectedWeights = expected.get(l).getWeights();
+			final float[] actualWeights = actual.get(l).getWeights();
+			for (int w = 0; w < expectedWeights.length; w++) {
+				assertEquals(expectedWeights[w], actualWeights[w], WEIGHT_TOLERANCE, "layer " + l + ", weight " + w);
+				largestStep = Math.max(largestStep, Math.abs(expectedWeights[w] - initial.get(l).getWeights()[w]));
+			}
+		}
+		// the training moved the weights far beyond the tolerance
+		assertTrue(largestStep > 1000 * WEIGHT_TOLERANCE, "Largest step " + largestStep);
+
+		assertEquals(packed.getLearningError(), single.getLearningError(), OUTPUT_TOLERANCE);
+
+		final double[] inputs = TestFixtures.flatten(TestFixtures.trainingData(151, SAMPLES, INPUTS), INPUTS);
+		final double[] expectedOutputs = new double[SAMPLES * OUTPUTS];
+		final double[] actualOutputs = new double[SAMPLES * OUTPUTS];
+		packed.getOutputs(inputs, expectedOutputs);
+		single.getOutputs(inputs, actualOutputs);
+		for (int o = 0; o < expectedOutputs.length; o++) {
+			assertEquals(expectedOutputs[o], actualOutputs[o], OUTPUT_TOLERANCE, "output " + o);
+		}
+	}
+
+	private static NNParameters.Builder parameters() {
+		return TestFixtures.parameters(157, INPUTS, 2, 10, OUTPUTS).setLearningRate(0.5).setMomentum(0.5).setEpochs(20);
+	}
+}
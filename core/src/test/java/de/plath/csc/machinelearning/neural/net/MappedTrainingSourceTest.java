@@ -0,0 +1,158 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.plath.csc.machinelearning.neural.api.TrainingSource;
+
+/**
+ * Converts a CSV file into a mapped training data file and reads it back, and checks that
+ * files with damaged headers are rejected.
+ *
+ */
+class MappedTrainingSourceTest {
+
+	private static final int INPUTS = 3;
+	// the offsets of the fields of the header
+	private static final int MAGIC = 0;
+	private static final int VERSION = 4;
+	private static final int INPUT_SIZE = 8;
+	private static final int SAMPLES = 16;
+
+	private static final String CSV = String.join("\n",
+			"a,b,c,label",
+			"0.5,-1.25,3,0",
+			"",
+			"1e-3,2E2,-0,2",
+			"  ",
+			"7,8,9, 1",
+			"");
+	private static final double[][] INPUT_ROWS = { { 0.5, -1.25, 3 }, { 1e-3, 2e2, -0d }, { 7, 8, 9 } };
+	private static final int[] TARGETS = { 0, 2, 1 };
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void csvFileSurvivesTheConversion() throws IOException {
+
+		final Path path = written();
+		final MappedTrainingSource source = new MappedTrainingSource(path);
+
+		assertEquals(INPUTS, source.getInputSize());
+		assertEquals(INPUT_ROWS.length, source.getSize());
+
+		// twice, as every epoch opens a new reader
+		for (int epoch = 0; epoch < 2; epoch++) {
+			try (TrainingSource.Reader reader = source.open()) {
+
+				for (int sample = 0; sample < INPUT_ROWS.length; sample++) {
+
+					final double[] inputs = new double[INPUTS + 1];
+					assertTrue(reader.next(inputs, 1));
+					assertArrayEquals(INPUT_ROWS[sample], Arrays.copyOfRange(inputs, 1, INPUTS + 1));
+					assertEquals(TARGETS[sample], reader.getTarget());
+				}
+				assertFalse(reader.next(new double[INPUTS], 0));
+			}
+		}
+
+		// backwards by index
+		for (int sample = INPUT_ROWS.length - 1; sample >= 0; sample--) {
+
+			final double[] inputs = new double[INPUTS];
+			assertEquals(TARGETS[sample], source.read(sample, inputs, 0));
+			assertArrayEquals(INPUT_ROWS[sample], inputs);
+		}
+	}
+
+	@Test
+	void emptyCsvFileGivesAnEmptySource() throws IOException {
+
+		final Path csv = directory.resolve("empty.csv");
+		Files.writeString(csv, "a,b,c,label\n", StandardCharsets.UTF_8);
+		final Path path = directory.resolve("empty.jtrn");
+		MappedTrainingSource.write(new CsvTrainingSource(csv, INPUTS, true), path);
+
+		final MappedTrainingSource source = new MappedTrainingSource(path);
+		assertEquals(0, source.getSize());
+		try (TrainingSource.Reader reader = source.open()) {
+			assertFalse(reader.next(new double[INPUTS], 0));
+		}
+	}
+
+	@Test
+	void malformedCsvLineIsRejected() throws IOException {
+
+		for (final String line : List.of("1,2,0", "1,x,3,0", "1,2,3,0.5")) {
+
+			final Path csv = directory.resolve("malformed.csv");
+			Files.writeString(csv, "1,2,3,0\n" + line + "\n", StandardCharsets.UTF_8);
+
+			final IOException e = assertThrows(IOException.class,
+					() -> MappedTrainingSource.write(new CsvTrainingSource(csv, INPUTS, false), directory.resolve("malformed.jtrn")),
+					line);
+			assertTrue(e.getMessage().startsWith("Line 2 of "), e.getMessage());
+		}
+	}
+
+	@Test
+	void corruptHeaderIsRejected() throws IOException {
+
+		assertRejected(header -> header.putInt(MAGIC, 0x4E52544B), "magic");
+		assertRejected(header -> header.putInt(VERSION, 2), "version");
+		assertRejected(header -> header.putInt(INPUT_SIZE, 0), "no inputs");
+		assertRejected(header -> header.putInt(INPUT_SIZE, -3), "negative inputs");
+		assertRejected(header -> header.putInt(INPUT_SIZE, INPUTS + 1), "more inputs than stored");
+		assertRejected(header -> header.putLong(SAMPLES, -1L), "negative samples");
+		assertRejected(header -> header.putLong(SAMPLES, INPUT_ROWS.length + 1), "more samples than stored");
+		// times the row size of 32 bytes this wraps around to 0
+		assertRejected(header -> header.putLong(SAMPLES, Long.MAX_VALUE / 16 + 1), "overflowing samples");
+		assertRejected(header -> header.putLong(SAMPLES, Long.MAX_VALUE), "largest sample count");
+	}
+
+	@Test
+	void fileShorterThanTheHeaderIsRejected() throws IOException {
+
+		final Path path = written();
+		Files.write(path, Arrays.copyOf(Files.readAllBytes(path), 10));
+
+		assertThrows(IOException.class, () -> new MappedTrainingSource(path));
+	}
+
+	private void assertRejected(final Consumer<ByteBuffer> corruption, final String message) throws IOException {
+
+		final Path path = written();
+		final byte[] bytes = Files.readAllBytes(path);
+		corruption.accept(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN));
+		Files.write(path, bytes);
+
+		assertThrows(IOException.class, () -> new MappedTrainingSource(path), message);
+	}
+
+	private Path written() throws IOException {
+
+		final Path csv = directory.resolve("samples.csv");
+		Files.writeString(csv, CSV, StandardCharsets.UTF_8);
+
+		final Path path = directory.resolve("samples.jtrn");
+		MappedTrainingSource.write(new CsvTrainingSource(csv, INPUTS, true), path);
+		return path;
+	}
+}
@@ -0,0 +1,103 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks mini-batch training against per-sample learning: a batch of one sample takes the same
+ * step, momentum included, and a larger batch takes the mean of the steps of its samples.
+ *
+ */
+class MiniBatchTrainingTest {
+
+	private static final int INPUTS = 6;
+	private static final int OUTPUTS = 3;
+	private static final int BATCH_SIZE = 8;
+	// batches multiply matrices, which sum in another order than the per-sample loops
+	private static final double TOLERANCE = 1e-12;
+
+	@Test
+	void batchOfOneSampleStepsLikePerSampleLearning() {
+
+		final PackedNeuralNetwork perSample = new NeuralNetworkFactory(parameters(1, 0.5).build()).createPacked();
+		final PackedNeuralNetwork batched = new NeuralNetworkFactory(parameters(BATCH_SIZE, 0.5).build()).createPacked();
+
+		final List<List<Double>> trainingData = TestFixtures.trainingData(3, 20, INPUTS);
+		final List<Integer> labels = TestFixtures.labels(20, OUTPUTS);
+
+		// one sample per epoch, so that every batch holds a single sample and the momentum
+		// carries over from one batch to the next
+		for (int sample = 0; sample < trainingData.size(); sample++) {
+
+			perSample.learn(trainingData.subList(sample, sample + 1), labels.subList(sample, sample + 1));
+			batched.learn(trainingData.subList(sample, sample + 1), labels.subList(sample, sample + 1));
+		}
+
+		assertWeights(perSample.getLayers(), batched.getLayers());
+	}
+
+	@Test
+	void batchStepsByTheMeanOfThePerSampleSteps() {
+
+		final List<List<Double>> trainingData = TestFixtures.trainingData(5, BATCH_SIZE, INPUTS);
+		final List<Integer> labels = TestFixtures.labels(BATCH_SIZE, OUTPUTS);
+
+		final List<PackedLayer> initial = new NeuralNetworkFactory(parameters(1, 0d).build()).createPacked().getLayers();
+		final double[][] expected = new double[initial.size()][];
+		for (int l = 0; l < initial.size(); l++) {
+			expected[l] = initial.get(l).getWeights().clone();
+		}
+
+		// every sample steps from the initial weights
+		for (int sample = 0; sample < BATCH_SIZE; sample++) {
+
+			final PackedNeuralNetwork perSample = new NeuralNetworkFactory(parameters(1, 0d).build()).createPacked();
+			perSample.learn(trainingData.subList(sample, sample + 1), labels.subList(sample, sample + 1));
+
+			for (int l = 0; l < initial.size(); l++) {
+
+				final double[] weights = perSample.getLayers().get(l).getWeights();
+				for (int w = 0; w < weights.length; w++) {
+					expected[l][w] += (weights[w] - initial.get(l).getWeights()[w]) / BATCH_SIZE;
+				}
+			}
+		}
+
+		final PackedNeuralNetwork batched = new NeuralNetworkFactory(parameters(BATCH_SIZE, 0d).build()).createPacked();
+		batched.learn(trainingData, labels);
+
+		final List<PackedLayer> layers = batched.getLayers();
+		for (int l = 0; l < layers.size(); l++) {
+
+			final double[] weights = layers.get(l).getWeights();
+			for (int w = 0; w < weights.length; w++) {
+				assertEquals(expected[l][w], weights[w], TOLERANCE, "layer " + l + ", weight " + w);
+			}
+		}
+	}
+
+	private static void assertWeights(final List<PackedLayer> expected, final List<PackedLayer> actual) {
+
+		assertEquals(expected.size(), actual.size());
+		for (int l = 0; l < expected.size(); l++) {
+
+			final double[] expectedWeights = expected.get(l).getWeights();
+			final double[] actualWeights = actual.get(l).getWeights();
+			for (int w = 0; w < expectedWeights.length; w++) {
+				assertEquals(expectedWeights[w], actualWeights[w], TOLERANCE, "layer " + l + ", weight " + w);
+			}
+		}
+	}
+
+	private static NNParameters.Builder parameters(final int batchSize, final double momentum) {
+
+		return TestFixtures.parameters(47, INPUTS, 2, 9, OUTPUTS)
+				.setBatchSize(batchSize)
+				.setMomentum(momentum)
+				.setLearningRate(0.5)
+				.setEpochs(1);
+	}
+}
@@ -0,0 +1,225 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+
+/**
+ * Trains a tapered network whose hidden layers have different activations and checks that
+ * every engine applies the derivative of the next hidden layer's own activation to its
+ * outputs. The reference below computes the update of one sample with the derivatives of the
+ * activations taken by finite differences at the net inputs of the neurons, so it does not
+ * depend on which layer's {@link Activation#derivative(double)} an engine calls.
+ *
+ */
+class MixedActivationTest {
+
+	private static final int INPUTS = 6;
+	private static final int OUTPUTS = 3;
+	private static final Activation[] HIDDEN_ACTIVATIONS = { Activations.RELU, Activations.TANH, Activations.SIGMOID };
+	private static final int[] HIDDEN_SIZES = { 8, 5, 4 };
+	// large, so that the deltas of the first layer, which scale with its cube, stand out in floats
+	private static final double LEARNING_RATE = 4d;
+	private static final double EPSILON = 1e-5;
+
+	@Test
+	void objectGraphAndPackedEnginesLearnTheSameWeights() {
+
+		final List<List<Double>> trainingData = TestFixtures.trainingData(23, 40, INPUTS);
+		final List<Integer> labels = TestFixtures.labels(40, OUTPUTS);
+
+		final NeuralNetwork graph = new NeuralNetworkFactory(parameters().setMomentum(0.5).setEpochs(3).build()).create();
+		final PackedNeuralNetwork packed = new NeuralNetworkFactory(parameters().setMomentum(0.5).setEpochs(3).build()).createPacked();
+		graph.learn(trainingData, labels);
+		packed.learn(trainingData, labels);
+
+		final List<PackedLayer> graphLayers = graph.getPackedLayers();
+		final List<PackedLayer> packedLayers = packed.getLayers();
+		for (int l = 0; l < packedLayers.size(); l++) {
+			assertArrayEquals(packedLayers.get(l).getWeights(), graphLayers.get(l).getWeights(), "layer " + l);
+		}
+	}
+
+	@Test
+	void objectGraphEngineMatchesTheFiniteDifferenceReference() {
+
+		final NeuralNetwork network = new NeuralNetworkFactory(parameters().build()).create();
+		final double[][] expected = referenceWeights(network.getPackedLayers());
+
+		network.learn(sample(), List.of(1));
+
+		assertWeights(expected, network.getPackedLayers(), 1e-9);
+	}
+
+	@Test
+	void packedEngineMatchesTheFiniteDifferenceReference() {
+
+		final PackedNeuralNetwork network = new NeuralNetworkFactory(parameters().build()).createPacked();
+		final double[][] expected = referenceWeights(network.getLayers());
+
+		network.learn(sample(), List.of(1));
+
+		assertWeights(expected, network.getLayers(), 1e-9);
+	}
+
+	@Test
+	void batchEngineMatchesTheFiniteDifferenceReference() {
+
+		// a batch of one sample takes the same step as per-sample learning
+		final PackedNeuralNetwork network = new NeuralNetworkFactory(parameters().setBatchSize(4).build()).createPacked();
+		final double[][] expected = referenceWeights(network.getLayers());
+
+		network.learn(sample(), List.of(1));
+
+		assertWeights(expected, network.getLayers(), 1e-9);
+	}
+
+	@Test
+	void floatEngineMatchesTheFiniteDifferenceReference() {
+
+		final NNParameters nnParameters = parameters().build();
+		final FloatNeuralNetwork network = new NeuralNetworkFactory(nnParameters).createFloat();
+		final double[][] expected = referenceWeights(new NeuralNetworkFactory(parameters().build()).createPacked().getLayers());
+
+		network.learn(sample(), List.of(1));
+
+		final List<FloatLayer> layers = network.getLayers();
+		assertEquals(expected.length, layers.size());
+		for (int l = 0; l < layers.size(); l++) {
+
+			final float[] weights = layers.get(l).getWeights();
+			for (int w = 0; w < weights.length; w++) {
+				assertEquals(expected[l][w], weights[w], 1e-6, "layer " + l + ", weight " + w);
+			}
+		}
+	}
+
+	/**
+	 * @param layers the layers before learning {@link #sample()}, left unchanged
+	 * @return the weights of every layer after learning the sample
+	 */
+	private static double[][] referenceWeights(final List<PackedLayer> layers) {
+
+		final int layerCount = layers.size();
+		final Activation[] activations = new Activation[layerCount];
+		final double[][] netInputs = new double[layerCount][];
+		final double[][] outputs = new double[layerCount + 1][];
+
+		final List<Double> input = sample().get(0);
+		outputs[0] = new double[INPUTS];
+		for (int i = 0; i < INPUTS; i++) {
+			outputs[0][i] = Activations.SIGMOID.applyAsDouble(input.get(i) + 0d);
+		}
+
+		for (int l = 0; l < layerCount; l++) {
+
+			final PackedLayer layer = layers.get(l);
+			activations[l] = l < HIDDEN_ACTIVATIONS.length ? HIDDEN_ACTIVATIONS[l] : Activations.SIGMOID;
+			netInputs[l] = new double[layer.getSize()];
+			outputs[l + 1] = new double[layer.getSize()];
+
+			for (int n = 0; n < layer.getSize(); n++) {
+
+				double sum = layer.getBiases()[n];
+				for (int p = 0; p < layer.getInputSize(); p++) {
+					sum += layer.getWeights()[n * layer.getInputSize() + p] * outputs[l][p];
+				}
+				netInputs[l][n] = sum;
+				outputs[l + 1][n] = activations[l].applyAsDouble(sum);
+			}
+		}
+
+		final double[][] deltas = new double[layerCount][];
+
+		// output layer: the gradient of the squared error
+		final int last = layerCount - 1;
+		deltas[last] = new double[layers.get(last).getWeights().length];
+		for (int o = 0; o < OUTPUTS; o++) {
+
+			final double target = o == 1 ? 1d : 0d;
+			final double gradient = LEARNING_RATE * (outputs[last + 1][o] - target) * derivative(activations[last], netInputs[last][o]);
+			for (int p = 0; p < layers.get(last).getInputSize(); p++) {
+				deltas[last][o * layers.get(last).getInputSize() + p] = gradient * outputs[last][p];
+			}
+		}
+
+		for (int l = last - 1; l >= 0; l--) {
+
+			final PackedLayer layer = layers.get(l);
+			final PackedLayer next = layers.get(l + 1);
+			deltas[l] = new double[layer.getWeights().length];
+
+			for (int h = 0; h < layer.getSize(); h++) {
+
+				double totalOutput = 0d;
+				for (int n = 0; n < next.getSize(); n++) {
+
+					// the derivative of the next hidden layer, or, before the output layer, the
+					// one of this layer applied to the outputs, which the engines have always used
+					final double nextDerivative = l + 1 < last
+							? derivative(activations[l + 1], netInputs[l + 1][n])
+							: activations[l].derivative(outputs[l + 2][n]);
+
+					totalOutput += next.getWeights()[n * layer.getSize() + h] * deltas[l + 1][n * layer.getSize() + h] * nextDerivative;
+				}
+
+				final double gradient = LEARNING_RATE * totalOutput;
+				final double hiddenDerivative = derivative(activations[l], netInputs[l][h]);
+				for (int p = 0; p < layer.getInputSize(); p++) {
+					deltas[l][h * layer.getInputSize() + p] = gradient * (hiddenDerivative * outputs[l][p]);
+				}
+			}
+		}
+
+		final double[][] weights = new double[layerCount][];
+		for (int l = 0; l < layerCount; l++) {
+
+			weights[l] = layers.get(l).getWeights().clone();
+			for (int w = 0; w < weights[l].length; w++) {
+				weights[l][w] -= deltas[l][w];
+			}
+		}
+		return weights;
+	}
+
+	private static double derivative(final Activation activation, final double netInput) {
+		return (activation.applyAsDouble(netInput + EPSILON) - activation.applyAsDouble(netInput - EPSILON)) / (2d * EPSILON);
+	}
+
+	private static void assertWeights(final double[][] expected, final List<PackedLayer> layers, final double tolerance) {
+
+		assertEquals(expected.length, layers.size());
+		for (int l = 0; l < layers.size(); l++) {
+
+			final double[] weights = layers.get(l).getWeights();
+			for (int w = 0; w < weights.length; w++) {
+				assertEquals(expected[l][w], weights[w], tolerance, "layer " + l + ", weight " + w);
+			}
+		}
+	}
+
+	private static List<List<Double>> sample() {
+		return TestFixtures.trainingData(29, 1, INPUTS);
+	}
+
+	private static NNParameters.Builder parameters() {
+
+		final NNParameters.Builder builder = new NNParameters.Builder()
+				.setRandom(new Random(31))
+				.setInputLayerSize(INPUTS)
+				.setOutputLayerSize(OUTPUTS)
+				.setLearningRate(LEARNING_RATE)
+				.setMomentum(0d)
+				.setEpochs(1);
+		for (int l = 0; l < HIDDEN_SIZES.length; l++) {
+			builder.addHiddenLayer(HIDDEN_SIZES[l], HIDDEN_ACTIVATIONS[l]);
+		}
+		return builder;
+	}
+}
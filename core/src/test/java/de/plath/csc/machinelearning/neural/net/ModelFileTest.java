@@ -0,0 +1,208 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.plath.csc.machinelearning.neural.api.INeuralNetwork;
+
+/**
+ * Saves networks in every version of the model file, loads them back and checks that they
+ * score exactly like the saved ones, and that damaged files are rejected.
+ *
+ */
+class ModelFileTest {
+
+	private static final int SAMPLES = 16;
+	private static final int INPUTS = 5;
+	private static final int OUTPUTS = 3;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void denseNetworkIsStoredAsVersion1() throws IOException {
+
+		final PackedNeuralNetwork network = trained(uniform());
+		final Path path = directory.resolve("dense.jann");
+		ModelFile.save(network, path);
+
+		assertEquals(1, version(path));
+		assertSameOutputs(network, ModelFile.loadPacked(path));
+		assertSameOutputs(network, ModelFile.loadOffHeap(path));
+		assertSameWeights(network.getLayers(), ModelFile.load(path).getPackedLayers());
+	}
+
+	@Test
+	void objectGraphNetworkIsStoredAsVersion1() throws IOException {
+
+		final NeuralNetwork network = new NeuralNetworkFactory(uniform().build()).create();
+		network.learn(TestFixtures.trainingData(2, SAMPLES, INPUTS), TestFixtures.labels(SAMPLES, OUTPUTS));
+		final Path path = directory.resolve("graph.jann");
+		ModelFile.save(network, path);
+
+		assertEquals(1, version(path));
+		assertSameOutputs(network, ModelFile.load(path));
+	}
+
+	@Test
+	void prunedNetworkIsStoredAsVersion2() throws IOException {
+
+		final PackedNeuralNetwork network = trained(uniform());
+		Pruner.prune(network, 0.5);
+		final PrunedNeuralNetwork pruned = Pruner.compress(network);
+		final Path path = directory.resolve("pruned.jann");
+		ModelFile.save(pruned, path);
+
+		assertEquals(2, version(path));
+		assertSameOutputs(pruned, ModelFile.loadPruned(path));
+		assertThrows(IOException.class, () -> ModelFile.loadPacked(path));
+	}
+
+	@Test
+	void layeredNetworkIsStoredAsVersion3() throws IOException {
+
+		final PackedNeuralNetwork network = trained(layered());
+		final Path path = directory.resolve("layered.jann");
+		ModelFile.save(network, path);
+
+		assertEquals(3, version(path));
+		assertSameOutputs(network, ModelFile.loadPacked(path));
+		assertSameWeights(network.getLayers(), ModelFile.load(path).getPackedLayers());
+	}
+
+	@Test
+	void layeredPrunedNetworkIsStoredAsVersion4() throws IOException {
+
+		final PackedNeuralNetwork network = trained(layered());
+		Pruner.prune(network, 0.5);
+		final PrunedNeuralNetwork pruned = Pruner.compress(network);
+		final Path path = directory.resolve("layered-pruned.jann");
+		ModelFile.save(pruned, path);
+
+		assertEquals(4, version(path));
+		assertSameOutputs(pruned, ModelFile.loadPruned(path));
+	}
+
+	@Test
+	void truncatedFileIsRejected() throws IOException {
+
+		for (final boolean pruned : new boolean[] { false, true }) {
+
+			final Path path = directory.resolve("truncated.jann");
+			final PackedNeuralNetwork network = trained(layered());
+			if (pruned) {
+				Pruner.prune(network, 0.5);
+				ModelFile.save(Pruner.compress(network), path);
+			} else {
+				ModelFile.save(network, path);
+			}
+
+			final byte[] bytes = Files.readAllBytes(path);
+			// cut in the header, in the weights and just before the end
+			for (final int length : new int[] { 6, 40, bytes.length / 2, bytes.length - 1 }) {
+
+				Files.write(path, Arrays.copyOf(bytes, length));
+				if (pruned) {
+					assertThrows(IOException.class, () -> ModelFile.loadPruned(path), length + " bytes");
+				} else {
+					assertThrows(IOException.class, () -> ModelFile.loadPacked(path), length + " bytes");
+					assertThrows(IOException.class, () -> ModelFile.load(path), length + " bytes");
+				}
+			}
+		}
+	}
+
+	@Test
+	void badMagicNumberIsRejected() throws IOException {
+
+		final Path path = directory.resolve("magic.jann");
+		ModelFile.save(trained(uniform()), path);
+
+		final byte[] bytes = Files.readAllBytes(path);
+		bytes[0] = 'X';
+		Files.write(path, bytes);
+
+		assertThrows(IOException.class, () -> ModelFile.loadPacked(path));
+		assertThrows(IOException.class, () -> ModelFile.load(path));
+	}
+
+	@Test
+	void unknownVersionIsRejected() throws IOException {
+
+		final Path path = directory.resolve("version.jann");
+		ModelFile.save(trained(uniform()), path);
+
+		final byte[] bytes = Files.readAllBytes(path);
+		ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(Integer.BYTES, 99);
+		Files.write(path, bytes);
+
+		assertThrows(IOException.class, () -> ModelFile.loadPacked(path));
+		assertThrows(IOException.class, () -> ModelFile.loadPruned(path));
+	}
+
+	private static int version(final Path path) throws IOException {
+		return ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN).getInt(Integer.BYTES);
+	}
+
+	private static void assertSameOutputs(final INeuralNetwork expected, final INeuralNetwork actual) {
+
+		final double[] inputs = TestFixtures.flatten(TestFixtures.trainingData(4, SAMPLES, INPUTS), INPUTS);
+		final double[] expectedOutputs = new double[SAMPLES * OUTPUTS];
+		final double[] actualOutputs = new double[SAMPLES * OUTPUTS];
+		expected.getOutputs(inputs, expectedOutputs);
+		actual.getOutputs(inputs, actualOutputs);
+
+		assertArrayEquals(expectedOutputs, actualOutputs);
+	}
+
+	/**
+	 * For a network loaded into another engine, which sums in another order
+	 */
+	private static void assertSameWeights(final List<PackedLayer> expected, final List<PackedLayer> actual) {
+
+		assertEquals(expected.size(), actual.size());
+		for (int l = 0; l < expected.size(); l++) {
+			assertArrayEquals(expected.get(l).getWeights(), actual.get(l).getWeights(), "layer " + l);
+			assertArrayEquals(expected.get(l).getBiases(), actual.get(l).getBiases(), "layer " + l);
+			// a leaky ReLU is stored as its slope and loaded as a new instance
+			for (final double x : new double[] { -1.5d, 0.7d }) {
+				assertEquals(expected.get(l).getActivation().applyAsDouble(x), actual.get(l).getActivation().applyAsDouble(x), "layer " + l);
+			}
+		}
+	}
+
+	private static PackedNeuralNetwork trained(final NNParameters.Builder builder) {
+
+		final PackedNeuralNetwork network = new NeuralNetworkFactory(builder.build()).createPacked();
+		network.learn(TestFixtures.trainingData(2, SAMPLES, INPUTS), TestFixtures.labels(SAMPLES, OUTPUTS));
+		return network;
+	}
+
+	private static NNParameters.Builder uniform() {
+		return TestFixtures.parameters(41, INPUTS, 2, 7, OUTPUTS).setEpochs(3);
+	}
+
+	private static NNParameters.Builder layered() {
+		return new NNParameters.Builder()
+				.setRandom(new Random(43))
+				.setInputLayerSize(INPUTS)
+				.addHiddenLayer(9, Activations.RELU)
+				.addHiddenLayer(6, Activations.TANH)
+				.addHiddenLayer(4, Activations.leakyReLU(0.1))
+				.setOutputLayerSize(OUTPUTS)
+				.setEpochs(3);
+	}
+}
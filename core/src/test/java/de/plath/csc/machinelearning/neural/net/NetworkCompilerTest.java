@@ -0,0 +1,125 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compiles networks into hidden classes and compares their outputs with the ones of the
+ * packed engine, which the compiled code only reorders the additions of.
+ *
+ */
+class NetworkCompilerTest {
+
+	private static final int SAMPLES = 32;
+	private static final int OUTPUTS = 3;
+	private static final double TOLERANCE = 1e-12;
+
+	@Test
+	void compiledNetworkScoresLikeThePackedNetwork() {
+
+		final PackedNeuralNetwork network = new NeuralNetworkFactory(parameters(6, 10)).createPacked();
+		network.learn(trainingData(6), TestFixtures.labels(SAMPLES, OUTPUTS));
+
+		final CompiledNeuralNetwork compiled = NetworkCompiler.compile(network);
+
+		assertSameOutputs(network, compiled, 6);
+	}
+
+	@Test
+	void objectGraphNetworkCompilesLikeItsPackedLayers() {
+
+		final NeuralNetwork network = new NeuralNetworkFactory(parameters(6, 10)).create();
+		network.learn(trainingData(6), TestFixtures.labels(SAMPLES, OUTPUTS));
+
+		final CompiledNeuralNetwork compiled = NetworkCompiler.compile(network);
+
+		final double[] inputs = TestFixtures.flatten(trainingData(6), 6);
+		final double[] expected = new double[SAMPLES * OUTPUTS];
+		final double[] actual = new double[SAMPLES * OUTPUTS];
+		network.getOutputs(inputs, expected);
+		compiled.getOutputs(inputs, actual);
+
+		assertClose(expected, actual);
+	}
+
+	@Test
+	void prunedNetworkScoresLikeThePackedNetwork() {
+
+		// wide enough for the partial sums, with zero weights left out and empty rows
+		final PackedNeuralNetwork network = new NeuralNetworkFactory(parameters(20, 12)).createPacked();
+		Pruner.prune(network, 0.6);
+
+		final PackedLayer hidden = network.getLayers().get(0);
+		Arrays.fill(hidden.getWeights(), 0, 2 * hidden.getInputSize(), 0d);
+
+		final CompiledNeuralNetwork compiled = NetworkCompiler.compile(network);
+
+		assertSameOutputs(network, compiled, 20);
+	}
+
+	@Test
+	void wideLayerIsSplitIntoSeveralMethods() {
+
+		final PackedNeuralNetwork network = new NeuralNetworkFactory(parameters(60, 60)).createPacked();
+
+		final CompiledNeuralNetwork compiled = NetworkCompiler.compile(network);
+
+		final List<String> methods = new ArrayList<>();
+		for (final Method method : compiled.getClass().getDeclaredMethods()) {
+			methods.add(method.getName());
+		}
+		assertTrue(methods.contains("layer0_1"), "Methods " + methods);
+		assertTrue(methods.contains("layer1_1"), "Methods " + methods);
+
+		assertSameOutputs(network, compiled, 60);
+	}
+
+	@Test
+	void overWideLayerIsRejected() {
+
+		final PackedNeuralNetwork network = new NeuralNetworkFactory(parameters(1500, 2)).createPacked();
+
+		final IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> NetworkCompiler.compile(network));
+		assertEquals("Layer 0 is too wide to compile.", e.getMessage());
+	}
+
+	private static void assertSameOutputs(final PackedNeuralNetwork network,
+			final CompiledNeuralNetwork compiled,
+			final int inputSize) {
+
+		assertEquals(network.getInputLayerSize(), compiled.getInputLayerSize());
+		assertEquals(network.getOutputLayerSize(), compiled.getOutputLayerSize());
+
+		final double[] inputs = TestFixtures.flatten(trainingData(inputSize), inputSize);
+		final double[] expected = new double[SAMPLES * OUTPUTS];
+		final double[] actual = new double[SAMPLES * OUTPUTS];
+		network.getOutputs(inputs, expected);
+		compiled.getOutputs(inputs, actual);
+
+		assertClose(expected, actual);
+	}
+
+	private static void assertClose(final double[] expected, final double[] actual) {
+
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], actual[i], TOLERANCE, "Output " + i);
+		}
+	}
+
+	private static NNParameters parameters(final int inputSize, final int hiddenLayersSize) {
+		return TestFixtures.parameters(17, inputSize, 2, hiddenLayersSize, OUTPUTS).setEpochs(3).build();
+	}
+
+	private static List<List<Double>> trainingData(final int inputSize) {
+		return TestFixtures.trainingData(3, SAMPLES, inputSize);
+	}
+}
@@ -0,0 +1,102 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Copies trained networks into native memory, and maps them from model files, and checks that
+ * they score bit for bit like the packed networks they come from.
+ *
+ */
+class OffHeapNeuralNetworkTest {
+
+	private static final int INPUTS = 7;
+	private static final int OUTPUTS = 4;
+	// a single sample, a partial block, and several blocks with a partial last one
+	private static final int[] SAMPLE_COUNTS = { 1, 5, 64, 1001 };
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void allocatedNetworkScoresLikeThePackedNetwork() {
+
+		for (final PackedNeuralNetwork network : List.of(trained(uniform()), trained(layered()))) {
+			try (OffHeapNeuralNetwork offHeap = OffHeapNeuralNetwork.allocate(network)) {
+
+				assertFalse(offHeap.isMapped());
+				assertSameOutputs(network, offHeap);
+			}
+		}
+	}
+
+	@Test
+	void mappedNetworkScoresLikeThePackedNetwork() throws IOException {
+
+		final Path path = directory.resolve("layered.jann");
+		final PackedNeuralNetwork network = trained(layered());
+		ModelFile.save(network, path);
+
+		try (OffHeapNeuralNetwork offHeap = ModelFile.loadOffHeap(path)) {
+
+			assertTrue(offHeap.isMapped());
+			assertSameOutputs(network, offHeap);
+		}
+	}
+
+	@Test
+	void closedNetworkCannotScore() {
+
+		final OffHeapNeuralNetwork offHeap = OffHeapNeuralNetwork.allocate(trained(uniform()));
+		offHeap.close();
+
+		assertThrows(IllegalStateException.class, () -> offHeap.getOutputs(new double[INPUTS], new double[OUTPUTS]));
+	}
+
+	private static void assertSameOutputs(final PackedNeuralNetwork expected, final OffHeapNeuralNetwork actual) {
+
+		for (final int samples : SAMPLE_COUNTS) {
+
+			final List<List<Double>> data = TestFixtures.trainingData(101, samples, INPUTS);
+			final double[] inputs = TestFixtures.flatten(data, INPUTS);
+			final double[] expectedOutputs = new double[samples * OUTPUTS];
+			final double[] actualOutputs = new double[samples * OUTPUTS];
+			expected.getOutputs(inputs, expectedOutputs);
+			actual.getOutputs(inputs, actualOutputs);
+
+			assertArrayEquals(expectedOutputs, actualOutputs, samples + " samples");
+		}
+	}
+
+	private static PackedNeuralNetwork trained(final NNParameters.Builder builder) {
+
+		final PackedNeuralNetwork network = new NeuralNetworkFactory(builder.build()).createPacked();
+		network.learn(TestFixtures.trainingData(107, 40, INPUTS), TestFixtures.labels(40, OUTPUTS));
+		return network;
+	}
+
+	private static NNParameters.Builder uniform() {
+		return TestFixtures.parameters(109, INPUTS, 2, 9, OUTPUTS).setEpochs(3);
+	}
+
+	private static NNParameters.Builder layered() {
+		return new NNParameters.Builder()
+				.setRandom(new Random(113))
+				.setInputLayerSize(INPUTS)
+				.addHiddenLayer(12, Activations.RELU)
+				.addHiddenLayer(6, Activations.leakyReLU(0.05))
+				.addHiddenLayer(5, Activations.TANH)
+				.setOutputLayerSize(OUTPUTS)
+				.setEpochs(3);
+	}
+}
@@ -0,0 +1,76 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import org.junit.jupiter.api.Test;
+
+import de.plath.csc.machinelearning.neural.api.Optimizer;
+
+/**
+ * Steps the adaptive optimizers by hand-computed updates. The third weight has no gradient
+ * and must not move, since epsilon keeps its update from dividing 0 by 0.
+ *
+ */
+class OptimizersTest {
+
+	private static final double LEARNING_RATE = 0.01;
+	private static final double[] WEIGHTS = { 0.5, -0.25, 0d };
+	private static final double[] FIRST_GRADIENTS = { 0.2, -0.4, 0d };
+	private static final double[] SECOND_GRADIENTS = { 0.1, 0.4, 0d };
+	private static final double TOLERANCE = 1e-15;
+
+	@Test
+	void adamStepsByTheCorrectedMomentsOfTheGradients() {
+
+		final Optimizer adam = Optimizers.adam();
+		final double[] weights = WEIGHTS.clone();
+		final double[][] states = new double[adam.getStateSize()][WEIGHTS.length];
+
+		// corrected, the moments of the first step are g and g², so every weight steps by
+		// about the learning rate against the sign of its gradient: 0.01 * g / (|g| + 1e-8)
+		adam.update(FIRST_GRADIENTS.clone(), weights, states, LEARNING_RATE, 1);
+		assertArrayEquals(new double[] { 0.4900000005, -0.24000000025, 0d }, weights, TOLERANCE);
+		assertArrayEquals(new double[] { 0.02, -0.04, 0d }, states[0], TOLERANCE);
+		assertArrayEquals(new double[] { 0.00004, 0.00016, 0d }, states[1], TOLERANCE);
+
+		// first weight: m = 0.9 * 0.02 + 0.1 * 0.1 = 0.028, v = 0.999 * 4e-5 + 0.001 * 0.01 = 4.996e-5,
+		// corrected 0.028 / 0.19 and 4.996e-5 / 0.001999, step 0.01 * 0.147368... / 0.158090...
+		// second weight: m = 0.004, v = 3.1984e-4, corrected 0.0210526... and 0.16, step 0.01 * 0.0210526... / 0.4
+		adam.update(SECOND_GRADIENTS.clone(), weights, states, LEARNING_RATE, 2);
+		assertArrayEquals(new double[] { 0.48067820470153655, -0.24052631602631577, 0d }, weights, TOLERANCE);
+	}
+
+	@Test
+	void rmsPropStepsByTheRootMeanSquareOfTheGradients() {
+
+		final Optimizer rmsProp = Optimizers.rmsProp();
+		final double[] weights = WEIGHTS.clone();
+		final double[][] states = new double[rmsProp.getStateSize()][WEIGHTS.length];
+
+		// s = 0.1 * g², so every weight steps by 0.01 * g / (sqrt(0.1) * |g| + 1e-8), about 0.0316
+		rmsProp.update(FIRST_GRADIENTS.clone(), weights, states, LEARNING_RATE, 1);
+		assertArrayEquals(new double[] { 0.4683772283983154, -0.218377225898316, 0d }, weights, TOLERANCE);
+		assertArrayEquals(new double[] { 0.004, 0.016, 0d }, states[0], TOLERANCE);
+
+		// first weight: s = 0.9 * 0.004 + 0.1 * 0.01 = 0.0046, step 0.01 * 0.1 / sqrt(0.0046)
+		// second weight: s = 0.9 * 0.016 + 0.1 * 0.16 = 0.0304, step 0.01 * 0.4 / sqrt(0.0304)
+		rmsProp.update(SECOND_GRADIENTS.clone(), weights, states, LEARNING_RATE, 2);
+		assertArrayEquals(new double[] { 0.4536330349567384, -0.24131879796958278, 0d }, weights, TOLERANCE);
+	}
+
+	@Test
+	void nesterovStepsAlongTheUpdatedVelocity() {
+
+		final Optimizer nesterov = Optimizers.nesterov(0.5);
+		final double[] weights = WEIGHTS.clone();
+		final double[][] states = new double[nesterov.getStateSize()][WEIGHTS.length];
+
+		// v = 0.01 * g, step 0.01 * g + 0.5 * v
+		nesterov.update(FIRST_GRADIENTS.clone(), weights, states, LEARNING_RATE, 1);
+		assertArrayEquals(new double[] { 0.497, -0.244, 0d }, weights, TOLERANCE);
+
+		// v = 0.01 * g + 0.5 * v, 0.001 + 0.5 * 0.002 = 0.002 for the first weight, step 0.001 + 0.5 * 0.002
+		nesterov.update(SECOND_GRADIENTS.clone(), weights, states, LEARNING_RATE, 2);
+		assertArrayEquals(new double[] { 0.495, -0.249, 0d }, weights, TOLERANCE);
+	}
+}
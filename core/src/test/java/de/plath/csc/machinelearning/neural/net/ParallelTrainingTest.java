@@ -0,0 +1,61 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Trains the same network in mini-batches on different numbers of threads and checks that
+ * the fixed reduction of the summed deltas gives bit-identical weights for any parallelism.
+ *
+ */
+class ParallelTrainingTest {
+
+	private static final int SAMPLES = 300;
+	private static final int INPUTS = 10;
+	private static final int OUTPUTS = 4;
+
+	@Test
+	void weightsAreIdenticalForAnyParallelism() {
+
+		// batches of several shards, and a last batch which is not full
+		for (final int batchSize : new int[] { 16, 64, 100 }) {
+
+			final List<PackedLayer> expected = train(batchSize, 1);
+			for (final int parallelism : new int[] { 2, 4, 8 }) {
+				assertSameWeights(expected, train(batchSize, parallelism), "batch size " + batchSize + ", parallelism " + parallelism);
+			}
+		}
+	}
+
+	@Test
+	void weightsAreIdenticalForEveryRun() {
+		assertSameWeights(train(64, 8), train(64, 8), "parallelism 8");
+	}
+
+	private static List<PackedLayer> train(final int batchSize, final int parallelism) {
+
+		final NNParameters nnParameters = TestFixtures.parameters(37, INPUTS, 2, 12, OUTPUTS)
+				.setBatchSize(batchSize)
+				.setParallelism(parallelism)
+				.setMomentum(0.5)
+				.setLearningRate(0.3)
+				.setEpochs(4)
+				.build();
+
+		final PackedNeuralNetwork network = new NeuralNetworkFactory(nnParameters).createPacked();
+		network.learn(TestFixtures.trainingData(8, SAMPLES, INPUTS), TestFixtures.labels(SAMPLES, OUTPUTS));
+		return network.getLayers();
+	}
+
+	private static void assertSameWeights(final List<PackedLayer> expected, final List<PackedLayer> actual, final String message) {
+
+		assertEquals(expected.size(), actual.size());
+		for (int l = 0; l < expected.size(); l++) {
+			assertArrayEquals(expected.get(l).getWeights(), actual.get(l).getWeights(), message + ", layer " + l);
+		}
+	}
+}
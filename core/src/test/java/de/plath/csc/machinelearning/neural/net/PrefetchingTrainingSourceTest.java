@@ -0,0 +1,198 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.plath.csc.machinelearning.neural.api.IndexedTrainingSource;
+import de.plath.csc.machinelearning.neural.api.TrainingSource;
+
+/**
+ * Reads sources through the ring of a {@link PrefetchingTrainingSource} and checks that the
+ * samples arrive in the order of the wrapped source, that failures of the loaders reach the
+ * training loop and that closing an epoch early stops the loaders.
+ *
+ */
+class PrefetchingTrainingSourceTest {
+
+	private static final int INPUTS = 3;
+	private static final int SLOTS = 3;
+	private static final int SLOT_SIZE = 4;
+
+	@Test
+	void loadersKeepTheOrderOfTheSource() throws IOException {
+
+		for (final int samples : new int[] { 0, 1, SLOT_SIZE - 1, SLOT_SIZE, 5 * SLOT_SIZE, 5 * SLOT_SIZE + 1, 40 }) {
+
+			final ArrayTrainingSource source = source(samples);
+			final List<double[]> expected = readAll(source);
+			assertEquals(samples, expected.size());
+
+			for (int loaders = 1; loaders <= 4; loaders++) {
+
+				final PrefetchingTrainingSource prefetching = new PrefetchingTrainingSource(source, SLOTS, SLOT_SIZE, loaders, null);
+
+				// twice, so that the second epoch reuses the slots of the first
+				for (int epoch = 0; epoch < 2; epoch++) {
+					assertSamples(expected, readAll(prefetching), samples + " samples, " + loaders + " loaders");
+				}
+				assertFalse(isLoaderAlive());
+			}
+		}
+	}
+
+	@Test
+	void sequentialLoaderKeepsTheOrderOfTheSource() throws IOException {
+
+		for (final int samples : new int[] { 0, 1, SLOT_SIZE, 5 * SLOT_SIZE, 5 * SLOT_SIZE + 1 }) {
+
+			final ArrayTrainingSource indexed = source(samples);
+			// hides the indices, so that the loader has to read the source in order
+			final TrainingSource source = new TrainingSource() {
+
+				@Override
+				public int getInputSize() {
+					return indexed.getInputSize();
+				}
+
+				@Override
+				public Reader open() {
+					return indexed.open();
+				}
+			};
+			final List<double[]> expected = readAll(indexed);
+
+			final PrefetchingTrainingSource prefetching = new PrefetchingTrainingSource(source, SLOTS, SLOT_SIZE);
+			for (int epoch = 0; epoch < 2; epoch++) {
+				assertSamples(expected, readAll(prefetching), samples + " samples");
+			}
+			assertFalse(isLoaderAlive());
+		}
+	}
+
+	@Test
+	void failureOfALoaderSurfacesFromNext() throws IOException {
+
+		final IOException failure = new IOException("Sample 9 cannot be read.");
+		final ArrayTrainingSource samples = source(20);
+		final IndexedTrainingSource source = new IndexedTrainingSource() {
+
+			@Override
+			public int getInputSize() {
+				return samples.getInputSize();
+			}
+
+			@Override
+			public long getSize() {
+				return samples.getSize();
+			}
+
+			@Override
+			public int read(final long index, final double[] inputs, final int offset) throws IOException {
+
+				if (index == 9) {
+					throw failure;
+				}
+				return samples.read(index, inputs, offset);
+			}
+
+			@Override
+			public Reader open() {
+				return samples.open();
+			}
+		};
+
+		final PrefetchingTrainingSource prefetching = new PrefetchingTrainingSource(source, SLOTS, SLOT_SIZE, 3, null);
+		final double[] inputs = new double[INPUTS];
+
+		try (TrainingSource.Reader reader = prefetching.open()) {
+
+			// the samples of the batches before the failing one arrive
+			for (int sample = 0; sample < 2 * SLOT_SIZE; sample++) {
+				reader.next(inputs, 0);
+				assertEquals(sample, reader.getTarget());
+			}
+			assertSame(failure, assertThrows(IOException.class, () -> reader.next(inputs, 0)));
+		}
+		assertFalse(isLoaderAlive());
+	}
+
+	@Test
+	void closingEarlyJoinsTheLoaders() throws IOException {
+
+		final ArrayTrainingSource source = source(100);
+		final List<double[]> expected = readAll(source);
+		final PrefetchingTrainingSource prefetching = new PrefetchingTrainingSource(source, SLOTS, SLOT_SIZE, 2, null);
+		final double[] inputs = new double[INPUTS];
+
+		try (TrainingSource.Reader reader = prefetching.open()) {
+			for (int sample = 0; sample < 5; sample++) {
+				reader.next(inputs, 0);
+			}
+		}
+		assertFalse(isLoaderAlive());
+
+		// the next epoch starts over with the first sample
+		assertSamples(expected, readAll(prefetching), "after closing early");
+		assertFalse(isLoaderAlive());
+	}
+
+	private static ArrayTrainingSource source(final int samples) {
+
+		final double[] inputs = new double[samples * INPUTS];
+		final int[] targets = new int[samples];
+		for (int sample = 0; sample < samples; sample++) {
+			for (int i = 0; i < INPUTS; i++) {
+				inputs[sample * INPUTS + i] = sample + i / 10d;
+			}
+			targets[sample] = sample;
+		}
+		return new ArrayTrainingSource(inputs, targets, INPUTS);
+	}
+
+	/**
+	 * @return the inputs of every sample followed by its label
+	 */
+	private static List<double[]> readAll(final TrainingSource source) throws IOException {
+
+		final List<double[]> samples = new ArrayList<>();
+		try (TrainingSource.Reader reader = source.open()) {
+
+			double[] sample = new double[INPUTS + 1];
+			while (reader.next(sample, 0)) {
+				sample[INPUTS] = reader.getTarget();
+				samples.add(sample);
+				sample = new double[INPUTS + 1];
+			}
+			// the end of the epoch stays the end
+			assertFalse(reader.next(sample, 0));
+		}
+		return samples;
+	}
+
+	private static void assertSamples(final List<double[]> expected, final List<double[]> actual, final String message) {
+
+		assertEquals(expected.size(), actual.size(), message);
+		for (int sample = 0; sample < expected.size(); sample++) {
+			assertArrayEquals(expected.get(sample), actual.get(sample), message + ", sample " + sample);
+		}
+	}
+
+	private static boolean isLoaderAlive() {
+
+		for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().startsWith("jann-prefetch-") && thread.isAlive()) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,105 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Prunes trained networks and checks that the removed weights stay 0 while every optimizer
+ * fine-tunes them, and that the compressed network scores like the pruned one.
+ *
+ */
+class PruningTest {
+
+	private static final int SAMPLES = 48;
+	private static final int INPUTS = 6;
+	private static final int OUTPUTS = 3;
+	private static final double SPARSITY = 0.6;
+	// the compressed layers skip the removed weights, so they sum fewer terms
+	private static final double TOLERANCE = 1e-12;
+
+	@Test
+	void prunedWeightsStayZeroWhileFineTuning() {
+
+		final Map<String, NNParameters.Builder> configurations = Map.of(
+				"SGD", parameters().setMomentum(0.5),
+				"SGD in batches", parameters().setMomentum(0.5).setBatchSize(8),
+				"SGD in parallel batches", parameters().setMomentum(0.5).setBatchSize(8).setParallelism(2),
+				"Nesterov", parameters().setOptimizer(Optimizers.nesterov(0.5)),
+				"RMSProp", parameters().setOptimizer(Optimizers.rmsProp()).setLearningRate(0.01),
+				"Adam", parameters().setOptimizer(Optimizers.adam()).setLearningRate(0.01),
+				"Adam in batches", parameters().setOptimizer(Optimizers.adam()).setLearningRate(0.01).setBatchSize(8));
+
+		final List<List<Double>> trainingData = TestFixtures.trainingData(61, SAMPLES, INPUTS);
+		final List<Integer> labels = TestFixtures.labels(SAMPLES, OUTPUTS);
+
+		for (final Map.Entry<String, NNParameters.Builder> configuration : configurations.entrySet()) {
+
+			final PackedNeuralNetwork network = new NeuralNetworkFactory(configuration.getValue().build()).createPacked();
+			network.learn(trainingData, labels);
+
+			// checked after the fine-tuning of every round, before the next round prunes more
+			Pruner.prune(network, SPARSITY, 3, tuned -> {
+				tuned.learn(trainingData, labels);
+				assertPrunedWeightsAreZero(tuned, configuration.getKey());
+			});
+			assertPrunedWeightsAreZero(network, configuration.getKey());
+
+			for (final PackedLayer layer : network.getLayers()) {
+				assertEquals(Math.round(SPARSITY * layer.getWeights().length), layer.getPrunedWeights().length, configuration.getKey());
+			}
+		}
+	}
+
+	@Test
+	void compressedNetworkScoresLikeThePackedNetwork() {
+
+		final NNParameters.Builder layered = new NNParameters.Builder()
+				.setRandom(new Random(67))
+				.setInputLayerSize(INPUTS)
+				.addHiddenLayer(10, Activations.RELU)
+				.addHiddenLayer(5, Activations.TANH)
+				.setOutputLayerSize(OUTPUTS)
+				.setEpochs(3);
+
+		for (final NNParameters.Builder builder : List.of(parameters(), layered)) {
+
+			final PackedNeuralNetwork network = new NeuralNetworkFactory(builder.build()).createPacked();
+			network.learn(TestFixtures.trainingData(61, SAMPLES, INPUTS), TestFixtures.labels(SAMPLES, OUTPUTS));
+			Pruner.prune(network, SPARSITY);
+			final PrunedNeuralNetwork pruned = Pruner.compress(network);
+
+			final double[] inputs = TestFixtures.flatten(TestFixtures.trainingData(71, SAMPLES, INPUTS), INPUTS);
+			final double[] expected = new double[SAMPLES * OUTPUTS];
+			final double[] actual = new double[SAMPLES * OUTPUTS];
+			network.getOutputs(inputs, expected);
+			pruned.getOutputs(inputs, actual);
+
+			for (int o = 0; o < expected.length; o++) {
+				assertEquals(expected[o], actual[o], TOLERANCE, "output " + o);
+			}
+		}
+	}
+
+	private static void assertPrunedWeightsAreZero(final PackedNeuralNetwork network, final String configuration) {
+
+		final List<PackedLayer> layers = network.getLayers();
+		for (int l = 0; l < layers.size(); l++) {
+
+			final double[] weights = layers.get(l).getWeights();
+			assertTrue(layers.get(l).getPrunedWeights().length > 0, configuration + ", layer " + l);
+			for (final int w : layers.get(l).getPrunedWeights()) {
+				assertEquals(0d, weights[w], configuration + ", layer " + l + ", weight " + w);
+			}
+		}
+	}
+
+	private static NNParameters.Builder parameters() {
+		return TestFixtures.parameters(73, INPUTS, 2, 8, OUTPUTS).setLearningRate(0.5).setEpochs(3);
+	}
+}
@@ -0,0 +1,96 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import de.plath.csc.machinelearning.neural.api.INeuralNetwork;
+
+/**
+ * Quantizes networks trained on clusters of samples and checks that the int8 network
+ * classifies held-out samples about as well as the network it comes from.
+ *
+ */
+class QuantizerTest {
+
+	private static final int INPUTS = 8;
+	private static final int OUTPUTS = 4;
+	private static final int SAMPLES = 400;
+	private static final double MAXIMUM_ACCURACY_DROP = 0.02;
+	private static final double MINIMUM_AGREEMENT = 0.98;
+	private static final double MAXIMUM_OUTPUT_DIFFERENCE = 0.05;
+
+	@Test
+	void quantizedPackedNetworkKeepsItsAccuracy() {
+
+		final PackedNeuralNetwork network = new NeuralNetworkFactory(parameters().build()).createPacked();
+		network.learn(clusters(127), TestFixtures.labels(SAMPLES, OUTPUTS));
+
+		assertAccuracy(network, Quantizer.quantize(network, clusters(127)));
+	}
+
+	@Test
+	void quantizedObjectGraphNetworkKeepsItsAccuracy() {
+
+		final NeuralNetwork network = new NeuralNetworkFactory(parameters().build()).create();
+		network.learn(clusters(127), TestFixtures.labels(SAMPLES, OUTPUTS));
+
+		assertAccuracy(network, Quantizer.quantize(network, clusters(127)));
+	}
+
+	@Test
+	void quantizedNetworkCannotLearn() {
+
+		final PackedNeuralNetwork network = new NeuralNetworkFactory(parameters().setEpochs(1).build()).createPacked();
+		final QuantizedNeuralNetwork quantized = Quantizer.quantize(network, clusters(127));
+
+		assertThrows(UnsupportedOperationException.class, () -> quantized.learn(clusters(127), TestFixtures.labels(SAMPLES, OUTPUTS)));
+	}
+
+	private static void assertAccuracy(final INeuralNetwork reference, final QuantizedNeuralNetwork quantized) {
+
+		final QuantizationReport report = Quantizer.report(reference, quantized, clusters(131), TestFixtures.labels(SAMPLES, OUTPUTS));
+
+		// the bounds only mean something for a network which has learned the clusters
+		assertTrue(report.getReferenceAccuracy() > 0.85, report.toString());
+		assertTrue(report.getAccuracyDrop() <= MAXIMUM_ACCURACY_DROP, report.toString());
+		assertTrue(report.getAgreement() >= MINIMUM_AGREEMENT, report.toString());
+		assertTrue(report.getMaximumOutputDifference() <= MAXIMUM_OUTPUT_DIFFERENCE, report.toString());
+	}
+
+	/**
+	 * @return samples around one center per label, close enough for the clusters to overlap,
+	 *         the label of a sample being its index modulo the number of labels
+	 */
+	private static List<List<Double>> clusters(final long seed) {
+
+		final Random centers = new Random(137);
+		final double[][] center = new double[OUTPUTS][INPUTS];
+		for (int label = 0; label < OUTPUTS; label++) {
+			for (int i = 0; i < INPUTS; i++) {
+				center[label][i] = centers.nextGaussian();
+			}
+		}
+
+		final List<List<Double>> noise = TestFixtures.trainingData(seed, SAMPLES, INPUTS);
+		final List<List<Double>> samples = new ArrayList<>(SAMPLES);
+		for (int sample = 0; sample < SAMPLES; sample++) {
+
+			final List<Double> input = new ArrayList<>(INPUTS);
+			for (int i = 0; i < INPUTS; i++) {
+				input.add(center[sample % OUTPUTS][i] + noise.get(sample).get(i));
+			}
+			samples.add(input);
+		}
+		return samples;
+	}
+
+	private static NNParameters.Builder parameters() {
+		return TestFixtures.parameters(139, INPUTS, 1, 16, OUTPUTS).setLearningRate(0.5).setMomentum(0.5).setEpochs(20);
+	}
+}
@@ -0,0 +1,136 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Learns sparse samples through the first layer's sparse path and checks that the network
+ * ends up with the weights and outputs of one learning the same samples as dense inputs,
+ * including for columns whose missed momentum steps are caught up later.
+ *
+ */
+class SparseTrainingTest {
+
+	private static final int INPUTS = 8;
+	private static final int OUTPUTS = 3;
+	private static final int SAMPLES = 12;
+	// the caught up momentum steps are summed in closed form
+	private static final double TOLERANCE = 1e-12;
+
+	@Test
+	void sparseLearningMatchesDenseLearning() {
+
+		final CsrTrainingSource source = source();
+
+		final PackedNeuralNetwork sparse = new NeuralNetworkFactory(parameters().build()).createPacked();
+		final PackedNeuralNetwork dense = new NeuralNetworkFactory(parameters().build()).createPacked();
+		sparse.learn(source);
+		dense.learn(source.toDense());
+
+		final List<PackedLayer> expected = dense.getLayers();
+		final List<PackedLayer> actual = sparse.getLayers();
+		assertEquals(expected.size(), actual.size());
+		for (int l = 0; l < expected.size(); l++) {
+
+			final double[] expectedWeights = expected.get(l).getWeights();
+			final double[] actualWeights = actual.get(l).getWeights();
+			for (int w = 0; w < expectedWeights.length; w++) {
+				assertEquals(expectedWeights[w], actualWeights[w], TOLERANCE, "layer " + l + ", weight " + w);
+			}
+		}
+	}
+
+	@Test
+	void sparseScoringMatchesDenseScoring() {
+
+		final PackedNeuralNetwork network = new NeuralNetworkFactory(parameters().build()).createPacked();
+		network.learn(source());
+
+		final double[] denseInputs = new double[SAMPLES * INPUTS];
+		final List<Integer> offsets = new ArrayList<>();
+		final List<Integer> indices = new ArrayList<>();
+		final List<Double> values = new ArrayList<>();
+		collect(offsets, indices, values);
+		for (int sample = 0; sample < SAMPLES; sample++) {
+			for (int i = offsets.get(sample); i < offsets.get(sample + 1); i++) {
+				denseInputs[sample * INPUTS + indices.get(i)] = values.get(i);
+			}
+		}
+
+		final double[] expected = new double[SAMPLES * OUTPUTS];
+		final double[] actual = new double[SAMPLES * OUTPUTS];
+		network.getOutputs(denseInputs, expected);
+		network.getOutputs(toArray(offsets), toArray(indices), values.stream().mapToDouble(Double::doubleValue).toArray(), actual);
+
+		for (int o = 0; o < expected.length; o++) {
+			assertEquals(expected[o], actual[o], TOLERANCE, "output " + o);
+		}
+	}
+
+	/**
+	 * @return samples whose columns 5 to 7 are inactive over runs of several samples, those of
+	 *         columns 6 and 7 across the end of the epoch
+	 */
+	private static CsrTrainingSource source() {
+
+		final List<Integer> offsets = new ArrayList<>();
+		final List<Integer> indices = new ArrayList<>();
+		final List<Double> values = new ArrayList<>();
+		collect(offsets, indices, values);
+
+		return new CsrTrainingSource(toArray(offsets),
+				toArray(indices),
+				values.stream().mapToDouble(Double::doubleValue).toArray(),
+				TestFixtures.targets(TestFixtures.labels(SAMPLES, OUTPUTS)),
+				INPUTS);
+	}
+
+	private static void collect(final List<Integer> offsets, final List<Integer> indices, final List<Double> values) {
+
+		final Random random = new Random(53);
+		for (int sample = 0; sample < SAMPLES; sample++) {
+
+			offsets.add(indices.size());
+			for (int column = 0; column < INPUTS; column++) {
+				if (isActive(sample, column)) {
+					indices.add(column);
+					values.add(0.1d + Math.abs(random.nextGaussian()));
+				}
+			}
+		}
+		offsets.add(indices.size());
+	}
+
+	private static boolean isActive(final int sample, final int column) {
+
+		switch (column) {
+		case 5:
+			return sample < 2 || sample > 7;
+		case 6:
+			return sample > 2 && sample < 9;
+		case 7:
+			return sample == 4 || sample == 10;
+		default:
+			return (sample + column) % 3 != 0;
+		}
+	}
+
+	private static int[] toArray(final List<Integer> list) {
+		return list.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	private static NNParameters.Builder parameters() {
+
+		// the sparse path needs an input activation which maps 0 to 0
+		return TestFixtures.parameters(59, INPUTS, 2, 7, OUTPUTS)
+				.setActivation(Activations.RELU)
+				.setMomentum(0.6)
+				.setLearningRate(0.4)
+				.setEpochs(4);
+	}
+}
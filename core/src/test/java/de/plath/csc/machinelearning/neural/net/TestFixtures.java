@@ -0,0 +1,90 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The parameters and samples shared by the tests, which differ only in their seeds and sizes
+ *
+ */
+final class TestFixtures {
+
+	private TestFixtures() {
+	}
+
+	/**
+	 * @return a builder of a network with hidden layers of one size, to be completed by the
+	 *         test
+	 */
+	static NNParameters.Builder parameters(final long seed,
+			final int inputSize,
+			final int hiddenLayers,
+			final int hiddenLayersSize,
+			final int outputSize) {
+
+		return new NNParameters.Builder()
+				.setRandom(new Random(seed))
+				.setInputLayerSize(inputSize)
+				.setHiddenLayers(hiddenLayers)
+				.setHiddenLayersSize(hiddenLayersSize)
+				.setOutputLayerSize(outputSize);
+	}
+
+	/**
+	 * @return samples of normally distributed inputs
+	 */
+	static List<List<Double>> trainingData(final long seed, final int samples, final int inputSize) {
+
+		final Random random = new Random(seed);
+		final List<List<Double>> trainingData = new ArrayList<>(samples);
+		for (int sample = 0; sample < samples; sample++) {
+
+			final List<Double> input = new ArrayList<>(inputSize);
+			for (int i = 0; i < inputSize; i++) {
+				input.add(random.nextGaussian());
+			}
+			trainingData.add(input);
+		}
+		return trainingData;
+	}
+
+	/**
+	 * @return the labels 0, 1, ..., outputSize - 1, 0, 1, ... of the samples
+	 */
+	static List<Integer> labels(final int samples, final int outputSize) {
+
+		final List<Integer> labels = new ArrayList<>(samples);
+		for (int sample = 0; sample < samples; sample++) {
+			labels.add(sample % outputSize);
+		}
+		return labels;
+	}
+
+	/**
+	 * @return the inputs of the samples one row after the other, as taken by
+	 *         {@code getOutputs(double[], double[])}
+	 */
+	static double[] flatten(final List<List<Double>> inputs, final int inputSize) {
+
+		final double[] flat = new double[inputs.size() * inputSize];
+		for (int sample = 0; sample < inputs.size(); sample++) {
+			for (int i = 0; i < inputSize; i++) {
+				flat[sample * inputSize + i] = inputs.get(sample).get(i);
+			}
+		}
+		return flat;
+	}
+
+	/**
+	 * @return the targets of the samples in the format of {@code ArrayTrainingSource}
+	 */
+	static int[] targets(final List<Integer> labels) {
+
+		final int[] targets = new int[labels.size()];
+		for (int sample = 0; sample < targets.length; sample++) {
+			targets[sample] = labels.get(sample);
+		}
+		return targets;
+	}
+}
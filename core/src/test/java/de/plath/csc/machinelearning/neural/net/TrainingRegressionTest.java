@@ -0,0 +1,110 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Trains with a fixed seed and compares the weights exactly with the ones of the original
+ * backpropagation, which recomputed the error signal of the next layer for every synapse.
+ *
+ */
+class TrainingRegressionTest {
+
+	/**
+	 * The weights after training with the original backpropagation, one row per neuron of the
+	 * hidden layers and the output layer, with the bias last
+	 */
+	private static final double[][] BASELINE_WEIGHTS = {
+		{
+			0.21129873757143575, 0.22822508977537542, -0.0717630610138145, 0.18796266685826563, 0.3338684170578835,
+			-0.23748573258267322, 0.14977182890092236, 0.3011483611892617, 0.6205071230327597, -0.1884875264904268,
+			-0.3518071032118137, -0.16813234682788242, 0.17366997918262508, -0.1796613520825155, -0.10019962002746559,
+			0.19648310002251804, -0.23241814489700932, -0.0344512426793979, 0.013606611203189522, -0.23904450746694966,
+			0.144716928208498, 0.3690475456207277, -0.09104090632092483, 0.28182322409332133, -0.417220659146089,
+		},
+		{
+			-0.46852588374846704, 0.08479499613750696, -0.2531239963411311, 0.30012770632563923, 0.31093814451390356, 0.0020858090827912492,
+			0.14933117970519208, -0.017917588532396382, 0.05197729659413093, -0.06842600752916417, 0.3127736837218355, -0.16060197431668724,
+			-0.24948705090237938, -0.373956613690241, 0.16839927125303703, -0.07717586212553233, -0.25963988732115023, 0.10993410816861948,
+			0.17443202137755848, -0.1323523758587047, -0.0678242453694753, 0.20172267756131468, -0.19281298118091497, -0.17013841467699722,
+			0.2273500970961333, 0.07613803145930492, -0.10945742776645649, -0.4446077882665544, -0.07855156918649589, 0.17540750845400377,
+		},
+		{
+			-0.6774733620813106, -0.2848889031798508, -0.3691330160393587, -0.43634583971418606, -0.5539924738911739, 0.28757005525233637,
+			-0.48832669129080986, -0.9348043005109424, -0.27244239244832236, -0.241590181895993, -0.7445144282718321, -0.011708799084520247,
+			0.13031491130543685, -0.015973960449887147, -0.45112193071616097, -0.026571075985329345, -0.20602402277545806, 0.07668521816987121,
+		},
+	};
+
+	private final List<List<Double>> trainingData = new ArrayList<>();
+	private final List<Integer> labels = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		createTrainingSet();
+	}
+
+	@Test
+	void objectGraphNetworkLearnsTheBaselineWeights() {
+
+		final NeuralNetwork network = new NeuralNetworkFactory(parameters()).create();
+		network.learn(trainingData, labels);
+
+		assertWeights(BASELINE_WEIGHTS, network.getPackedLayers());
+	}
+
+	@Test
+	void packedNetworkLearnsTheBaselineWeights() {
+
+		final PackedNeuralNetwork network = new NeuralNetworkFactory(parameters()).createPacked();
+		network.learn(trainingData, labels);
+
+		assertWeights(BASELINE_WEIGHTS, network.getLayers());
+	}
+
+	private static void assertWeights(final double[][] expected, final List<PackedLayer> layers) {
+
+		assertEquals(expected.length, layers.size());
+		for (int l = 0; l < layers.size(); l++) {
+
+			final PackedLayer layer = layers.get(l);
+			final int inputSize = layer.getInputSize();
+			final double[] weights = new double[layer.getSize() * (inputSize + 1)];
+
+			for (int neuron = 0; neuron < layer.getSize(); neuron++) {
+				System.arraycopy(layer.getWeights(), neuron * inputSize, weights, neuron * (inputSize + 1), inputSize);
+				weights[neuron * (inputSize + 1) + inputSize] = layer.getBiases()[neuron];
+			}
+			assertArrayEquals(expected[l], weights, "layer " + l);
+		}
+	}
+
+	private static NNParameters parameters() {
+		return TestFixtures.parameters(7, 4, 2, 5, 3)
+				.setMomentum(0.5)
+				.setLearningRate(0.3)
+				.setEpochs(10)
+				.build();
+	}
+
+	private void createTrainingSet() {
+
+		final Random random = new Random(3);
+		for (int sample = 0; sample < 30; sample++) {
+
+			final List<Double> input = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				input.add(random.nextGaussian());
+			}
+			trainingData.add(input);
+			labels.add(random.nextInt(3));
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+
+/**
+ * Built-in activation functions. Their range methods run a specialized loop per function, so
+ * the layers apply them without a call per value, and {@link VectorKernels} recognizes them by
+ * type to apply them with vector instructions.
+ *
+ */
+public final class Activations {
+
+	/**
+	 * Logistic sigmoid, the default of {@link NNParameters.Builder}
+	 */
+	public static final Activation SIGMOID = new Sigmoid();
+
+	/**
+	 * Hyperbolic tangent
+	 */
+	public static final Activation TANH = new Tanh();
+
+	/**
+	 * Rectified linear unit
+	 */
+	public static final Activation RELU = new ReLU();
+
+	private Activations() {
+	}
+
+	/**
+	 * @param slope the slope for negative inputs, between 0 and 1
+	 * @return leaky rectified linear unit
+	 */
+	public static Activation leakyReLU(final double slope) {
+
+		assert (slope > 0d && slope < 1d) : "Slope must be between 0 and 1.";
+		return new LeakyReLU(slope);
+	}
+
+	static final class Sigmoid implements Activation {
+
+		@Override
+		public double applyAsDouble(final double x) {
+			return 1d / (1d + Math.exp(-x));
+		}
+
+		@Override
+		public double derivative(final double output) {
+			return output * (1d - output);
+		}
+
+		@Override
+		public void apply(final double[] values, final int from, final int to) {
+
+			for (int i = from; i < to; i++) {
+				values[i] = 1d / (1d + Math.exp(-values[i]));
+			}
+		}
+
+		@Override
+		public void derivative(final double[] outputs, final int from, final int to) {
+
+			for (int i = from; i < to; i++) {
+				outputs[i] = outputs[i] * (1d - outputs[i]);
+			}
+		}
+	}
+
+	static final class Tanh implements Activation {
+
+		@Override
+		public double applyAsDouble(final double x) {
+			return Math.tanh(x);
+		}
+
+		@Override
+		public double derivative(final double output) {
+			return 1d - output * output;
+		}
+
+		@Override
+		public void apply(final double[] values, final int from, final int to) {
+
+			for (int i = from; i < to; i++) {
+				values[i] = Math.tanh(values[i]);
+			}
+		}
+
+		@Override
+		public void derivative(final double[] outputs, final int from, final int to) {
+
+			for (int i = from; i < to; i++) {
+				outputs[i] = 1d - outputs[i] * outputs[i];
+			}
+		}
+	}
+
+	static final class ReLU implements Activation {
+
+		@Override
+		public double applyAsDouble(final double x) {
+			return Math.max(0d, x);
+		}
+
+		@Override
+		public double derivative(final double output) {
+			return output > 0d ? 1d : 0d;
+		}
+
+		@Override
+		public void apply(final double[] values, final int from, final int to) {
+
+			for (int i = from; i < to; i++) {
+				values[i] = Math.max(0d, values[i]);
+			}
+		}
+
+		@Override
+		public void derivative(final double[] outputs, final int from, final int to) {
+
+			for (int i = from; i < to; i++) {
+				outputs[i] = outputs[i] > 0d ? 1d : 0d;
+			}
+		}
+	}
+
+	static final class LeakyReLU implements Activation {
+
+		private final double slope;
+
+		private LeakyReLU(final double slope) {
+			this.slope = slope;
+		}
+
+		protected double getSlope() {
+			return slope;
+		}
+
+		@Override
+		public double applyAsDouble(final double x) {
+			return x > 0d ? x : slope * x;
+		}
+
+		@Override
+		public double derivative(final double output) {
+			return output > 0d ? 1d : slope;
+		}
+
+		@Override
+		public void apply(final double[] values, final int from, final int to) {
+
+			for (int i = from; i < to; i++) {
+				values[i] = values[i] > 0d ? values[i] : slope * values[i];
+			}
+		}
+
+		@Override
+		public void derivative(final double[] outputs, final int from, final int to) {
+
+			for (int i = from; i < to; i++) {
+				outputs[i] = outputs[i] > 0d ? 1d : slope;
+			}
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.Objects;
+
+import de.plath.csc.machinelearning.neural.api.IndexedTrainingSource;
+
+/**
+ * Training data held in primitive arrays, at 8 bytes per input instead of the boxed lists of
+ * {@code learn(List, List)}
+ *
+ */
+public class ArrayTrainingSource implements IndexedTrainingSource {
+
+	private final double[] inputs;
+	private final int[] targets;
+	private final int inputSize;
+
+	/**
+	 * @param inputs    the inputs, one row of {@code inputSize} per sample
+	 * @param targets   the labels of the samples
+	 * @param inputSize the number of inputs of every sample
+	 */
+	public ArrayTrainingSource(final double[] inputs, final int[] targets, final int inputSize) {
+
+		this.inputs = Objects.requireNonNull(inputs, "Inputs are null.");
+		this.targets = Objects.requireNonNull(targets, "Targets are null.");
+		this.inputSize = inputSize;
+
+		assert (inputSize > 0) : "Input size must be greater than 0.";
+		assert (inputs.length == targets.length * inputSize) : "Every sample needs a label.";
+	}
+
+	@Override
+	public int getInputSize() {
+		return inputSize;
+	}
+
+	@Override
+	public long getSize() {
+		return targets.length;
+	}
+
+	@Override
+	public int read(final long index, final double[] sampleInputs, final int offset) {
+
+		System.arraycopy(inputs, (int) index * inputSize, sampleInputs, offset, inputSize);
+		return targets[(int) index];
+	}
+
+	@Override
+	public Reader open() {
+
+		return new Reader() {
+
+			private int sample = -1;
+
+			@Override
+			public boolean next(final double[] sampleInputs, final int offset) {
+
+				if (sample + 1 == targets.length) {
+					return false;
+				}
+
+				sample++;
+				System.arraycopy(inputs, sample * inputSize, sampleInputs, offset, inputSize);
+				return true;
+			}
+
+			@Override
+			public int getTarget() {
+				return targets[sample];
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+	}
+}
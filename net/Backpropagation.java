@@ -1,8 +1,9 @@
 package de.plath.csc.machinelearning.neural.net;
 
 import java.util.List;
-import java.util.function.Function;
+import java.util.function.DoubleBinaryOperator;
 
+import de.plath.csc.machinelearning.neural.api.Activation;
 import de.plath.csc.machinelearning.neural.api.IParameters;
 
 /**
@@ -16,10 +17,13 @@ class Backpropagation {
 	private final List<List<Neuron>> hiddenLayers;
 	private final List<Neuron> outputLayer;
 
-	private final Double momentum;
-	private final Double learningRate;
-	private final Function<Double, Double> derivativeFunction;
-	private final Function<Double, Double> outputDerivativeFunction;
+	private final double momentum;
+	private final Activation[] activations;
+	private final Activation outputActivation;
+	private final DoubleBinaryOperator errorFunction;
+
+	private double learningRate;
+	private TrainingTimer timer;
 
 	protected Backpropagation(final List<Neuron> inputLayer,
 			final List<List<Neuron>> hiddenLayers,
@@ -30,26 +34,59 @@ class Backpropagation {
 		this.hiddenLayers = hiddenLayers;
 		this.outputLayer = outputLayer;
 
-		this.momentum = nnParameters.getMomentum();
+		this.momentum = Optimizers.getMomentum(nnParameters);
 		this.learningRate = nnParameters.getLearningRate();
-		derivativeFunction = nnParameters.getDerivativeFunction();
-		outputDerivativeFunction = nnParameters.getOutputDerivativeFunction();
+		activations = new Activation[hiddenLayers.size()];
+		for (int layer = 0; layer < activations.length; layer++) {
+			activations[layer] = nnParameters.getLayerActivation(layer);
+		}
+		outputActivation = nnParameters.getOutputActivation();
+		errorFunction = nnParameters.getErrorOperator();
 	}
 
-	protected void apply(final List<Double> targets) {
+	/**
+	 * Updates the weights for one sample, based on the outputs of the preceding forward pass
+	 *
+	 * @param targets the expected outputs of the output layer
+	 * @return the mean error of the output layer before the update
+	 */
+	protected double apply(final double[] targets) {
 
-		calculateDeltasOfAllLayers(targets);
+		final double error = calculateDeltas(targets);
 		updateWeights();
+
+		return error;
 	}
 
-	private void updateWeights() {
-		hiddenLayers.forEach(layer -> layer.forEach(neuron -> neuron.getInputs().forEach(synapse -> synapse.updateWeight())));
-		outputLayer.forEach(neuron -> neuron.getInputs().forEach(synapse -> synapse.updateWeight()));
+	/**
+	 * @param timer measures the phases per layer, or {@code null}
+	 */
+	protected void setTimer(final TrainingTimer timer) {
+		this.timer = timer;
 	}
 
-	private void calculateDeltasOfAllLayers(final List<Double> targets) {
+	/**
+	 * @param learningRate the learning rate of the current epoch
+	 */
+	protected void setLearningRate(final double learningRate) {
+		this.learningRate = learningRate;
+	}
 
-		calculateDeltasOfOutputLayer(targets);
+	/**
+	 * Calculates the deltas for one sample, based on the outputs of the preceding forward pass
+	 *
+	 * @param targets the expected outputs of the output layer
+	 * @return the mean error of the output layer
+	 */
+	protected double calculateDeltas(final double[] targets) {
+
+		long start = timer != null ? System.nanoTime() : 0L;
+
+		final double error = calculateDeltasOfOutputLayer(targets);
+
+		if (timer != null) {
+			start = timer.backward(hiddenLayers.size(), start);
+		}
 
 		for (int layer = hiddenLayers.size() - 1; layer >= 0; layer--) {
 
@@ -57,63 +94,117 @@ class Backpropagation {
 			final List<Neuron> hiddenLayer = hiddenLayers.get(layer);
 			final List<Neuron> nextLayer = layer == hiddenLayers.size() - 1 ? outputLayer : hiddenLayers.get(layer + 1);
 
-			calculateDeltasOfOneHiddenLayer(previousLayer, hiddenLayer, nextLayer);
+			calculateDeltasOfOneHiddenLayer(previousLayer, hiddenLayer, nextLayer, activations[layer], nextActivation(layer));
+
+			if (timer != null) {
+				start = timer.backward(layer, start);
+			}
+		}
+		return error;
+	}
+
+	/**
+	 * Applies the deltas calculated last to the weights
+	 */
+	protected void updateWeights() {
+
+		long start = timer != null ? System.nanoTime() : 0L;
+
+		for (int layer = 0; layer < hiddenLayers.size(); layer++) {
+
+			hiddenLayers.get(layer).forEach(neuron -> neuron.getInputs().forEach(synapse -> synapse.updateWeight()));
+
+			if (timer != null) {
+				start = timer.update(layer, start);
+			}
+		}
+
+		outputLayer.forEach(neuron -> neuron.getInputs().forEach(synapse -> synapse.updateWeight()));
+
+		if (timer != null) {
+			timer.update(hiddenLayers.size(), start);
 		}
 	}
 
-	private void calculateDeltasOfOutputLayer(final List<Double> targets) {
+	private double calculateDeltasOfOutputLayer(final double[] targets) {
 
 		final List<Neuron> previousLayer = hiddenLayers.get(hiddenLayers.size() - 1);
 
+		double error = 0d;
+
 		for (int o = 0; o < outputLayer.size(); o++) {
 
-			final Double target = targets.get(o);
-			final Double out = outputLayer.get(o).getOutput();
-			final Double errorSignal = out - target;
+			final double out = outputLayer.get(o).getOutput();
+			final double errorSignal = out - targets[o];
+			final double gradient = learningRate * errorSignal * outputActivation.derivative(out);
+
+			final List<Synapse> synapses = outputLayer.get(o).getInputs();
 
 			for (int p = 0; p < previousLayer.size(); p++) {
 
-				final Double previousOut = previousLayer.get(p).getOutput();
-				final Double deltaWeight = outputLayer.get(o).getInputs().get(p).getDeltaWeight();
-				final Double delta = learningRate * errorSignal * outputDerivativeFunction.apply(out) * previousOut;
+				final Synapse synapse = synapses.get(p);
+				final double delta = gradient * previousLayer.get(p).getOutput();
 
-				outputLayer.get(o).getInputs().get(p).setDelta(delta);
-				outputLayer.get(o).getInputs().get(p).setDeltaWeight(delta + momentum * deltaWeight);
+				synapse.setDelta(delta);
+				synapse.setDeltaWeight(delta + momentum * synapse.getDeltaWeight());
 			}
+
+			error += errorFunction.applyAsDouble(out, targets[o]);
 		}
+		return error / outputLayer.size();
 	}
 
+	/**
+	 * The derivative of a next hidden layer is the one of its own activation. Before the output
+	 * layer the derivative of the last hidden layer is applied to the outputs, as it always has
+	 * been, so that networks with one activation learn the same weights as before.
+	 *
+	 * @param layer the index of a hidden layer
+	 * @return the activation whose derivative is applied to the outputs of the next layer
+	 */
+	private Activation nextActivation(final int layer) {
+		return layer == hiddenLayers.size() - 1 ? activations[layer] : activations[layer + 1];
+	}
+
+	/**
+	 * The error signal of a hidden neuron only depends on the next layer, so it is computed
+	 * once per neuron and then reused for all of its incoming synapses.
+	 */
 	private void calculateDeltasOfOneHiddenLayer(final List<Neuron> previousLayer,
 			final List<Neuron> hiddenLayer,
-			final List<Neuron> nextLayer) {
+			final List<Neuron> nextLayer,
+			final Activation activation,
+			final Activation nextActivation) {
 
 		for (int h = 0; h < hiddenLayer.size(); h++) {
 
-			final Double hiddenOut = hiddenLayer.get(h).getOutput();
+			final double gradient = learningRate * calculateTotalOutput(h, nextLayer, nextActivation);
+			final double derivative = activation.derivative(hiddenLayer.get(h).getOutput());
 
-			for (int p = 0; p < previousLayer.size(); p++) {
+			final List<Synapse> synapses = hiddenLayer.get(h).getInputs();
 
-				final Double previousOut = previousLayer.get(p).getOutput();
+			for (int p = 0; p < previousLayer.size(); p++) {
 
-				Double totalOutput = 0d;
+				final Synapse synapse = synapses.get(p);
+				final double delta = gradient * (derivative * previousLayer.get(p).getOutput());
 
-				for (int n = 0; n < nextLayer.size(); n++) {
+				synapse.setDelta(delta);
+				synapse.setDeltaWeight(delta + momentum * synapse.getDeltaWeight());
+			}
+		}
+	}
 
-					final Double weight = nextLayer.get(n).getInputs().get(h).getWeight();
-					final Double delta = nextLayer.get(n).getInputs().get(h).getDelta();
+	private double calculateTotalOutput(final int h, final List<Neuron> nextLayer, final Activation nextActivation) {
 
-					final Double nextOut = nextLayer.get(n).getOutput();
-					final Double errorSignal = weight * delta;
+		double totalOutput = 0d;
 
-					totalOutput += errorSignal * derivativeFunction.apply(nextOut);
-				}
+		for (int n = 0; n < nextLayer.size(); n++) {
 
-				final double delta = learningRate * totalOutput * (derivativeFunction.apply(hiddenOut) * previousOut);
-				final double deltaWeight = hiddenLayer.get(h).getInputs().get(p).getDeltaWeight();
+			final Synapse synapse = nextLayer.get(n).getInputs().get(h);
+			final double errorSignal = synapse.getWeight() * synapse.getDelta();
 
-				hiddenLayer.get(h).getInputs().get(p).setDelta(delta);
-				hiddenLayer.get(h).getInputs().get(p).setDeltaWeight(delta + momentum * deltaWeight);
-			}
+			totalOutput += errorSignal * nextActivation.derivative(nextLayer.get(n).getOutput());
 		}
+		return totalOutput;
 	}
 }
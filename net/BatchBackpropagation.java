@@ -0,0 +1,226 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+import de.plath.csc.machinelearning.neural.api.IParameters;
+
+/**
+ * Mini-batch back-propagation with learning rate and momentum over {@link PackedLayer}s. The
+ * error signals of a batch are propagated with matrix-matrix products, the weight deltas are
+ * averaged over the batch and a single weight update is applied per batch. For one sample
+ * it performs the same update as {@link PackedBackpropagation}, and the update itself is done by
+ * a {@link WeightUpdate}.
+ * <p>
+ * The weight deltas can also be accumulated into separate buffers, so that several instances
+ * can work on parts of the same batch before the update, see {@link ParallelBatchTrainer}.
+ *
+ */
+class BatchBackpropagation {
+
+	private final List<PackedLayer> layers;
+	private final double[][] outputs;
+	private final Kernels kernels;
+	private final WeightUpdate weightUpdate;
+
+	private final DoubleBinaryOperator errorFunction;
+
+	// of the current batch, see WeightUpdate
+	private double learningRate;
+
+	// per layer, the error signal of every neuron for every sample of the batch
+	private final double[][] signals;
+	private final double[] weightedSignals;
+
+	private final double[][] layerDeltas;
+
+	private TrainingTimer timer;
+
+	protected BatchBackpropagation(final List<PackedLayer> layers,
+			final double[][] outputs,
+			final Kernels kernels,
+			final WeightUpdate weightUpdate,
+			final IParameters nnParameters,
+			final int batchSize) {
+
+		this.layers = layers;
+		this.outputs = outputs;
+		this.kernels = kernels;
+		this.weightUpdate = weightUpdate;
+
+		this.errorFunction = nnParameters.getErrorOperator();
+
+		signals = new double[layers.size()][];
+		layerDeltas = new double[layers.size()][];
+		int maximumSize = 0;
+		for (int layer = 0; layer < layers.size(); layer++) {
+			signals[layer] = new double[batchSize * layers.get(layer).getSize()];
+			layerDeltas[layer] = layers.get(layer).getDeltas();
+			maximumSize = Math.max(maximumSize, layers.get(layer).getSize());
+		}
+		weightedSignals = new double[batchSize * maximumSize];
+	}
+
+	/**
+	 * Updates the weights for one batch, based on the outputs of the preceding forward pass
+	 *
+	 * @param targets the expected outputs of the output layer, one row per sample
+	 * @param samples the number of samples in the batch
+	 * @return the sum over the samples of the mean error of the output layer
+	 */
+	protected double apply(final double[] targets, final int samples) {
+
+		final double error = calculateDeltas(targets, samples);
+		updateWeights(samples);
+
+		return error;
+	}
+
+	/**
+	 * @param timer measures the phases per layer, or {@code null}
+	 */
+	protected void setTimer(final TrainingTimer timer) {
+		this.timer = timer;
+	}
+
+	/**
+	 * Sums the weight deltas of the batch into the deltas of the layers, based on the outputs
+	 * of the preceding forward pass
+	 *
+	 * @param targets the expected outputs of the output layer, one row per sample
+	 * @param samples the number of samples in the batch
+	 * @return the sum over the samples of the mean error of the output layer
+	 */
+	protected double calculateDeltas(final double[] targets, final int samples) {
+		return calculateDeltaSums(targets, 0, samples, layerDeltas);
+	}
+
+	/**
+	 * Applies the deltas summed last to the weights
+	 *
+	 * @param samples the number of samples in the batch
+	 */
+	protected void updateWeights(final int samples) {
+		weightUpdate.apply(layers, kernels, layerDeltas, samples, timer);
+	}
+
+	/**
+	 * Sums the weight deltas of every sample of the batch, based on the outputs of the
+	 * preceding forward pass, without changing the layers
+	 *
+	 * @param targets   the expected outputs of the output layer, one row per sample
+	 * @param offset    the index of the first sample in {@code targets}
+	 * @param samples   the number of samples in the batch
+	 * @param deltaSums receives the summed weight deltas, one array per layer
+	 * @return the sum over the samples of the mean error of the output layer
+	 */
+	protected double calculateDeltaSums(final double[] targets,
+			final int offset,
+			final int samples,
+			final double[][] deltaSums) {
+
+		learningRate = weightUpdate.getDeltaRate();
+
+		long start = timer != null ? System.nanoTime() : 0L;
+
+		final double error = calculateSignalsOfOutputLayer(targets, offset, samples);
+
+		if (timer != null) {
+			start = timer.backward(layers.size() - 1, start);
+		}
+
+		for (int layer = layers.size() - 2; layer >= 0; layer--) {
+
+			calculateSignalsOfOneHiddenLayer(layer, samples);
+
+			if (timer != null) {
+				start = timer.backward(layer, start);
+			}
+		}
+
+		for (int layer = 0; layer < layers.size(); layer++) {
+
+			final PackedLayer packedLayer = layers.get(layer);
+
+			Arrays.fill(deltaSums[layer], 0d);
+			kernels.transposedMultiply(signals[layer], outputs[layer], deltaSums[layer],
+					packedLayer.getSize(), samples, packedLayer.getInputSize());
+
+			if (timer != null) {
+				start = timer.backward(layer, start);
+			}
+		}
+		return error;
+	}
+
+	private double calculateSignalsOfOutputLayer(final double[] targets, final int offset, final int samples) {
+
+		final int layerIndex = layers.size() - 1;
+		final PackedLayer outputLayer = layers.get(layerIndex);
+		final Activation activation = outputLayer.getActivation();
+
+		final double[] layerOutputs = outputs[layerIndex + 1];
+		final double[] layerSignals = signals[layerIndex];
+		final int size = outputLayer.getSize();
+		final int start = offset * size;
+
+		double error = 0d;
+
+		for (int sample = 0; sample < samples; sample++) {
+
+			double sampleError = 0d;
+
+			for (int o = sample * size; o < (sample + 1) * size; o++) {
+
+				final double out = layerOutputs[o];
+				final double target = targets[start + o];
+				final double errorSignal = out - target;
+
+				layerSignals[o] = learningRate * errorSignal * activation.derivative(out);
+				sampleError += errorFunction.applyAsDouble(out, target);
+			}
+			error += sampleError / size;
+		}
+		return error;
+	}
+
+	/**
+	 * Like {@link PackedBackpropagation}, the total output of a hidden neuron is the sum over
+	 * the next layer of weight times synapse delta times derivative of the next output, with
+	 * the derivative of the next layer, or of this one before the output layer.
+	 */
+	private void calculateSignalsOfOneHiddenLayer(final int layerIndex, final int samples) {
+
+		final PackedLayer hiddenLayer = layers.get(layerIndex);
+		final PackedLayer nextLayer = layers.get(layerIndex + 1);
+		final Activation activation = hiddenLayer.getActivation();
+		final Activation nextActivation = layerIndex + 1 < layers.size() - 1 ? nextLayer.getActivation() : activation;
+
+		final double[] hiddenOutputs = outputs[layerIndex + 1];
+		final double[] nextOutputs = outputs[layerIndex + 2];
+		final double[] nextSignals = signals[layerIndex + 1];
+		final double[] layerSignals = signals[layerIndex];
+
+		final int hiddenSize = hiddenLayer.getSize();
+		final int nextSize = nextLayer.getSize();
+
+		System.arraycopy(nextOutputs, 0, weightedSignals, 0, samples * nextSize);
+		kernels.derivative(nextActivation, weightedSignals, 0, samples * nextSize);
+		for (int i = 0; i < samples * nextSize; i++) {
+			weightedSignals[i] *= nextSignals[i];
+		}
+
+		Arrays.fill(layerSignals, 0, samples * hiddenSize, 0d);
+		kernels.multiply(weightedSignals, nextLayer.getWeights(), layerSignals, samples, nextSize, hiddenSize);
+
+		for (int h = 0; h < samples * hiddenSize; h++) {
+
+			final double hiddenOut = hiddenOutputs[h];
+			final double totalOutput = hiddenOut * layerSignals[h];
+
+			layerSignals[h] = learningRate * totalOutput * activation.derivative(hiddenOut);
+		}
+	}
+}
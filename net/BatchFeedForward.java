@@ -0,0 +1,101 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.List;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+
+/**
+ * Forward pass of a whole mini-batch through {@link PackedLayer}s, one matrix-matrix product
+ * per layer. The outputs of every layer are stored row-major, one row per sample.
+ *
+ */
+class BatchFeedForward {
+
+	private final Activation inputActivation;
+	private final int inputLayerSize;
+	private final List<PackedLayer> layers;
+	private final Kernels kernels;
+
+	private final double[][] outputs;
+
+	private TrainingTimer timer;
+
+	protected BatchFeedForward(final Activation inputActivation,
+			final int inputLayerSize,
+			final List<PackedLayer> layers,
+			final Kernels kernels,
+			final int batchSize) {
+
+		this.inputActivation = inputActivation;
+		this.inputLayerSize = inputLayerSize;
+		this.layers = layers;
+		this.kernels = kernels;
+
+		outputs = new double[layers.size() + 1][];
+		outputs[0] = new double[batchSize * inputLayerSize];
+		for (int layer = 0; layer < layers.size(); layer++) {
+			outputs[layer + 1] = new double[batchSize * layers.get(layer).getSize()];
+		}
+	}
+
+	/**
+	 * @param inputs  the inputs, one row per sample
+	 * @param offset  the index of the first sample in {@code inputs}
+	 * @param samples the number of samples in the batch
+	 */
+	protected void apply(final double[] inputs, final int offset, final int samples) {
+
+		feedInputLayer(inputs, offset, samples);
+		feedLayers(samples);
+	}
+
+	/**
+	 * @param timer measures {@link #apply(double[], int, int)} per layer, or {@code null}
+	 */
+	protected void setTimer(final TrainingTimer timer) {
+		this.timer = timer;
+	}
+
+	/**
+	 * @return the outputs of the input layer at index 0, followed by those of every hidden
+	 *         layer and of the output layer
+	 */
+	protected double[][] getOutputs() {
+		return outputs;
+	}
+
+	private void feedInputLayer(final double[] inputs, final int offset, final int samples) {
+
+		final int start = offset * inputLayerSize;
+
+		// an input neuron sums its single synapse, which turns -0.0 into 0.0
+		for (int i = 0; i < samples * inputLayerSize; i++) {
+			outputs[0][i] = inputs[start + i] + 0d;
+		}
+		kernels.apply(inputActivation, outputs[0], 0, samples * inputLayerSize);
+	}
+
+	private void feedLayers(final int samples) {
+
+		long start = timer != null ? System.nanoTime() : 0L;
+
+		for (int l = 0; l < layers.size(); l++) {
+
+			final PackedLayer layer = layers.get(l);
+			final double[] layerOutputs = outputs[l + 1];
+			final int size = layer.getSize();
+
+			for (int sample = 0; sample < samples; sample++) {
+				System.arraycopy(layer.getBiases(), 0, layerOutputs, sample * size, size);
+			}
+
+			kernels.multiplyTransposed(outputs[l], layer.getWeights(), layerOutputs, samples, layer.getInputSize(), size);
+
+			kernels.apply(layer.getActivation(), layerOutputs, 0, samples * size);
+
+			if (timer != null) {
+				start = timer.forward(l, start);
+			}
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.stream.IntStream;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+
+/**
+ * The driver of batch inference shared by the engines: large batches are split into chunks
+ * which are scored in parallel on the common pool, and the chunks into blocks of samples which
+ * are fed through the layers together, so that every weight is applied to all samples of a
+ * block while it is in the cache. The engines only provide the kernel of a chunk or a block.
+ *
+ */
+final class BatchInference {
+
+	// samples fed through the layers together, so that every weight tile is reused across them
+	protected static final int BLOCK_SIZE = 64;
+	// samples scored by one task of a parallel batch inference
+	private static final int CHUNK_SIZE = 1024;
+	private static final int PARALLEL_THRESHOLD = 4 * CHUNK_SIZE;
+
+	private BatchInference() {
+	}
+
+	/**
+	 * Scores the samples as one chunk, or in chunks in parallel if there are many
+	 *
+	 * @param samples the number of samples
+	 * @param scorer  scores a chunk, keeping its intermediate results in per-call buffers
+	 */
+	protected static void score(final int samples, final ChunkScorer scorer) {
+
+		if (samples < PARALLEL_THRESHOLD) {
+			scorer.score(0, samples);
+			return;
+		}
+
+		IntStream.range(0, (samples + CHUNK_SIZE - 1) / CHUNK_SIZE).parallel().forEach(chunk -> {
+
+			final int first = chunk * CHUNK_SIZE;
+			scorer.score(first, Math.min(CHUNK_SIZE, samples - first));
+		});
+	}
+
+	/**
+	 * Scores a chunk block by block, with the samples of a block transposed to one row per
+	 * neuron, so that a layer can apply each of its weights to the whole row at once
+	 *
+	 * @param inputActivation the activation function of the inputs
+	 * @param inputLayerSize  the number of inputs
+	 * @param layerSizes      the number of neurons of the hidden layers and the output layer
+	 * @param kernel          computes the transposed outputs of a layer for a block
+	 * @param inputs          the inputs, one row per sample
+	 * @param outputs         receives the outputs, one row per sample
+	 * @param first           the first sample of the chunk
+	 * @param samples         the number of samples of the chunk
+	 */
+	protected static void scoreTransposed(final Activation inputActivation,
+			final int inputLayerSize,
+			final int[] layerSizes,
+			final BlockKernel kernel,
+			final double[] inputs,
+			final double[] outputs,
+			final int first,
+			final int samples) {
+
+		if (samples == 0) {
+			return;
+		}
+
+		final int layers = layerSizes.length;
+		final int outputLayerSize = layerSizes[layers - 1];
+		final int blockSize = Math.min(BLOCK_SIZE, samples);
+
+		final double[][] buffers = new double[layers + 1][];
+		buffers[0] = new double[inputLayerSize * blockSize];
+		for (int layer = 0; layer < layers; layer++) {
+			buffers[layer + 1] = new double[layerSizes[layer] * blockSize];
+		}
+		final double[] blockOutputs = buffers[layers];
+
+		for (int block = first; block < first + samples; block += BLOCK_SIZE) {
+
+			final int count = Math.min(BLOCK_SIZE, first + samples - block);
+
+			// transposed, one row per input; an input neuron turns -0.0 into 0.0
+			for (int sample = 0; sample < count; sample++) {
+				for (int i = 0; i < inputLayerSize; i++) {
+					buffers[0][i * count + sample] = inputs[(block + sample) * inputLayerSize + i] + 0d;
+				}
+			}
+			inputActivation.apply(buffers[0], 0, inputLayerSize * count);
+
+			for (int layer = 0; layer < layers; layer++) {
+				kernel.calculateOutputs(layer, buffers[layer], buffers[layer + 1], count);
+			}
+
+			for (int sample = 0; sample < count; sample++) {
+				for (int o = 0; o < outputLayerSize; o++) {
+					outputs[(block + sample) * outputLayerSize + o] = blockOutputs[o * count + sample];
+				}
+			}
+		}
+	}
+
+	/**
+	 *
+	 * Scores the samples of one chunk
+	 */
+	@FunctionalInterface
+	interface ChunkScorer {
+
+		/**
+		 * @param first   the first sample of the chunk
+		 * @param samples the number of samples of the chunk
+		 */
+		void score(int first, int samples);
+	}
+
+	/**
+	 *
+	 * Computes the outputs of one layer for a block of samples, transposed: one row per neuron
+	 */
+	@FunctionalInterface
+	interface BlockKernel {
+
+		/**
+		 * @param layer   the index of the layer
+		 * @param inputs  the outputs of the previous layer, one row per neuron
+		 * @param outputs receives the outputs of the layer, one row per neuron
+		 * @param samples the number of samples of the block
+		 */
+		void calculateOutputs(int layer, double[] inputs, double[] outputs, int samples);
+	}
+}
@@ -0,0 +1,260 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import de.plath.csc.machinelearning.neural.api.INeuralNetwork;
+
+/**
+ * Scores single samples submitted by many threads in batches: the samples are queued, and
+ * worker threads take them in batches of up to a maximum size and score every batch with one
+ * call of {@link INeuralNetwork#getOutputs(double[], double[])}. A batch is closed when it is
+ * full or when its first sample has waited for the maximum time, which bounds the latency
+ * batching adds under light load.
+ * <p>
+ * Any number of threads can submit samples. The futures complete on the worker threads, so
+ * dependent stages should be short or run asynchronously. The network must not learn while
+ * the scorer is open.
+ *
+ */
+public class BatchingScorer implements AutoCloseable {
+
+	private static final int DEFAULT_MAXIMUM_BATCH_SIZE = 64;
+	private static final long DEFAULT_MAXIMUM_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1L);
+	private static final int DEFAULT_WORKERS = 2;
+
+	// taken by the first worker after closing, which puts it back for the next one
+	private static final Request STOP = new Request(null);
+
+	private final INeuralNetwork neuralNetwork;
+	private final int inputLayerSize;
+	private final int outputLayerSize;
+
+	private final int maximumBatchSize;
+	private final long maximumWaitNanos;
+
+	private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+	private final Thread[] workers;
+	private volatile boolean closed;
+
+	private final AtomicLongArray batchSizes;
+	private final LatencyHistogram latencies = new LatencyHistogram();
+
+	/**
+	 * A scorer with batches of up to 64 samples, a maximum wait of 1 ms and 2 workers
+	 *
+	 * @param neuralNetwork the trained network
+	 */
+	public BatchingScorer(final INeuralNetwork neuralNetwork) {
+		this(neuralNetwork, DEFAULT_MAXIMUM_BATCH_SIZE, DEFAULT_MAXIMUM_WAIT_NANOS, TimeUnit.NANOSECONDS, DEFAULT_WORKERS);
+	}
+
+	/**
+	 * @param neuralNetwork    the trained network
+	 * @param maximumBatchSize the most samples scored together
+	 * @param maximumWait      the longest time the first sample of a batch waits for more
+	 * @param unit             the unit of the maximum wait
+	 * @param workers          the number of threads scoring batches
+	 */
+	public BatchingScorer(final INeuralNetwork neuralNetwork,
+			final int maximumBatchSize,
+			final long maximumWait,
+			final TimeUnit unit,
+			final int workers) {
+
+		this.neuralNetwork = Objects.requireNonNull(neuralNetwork, "Neural network is null.");
+		Objects.requireNonNull(unit, "Unit is null.");
+		assert (maximumBatchSize > 0) : "Maximum batch size must be greater than 0.";
+		assert (maximumWait >= 0) : "Maximum wait must not be negative.";
+		assert (workers > 0) : "Number of workers must be greater than 0.";
+
+		this.maximumBatchSize = maximumBatchSize;
+		this.maximumWaitNanos = unit.toNanos(maximumWait);
+
+		inputLayerSize = neuralNetwork.getInputLayerSize();
+		outputLayerSize = neuralNetwork.getOutputLayerSize();
+		batchSizes = new AtomicLongArray(maximumBatchSize + 1);
+
+		this.workers = new Thread[workers];
+		for (int worker = 0; worker < workers; worker++) {
+
+			this.workers[worker] = new Thread(this::work, "jann-batching-scorer-" + worker);
+			this.workers[worker].setDaemon(true);
+			this.workers[worker].start();
+		}
+	}
+
+	/**
+	 * Queues a sample for the next batch
+	 *
+	 * @param input the input, of the input layer size, which must not change until the future
+	 *              completes
+	 * @return completes with the output of the network, or exceptionally if scoring fails or
+	 *         the scorer is closed before the sample is scored
+	 */
+	public CompletableFuture<double[]> score(final double[] input) {
+
+		Objects.requireNonNull(input, "input is null");
+		assert (input.length == inputLayerSize) : "Size of input must match the size of the input layer.";
+
+		final Request request = new Request(input);
+
+		if (closed) {
+			request.future.completeExceptionally(new IllegalStateException("The scorer is closed."));
+			return request.future;
+		}
+
+		queue.add(request);
+
+		// closed meanwhile, and the request may have been queued after the last worker stopped
+		if (closed && queue.remove(request)) {
+			request.future.completeExceptionally(new IllegalStateException("The scorer is closed."));
+		}
+		return request.future;
+	}
+
+	/**
+	 * @return the current queue length, the batch sizes and the latencies so far
+	 */
+	public ScoringStatistics getStatistics() {
+
+		final long[] sizes = new long[batchSizes.length()];
+		for (int size = 0; size < sizes.length; size++) {
+			sizes[size] = batchSizes.get(size);
+		}
+		return new ScoringStatistics(queue.size(), sizes, latencies.getCounts());
+	}
+
+	/**
+	 * Scores the samples queued so far, then stops the workers. Samples submitted afterwards
+	 * fail with an {@link IllegalStateException}.
+	 */
+	@Override
+	public void close() {
+
+		if (closed) {
+			return;
+		}
+		closed = true;
+		queue.add(STOP);
+
+		try {
+			for (final Thread worker : workers) {
+				worker.join();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		final List<Request> remaining = new ArrayList<>();
+		queue.drainTo(remaining);
+		for (final Request request : remaining) {
+			if (request != STOP) {
+				request.future.completeExceptionally(new IllegalStateException("The scorer is closed."));
+			}
+		}
+	}
+
+	private void work() {
+
+		final List<Request> batch = new ArrayList<>(maximumBatchSize);
+		boolean stop = false;
+
+		try {
+			while (!stop) {
+
+				final Request first = queue.take();
+				if (first == STOP) {
+					break;
+				}
+				batch.add(first);
+
+				final long deadline = first.submitted + maximumWaitNanos;
+
+				while (batch.size() < maximumBatchSize && !stop) {
+
+					queue.drainTo(batch, maximumBatchSize - batch.size());
+					stop = batch.remove(STOP);
+
+					final long wait = deadline - System.nanoTime();
+					if (batch.size() == maximumBatchSize || stop || wait <= 0) {
+						break;
+					}
+
+					final Request next = queue.poll(wait, TimeUnit.NANOSECONDS);
+					if (next == null) {
+						break;
+					}
+					if (next == STOP) {
+						stop = true;
+					} else {
+						batch.add(next);
+					}
+				}
+
+				score(batch);
+				batch.clear();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		queue.add(STOP);
+	}
+
+	private void score(final List<Request> batch) {
+
+		final int samples = batch.size();
+		final double[] outputs;
+
+		// errors as well, e.g. an assertion of an activation, so that no future of the batch is left
+		// pending and the worker keeps running, unless the virtual machine itself is broken
+		try {
+			final double[] inputs = new double[samples * inputLayerSize];
+			outputs = new double[samples * outputLayerSize];
+
+			for (int sample = 0; sample < samples; sample++) {
+				System.arraycopy(batch.get(sample).input, 0, inputs, sample * inputLayerSize, inputLayerSize);
+			}
+			neuralNetwork.getOutputs(inputs, outputs);
+		} catch (final RuntimeException | Error e) {
+			for (final Request request : batch) {
+				request.future.completeExceptionally(e);
+			}
+			if (e instanceof VirtualMachineError) {
+				throw (VirtualMachineError) e;
+			}
+			return;
+		}
+
+		batchSizes.incrementAndGet(samples);
+
+		for (int sample = 0; sample < samples; sample++) {
+
+			final Request request = batch.get(sample);
+			latencies.record(System.nanoTime() - request.submitted);
+			request.future.complete(Arrays.copyOfRange(outputs, sample * outputLayerSize, (sample + 1) * outputLayerSize));
+		}
+	}
+
+	/**
+	 * A queued sample and the future of its output
+	 */
+	private static final class Request {
+
+		private final double[] input;
+		private final long submitted = System.nanoTime();
+		private final CompletableFuture<double[]> future = new CompletableFuture<>();
+
+		private Request(final double[] input) {
+			this.input = input;
+		}
+	}
+}
@@ -0,0 +1,385 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a class file of straight-line methods, for {@link NetworkCompiler}. Methods without
+ * branches need no stack map frames, so the writer only handles the constant pool, the methods
+ * and their code.
+ *
+ */
+final class ClassFileWriter {
+
+	// Java 17
+	private static final int CLASS_VERSION = 61;
+	private static final int MAXIMUM_POOL_SIZE = 65535;
+
+	private static final int ACC_FINAL = 0x0010;
+	private static final int ACC_SUPER = 0x0020;
+
+	private static final int UTF8 = 1;
+	private static final int DOUBLE = 6;
+	private static final int CLASS = 7;
+	private static final int FIELD_REF = 9;
+	private static final int METHOD_REF = 10;
+	private static final int INTERFACE_METHOD_REF = 11;
+	private static final int NAME_AND_TYPE = 12;
+
+	private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+	private final DataOutputStream pool = new DataOutputStream(poolBytes);
+	private final Map<String, Integer> poolIndices = new HashMap<>();
+	private int poolSize = 1;
+
+	private final ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+	private final DataOutputStream methods = new DataOutputStream(methodBytes);
+	private int methodCount;
+
+	private final int thisClass;
+	private final int superClass;
+	private final int code;
+
+	/**
+	 * @param name      the internal name of the class
+	 * @param superName the internal name of its super class
+	 */
+	protected ClassFileWriter(final String name, final String superName) {
+
+		thisClass = classRef(name);
+		superClass = classRef(superName);
+		code = utf8("Code");
+	}
+
+	protected int utf8(final String value) {
+
+		return entry("U" + value, 1, () -> {
+			pool.writeByte(UTF8);
+			pool.writeUTF(value);
+		});
+	}
+
+	protected int classRef(final String name) {
+
+		final int nameIndex = utf8(name);
+		return entry("C" + name, 1, () -> {
+			pool.writeByte(CLASS);
+			pool.writeShort(nameIndex);
+		});
+	}
+
+	protected int fieldRef(final String owner, final String name, final String descriptor) {
+		return memberRef(FIELD_REF, owner, name, descriptor);
+	}
+
+	protected int methodRef(final String owner, final String name, final String descriptor) {
+		return memberRef(METHOD_REF, owner, name, descriptor);
+	}
+
+	protected int interfaceMethodRef(final String owner, final String name, final String descriptor) {
+		return memberRef(INTERFACE_METHOD_REF, owner, name, descriptor);
+	}
+
+	/**
+	 * @param value the constant; equal bit patterns share an entry
+	 * @return the index of the constant, for {@link Code#ldc2w(int)}
+	 */
+	protected int doubleConstant(final double value) {
+
+		final long bits = Double.doubleToRawLongBits(value);
+		// a double takes two entries of the pool
+		return entry("D" + bits, 2, () -> {
+			pool.writeByte(DOUBLE);
+			pool.writeLong(bits);
+		});
+	}
+
+	protected void addMethod(final int access,
+			final String name,
+			final String descriptor,
+			final Code methodCode,
+			final int maxStack,
+			final int maxLocals) {
+
+		final int nameIndex = utf8(name);
+		final int descriptorIndex = utf8(descriptor);
+		final byte[] bytes = methodCode.toByteArray();
+
+		try {
+			methods.writeShort(access);
+			methods.writeShort(nameIndex);
+			methods.writeShort(descriptorIndex);
+			methods.writeShort(1);
+			methods.writeShort(code);
+			methods.writeInt(2 + 2 + 4 + bytes.length + 2 + 2);
+			methods.writeShort(maxStack);
+			methods.writeShort(maxLocals);
+			methods.writeInt(bytes.length);
+			methods.write(bytes);
+			// no exception table and no attributes
+			methods.writeShort(0);
+			methods.writeShort(0);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		methodCount++;
+	}
+
+	/**
+	 * @return the class file of a final class without interfaces or fields
+	 */
+	protected byte[] toByteArray() {
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+
+		try {
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(CLASS_VERSION);
+			out.writeShort(poolSize);
+			poolBytes.writeTo(out);
+			out.writeShort(ACC_FINAL | ACC_SUPER);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(0);
+			out.writeShort(0);
+			out.writeShort(methodCount);
+			methodBytes.writeTo(out);
+			out.writeShort(0);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	private int memberRef(final int tag, final String owner, final String name, final String descriptor) {
+
+		final int ownerIndex = classRef(owner);
+		final int nameIndex = utf8(name);
+		final int descriptorIndex = utf8(descriptor);
+		final int nameAndType = entry("N" + name + ' ' + descriptor, 1, () -> {
+			pool.writeByte(NAME_AND_TYPE);
+			pool.writeShort(nameIndex);
+			pool.writeShort(descriptorIndex);
+		});
+
+		return entry(tag + owner + '.' + name + descriptor, 1, () -> {
+			pool.writeByte(tag);
+			pool.writeShort(ownerIndex);
+			pool.writeShort(nameAndType);
+		});
+	}
+
+	private int entry(final String key, final int slots, final PoolWriter writer) {
+
+		final Integer index = poolIndices.get(key);
+		if (index != null) {
+			return index;
+		}
+		if (poolSize + slots > MAXIMUM_POOL_SIZE) {
+			throw new IllegalArgumentException("Too many constants for one class.");
+		}
+
+		try {
+			writer.write();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		final int newIndex = poolSize;
+		poolIndices.put(key, newIndex);
+		poolSize += slots;
+		return newIndex;
+	}
+
+	@FunctionalInterface
+	private interface PoolWriter {
+		void write() throws IOException;
+	}
+
+	/**
+	 * The instructions of one method, without branches
+	 */
+	protected static final class Code {
+
+		private static final int ICONST_0 = 0x03;
+		private static final int DCONST_0 = 0x0e;
+		private static final int BIPUSH = 0x10;
+		private static final int SIPUSH = 0x11;
+		private static final int LDC2_W = 0x14;
+		private static final int ILOAD = 0x15;
+		private static final int DLOAD = 0x18;
+		private static final int ALOAD = 0x19;
+		private static final int DALOAD = 0x31;
+		private static final int AALOAD = 0x32;
+		private static final int DSTORE = 0x39;
+		private static final int ASTORE = 0x3a;
+		private static final int DASTORE = 0x52;
+		private static final int IADD = 0x60;
+		private static final int DADD = 0x63;
+		private static final int DMUL = 0x6b;
+		private static final int RETURN = 0xb1;
+		private static final int GETFIELD = 0xb4;
+		private static final int INVOKESPECIAL = 0xb7;
+		private static final int INVOKEINTERFACE = 0xb9;
+		private static final int NEWARRAY = 0xbc;
+		private static final int WIDE = 0xc4;
+
+		private static final int T_DOUBLE = 7;
+
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		protected Code iload(final int local) {
+			return local(ILOAD, local);
+		}
+
+		protected Code dload(final int local) {
+			return local(DLOAD, local);
+		}
+
+		protected Code aload(final int local) {
+			return local(ALOAD, local);
+		}
+
+		protected Code dstore(final int local) {
+			return local(DSTORE, local);
+		}
+
+		protected Code astore(final int local) {
+			return local(ASTORE, local);
+		}
+
+		protected Code push(final int value) {
+
+			assert (value >= 0 && value <= Short.MAX_VALUE) : "Only small constants can be pushed.";
+
+			if (value <= 5) {
+				bytes.write(ICONST_0 + value);
+			} else if (value <= Byte.MAX_VALUE) {
+				bytes.write(BIPUSH);
+				bytes.write(value);
+			} else {
+				bytes.write(SIPUSH);
+				writeShort(value);
+			}
+			return this;
+		}
+
+		protected Code ldc2w(final int index) {
+
+			bytes.write(LDC2_W);
+			writeShort(index);
+			return this;
+		}
+
+		protected Code dconst0() {
+			bytes.write(DCONST_0);
+			return this;
+		}
+
+		protected Code daload() {
+			bytes.write(DALOAD);
+			return this;
+		}
+
+		protected Code aaload() {
+			bytes.write(AALOAD);
+			return this;
+		}
+
+		protected Code dastore() {
+			bytes.write(DASTORE);
+			return this;
+		}
+
+		protected Code iadd() {
+			bytes.write(IADD);
+			return this;
+		}
+
+		protected Code dadd() {
+			bytes.write(DADD);
+			return this;
+		}
+
+		protected Code dmul() {
+			bytes.write(DMUL);
+			return this;
+		}
+
+		protected Code getfield(final int index) {
+
+			bytes.write(GETFIELD);
+			writeShort(index);
+			return this;
+		}
+
+		protected Code invokespecial(final int index) {
+
+			bytes.write(INVOKESPECIAL);
+			writeShort(index);
+			return this;
+		}
+
+		/**
+		 * @param index the interface method
+		 * @param slots the slots of the receiver and the arguments
+		 */
+		protected Code invokeinterface(final int index, final int slots) {
+
+			bytes.write(INVOKEINTERFACE);
+			writeShort(index);
+			bytes.write(slots);
+			bytes.write(0);
+			return this;
+		}
+
+		protected Code newDoubleArray() {
+
+			bytes.write(NEWARRAY);
+			bytes.write(T_DOUBLE);
+			return this;
+		}
+
+		protected Code vreturn() {
+			bytes.write(RETURN);
+			return this;
+		}
+
+		protected Code append(final Code code) {
+			bytes.writeBytes(code.toByteArray());
+			return this;
+		}
+
+		protected int size() {
+			return bytes.size();
+		}
+
+		protected byte[] toByteArray() {
+			return bytes.toByteArray();
+		}
+
+		private Code local(final int opcode, final int local) {
+
+			if (local <= 0xff) {
+				bytes.write(opcode);
+				bytes.write(local);
+			} else {
+				bytes.write(WIDE);
+				bytes.write(opcode);
+				writeShort(local);
+			}
+			return this;
+		}
+
+		private void writeShort(final int value) {
+
+			bytes.write(value >>> 8);
+			bytes.write(value);
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package de.plath.csc.machinelearning.neural.net;
+
+/**
+ * Running sum with the same compensated summation as {@link java.util.stream.DoubleStream#sum()},
+ * so that sums computed without streams match the stream results bit for bit.
+ *
+ */
+final class CompensatedSum {
+
+	private double sum;
+	private double compensation;
+	private double simpleSum;
+
+	protected void add(final double value) {
+
+		final double tmp = value - compensation;
+		final double velvel = sum + tmp;
+		compensation = (velvel - sum) - tmp;
+		sum = velvel;
+		simpleSum += value;
+	}
+
+	protected double getSum() {
+
+		final double result = sum - compensation;
+
+		return Double.isNaN(result) && Double.isInfinite(simpleSum) ? simpleSum : result;
+	}
+}
@@ -0,0 +1,60 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.Objects;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+
+/**
+ * A trained network compiled into a class of its own by {@link NetworkCompiler}, whose
+ * forward pass is unrolled with the weights as constants. It cannot learn.
+ *
+ */
+public abstract class CompiledNeuralNetwork extends ScoringNeuralNetwork {
+
+	/**
+	 * The activation function of the inputs, followed by those of the layers, read by the
+	 * generated code
+	 */
+	protected final Activation[] activations;
+
+	protected CompiledNeuralNetwork(final Activation[] activations, final int inputLayerSize, final int outputLayerSize) {
+
+		super("compiled", inputLayerSize, outputLayerSize);
+		this.activations = Objects.requireNonNull(activations);
+	}
+
+	/**
+	 * Scores one sample without boxing, the fastest way to call a compiled network
+	 *
+	 * @param input  the input, of the input layer size
+	 * @param output receives the output, of the output layer size
+	 */
+	public void getOutput(final double[] input, final double[] output) {
+
+		assert (input.length == getInputLayerSize()) : "Size of input must match the size of the input layer.";
+		assert (output.length == getOutputLayerSize()) : "Size of output must match the size of the output layer.";
+
+		score(input, 0, output, 0);
+	}
+
+	@Override
+	protected void scoreChunk(final double[] inputs, final double[] outputs, final int first, final int samples) {
+
+		final int inputLayerSize = getInputLayerSize();
+		final int outputLayerSize = getOutputLayerSize();
+
+		for (int sample = first; sample < first + samples; sample++) {
+			score(inputs, sample * inputLayerSize, outputs, sample * outputLayerSize);
+		}
+	}
+
+	/**
+	 * The unrolled forward pass, generated by {@link NetworkCompiler}
+	 *
+	 * @param inputs       the inputs
+	 * @param inputOffset  the index of the first input of the sample
+	 * @param outputs      receives the outputs
+	 * @param outputOffset the index of the first output of the sample
+	 */
+	protected abstract void score(double[] inputs, int inputOffset, double[] outputs, int outputOffset);
+}
@@ -0,0 +1,51 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of initializing and connecting the layers of a network
+ *
+ */
+@Name("de.plath.csc.machinelearning.neural.NetworkConstruction")
+@Label("Network Construction")
+@Category({ "JANN", "Model" })
+@Description("Initializing and connecting the layers of a network")
+@StackTrace(false)
+final class ConstructionEvent extends jdk.jfr.Event {
+
+	@Label("Engine")
+	private String engine;
+
+	@Label("Neurons")
+	@Description("Number of neurons, including the input layer")
+	private long neurons;
+
+	@Label("Synapses")
+	@Description("Number of weights, including biases")
+	private long synapses;
+
+	@Label("Estimated Heap")
+	@Description("Estimated heap footprint of the layers, assuming compressed references")
+	@DataAmount
+	private long heap;
+
+	/**
+	 * Commits the event if it is enabled and exceeds its threshold
+	 */
+	protected void commit(final String engineName, final long neuronCount, final long synapseCount, final long heapBytes) {
+
+		if (shouldCommit()) {
+
+			engine = engineName;
+			neurons = neuronCount;
+			synapses = synapseCount;
+			heap = heapBytes;
+			commit();
+		}
+	}
+}
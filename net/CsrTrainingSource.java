@@ -0,0 +1,83 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.Objects;
+
+import de.plath.csc.machinelearning.neural.api.SparseTrainingSource;
+
+/**
+ * Sparse training data held in compressed sparse row format: the non-zero inputs of all
+ * samples in one array, with the offset of every sample's first one
+ *
+ */
+public class CsrTrainingSource implements SparseTrainingSource {
+
+	private final int[] offsets;
+	private final int[] indices;
+	private final double[] values;
+	private final int[] targets;
+	private final int inputSize;
+
+	/**
+	 * @param offsets   the index of the first non-zero input of every sample in
+	 *                  {@code indices} and {@code values}, followed by the number of non-zero
+	 *                  inputs
+	 * @param indices   the indices of the non-zero inputs, ascending within a sample
+	 * @param values    the non-zero inputs
+	 * @param targets   the labels of the samples
+	 * @param inputSize the number of inputs of every sample, zero or not
+	 */
+	public CsrTrainingSource(final int[] offsets,
+			final int[] indices,
+			final double[] values,
+			final int[] targets,
+			final int inputSize) {
+
+		this.offsets = Objects.requireNonNull(offsets, "Offsets are null.");
+		this.indices = Objects.requireNonNull(indices, "Indices are null.");
+		this.values = Objects.requireNonNull(values, "Values are null.");
+		this.targets = Objects.requireNonNull(targets, "Targets are null.");
+		this.inputSize = inputSize;
+
+		assert (inputSize > 0) : "Input size must be greater than 0.";
+		assert (offsets.length == targets.length + 1) : "Every sample needs a label.";
+		assert (indices.length == values.length && offsets[targets.length] == values.length) : "Every non-zero input needs an index.";
+	}
+
+	@Override
+	public int getInputSize() {
+		return inputSize;
+	}
+
+	@Override
+	public Reader open() {
+
+		return new Reader() {
+
+			private int sample = -1;
+
+			@Override
+			public int next(final int[] sampleIndices, final double[] sampleValues) {
+
+				if (sample + 1 == targets.length) {
+					return -1;
+				}
+
+				sample++;
+
+				final int count = offsets[sample + 1] - offsets[sample];
+				System.arraycopy(indices, offsets[sample], sampleIndices, 0, count);
+				System.arraycopy(values, offsets[sample], sampleValues, 0, count);
+				return count;
+			}
+
+			@Override
+			public int getTarget() {
+				return targets[sample];
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+	}
+}
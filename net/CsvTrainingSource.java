@@ -0,0 +1,99 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+import de.plath.csc.machinelearning.neural.api.TrainingSource;
+
+/**
+ * Training data in a comma-separated file, read line by line. Every line holds the inputs of a
+ * sample followed by its label; blank lines are skipped.
+ *
+ */
+public class CsvTrainingSource implements TrainingSource {
+
+	private static final char SEPARATOR = ',';
+
+	private final Path path;
+	private final int inputSize;
+	private final boolean header;
+
+	/**
+	 * @param path      the file
+	 * @param inputSize the number of inputs of every sample
+	 * @param header    whether the first line is a header, which is skipped
+	 */
+	public CsvTrainingSource(final Path path, final int inputSize, final boolean header) {
+
+		this.path = Objects.requireNonNull(path, "Path is null.");
+		this.inputSize = inputSize;
+		this.header = header;
+
+		assert (inputSize > 0) : "Input size must be greater than 0.";
+	}
+
+	@Override
+	public int getInputSize() {
+		return inputSize;
+	}
+
+	@Override
+	public Reader open() throws IOException {
+
+		final BufferedReader lines = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+		if (header) {
+			lines.readLine();
+		}
+
+		return new Reader() {
+
+			private int target;
+			private long lineNumber = header ? 1 : 0;
+
+			@Override
+			public boolean next(final double[] inputs, final int offset) throws IOException {
+
+				String line;
+				do {
+					line = lines.readLine();
+					lineNumber++;
+					if (line == null) {
+						return false;
+					}
+				} while (line.isBlank());
+
+				try {
+					int start = 0;
+					for (int i = 0; i < inputSize; i++) {
+
+						final int end = line.indexOf(SEPARATOR, start);
+						if (end < 0) {
+							throw new IOException("Line " + lineNumber + " of " + path + " has fewer than " + (inputSize + 1) + " columns.");
+						}
+						inputs[offset + i] = Double.parseDouble(line.substring(start, end));
+						start = end + 1;
+					}
+					target = Integer.parseInt(line.substring(start).trim());
+
+				} catch (final NumberFormatException e) {
+					throw new IOException("Line " + lineNumber + " of " + path + " is not a sample.", e);
+				}
+				return true;
+			}
+
+			@Override
+			public int getTarget() {
+				return target;
+			}
+
+			@Override
+			public void close() throws IOException {
+				lines.close();
+			}
+		};
+	}
+}
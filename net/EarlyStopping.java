@@ -0,0 +1,232 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleBinaryOperator;
+
+import de.plath.csc.machinelearning.neural.api.IParameters;
+import de.plath.csc.machinelearning.neural.api.TrainingSource;
+
+/**
+ * Early stopping of a {@link PackedNeuralNetwork} on a validation set. After every epoch the
+ * validation samples are scored in chunks by the batch inference of the network, which splits
+ * large chunks over the common pool, and the weights of the epoch with the lowest validation
+ * error are kept aside to be restored at the end, together with their momentum terms, the
+ * states of the optimizer and the learning error, so that learning on continues from them.
+ *
+ */
+final class EarlyStopping {
+
+	// enough samples per chunk to score in parallel on every core of the common pool
+	private static final int MINIMUM_CHUNK_SIZE = 4096;
+	private static final int CHUNK_SIZE_PER_THREAD = 1024;
+
+	private final TrainingSource validationSource;
+	private final int patience;
+	private final double minimumDelta;
+	private final DoubleBinaryOperator errorFunction;
+
+	private final int inputSize;
+	private final int outputSize;
+	private final double[] inputs;
+	private final double[] outputs;
+	private final int[] targets;
+
+	private final WeightUpdate weightUpdate;
+
+	private final double[][] bestWeights;
+	private final double[][] bestDeltaWeights;
+	private final double[][][] bestOptimizerStates;
+	private long bestStep;
+
+	private double bestError;
+	private double bestLearningError = Double.NaN;
+	private int bestEpoch;
+	private int epochsWithoutImprovement;
+
+	/**
+	 * @param nnParameters the parameters with the validation samples, patience and minimum
+	 *                     delta
+	 * @param layers       the layers whose weights are kept
+	 * @param weightUpdate the update whose step is kept with the optimizer states
+	 * @throws IllegalArgumentException if the validation source has no samples
+	 */
+	protected EarlyStopping(final IParameters nnParameters, final List<PackedLayer> layers, final WeightUpdate weightUpdate) {
+
+		this.weightUpdate = weightUpdate;
+		validationSource = nnParameters.getValidationSource();
+		patience = nnParameters.getPatience();
+		minimumDelta = nnParameters.getMinimumDelta();
+		errorFunction = nnParameters.getErrorOperator();
+
+		inputSize = nnParameters.getInputLayerSize();
+		outputSize = layers.get(layers.size() - 1).getSize();
+
+		assert (validationSource.getInputSize() == inputSize) : "Size of validation inputs must match the size of the input layer.";
+
+		final int chunkSize = Math.max(MINIMUM_CHUNK_SIZE, CHUNK_SIZE_PER_THREAD * ForkJoinPool.getCommonPoolParallelism());
+
+		inputs = new double[chunkSize * inputSize];
+		outputs = new double[chunkSize * outputSize];
+		targets = new int[chunkSize];
+
+		// up front, as the validation error of no samples is NaN and never improves
+		try (TrainingSource.Reader reader = validationSource.open()) {
+			if (!reader.next(inputs, 0)) {
+				throw new IllegalArgumentException("The validation source has no samples.");
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		bestWeights = new double[layers.size()][];
+		bestDeltaWeights = new double[layers.size()][];
+		bestOptimizerStates = new double[layers.size()][0][];
+		for (int layer = 0; layer < layers.size(); layer++) {
+			bestWeights[layer] = new double[layers.get(layer).getWeights().length];
+			bestDeltaWeights[layer] = new double[bestWeights[layer].length];
+		}
+
+		bestError = Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * @return the mean error over the validation samples
+	 */
+	protected double validate(final PackedNeuralNetwork neuralNetwork) throws IOException {
+
+		double errors = 0d;
+		long samples = 0;
+
+		try (TrainingSource.Reader reader = validationSource.open()) {
+
+			int count;
+			do {
+				count = 0;
+				while (count < targets.length && reader.next(inputs, count * inputSize)) {
+					targets[count++] = reader.getTarget();
+				}
+
+				if (count > 0) {
+					errors += score(neuralNetwork, count);
+					samples += count;
+				}
+			} while (count == targets.length);
+		}
+		return errors / samples;
+	}
+
+	/**
+	 * Keeps the weights and their update state if the validation error improved
+	 *
+	 * @param epoch           the number of the epoch, starting at 1
+	 * @param validationError the validation error after the epoch
+	 * @param learningError   the learning error of the epoch
+	 * @param layers          the layers
+	 * @return whether to stop the training
+	 */
+	protected boolean update(final int epoch, final double validationError, final double learningError, final List<PackedLayer> layers) {
+
+		if (validationError < bestError - minimumDelta) {
+
+			bestError = validationError;
+			bestLearningError = learningError;
+			bestEpoch = epoch;
+			bestStep = weightUpdate.getStep();
+			epochsWithoutImprovement = 0;
+
+			for (int layer = 0; layer < layers.size(); layer++) {
+
+				final PackedLayer packedLayer = layers.get(layer);
+
+				System.arraycopy(packedLayer.getWeights(), 0, bestWeights[layer], 0, bestWeights[layer].length);
+				System.arraycopy(packedLayer.getDeltaWeights(), 0, bestDeltaWeights[layer], 0, bestDeltaWeights[layer].length);
+				bestOptimizerStates[layer] = copy(packedLayer.getOptimizerStates(), bestOptimizerStates[layer]);
+			}
+			return false;
+		}
+		return ++epochsWithoutImprovement >= patience;
+	}
+
+	/**
+	 * Restores the weights of the best epoch and their update state, unless they are the
+	 * current ones
+	 *
+	 * @param lastEpoch the number of the last epoch learned
+	 * @param layers    the layers
+	 */
+	protected void restoreBest(final int lastEpoch, final List<PackedLayer> layers) {
+
+		if (bestEpoch == 0 || bestEpoch == lastEpoch) {
+			return;
+		}
+
+		for (int layer = 0; layer < layers.size(); layer++) {
+
+			final PackedLayer packedLayer = layers.get(layer);
+
+			System.arraycopy(bestWeights[layer], 0, packedLayer.getWeights(), 0, bestWeights[layer].length);
+			System.arraycopy(bestDeltaWeights[layer], 0, packedLayer.getDeltaWeights(), 0, bestDeltaWeights[layer].length);
+			packedLayer.setOptimizerStates(copy(bestOptimizerStates[layer], packedLayer.getOptimizerStates()));
+		}
+		weightUpdate.setStep(bestStep);
+	}
+
+	/**
+	 * @return the lowest validation error, which belongs to the restored weights
+	 */
+	protected double getBestError() {
+		return bestError;
+	}
+
+	/**
+	 * @return the learning error of the epoch with the lowest validation error, {@code NaN}
+	 *         before the first
+	 */
+	protected double getBestLearningError() {
+		return bestLearningError;
+	}
+
+	/**
+	 * @return the epoch with the lowest validation error, 0 before the first
+	 */
+	protected int getBestEpoch() {
+		return bestEpoch;
+	}
+
+	/**
+	 * @return the target with the contents of the source, reallocated if their sizes differ
+	 */
+	private static double[][] copy(final double[][] source, final double[][] target) {
+
+		final double[][] copy = target.length == source.length ? target : new double[source.length][];
+
+		for (int state = 0; state < source.length; state++) {
+
+			if (copy[state] == null || copy[state].length != source[state].length) {
+				copy[state] = new double[source[state].length];
+			}
+			System.arraycopy(source[state], 0, copy[state], 0, source[state].length);
+		}
+		return copy;
+	}
+
+	private double score(final PackedNeuralNetwork neuralNetwork, final int count) {
+
+		neuralNetwork.getOutputs(inputs, outputs, count);
+
+		double errors = 0d;
+
+		for (int sample = 0; sample < count; sample++) {
+
+			double error = 0d;
+			for (int o = 0; o < outputSize; o++) {
+				error += errorFunction.applyAsDouble(outputs[sample * outputSize + o], targets[sample] == o ? 1d : 0d);
+			}
+			errors += error / outputSize;
+		}
+		return errors;
+	}
+}
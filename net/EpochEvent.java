@@ -0,0 +1,50 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import de.plath.csc.machinelearning.neural.api.INeuralNetwork;
+
+/**
+ * Flight Recorder event of one training epoch, from opening the training data to the last
+ * weight update
+ *
+ */
+@Name("de.plath.csc.machinelearning.neural.Epoch")
+@Label("Training Epoch")
+@Category({ "JANN", "Training" })
+@Description("One epoch of learn, including reading the training data")
+@StackTrace(false)
+final class EpochEvent extends jdk.jfr.Event {
+
+	@Label("Engine")
+	private String engine;
+
+	@Label("Epoch")
+	private int epoch;
+
+	@Label("Samples")
+	private long samples;
+
+	@Label("Loss")
+	@Description("Mean error over the samples of the epoch")
+	private double loss;
+
+	/**
+	 * Commits the event if it is enabled and exceeds its threshold
+	 */
+	protected void commit(final INeuralNetwork neuralNetwork, final int epochNumber, final long epochSamples, final double epochLoss) {
+
+		if (shouldCommit()) {
+
+			engine = neuralNetwork.getClass().getSimpleName();
+			epoch = epochNumber;
+			samples = epochSamples;
+			loss = epochLoss;
+			commit();
+		}
+	}
+}
@@ -1,6 +1,5 @@
 package de.plath.csc.machinelearning.neural.net;
 
-import java.util.Iterator;
 import java.util.List;
 
 
@@ -10,6 +9,8 @@ class FeedForward {
 	private final List<List<Neuron>> hiddenLayers;
 	private final List<Neuron> outputLayer;
 
+	private TrainingTimer timer;
+
 	protected FeedForward(final List<Neuron> inputLayer,
 			final List<List<Neuron>> hiddenLayers,
 			final List<Neuron> outputLayer) {
@@ -19,28 +20,115 @@ class FeedForward {
 		this.outputLayer = outputLayer;
 	}
 
-	protected void apply(final List<Double> input) {
+	protected void apply(final double[] input) {
 
 		feedInputLayer(input);
 		feedHiddenLayers();
 		feedOutputLayer();
 	}
 
-	private void feedInputLayer(final List<Double> input) {
+	/**
+	 * @param timer measures {@link #apply(double[])} per layer, or {@code null}
+	 */
+	protected void setTimer(final TrainingTimer timer) {
+		this.timer = timer;
+	}
+
+	/**
+	 * Calculates the outputs of the network without changing the state of its neurons, so that
+	 * several threads can score on the same network at the same time.
+	 *
+	 * @param input the input of the network
+	 * @return the outputs of the output layer
+	 */
+	protected double[] calculate(final double[] input) {
+
+		final double[][] buffers = createBuffers();
+		calculate(input, 0, buffers);
+		return buffers[buffers.length - 1];
+	}
+
+	/**
+	 * @return one buffer per layer, for {@link #calculate(double[], int, double[][])}
+	 */
+	protected double[][] createBuffers() {
+
+		final double[][] buffers = new double[hiddenLayers.size() + 2][];
+		buffers[0] = new double[inputLayer.size()];
+		for (int layer = 0; layer < hiddenLayers.size(); layer++) {
+			buffers[layer + 1] = new double[hiddenLayers.get(layer).size()];
+		}
+		buffers[buffers.length - 1] = new double[outputLayer.size()];
+		return buffers;
+	}
+
+	/**
+	 * Calculates the outputs of the network like {@link #calculate(double[])}, keeping the
+	 * outputs of every layer in the given buffers, so that scoring a batch allocates nothing
+	 * per sample.
+	 *
+	 * @param inputs  the inputs, one row per sample
+	 * @param sample  the row to calculate
+	 * @param buffers the buffers of {@link #createBuffers()}, the last one receives the outputs
+	 */
+	protected void calculate(final double[] inputs, final int sample, final double[][] buffers) {
+
+		final int offset = sample * inputLayer.size();
+		for (int i = 0; i < inputLayer.size(); i++) {
+			buffers[0][i] = inputLayer.get(i).calculateOutput(inputs[offset + i]);
+		}
+
+		for (int layer = 0; layer < hiddenLayers.size(); layer++) {
+			calculateOutputs(hiddenLayers.get(layer), buffers[layer], buffers[layer + 1]);
+		}
+		calculateOutputs(outputLayer, buffers[buffers.length - 2], buffers[buffers.length - 1]);
+	}
+
+	private void feedInputLayer(final double[] input) {
 
-		final Iterator<Double> iterator = input.iterator();
-		inputLayer.forEach(neuron -> {
-			neuron.getInputs().get(0).setWeight(iterator.next());
-			neuron.calculateOutput();
-		});
+		for (int i = 0; i < inputLayer.size(); i++) {
+			inputLayer.get(i).getInputs().get(0).setWeight(input[i]);
+			inputLayer.get(i).calculateOutput();
+		}
 	}
 
 	private void feedHiddenLayers() {
-		hiddenLayers.forEach(layer -> layer.forEach(neuron -> neuron.calculateOutput()));
+
+		long start = timer != null ? System.nanoTime() : 0L;
+
+		for (int layer = 0; layer < hiddenLayers.size(); layer++) {
+
+			calculateOutputs(hiddenLayers.get(layer));
+
+			if (timer != null) {
+				start = timer.forward(layer, start);
+			}
+		}
 	}
 
 	private void feedOutputLayer() {
-		outputLayer.forEach(neuron -> neuron.calculateOutput());
+
+		final long start = timer != null ? System.nanoTime() : 0L;
+
+		calculateOutputs(outputLayer);
+
+		if (timer != null) {
+			timer.forward(hiddenLayers.size(), start);
+		}
+	}
+
+	private static void calculateOutputs(final List<Neuron> layer) {
+
+		for (int n = 0; n < layer.size(); n++) {
+			layer.get(n).calculateOutput();
+		}
+	}
+
+	private static void calculateOutputs(final List<Neuron> layer, final double[] previousOutputs, final double[] outputs) {
+
+		for (int n = 0; n < layer.size(); n++) {
+			outputs[n] = layer.get(n).calculateOutput(previousOutputs);
+		}
 	}
 
 }
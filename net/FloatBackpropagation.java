@@ -0,0 +1,189 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+import de.plath.csc.machinelearning.neural.api.IParameters;
+
+/**
+ * Back-propagation algorithm with learning rate and momentum over {@link FloatLayer}s. It
+ * performs the same updates as {@link PackedBackpropagation} in {@code float} arithmetic;
+ * biases are left untouched.
+ *
+ */
+class FloatBackpropagation {
+
+	private final List<FloatLayer> layers;
+	private final float[][] outputs;
+
+	private final float momentum;
+	private final DoubleBinaryOperator errorFunction;
+
+	private float learningRate;
+	private TrainingTimer timer;
+
+	protected FloatBackpropagation(final List<FloatLayer> layers,
+			final float[][] outputs,
+			final IParameters nnParameters) {
+
+		this.layers = layers;
+		this.outputs = outputs;
+
+		this.momentum = (float) Optimizers.getMomentum(nnParameters);
+		this.learningRate = (float) nnParameters.getLearningRate();
+		this.errorFunction = nnParameters.getErrorOperator();
+	}
+
+	/**
+	 * Updates the weights for one sample, based on the outputs of the preceding forward pass
+	 *
+	 * @param targets the expected outputs of the output layer
+	 * @return the mean error of the output layer before the update
+	 */
+	protected double apply(final double[] targets) {
+
+		final double error = calculateDeltas(targets);
+		updateWeights();
+
+		return error;
+	}
+
+	/**
+	 * @param timer measures the phases per layer, or {@code null}
+	 */
+	protected void setTimer(final TrainingTimer timer) {
+		this.timer = timer;
+	}
+
+	/**
+	 * @param learningRate the learning rate of the current epoch
+	 */
+	protected void setLearningRate(final double learningRate) {
+		this.learningRate = (float) learningRate;
+	}
+
+	/**
+	 * Calculates the deltas for one sample, based on the outputs of the preceding forward pass
+	 *
+	 * @param targets the expected outputs of the output layer
+	 * @return the mean error of the output layer
+	 */
+	protected double calculateDeltas(final double[] targets) {
+
+		long start = timer != null ? System.nanoTime() : 0L;
+
+		final double error = calculateDeltasOfOutputLayer(targets);
+
+		if (timer != null) {
+			start = timer.backward(layers.size() - 1, start);
+		}
+
+		for (int layer = layers.size() - 2; layer >= 0; layer--) {
+
+			calculateDeltasOfOneHiddenLayer(layer);
+
+			if (timer != null) {
+				start = timer.backward(layer, start);
+			}
+		}
+		return error;
+	}
+
+	/**
+	 * Applies the deltas calculated last to the weights
+	 */
+	protected void updateWeights() {
+
+		long start = timer != null ? System.nanoTime() : 0L;
+
+		for (int layer = 0; layer < layers.size(); layer++) {
+
+			layers.get(layer).updateWeights();
+
+			if (timer != null) {
+				start = timer.update(layer, start);
+			}
+		}
+	}
+
+	private double calculateDeltasOfOutputLayer(final double[] targets) {
+
+		final int layerIndex = layers.size() - 1;
+		final FloatLayer outputLayer = layers.get(layerIndex);
+
+		final float[] previousOutputs = outputs[layerIndex];
+		final float[] layerOutputs = outputs[layerIndex + 1];
+		final int previousSize = outputLayer.getInputSize();
+
+		final float[] deltas = outputLayer.getDeltas();
+		final float[] deltaWeights = outputLayer.getDeltaWeights();
+
+		double error = 0d;
+
+		for (int o = 0; o < outputLayer.getSize(); o++) {
+
+			final float out = layerOutputs[o];
+			final float errorSignal = out - (float) targets[o];
+			final float gradient = learningRate * errorSignal * (float) outputLayer.getActivation().derivative(out);
+
+			final int row = o * previousSize;
+
+			for (int p = 0; p < previousSize; p++) {
+
+				final float delta = gradient * previousOutputs[p];
+
+				deltas[row + p] = delta;
+				deltaWeights[row + p] = delta + momentum * deltaWeights[row + p];
+			}
+
+			error += errorFunction.applyAsDouble(out, targets[o]);
+		}
+		return error / outputLayer.getSize();
+	}
+
+	private void calculateDeltasOfOneHiddenLayer(final int layerIndex) {
+
+		final FloatLayer hiddenLayer = layers.get(layerIndex);
+		final FloatLayer nextLayer = layers.get(layerIndex + 1);
+
+		final float[] previousOutputs = outputs[layerIndex];
+		final float[] hiddenOutputs = outputs[layerIndex + 1];
+		final float[] nextOutputs = outputs[layerIndex + 2];
+
+		final int previousSize = hiddenLayer.getInputSize();
+		final int hiddenSize = hiddenLayer.getSize();
+
+		final float[] deltas = hiddenLayer.getDeltas();
+		final float[] deltaWeights = hiddenLayer.getDeltaWeights();
+		final float[] nextWeights = nextLayer.getWeights();
+		final float[] nextDeltas = nextLayer.getDeltas();
+		// like Backpropagation, the last hidden layer's derivative is applied to the outputs
+		final Activation nextActivation = layerIndex + 1 < layers.size() - 1 ? nextLayer.getActivation() : hiddenLayer.getActivation();
+
+		for (int h = 0; h < hiddenSize; h++) {
+
+			float totalOutput = 0f;
+
+			for (int n = 0; n < nextLayer.getSize(); n++) {
+
+				final float errorSignal = nextWeights[n * hiddenSize + h] * nextDeltas[n * hiddenSize + h];
+
+				totalOutput += errorSignal * (float) nextActivation.derivative(nextOutputs[n]);
+			}
+
+			final float gradient = learningRate * totalOutput;
+			final float derivative = (float) hiddenLayer.getActivation().derivative(hiddenOutputs[h]);
+
+			final int row = h * previousSize;
+
+			for (int p = 0; p < previousSize; p++) {
+
+				final float delta = gradient * (derivative * previousOutputs[p]);
+
+				deltas[row + p] = delta;
+				deltaWeights[row + p] = delta + momentum * deltaWeights[row + p];
+			}
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+
+/**
+ * Fully connected layer of a {@link FloatNeuralNetwork}, which keeps its weights, biases,
+ * deltas and momentum terms in contiguous, row-major {@code float} arrays. Row {@code n} of
+ * {@link #getWeights()} holds the weights of the synapses feeding neuron {@code n}.
+ *
+ */
+class FloatLayer {
+
+	private final int inputSize;
+	private final int size;
+
+	private final float[] weights;
+	private final float[] biases;
+	private final float[] deltas;
+	private final float[] deltaWeights;
+
+	private final Activation activation;
+
+	protected FloatLayer(final int inputSize,
+			final int size,
+			final Activation activation) {
+
+		this.inputSize = inputSize;
+		this.size = size;
+
+		this.weights = new float[size * inputSize];
+		this.biases = new float[size];
+		this.deltas = new float[size * inputSize];
+		this.deltaWeights = new float[size * inputSize];
+
+		this.activation = Objects.requireNonNull(activation, "Activation is null.");
+	}
+
+	/**
+	 * Draws the initial weights in the same order as {@link PackedLayer}, rounded to
+	 * {@code float}.
+	 *
+	 * @param initializationFunction the initialization of weights function
+	 */
+	protected void initialize(final Function<Integer, Double> initializationFunction) {
+
+		for (int neuron = 0; neuron < size; neuron++) {
+
+			final int row = neuron * inputSize;
+
+			for (int input = 0; input < inputSize; input++) {
+				weights[row + input] = initializationFunction.apply(inputSize).floatValue();
+			}
+			biases[neuron] = initializationFunction.apply(inputSize).floatValue();
+		}
+	}
+
+	protected void calculateOutputs(final float[] inputs, final float[] outputs) {
+
+		for (int neuron = 0; neuron < size; neuron++) {
+
+			final int row = neuron * inputSize;
+			float sum = 0f;
+
+			for (int input = 0; input < inputSize; input++) {
+				sum += weights[row + input] * inputs[input];
+			}
+			outputs[neuron] = (float) activation.applyAsDouble(sum + biases[neuron]);
+		}
+	}
+
+	protected void updateWeights() {
+
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] -= deltaWeights[i];
+		}
+	}
+
+	protected int getInputSize() {
+		return inputSize;
+	}
+
+	protected int getSize() {
+		return size;
+	}
+
+	protected float[] getWeights() {
+		return weights;
+	}
+
+	protected float[] getBiases() {
+		return biases;
+	}
+
+	protected float[] getDeltas() {
+		return deltas;
+	}
+
+	protected float[] getDeltaWeights() {
+		return deltaWeights;
+	}
+
+	protected Activation getActivation() {
+		return activation;
+	}
+}
@@ -0,0 +1,86 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import de.plath.csc.machinelearning.neural.api.IParameters;
+
+/**
+ *
+ * Initializes and connects the layers of a {@link FloatNeuralNetwork}
+ */
+class FloatNetworkLayers {
+
+	// the layer object and the headers of its four arrays, for the construction event
+	private static final long LAYER_BYTES = 32 + 4 * 16;
+
+	private final IParameters nnParameters;
+
+	private final ConstructionEvent constructionEvent = new ConstructionEvent();
+
+	private final List<FloatLayer> layers = new ArrayList<>();
+
+	/**
+	 * @param nnParameters the parameters of the Neural Network
+	 */
+	protected FloatNetworkLayers(final IParameters nnParameters) {
+		this.nnParameters = Objects.requireNonNull(nnParameters);
+	}
+
+	/**
+	 * Initialize the hidden and output layers
+	 */
+	protected void initializeLayers() {
+
+		constructionEvent.begin();
+
+		int previousLayerSize = nnParameters.getInputLayerSize();
+
+		// the hidden layers followed by the output layer
+		for (int l = 0; l <= nnParameters.getNumberOfHiddenLayers(); l++) {
+
+			layers.add(new FloatLayer(previousLayerSize,
+					nnParameters.getLayerSize(l),
+					nnParameters.getLayerActivation(l)));
+
+			previousLayerSize = nnParameters.getLayerSize(l);
+		}
+	}
+
+	/**
+	 * Fully connect the layers
+	 */
+	protected void connectLayers() {
+		for (int l = 0; l < layers.size(); l++) {
+			layers.get(l).initialize(nnParameters.getLayerInitializationFunction(l));
+		}
+
+		if (constructionEvent.shouldCommit()) {
+			commitConstructionEvent();
+		}
+	}
+
+	protected List<FloatLayer> getLayers() {
+		return layers;
+	}
+
+	private void commitConstructionEvent() {
+
+		long neurons = nnParameters.getInputLayerSize();
+		long synapses = 0;
+		long heap = 0;
+
+		for (final FloatLayer layer : layers) {
+
+			final long weights = (long) layer.getSize() * layer.getInputSize();
+
+			neurons += layer.getSize();
+			synapses += weights + layer.getSize();
+			// weights, deltas and momentum terms, and biases
+			heap += LAYER_BYTES + (3 * weights + layer.getSize()) * Float.BYTES;
+		}
+
+		constructionEvent.commit(FloatNeuralNetwork.class.getSimpleName(), neurons, synapses, heap);
+	}
+}
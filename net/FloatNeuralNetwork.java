@@ -0,0 +1,273 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+import de.plath.csc.machinelearning.neural.api.INeuralNetwork;
+import de.plath.csc.machinelearning.neural.api.IParameters;
+import de.plath.csc.machinelearning.neural.api.TrainingListener;
+import de.plath.csc.machinelearning.neural.api.TrainingSource;
+
+/**
+ * A feed-forward, fully connected Artificial Neural Network for classification, with
+ * back-propagation learning, which stores and computes its weights, activations and gradients
+ * in {@code float}. It halves the memory of {@link PackedNeuralNetwork} at the cost of
+ * precision; the hyperparameters and the error of the network stay {@code double}. It learns
+ * per sample, the batch size and the parallelism are ignored.
+ * <p>
+ * {@link #getOutput(List)} keeps its intermediate results in per-call buffers, so any number
+ * of threads can score on a trained network without locking. Learning must not run at the
+ * same time.
+ *
+ */
+public class FloatNeuralNetwork implements INeuralNetwork {
+
+	private final IParameters nnParameters;
+
+	private final int inputLayerSize;
+	private final int outputLayerSize;
+
+	private final Activation inputActivation;
+	private final List<FloatLayer> layers;
+
+	private final float[][] outputs;
+	private final FloatBackpropagation backPropagation;
+
+	private final double[] input;
+	private final double[] binaryTargets;
+	private double learningError;
+
+	/**
+	 * C'tor
+	 *
+	 * @param nnParameters the parameters of the neural net
+	 * @param layers       hidden layers followed by the output layer of the neural net
+	 *
+	 */
+	protected FloatNeuralNetwork(final IParameters nnParameters, final List<FloatLayer> layers) {
+
+		this.nnParameters = Objects.requireNonNull(nnParameters);
+		this.layers = Objects.requireNonNull(layers);
+
+		if (nnParameters.getValidationSource() != null) {
+			throw new IllegalArgumentException("Early stopping is not supported here, use createPacked().");
+		}
+
+		inputLayerSize = nnParameters.getInputLayerSize();
+		outputLayerSize = layers.get(layers.size() - 1).getSize();
+		inputActivation = nnParameters.getActivation();
+
+		outputs = createOutputs();
+		backPropagation = new FloatBackpropagation(layers, outputs, nnParameters);
+
+		input = new double[inputLayerSize];
+		binaryTargets = new double[outputLayerSize];
+	}
+
+	@Override
+	public void learn(final List<List<Double>> trainingData, final List<Integer> targets) {
+
+		Objects.requireNonNull(trainingData, "Training data is null");
+		assert (!trainingData.isEmpty()) : "Training data cannot be empty";
+		assert (inputLayerSize == trainingData.get(0).size()) : "Size of inputs must match the size of the input layer.";
+		assert (targets.stream().noneMatch(target -> target < 0)) : "Labels must be integers greater than or equal to 0.";
+
+		learn(new ListTrainingSource(trainingData, targets, inputLayerSize));
+	}
+
+	@Override
+	public void learn(final TrainingSource trainingSource) {
+		learn(trainingSource, nnParameters.getTrainingListener());
+	}
+
+	@Override
+	public void learn(final TrainingSource trainingSource, final TrainingListener listener) {
+
+		Objects.requireNonNull(trainingSource, "Training source is null");
+		assert (inputLayerSize == trainingSource.getInputSize()) : "Size of inputs must match the size of the input layer.";
+
+		final TrainingTimer timer = TrainingTimer.of(listener, layers.size());
+		backPropagation.setTimer(TrainingTimer.detailed(timer));
+
+		try {
+			for (int epoch = 1; epoch <= nnParameters.getEpochs(); epoch++) {
+
+				double errors = 0d;
+				int samples = 0;
+
+				final EpochEvent epochEvent = new EpochEvent();
+				epochEvent.begin();
+
+				backPropagation.setLearningRate(nnParameters.getLearningRateSchedule()
+						.getLearningRate(epoch, nnParameters.getLearningRate()));
+
+				if (timer != null) {
+					timer.startEpoch(epoch);
+				}
+
+				try (TrainingSource.Reader reader = trainingSource.open()) {
+
+					while (reader.next(input, 0)) {
+
+						extractBinaryTarget(reader.getTarget());
+						errors += timer != null ? learnSample(timer) : learnSample();
+						samples++;
+					}
+				} catch (final IOException e) {
+					throw new UncheckedIOException(e);
+				}
+
+				if (samples == 0) {
+					throw new IllegalArgumentException("The training source has no samples.");
+				}
+
+				learningError = errors / samples;
+
+				epochEvent.commit(this, epoch, samples, learningError);
+
+				if (timer != null) {
+					timer.finishEpoch(samples, learningError);
+					listener.onEpoch(timer);
+				}
+			}
+		} finally {
+			backPropagation.setTimer(null);
+		}
+	}
+
+	@Override
+	public List<Double> getOutput(final List<Double> input) {
+
+		Objects.requireNonNull(input, "input is null");
+		assert (inputLayerSize == input.size()) : "Size of input must match the size of the input layer.";
+
+		final float[][] layerOutputs = createOutputs();
+		for (int i = 0; i < inputLayerSize; i++) {
+			layerOutputs[0][i] = (float) inputActivation.applyAsDouble(input.get(i) + 0d);
+		}
+		feedLayers(layerOutputs, null);
+
+		final List<Double> output = new ArrayList<>(outputLayerSize);
+		for (final float out : layerOutputs[layers.size()]) {
+			output.add((double) out);
+		}
+		return output;
+	}
+
+	@Override
+	public void getOutputs(final double[] inputs, final double[] outputs) {
+
+		Objects.requireNonNull(inputs, "inputs are null");
+		Objects.requireNonNull(outputs, "outputs are null");
+		assert (inputs.length % inputLayerSize == 0) : "Size of inputs must be a multiple of the size of the input layer.";
+		assert (outputs.length == inputs.length / inputLayerSize * outputLayerSize) : "Size of outputs must match the number of inputs.";
+
+		final InferenceEvent inferenceEvent = new InferenceEvent();
+		inferenceEvent.begin();
+
+		final float[][] layerOutputs = createOutputs();
+		final float[] networkOutputs = layerOutputs[layers.size()];
+
+		for (int sample = 0; sample < inputs.length / inputLayerSize; sample++) {
+
+			for (int i = 0; i < inputLayerSize; i++) {
+				layerOutputs[0][i] = (float) inputActivation.applyAsDouble(inputs[sample * inputLayerSize + i] + 0d);
+			}
+			feedLayers(layerOutputs, null);
+
+			for (int o = 0; o < outputLayerSize; o++) {
+				outputs[sample * outputLayerSize + o] = networkOutputs[o];
+			}
+		}
+
+		inferenceEvent.commit(this, inputs.length / inputLayerSize);
+	}
+
+	@Override
+	public int getInputLayerSize() {
+		return inputLayerSize;
+	}
+
+	@Override
+	public int getOutputLayerSize() {
+		return outputLayerSize;
+	}
+
+	/**
+	 * @return the mean error over the samples of the last training epoch, measured during the
+	 *         forward pass of each sample
+	 */
+	public double getLearningError() {
+		return learningError;
+	}
+
+	protected List<FloatLayer> getLayers() {
+		return layers;
+	}
+
+	private float[][] createOutputs() {
+
+		final float[][] buffers = new float[layers.size() + 1][];
+		buffers[0] = new float[inputLayerSize];
+		for (int layer = 0; layer < layers.size(); layer++) {
+			buffers[layer + 1] = new float[layers.get(layer).getSize()];
+		}
+		return buffers;
+	}
+
+	private void feedLayers(final float[][] layerOutputs, final TrainingTimer layerTimer) {
+
+		long start = layerTimer != null ? System.nanoTime() : 0L;
+
+		for (int layer = 0; layer < layers.size(); layer++) {
+
+			layers.get(layer).calculateOutputs(layerOutputs[layer], layerOutputs[layer + 1]);
+
+			if (layerTimer != null) {
+				start = layerTimer.forward(layer, start);
+			}
+		}
+	}
+
+	private void feedInput() {
+
+		for (int i = 0; i < inputLayerSize; i++) {
+			outputs[0][i] = (float) inputActivation.applyAsDouble(input[i] + 0d);
+		}
+	}
+
+	private double learnSample() {
+
+		feedInput();
+		feedLayers(outputs, null);
+		return backPropagation.apply(binaryTargets);
+	}
+
+	private double learnSample(final TrainingTimer timer) {
+
+		final long start = System.nanoTime();
+
+		feedInput();
+		feedLayers(outputs, TrainingTimer.detailed(timer));
+		final long forwardEnd = timer.forward(start);
+
+		final double error = backPropagation.calculateDeltas(binaryTargets);
+		final long backwardEnd = timer.backward(forwardEnd);
+
+		backPropagation.updateWeights();
+		timer.update(backwardEnd);
+
+		return error;
+	}
+
+	private void extractBinaryTarget(final int target) {
+
+		for (int i = 0; i < outputLayerSize; i++) {
+			binaryTargets[i] = i == target ? 1d : 0d;
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import de.plath.csc.machinelearning.neural.api.INeuralNetwork;
+
+/**
+ * Flight Recorder event of one call to {@code getOutputs}, whose duration is the latency of
+ * the batch
+ *
+ */
+@Name("de.plath.csc.machinelearning.neural.InferenceBatch")
+@Label("Inference Batch")
+@Category({ "JANN", "Inference" })
+@Description("Scoring of a batch of inputs")
+@StackTrace(false)
+final class InferenceEvent extends jdk.jfr.Event {
+
+	@Label("Engine")
+	private String engine;
+
+	@Label("Batch Size")
+	private int batchSize;
+
+	/**
+	 * Commits the event if it is enabled and exceeds its threshold
+	 */
+	protected void commit(final INeuralNetwork neuralNetwork, final int samples) {
+
+		if (shouldCommit()) {
+
+			engine = neuralNetwork.getClass().getSimpleName();
+			batchSize = samples;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+
+/**
+ * Compute kernels of the packed engine over row-major arrays. The products accumulate into
+ * their target, so callers initialize it first.
+ *
+ */
+interface Kernels {
+
+	/**
+	 * outputs (rows) = weights (rows x inner) * inputs + biases
+	 */
+	void multiplyVector(double[] weights, double[] biases, double[] inputs, double[] outputs, int rows, int inner);
+
+	/**
+	 * c (rows x cols) += a (rows x inner) * transpose(b), where b is (cols x inner)
+	 */
+	void multiplyTransposed(double[] a, double[] b, double[] c, int rows, int inner, int cols);
+
+	/**
+	 * c (rows x cols) += a (rows x inner) * b (inner x cols)
+	 */
+	void multiply(double[] a, double[] b, double[] c, int rows, int inner, int cols);
+
+	/**
+	 * c (rows x cols) += transpose(a) * b, where a is (inner x rows) and b is (inner x cols)
+	 */
+	void transposedMultiply(double[] a, double[] b, double[] c, int rows, int inner, int cols);
+
+	/**
+	 * Applies the activation function to a range of values in place
+	 */
+	void apply(Activation activation, double[] values, int from, int to);
+
+	/**
+	 * Replaces a range of outputs of the activation function by their derivatives in place
+	 */
+	void derivative(Activation activation, double[] outputs, int from, int to);
+
+	/**
+	 * target += source
+	 */
+	void add(double[] target, double[] source);
+
+	/**
+	 * weights -= deltaWeights
+	 */
+	void subtract(double[] weights, double[] deltaWeights);
+
+	/**
+	 * deltas = scale * deltaSums, deltaWeights = deltas + momentum * deltaWeights and
+	 * weights -= deltaWeights
+	 */
+	void updateWeights(double[] deltaSums, double scale, double momentum, double[] deltas, double[] deltaWeights, double[] weights);
+
+	/**
+	 * @param vectorized whether to use the Vector API
+	 * @return the vector kernels if requested and the {@code jdk.incubator.vector} module is
+	 *         available, the scalar kernels otherwise
+	 */
+	static Kernels create(final boolean vectorized) {
+
+		if (vectorized && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+			try {
+				// loaded by name, so that the scalar kernels work without the module
+				return (Kernels) Class.forName(Kernels.class.getPackageName() + ".VectorKernels")
+						.getDeclaredConstructor()
+						.newInstance();
+			} catch (final ReflectiveOperationException | LinkageError e) {
+				return ScalarKernels.INSTANCE;
+			}
+		}
+		return ScalarKernels.INSTANCE;
+	}
+}
@@ -0,0 +1,87 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds, for {@link BatchingScorer}. Every power of
+ * two is split into 8 buckets, so a percentile is off by less than 12.5% from the recorded
+ * latency while the histogram keeps a fixed size.
+ *
+ */
+final class LatencyHistogram {
+
+	// 8 buckets for the values below 8, then 8 for every power of two up to 2^62
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (Long.SIZE - 1 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	protected void record(final long nanos) {
+		counts.incrementAndGet(bucketOf(Math.max(0L, nanos)));
+	}
+
+	/**
+	 * @return the number of latencies recorded in every bucket
+	 */
+	protected long[] getCounts() {
+
+		final long[] snapshot = new long[BUCKETS];
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			snapshot[bucket] = counts.get(bucket);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @param counts     the counts of a histogram, see {@link #getCounts()}
+	 * @param percentile the percentile, between 0 and 100
+	 * @return the largest latency of the bucket holding the percentile, or 0 without latencies
+	 */
+	protected static long percentile(final long[] counts, final double percentile) {
+
+		assert (percentile >= 0d && percentile <= 100d) : "Percentile must be between 0 and 100.";
+
+		long total = 0;
+		for (final long count : counts) {
+			total += count;
+		}
+		if (total == 0) {
+			return 0L;
+		}
+
+		final long rank = Math.max(1L, (long) Math.ceil(percentile / 100d * total));
+
+		long seen = 0;
+		for (int bucket = 0; bucket < counts.length; bucket++) {
+
+			seen += counts[bucket];
+			if (seen >= rank) {
+				return upperBoundOf(bucket);
+			}
+		}
+		return upperBoundOf(counts.length - 1);
+	}
+
+	private static int bucketOf(final long nanos) {
+
+		if (nanos < SUB_BUCKETS) {
+			return (int) nanos;
+		}
+		final int highestBit = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+		final int shift = highestBit - SUB_BUCKET_BITS;
+
+		return (shift + 1) * SUB_BUCKETS + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+	}
+
+	private static long upperBoundOf(final int bucket) {
+
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		final int shift = bucket / SUB_BUCKETS - 1;
+		final long subBucket = bucket % SUB_BUCKETS;
+
+		return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,53 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import de.plath.csc.machinelearning.neural.api.LearningRateSchedule;
+
+/**
+ * Built-in learning rate schedules
+ *
+ */
+public final class LearningRateSchedules {
+
+	/**
+	 * The learning rate of the parameters in every epoch, the default of
+	 * {@link NNParameters.Builder}
+	 */
+	public static final LearningRateSchedule CONSTANT = LearningRateSchedule.CONSTANT;
+
+	private LearningRateSchedules() {
+	}
+
+	/**
+	 * @param epochs the number of epochs between two decays
+	 * @param factor the factor applied at every decay
+	 * @return the learning rate multiplied by the factor every given number of epochs
+	 */
+	public static LearningRateSchedule step(final int epochs, final double factor) {
+
+		assert (epochs > 0) : "Number of epochs must be greater than 0.";
+		return (epoch, learningRate) -> learningRate * Math.pow(factor, (epoch - 1) / epochs);
+	}
+
+	/**
+	 * @param decay the factor applied after every epoch
+	 * @return the learning rate multiplied by the factor after every epoch
+	 */
+	public static LearningRateSchedule exponential(final double decay) {
+		return (epoch, learningRate) -> learningRate * Math.pow(decay, epoch - 1);
+	}
+
+	/**
+	 * @param epochs  the number of epochs over which the learning rate decays
+	 * @param minimum the learning rate from the last epoch on
+	 * @return the learning rate decaying along half a cosine wave to the minimum
+	 */
+	public static LearningRateSchedule cosine(final int epochs, final double minimum) {
+
+		assert (epochs > 0) : "Number of epochs must be greater than 0.";
+		return (epoch, learningRate) -> {
+
+			final double progress = Math.min(1d, (epoch - 1) / (double) Math.max(1, epochs - 1));
+			return minimum + (learningRate - minimum) * (1d + Math.cos(Math.PI * progress)) / 2d;
+		};
+	}
+}
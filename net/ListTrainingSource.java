@@ -0,0 +1,65 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.Iterator;
+import java.util.List;
+
+import de.plath.csc.machinelearning.neural.api.TrainingSource;
+
+/**
+ * Adapts the boxed training data of {@code learn(List, List)} to a {@link TrainingSource}
+ *
+ */
+class ListTrainingSource implements TrainingSource {
+
+	private final List<List<Double>> trainingData;
+	private final List<Integer> targets;
+	private final int inputSize;
+
+	protected ListTrainingSource(final List<List<Double>> trainingData, final List<Integer> targets, final int inputSize) {
+
+		this.trainingData = trainingData;
+		this.targets = targets;
+		this.inputSize = inputSize;
+	}
+
+	@Override
+	public int getInputSize() {
+		return inputSize;
+	}
+
+	@Override
+	public Reader open() {
+
+		final Iterator<List<Double>> inputIterator = trainingData.iterator();
+		final Iterator<Integer> targetsIterator = targets.iterator();
+
+		return new Reader() {
+
+			private int target;
+
+			@Override
+			public boolean next(final double[] inputs, final int offset) {
+
+				if (!inputIterator.hasNext()) {
+					return false;
+				}
+
+				final List<Double> inputData = inputIterator.next();
+				for (int i = 0; i < inputSize; i++) {
+					inputs[offset + i] = inputData.get(i);
+				}
+				target = targetsIterator.next();
+				return true;
+			}
+
+			@Override
+			public int getTarget() {
+				return target;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+	}
+}
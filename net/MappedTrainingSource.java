@@ -0,0 +1,221 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+import de.plath.csc.machinelearning.neural.api.IndexedTrainingSource;
+import de.plath.csc.machinelearning.neural.api.TrainingSource;
+
+/**
+ * Training data in a little-endian binary file, which is mapped into memory region by region,
+ * so that files larger than the heap, or than 2 GB, can be read:
+ *
+ * <pre>
+ * int    magic "JTRN", version, input size, 0
+ * long   number of samples
+ * double for every sample its inputs followed by its label
+ * </pre>
+ *
+ * {@link #write(TrainingSource, Path)} converts any other source, e.g. a
+ * {@link CsvTrainingSource}, into this format.
+ *
+ */
+public class MappedTrainingSource implements IndexedTrainingSource {
+
+	// "JTRN" in file order
+	private static final int MAGIC = 0x4E52544A;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 4 * Integer.BYTES + Long.BYTES;
+
+	// the largest region mapped at once
+	private static final long REGION_SIZE = 1L << 30;
+
+	private final Path path;
+	private final int inputSize;
+	private final long samples;
+	private final long rowsPerRegion;
+
+	// mapped on the first read by index and kept, unlike the regions of a reader
+	private final DoubleBuffer[] regions;
+
+	/**
+	 * @param path the file
+	 * @throws IOException if the file cannot be read or is not a training data file
+	 */
+	public MappedTrainingSource(final Path path) throws IOException {
+
+		this.path = Objects.requireNonNull(path, "Path is null.");
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+			if (channel.size() < HEADER_SIZE) {
+				throw new IOException(path + " is not a training data file.");
+			}
+
+			final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			if (header.getInt() != MAGIC) {
+				throw new IOException(path + " is not a training data file.");
+			}
+			final int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported training data file version " + version + ".");
+			}
+			inputSize = header.getInt();
+			header.getInt();
+			samples = header.getLong();
+
+			// checked without multiplying, which a corrupt sample count could overflow
+			if (inputSize <= 0 || samples < 0 || samples > (channel.size() - HEADER_SIZE) / rowSize(inputSize)) {
+				throw new IOException(path + " is truncated or corrupt.");
+			}
+		}
+
+		rowsPerRegion = Math.max(1L, REGION_SIZE / rowSize(inputSize));
+		regions = new DoubleBuffer[(int) ((samples + rowsPerRegion - 1) / rowsPerRegion)];
+	}
+
+	/**
+	 * Writes all samples of a source in the format read by this class
+	 *
+	 * @param trainingSource the samples
+	 * @param path           the file, which is replaced if it exists
+	 * @throws IOException if the source cannot be read or the file cannot be written
+	 */
+	public static void write(final TrainingSource trainingSource, final Path path) throws IOException {
+
+		Objects.requireNonNull(trainingSource, "Training source is null.");
+
+		final int inputSize = trainingSource.getInputSize();
+		final double[] row = new double[inputSize + 1];
+		final ByteBuffer buffer = ByteBuffer.allocate(row.length * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+		try (FileChannel channel = FileChannel.open(path,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE);
+				Reader reader = trainingSource.open()) {
+
+			channel.position(HEADER_SIZE);
+
+			long samples = 0;
+			while (reader.next(row, 0)) {
+
+				row[inputSize] = reader.getTarget();
+
+				buffer.clear();
+				buffer.asDoubleBuffer().put(row);
+				writeFully(channel, buffer);
+				samples++;
+			}
+
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(inputSize).putInt(0).putLong(samples).flip();
+
+			channel.position(0);
+			writeFully(channel, header);
+		}
+	}
+
+	@Override
+	public int getInputSize() {
+		return inputSize;
+	}
+
+	@Override
+	public long getSize() {
+		return samples;
+	}
+
+	@Override
+	public int read(final long index, final double[] inputs, final int offset) throws IOException {
+
+		final DoubleBuffer region = region((int) (index / rowsPerRegion));
+		final int row = (int) (index % rowsPerRegion) * (inputSize + 1);
+
+		region.get(row, inputs, offset, inputSize);
+		return (int) region.get(row + inputSize);
+	}
+
+	@Override
+	public Reader open() throws IOException {
+
+		final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		final int rowLength = inputSize + 1;
+
+		return new Reader() {
+
+			private long sample = -1;
+			private DoubleBuffer region;
+			private int row;
+
+			@Override
+			public boolean next(final double[] inputs, final int offset) throws IOException {
+
+				if (sample + 1 == samples) {
+					return false;
+				}
+
+				sample++;
+				row = (int) (sample % rowsPerRegion);
+				if (row == 0) {
+					map(sample);
+				}
+
+				region.get(row * rowLength, inputs, offset, inputSize);
+				return true;
+			}
+
+			@Override
+			public int getTarget() {
+				return (int) region.get(row * rowLength + inputSize);
+			}
+
+			@Override
+			public void close() throws IOException {
+				channel.close();
+			}
+
+			private void map(final long first) throws IOException {
+
+				// the previous region is unmapped once it is garbage collected
+				region = mapRegion(channel, first);
+			}
+		};
+	}
+
+	private synchronized DoubleBuffer region(final int index) throws IOException {
+
+		if (regions[index] == null) {
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+				regions[index] = mapRegion(channel, index * rowsPerRegion);
+			}
+		}
+		return regions[index];
+	}
+
+	private DoubleBuffer mapRegion(final FileChannel channel, final long first) throws IOException {
+
+		final long rows = Math.min(rowsPerRegion, samples - first);
+
+		return channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * rowSize(inputSize), rows * rowSize(inputSize))
+				.order(ByteOrder.LITTLE_ENDIAN)
+				.asDoubleBuffer();
+	}
+
+	private static long rowSize(final int inputSize) {
+		return (inputSize + 1L) * Double.BYTES;
+	}
+
+	private static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
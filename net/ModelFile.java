@@ -0,0 +1,704 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+import de.plath.csc.machinelearning.neural.api.IParameters;
+
+/**
+ * Saves and loads trained networks in a versioned, little-endian binary format:
+ *
+ * <pre>
+ * int    magic "JANN", version
+ * int    input layer size, hidden layers, hidden layers size, output layer size
+ * double momentum, learning rate
+ * int    epochs, batch size
+ * int    hidden activation, output activation (see {@link #CUSTOM} and following)
+ * double hidden activation slope, output activation slope
+ * int    number of layers, then input size and size of every layer
+ *        zero padding to a multiple of 8 bytes
+ * double for every layer its weights, row-major, followed by its biases
+ * </pre>
+ *
+ * Pruned networks are stored as version 2, whose header also holds the number of non-zero
+ * weights of every layer, and whose layers are stored in compressed sparse row format:
+ *
+ * <pre>
+ * int    for every layer its row offsets and the columns of its non-zero weights
+ *        zero padding to a multiple of 8 bytes
+ * double its non-zero weights, followed by its biases
+ * </pre>
+ *
+ * Networks whose hidden layers differ in their sizes or activations are stored as version 3,
+ * or 4 if pruned, which add the activation and its slope (int, double) to the entry of every
+ * layer in the header. The hidden layers size in the header is that of the first one.
+ *
+ * Loading maps the file and copies every block of weights with a single bulk read, except
+ * for {@link #loadOffHeap(Path)}, which keeps the weights in the mapped file. The momentum
+ * terms are not stored, so further learning on a loaded network starts without momentum.
+ * Custom activation functions cannot be stored; they are taken from the builder
+ * passed to {@link #load(Path, NNParameters.Builder)}, which loading leaves unchanged.
+ *
+ */
+public final class ModelFile {
+
+	// "JANN" in file order
+	private static final int MAGIC = 0x4E4E414A;
+	private static final int VERSION = 1;
+	private static final int PRUNED_VERSION = 2;
+	private static final int LAYERED_VERSION = 3;
+	private static final int LAYERED_PRUNED_VERSION = 4;
+
+	private static final int CUSTOM = 0;
+	private static final int SIGMOID = 1;
+	private static final int TANH = 2;
+	private static final int RELU = 3;
+	private static final int LEAKY_RELU = 4;
+
+	private ModelFile() {
+	}
+
+	/**
+	 * @param neuralNetwork the network to save
+	 * @param path          the file, which is replaced if it exists
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void save(final NeuralNetwork neuralNetwork, final Path path) throws IOException {
+
+		Objects.requireNonNull(neuralNetwork, "Neural network is null.");
+
+		final ModelFileEvent modelFileEvent = new ModelFileEvent();
+		modelFileEvent.begin();
+
+		final List<PackedLayer> layers = neuralNetwork.getPackedLayers();
+		write(neuralNetwork.getParameters(), layers, path);
+
+		modelFileEvent.commit(false, neuralNetwork, path, layers.size());
+	}
+
+	/**
+	 * @param neuralNetwork the network to save
+	 * @param path          the file, which is replaced if it exists
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void save(final PackedNeuralNetwork neuralNetwork, final Path path) throws IOException {
+
+		Objects.requireNonNull(neuralNetwork, "Neural network is null.");
+
+		final ModelFileEvent modelFileEvent = new ModelFileEvent();
+		modelFileEvent.begin();
+
+		write(neuralNetwork.getParameters(), neuralNetwork.getLayers(), path);
+
+		modelFileEvent.commit(false, neuralNetwork, path, neuralNetwork.getLayers().size());
+	}
+
+	/**
+	 * @param neuralNetwork the network to save
+	 * @param path          the file, which is replaced if it exists
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void save(final PrunedNeuralNetwork neuralNetwork, final Path path) throws IOException {
+
+		Objects.requireNonNull(neuralNetwork, "Neural network is null.");
+
+		final ModelFileEvent modelFileEvent = new ModelFileEvent();
+		modelFileEvent.begin();
+
+		writePruned(neuralNetwork.getParameters(), neuralNetwork.getLayers(), path);
+
+		modelFileEvent.commit(false, neuralNetwork, path, neuralNetwork.getLayers().size());
+	}
+
+	/**
+	 * @param path the file
+	 * @return the network stored in the file, with default values for everything the file does
+	 *         not store
+	 * @throws IOException if the file cannot be read or is not a model file
+	 */
+	public static NeuralNetwork load(final Path path) throws IOException {
+		return load(path, new NNParameters.Builder());
+	}
+
+	/**
+	 * @param path    the file
+	 * @param builder supplies everything the file does not store, e.g. the error operator or
+	 *                custom activation functions
+	 * @return the network stored in the file
+	 * @throws IOException if the file cannot be read or is not a model file
+	 */
+	public static NeuralNetwork load(final Path path, final NNParameters.Builder builder) throws IOException {
+
+		final ModelFileEvent modelFileEvent = new ModelFileEvent();
+		modelFileEvent.begin();
+
+		final List<PackedLayer> layers = new ArrayList<>();
+		final IParameters nnParameters = read(path, builder, layers);
+
+		final NetworkLayers networkLayers = new NetworkLayers(nnParameters);
+		networkLayers.initializeLayers();
+		// the weights are read from the file, so none is drawn from the random number generator
+		networkLayers.connectLayersWithZeroWeights();
+
+		final List<List<Neuron>> neuronLayers = new ArrayList<>(networkLayers.getHiddenLayers());
+		neuronLayers.add(networkLayers.getOutputLayer());
+
+		for (int l = 0; l < layers.size(); l++) {
+
+			final PackedLayer layer = layers.get(l);
+			final List<Neuron> neurons = neuronLayers.get(l);
+			final int inputSize = layer.getInputSize();
+
+			for (int neuron = 0; neuron < neurons.size(); neuron++) {
+
+				final List<Synapse> synapses = neurons.get(neuron).getInputs();
+				for (int input = 0; input < inputSize; input++) {
+					synapses.get(input).setWeight(layer.getWeights()[neuron * inputSize + input]);
+				}
+				synapses.get(inputSize).setWeight(layer.getBiases()[neuron]);
+			}
+		}
+
+		final NeuralNetwork neuralNetwork = new NeuralNetwork(nnParameters,
+				networkLayers.getInputLayer(),
+				networkLayers.getHiddenLayers(),
+				networkLayers.getOutputLayer());
+
+		modelFileEvent.commit(true, neuralNetwork, path, layers.size());
+		return neuralNetwork;
+	}
+
+	/**
+	 * @param path the file
+	 * @return the network stored in the file, with default values for everything the file does
+	 *         not store
+	 * @throws IOException if the file cannot be read or is not a model file
+	 */
+	public static PackedNeuralNetwork loadPacked(final Path path) throws IOException {
+		return loadPacked(path, new NNParameters.Builder());
+	}
+
+	/**
+	 * @param path    the file
+	 * @param builder supplies everything the file does not store, e.g. the error operator,
+	 *                custom activation functions or the parallelism
+	 * @return the network stored in the file
+	 * @throws IOException if the file cannot be read or is not a model file
+	 */
+	public static PackedNeuralNetwork loadPacked(final Path path, final NNParameters.Builder builder) throws IOException {
+
+		final ModelFileEvent modelFileEvent = new ModelFileEvent();
+		modelFileEvent.begin();
+
+		final List<PackedLayer> layers = new ArrayList<>();
+		final IParameters nnParameters = read(path, builder, layers);
+
+		final PackedNeuralNetwork neuralNetwork = new PackedNeuralNetwork(nnParameters, layers);
+
+		modelFileEvent.commit(true, neuralNetwork, path, layers.size());
+		return neuralNetwork;
+	}
+
+	/**
+	 * @param path the file
+	 * @return the pruned network stored in the file, with default values for everything the
+	 *         file does not store
+	 * @throws IOException if the file cannot be read or is not a model file
+	 */
+	public static PrunedNeuralNetwork loadPruned(final Path path) throws IOException {
+		return loadPruned(path, new NNParameters.Builder());
+	}
+
+	/**
+	 * Loads a pruned network; a dense network is compressed on loading, leaving out its zero
+	 * weights
+	 *
+	 * @param path    the file
+	 * @param builder supplies everything the file does not store, e.g. custom activation
+	 *                functions
+	 * @return the pruned network stored in the file
+	 * @throws IOException if the file cannot be read or is not a model file
+	 */
+	public static PrunedNeuralNetwork loadPruned(final Path path, final NNParameters.Builder builder) throws IOException {
+
+		final ModelFileEvent modelFileEvent = new ModelFileEvent();
+		modelFileEvent.begin();
+
+		final ByteBuffer buffer = map(path);
+		final PrunedNeuralNetwork neuralNetwork;
+
+		try {
+			final List<Integer> nonZeros = new ArrayList<>();
+			final NNParameters nnParameters = readHeader(path, buffer, builder, nonZeros);
+
+			if (isPruned(buffer)) {
+				neuralNetwork = new PrunedNeuralNetwork(nnParameters, readPrunedLayers(path, buffer, nnParameters, nonZeros));
+			} else {
+				final List<PrunedLayer> layers = new ArrayList<>();
+				for (final PackedLayer layer : readLayers(buffer, nnParameters)) {
+					layers.add(new PrunedLayer(layer));
+				}
+				neuralNetwork = new PrunedNeuralNetwork(nnParameters, layers);
+			}
+
+		} catch (final BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+			throw new IOException(path + " is truncated or corrupt.", e);
+		}
+
+		modelFileEvent.commit(true, neuralNetwork, path, neuralNetwork.getLayers().size());
+		return neuralNetwork;
+	}
+
+	/**
+	 * @param path the file
+	 * @return the network stored in the file, with default values for everything the file does
+	 *         not store
+	 * @throws IOException if the file cannot be read or is not a model file
+	 */
+	public static OffHeapNeuralNetwork loadOffHeap(final Path path) throws IOException {
+		return loadOffHeap(path, new NNParameters.Builder());
+	}
+
+	/**
+	 * Maps the weights of the file instead of copying them, so that every process loading the
+	 * same file shares its pages. The file must not change while the network is open.
+	 *
+	 * @param path    the file
+	 * @param builder supplies everything the file does not store, e.g. custom activation
+	 *                functions
+	 * @return the network stored in the file
+	 * @throws IOException                   if the file cannot be read or is not a model file
+	 * @throws UnsupportedOperationException if the {@code jdk.incubator.foreign} module is
+	 *                                       missing
+	 */
+	public static OffHeapNeuralNetwork loadOffHeap(final Path path, final NNParameters.Builder builder) throws IOException {
+
+		final ModelFileEvent modelFileEvent = new ModelFileEvent();
+		modelFileEvent.begin();
+
+		final ByteBuffer buffer = map(path);
+		final NNParameters nnParameters;
+
+		try {
+			nnParameters = readHeader(path, buffer, builder, new ArrayList<>());
+
+			if (isPruned(buffer)) {
+				throw new IOException(path + " holds a pruned network, use loadPruned().");
+			}
+
+		} catch (final BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+			throw new IOException(path + " is truncated or corrupt.", e);
+		}
+
+		final OffHeapNeuralNetwork neuralNetwork = OffHeapNeuralNetwork.map(path, buffer.position(), nnParameters);
+
+		modelFileEvent.commit(true, neuralNetwork, path, neuralNetwork.getLayers().size());
+		return neuralNetwork;
+	}
+
+	private static void write(final IParameters nnParameters, final List<PackedLayer> layers, final Path path) throws IOException {
+
+		final boolean layered = isLayered(nnParameters);
+		final ByteBuffer header = ByteBuffer.allocate(headerSize(layers.size(), false, layered)).order(ByteOrder.LITTLE_ENDIAN);
+
+		writeHeader(header, layered ? LAYERED_VERSION : VERSION, nnParameters, layers.size());
+		for (final PackedLayer layer : layers) {
+
+			header.putInt(layer.getInputSize());
+			header.putInt(layer.getSize());
+			if (layered) {
+				header.putInt(kindOf(layer.getActivation()));
+				header.putDouble(slopeOf(layer.getActivation()));
+			}
+		}
+		header.clear();
+
+		try (FileChannel channel = FileChannel.open(path,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE)) {
+
+			writeFully(channel, header);
+
+			for (final PackedLayer layer : layers) {
+
+				final ByteBuffer block = ByteBuffer
+						.allocate((layer.getWeights().length + layer.getBiases().length) * Double.BYTES)
+						.order(ByteOrder.LITTLE_ENDIAN);
+
+				block.asDoubleBuffer().put(layer.getWeights()).put(layer.getBiases());
+				writeFully(channel, block);
+			}
+		}
+	}
+
+	private static void writePruned(final IParameters nnParameters, final List<PrunedLayer> layers, final Path path) throws IOException {
+
+		final boolean layered = isLayered(nnParameters);
+		final ByteBuffer header = ByteBuffer.allocate(headerSize(layers.size(), true, layered)).order(ByteOrder.LITTLE_ENDIAN);
+
+		writeHeader(header, layered ? LAYERED_PRUNED_VERSION : PRUNED_VERSION, nnParameters, layers.size());
+		for (final PrunedLayer layer : layers) {
+
+			header.putInt(layer.getInputSize());
+			header.putInt(layer.getSize());
+			header.putInt(layer.getValues().length);
+			if (layered) {
+				header.putInt(kindOf(layer.getActivation()));
+				header.putDouble(slopeOf(layer.getActivation()));
+			}
+		}
+		header.clear();
+
+		try (FileChannel channel = FileChannel.open(path,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE)) {
+
+			writeFully(channel, header);
+
+			for (final PrunedLayer layer : layers) {
+
+				final int indexBytes = align((layer.getRowOffsets().length + layer.getColumns().length) * Integer.BYTES);
+
+				final ByteBuffer block = ByteBuffer
+						.allocate(indexBytes + (layer.getValues().length + layer.getBiases().length) * Double.BYTES)
+						.order(ByteOrder.LITTLE_ENDIAN);
+
+				block.asIntBuffer().put(layer.getRowOffsets()).put(layer.getColumns());
+				block.position(indexBytes);
+				block.asDoubleBuffer().put(layer.getValues()).put(layer.getBiases());
+				block.clear();
+				writeFully(channel, block);
+			}
+		}
+	}
+
+	private static void writeHeader(final ByteBuffer header,
+			final int version,
+			final IParameters nnParameters,
+			final int layerCount) {
+
+		header.putInt(MAGIC);
+		header.putInt(version);
+		header.putInt(nnParameters.getInputLayerSize());
+		header.putInt(nnParameters.getNumberOfHiddenLayers());
+		header.putInt(nnParameters.getHiddenLayersSize());
+		header.putInt(nnParameters.getOutputLayerSize());
+		header.putDouble(nnParameters.getMomentum());
+		header.putDouble(nnParameters.getLearningRate());
+		header.putInt(nnParameters.getEpochs());
+		header.putInt(nnParameters.getBatchSize());
+		header.putInt(kindOf(nnParameters.getActivation()));
+		header.putInt(kindOf(nnParameters.getOutputActivation()));
+		header.putDouble(slopeOf(nnParameters.getActivation()));
+		header.putDouble(slopeOf(nnParameters.getOutputActivation()));
+		header.putInt(layerCount);
+	}
+
+	/**
+	 * @return whether the hidden layers differ in their sizes or activations, so that the
+	 *         file has to store them per layer
+	 */
+	private static boolean isLayered(final IParameters nnParameters) {
+
+		final Activation activation = nnParameters.getActivation();
+
+		for (int h = 0; h < nnParameters.getNumberOfHiddenLayers(); h++) {
+
+			final Activation layerActivation = nnParameters.getLayerActivation(h);
+
+			if (nnParameters.getLayerSize(h) != nnParameters.getHiddenLayersSize()) {
+				return true;
+			}
+			if (layerActivation != activation
+					&& (kindOf(layerActivation) != kindOf(activation) || slopeOf(layerActivation) != slopeOf(activation))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static IParameters read(final Path path,
+			final NNParameters.Builder builder,
+			final List<PackedLayer> layers) throws IOException {
+
+		final ByteBuffer buffer = map(path);
+
+		try {
+			final NNParameters nnParameters = readHeader(path, buffer, builder, new ArrayList<>());
+
+			if (isPruned(buffer)) {
+				throw new IOException(path + " holds a pruned network, use loadPruned().");
+			}
+
+			layers.addAll(readLayers(buffer, nnParameters));
+			return nnParameters;
+
+		} catch (final BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+			throw new IOException(path + " is truncated or corrupt.", e);
+		}
+	}
+
+	private static ByteBuffer map(final Path path) throws IOException {
+
+		Objects.requireNonNull(path, "Path is null.");
+
+		final MappedByteBuffer mapped;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		return mapped.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static boolean isPruned(final ByteBuffer buffer) {
+
+		final int version = buffer.getInt(Integer.BYTES);
+		return version == PRUNED_VERSION || version == LAYERED_PRUNED_VERSION;
+	}
+
+	/**
+	 * Reads the header and checks the layers it lists against the topology it stores, leaving
+	 * the buffer at the first layer
+	 *
+	 * @param builder  supplies everything the file does not store, and is left unchanged
+	 * @param nonZeros receives the number of non-zero weights of every layer of a pruned network
+	 */
+	private static NNParameters readHeader(final Path path,
+			final ByteBuffer buffer,
+			final NNParameters.Builder builder,
+			final List<Integer> nonZeros) throws IOException {
+
+		Objects.requireNonNull(builder, "Builder is null.");
+
+		if (buffer.getInt() != MAGIC) {
+			throw new IOException(path + " is not a model file.");
+		}
+		final int version = buffer.getInt();
+		if (version < VERSION || version > LAYERED_PRUNED_VERSION) {
+			throw new IOException("Unsupported model file version " + version + ".");
+		}
+		final boolean pruned = version == PRUNED_VERSION || version == LAYERED_PRUNED_VERSION;
+		final boolean layered = version >= LAYERED_VERSION;
+
+		// a copy, so that the topology of this file does not leak into the next one loaded
+		final NNParameters.Builder fileBuilder = builder.copy();
+
+		fileBuilder.setInputLayerSize(buffer.getInt())
+				.setHiddenLayers(buffer.getInt())
+				.setHiddenLayersSize(buffer.getInt())
+				.setOutputLayerSize(buffer.getInt())
+				.setMomentum(buffer.getDouble())
+				.setLearningRate(buffer.getDouble())
+				.setEpochs(buffer.getInt())
+				.setBatchSize(buffer.getInt());
+
+		final int activationKind = buffer.getInt();
+		final int outputActivationKind = buffer.getInt();
+		final double activationSlope = buffer.getDouble();
+		final double outputActivationSlope = buffer.getDouble();
+
+		if (activationKind != CUSTOM) {
+			fileBuilder.setActivation(activationOf(activationKind, activationSlope));
+		}
+		if (outputActivationKind != CUSTOM) {
+			fileBuilder.setOutputActivation(activationOf(outputActivationKind, outputActivationSlope));
+		}
+
+		final int layerCount = buffer.getInt();
+		if (layerCount < 1) {
+			throw new IOException("The layers of " + path + " do not match its topology.");
+		}
+		// checked before the header is sized from it
+		if (layerCount > buffer.remaining() / layerHeaderSize(pruned, layered)) {
+			throw new IOException(path + " is truncated or corrupt.");
+		}
+
+		final int[] inputSizes = new int[layerCount];
+		final int[] sizes = new int[layerCount];
+		// null where the activation of the network or the builder applies
+		final Activation[] activations = new Activation[layerCount];
+
+		for (int l = 0; l < layerCount; l++) {
+
+			inputSizes[l] = buffer.getInt();
+			sizes[l] = buffer.getInt();
+			if (inputSizes[l] < 1 || sizes[l] < 1) {
+				throw new IOException(path + " is truncated or corrupt.");
+			}
+			if (pruned) {
+				nonZeros.add(buffer.getInt());
+			}
+			if (layered) {
+				final int kind = buffer.getInt();
+				final double slope = buffer.getDouble();
+				activations[l] = kind != CUSTOM ? activationOf(kind, slope) : null;
+			}
+		}
+
+		fileBuilder.setHiddenLayers(Arrays.copyOf(sizes, layerCount - 1), Arrays.copyOf(activations, layerCount - 1));
+
+		final NNParameters nnParameters = fileBuilder.build();
+
+		if (layerCount != nnParameters.getNumberOfHiddenLayers() + 1) {
+			throw new IOException("The layers of " + path + " do not match its topology.");
+		}
+		int inputSize = nnParameters.getInputLayerSize();
+		for (int l = 0; l < layerCount; l++) {
+
+			if (inputSizes[l] != inputSize || sizes[l] != nnParameters.getLayerSize(l)) {
+				throw new IOException("The layers of " + path + " do not match its topology.");
+			}
+			inputSize = sizes[l];
+		}
+
+		buffer.position(headerSize(layerCount, pruned, layered));
+
+		// checked before any layer is allocated, so that a corrupt header cannot size them
+		final long availableDoubles = buffer.remaining() / Double.BYTES;
+		long requiredDoubles = 0;
+		for (int l = 0; l < layerCount; l++) {
+
+			if (pruned) {
+				final int layerNonZeros = nonZeros.get(l);
+				if (layerNonZeros < 0 || layerNonZeros > (long) inputSizes[l] * sizes[l]) {
+					throw new IOException(path + " is truncated or corrupt.");
+				}
+				// the row offsets and columns, aligned to whole doubles, then the values and biases
+				requiredDoubles += (sizes[l] + 1L + layerNonZeros + 1L) / 2 + layerNonZeros + sizes[l];
+			} else {
+				requiredDoubles += (long) inputSizes[l] * sizes[l] + sizes[l];
+			}
+
+			if (requiredDoubles > availableDoubles) {
+				throw new IOException(path + " is truncated or corrupt.");
+			}
+		}
+		return nnParameters;
+	}
+
+	private static List<PackedLayer> readLayers(final ByteBuffer buffer, final NNParameters nnParameters) {
+
+		final PackedNetworkLayers networkLayers = new PackedNetworkLayers(nnParameters);
+		networkLayers.initializeLayers();
+
+		for (final PackedLayer layer : networkLayers.getLayers()) {
+
+			buffer.asDoubleBuffer().get(layer.getWeights()).get(layer.getBiases());
+			buffer.position(buffer.position() + (layer.getWeights().length + layer.getBiases().length) * Double.BYTES);
+		}
+		return networkLayers.getLayers();
+	}
+
+	private static List<PrunedLayer> readPrunedLayers(final Path path,
+			final ByteBuffer buffer,
+			final NNParameters nnParameters,
+			final List<Integer> nonZeros) throws IOException {
+
+		final List<PrunedLayer> layers = new ArrayList<>();
+
+		int inputSize = nnParameters.getInputLayerSize();
+		for (int l = 0; l < nonZeros.size(); l++) {
+
+			final int size = nnParameters.getLayerSize(l);
+
+			final int[] rowOffsets = new int[size + 1];
+			final int[] columns = new int[nonZeros.get(l)];
+			buffer.asIntBuffer().get(rowOffsets).get(columns);
+			buffer.position(buffer.position() + align((rowOffsets.length + columns.length) * Integer.BYTES));
+
+			final double[] values = new double[columns.length];
+			final double[] biases = new double[size];
+			buffer.asDoubleBuffer().get(values).get(biases);
+			buffer.position(buffer.position() + (values.length + biases.length) * Double.BYTES);
+
+			// the kernel trusts the indices, so check them once here
+			for (int neuron = 0; neuron < size; neuron++) {
+				if (rowOffsets[neuron] > rowOffsets[neuron + 1]) {
+					throw new IOException(path + " is truncated or corrupt.");
+				}
+			}
+			if (rowOffsets[0] != 0 || rowOffsets[size] != columns.length) {
+				throw new IOException(path + " is truncated or corrupt.");
+			}
+			for (final int column : columns) {
+				if (column < 0 || column >= inputSize) {
+					throw new IOException(path + " is truncated or corrupt.");
+				}
+			}
+
+			layers.add(new PrunedLayer(inputSize, rowOffsets, columns, values, biases, nnParameters.getLayerActivation(l)));
+
+			inputSize = size;
+		}
+		return layers;
+	}
+
+	private static int headerSize(final int layerCount, final boolean pruned, final boolean layered) {
+
+		return align(4 * Integer.BYTES + 2 * Integer.BYTES + 2 * Double.BYTES + 2 * Integer.BYTES
+				+ 2 * Integer.BYTES + 2 * Double.BYTES + Integer.BYTES + layerHeaderSize(pruned, layered) * layerCount);
+	}
+
+	// the bytes listing one layer in the header
+	private static int layerHeaderSize(final boolean pruned, final boolean layered) {
+		return 2 * Integer.BYTES + (pruned ? Integer.BYTES : 0) + (layered ? Integer.BYTES + Double.BYTES : 0);
+	}
+
+	// the weights start at a multiple of 8 bytes, so that the bulk reads stay aligned
+	private static int align(final int size) {
+		return (size + Double.BYTES - 1) / Double.BYTES * Double.BYTES;
+	}
+
+	private static void writeFully(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private static int kindOf(final Activation activation) {
+
+		if (activation instanceof Activations.Sigmoid) {
+			return SIGMOID;
+		} else if (activation instanceof Activations.Tanh) {
+			return TANH;
+		} else if (activation instanceof Activations.ReLU) {
+			return RELU;
+		} else if (activation instanceof Activations.LeakyReLU) {
+			return LEAKY_RELU;
+		}
+		return CUSTOM;
+	}
+
+	private static double slopeOf(final Activation activation) {
+		return activation instanceof Activations.LeakyReLU ? ((Activations.LeakyReLU) activation).getSlope() : 0d;
+	}
+
+	private static Activation activationOf(final int kind, final double slope) throws IOException {
+
+		switch (kind) {
+		case SIGMOID:
+			return Activations.SIGMOID;
+		case TANH:
+			return Activations.TANH;
+		case RELU:
+			return Activations.RELU;
+		case LEAKY_RELU:
+			return Activations.leakyReLU(slope);
+		default:
+			throw new IOException("Unknown activation function " + kind + ".");
+		}
+	}
+}
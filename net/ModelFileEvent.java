@@ -0,0 +1,55 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.nio.file.Path;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import de.plath.csc.machinelearning.neural.api.INeuralNetwork;
+
+/**
+ * Flight Recorder event of saving or loading a {@link ModelFile}
+ *
+ */
+@Name("de.plath.csc.machinelearning.neural.ModelFile")
+@Label("Model File")
+@Category({ "JANN", "Model" })
+@Description("Saving or loading a model file")
+final class ModelFileEvent extends jdk.jfr.Event {
+
+	@Label("Operation")
+	private String operation;
+
+	@Label("Engine")
+	private String engine;
+
+	@Label("Path")
+	private String path;
+
+	@Label("Size")
+	@DataAmount
+	private long size;
+
+	@Label("Layers")
+	@Description("Number of hidden and output layers")
+	private int layers;
+
+	/**
+	 * Commits the event if it is enabled and exceeds its threshold
+	 */
+	protected void commit(final boolean load, final INeuralNetwork neuralNetwork, final Path file, final int layerCount) {
+
+		if (shouldCommit()) {
+
+			operation = load ? "load" : "save";
+			engine = neuralNetwork.getClass().getSimpleName();
+			path = file.toString();
+			size = file.toFile().length();
+			layers = layerCount;
+			commit();
+		}
+	}
+}
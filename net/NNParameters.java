@@ -1,10 +1,19 @@
 package de.plath.csc.machinelearning.neural.net;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 import java.util.Random;
 import java.util.function.BiFunction;
+import java.util.function.DoubleBinaryOperator;
 import java.util.function.Function;
 
+import de.plath.csc.machinelearning.neural.api.Activation;
 import de.plath.csc.machinelearning.neural.api.IParameters;
+import de.plath.csc.machinelearning.neural.api.LearningRateSchedule;
+import de.plath.csc.machinelearning.neural.api.Optimizer;
+import de.plath.csc.machinelearning.neural.api.TrainingListener;
+import de.plath.csc.machinelearning.neural.api.TrainingSource;
 
 /**
  *
@@ -19,11 +28,29 @@ public final class NNParameters implements IParameters {
 	private final int hiddenLayersSize;
 	private final int outputLayerSize;
 
+	// the hidden layers followed by the output layer
+	private final int[] layerSizes;
+	private final Activation[] layerActivations;
+	private final List<Function<Integer, Double>> layerInitializationFunctions = new ArrayList<>();
+
 	private final double momentum;
 	private final double learningRate;
+	private final Optimizer optimizer;
+	private final LearningRateSchedule learningRateSchedule;
 	private final int epochs;
+	private final int batchSize;
+	private final int parallelism;
+	private final boolean vectorized;
+	private final TrainingListener trainingListener;
+	private final TrainingSource validationSource;
+	private final int patience;
+	private final double minimumDelta;
 
 	private final Function<Integer, Double> initializationFunction;
+	private final Activation activation;
+	private final Activation outputActivation;
+	private final DoubleBinaryOperator errorOperator;
+
 	private final Function<Double, Double> activationFunction;
 	private final Function<Double, Double> derivativeFunction;
 	private final Function<Double, Double> outputActivationFunction;
@@ -37,15 +64,23 @@ public final class NNParameters implements IParameters {
 			final int hiddenLayers,
 			final int hiddenLayersSize,
 			final int outputLayerSize,
+			final List<HiddenLayer> hiddenLayerSpecs,
 			final double momentum,
 			final double learningRate,
+			final Optimizer optimizer,
+			final LearningRateSchedule learningRateSchedule,
 			final int epochs,
+			final int batchSize,
+			final int parallelism,
+			final boolean vectorized,
+			final TrainingListener trainingListener,
+			final TrainingSource validationSource,
+			final int patience,
+			final double minimumDelta,
 			final Function<Integer, Double> initializationFunction,
-			final Function<Double, Double> activationFunction,
-			final Function<Double, Double> derivativeFunction,
-			final Function<Double, Double> outputActivationFunction,
-			final Function<Double, Double> outputDerivativeFunction,
-			final BiFunction<Double, Double, Double> errorFunction) {
+			final Activation activation,
+			final Activation outputActivation,
+			final DoubleBinaryOperator errorOperator) {
 
 		this.random = random;
 		this.inputLayerSize = inputLayerSize;
@@ -53,16 +88,48 @@ public final class NNParameters implements IParameters {
 		this.hiddenLayersSize = hiddenLayersSize;
 		this.outputLayerSize = outputLayerSize;
 
-		this.momentum = momentum;
 		this.learningRate = learningRate;
+		this.optimizer = optimizer != null ? optimizer : Optimizers.sgd(momentum);
+		// of the optimizer, which overrides the momentum rate of the builder
+		this.momentum = Optimizers.momentumOf(this.optimizer);
+		this.learningRateSchedule = learningRateSchedule;
 		this.epochs = epochs;
+		this.batchSize = batchSize;
+		this.parallelism = parallelism;
+		this.vectorized = vectorized;
+		this.trainingListener = trainingListener;
+		this.validationSource = validationSource;
+		this.patience = patience;
+		this.minimumDelta = minimumDelta;
 
 		this.initializationFunction = initializationFunction;
-		this.activationFunction = activationFunction;
-		this.derivativeFunction = derivativeFunction;
-		this.outputActivationFunction = outputActivationFunction;
-		this.outputDerivativeFunction = outputDerivativeFunction;
-		this.errorFunction = errorFunction;
+		this.activation = activation;
+		this.outputActivation = outputActivation;
+		this.errorOperator = errorOperator;
+
+		this.activationFunction = activation::applyAsDouble;
+		this.derivativeFunction = activation::derivative;
+		this.outputActivationFunction = outputActivation::applyAsDouble;
+		this.outputDerivativeFunction = outputActivation::derivative;
+		this.errorFunction = errorOperator::applyAsDouble;
+
+		layerSizes = new int[hiddenLayers + 1];
+		layerActivations = new Activation[hiddenLayers + 1];
+
+		for (int h = 0; h < hiddenLayers; h++) {
+
+			final HiddenLayer hiddenLayer = hiddenLayerSpecs.isEmpty() ? null : hiddenLayerSpecs.get(h);
+
+			layerSizes[h] = hiddenLayer != null ? hiddenLayer.size : hiddenLayersSize;
+			layerActivations[h] = hiddenLayer != null && hiddenLayer.activation != null ? hiddenLayer.activation : activation;
+			layerInitializationFunctions.add(hiddenLayer != null && hiddenLayer.initializationFunction != null
+					? hiddenLayer.initializationFunction
+					: initializationFunction);
+		}
+
+		layerSizes[hiddenLayers] = outputLayerSize;
+		layerActivations[hiddenLayers] = outputActivation;
+		layerInitializationFunctions.add(initializationFunction);
 	}
 	//CHECKSTYLE:ENABLE:ParameterNumber
 
@@ -91,6 +158,21 @@ public final class NNParameters implements IParameters {
 		return outputLayerSize;
 	}
 
+	@Override
+	public int getLayerSize(final int layer) {
+		return layerSizes[layer];
+	}
+
+	@Override
+	public Activation getLayerActivation(final int layer) {
+		return layerActivations[layer];
+	}
+
+	@Override
+	public Function<Integer, Double> getLayerInitializationFunction(final int layer) {
+		return layerInitializationFunctions.get(layer);
+	}
+
 	@Override
 	public double getMomentum() {
 		return momentum;
@@ -101,11 +183,56 @@ public final class NNParameters implements IParameters {
 		return learningRate;
 	}
 
+	@Override
+	public Optimizer getOptimizer() {
+		return optimizer;
+	}
+
+	@Override
+	public LearningRateSchedule getLearningRateSchedule() {
+		return learningRateSchedule;
+	}
+
 	@Override
 	public int getEpochs() {
 		return epochs;
 	}
 
+	@Override
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	@Override
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	@Override
+	public boolean isVectorized() {
+		return vectorized;
+	}
+
+	@Override
+	public TrainingListener getTrainingListener() {
+		return trainingListener;
+	}
+
+	@Override
+	public TrainingSource getValidationSource() {
+		return validationSource;
+	}
+
+	@Override
+	public int getPatience() {
+		return patience;
+	}
+
+	@Override
+	public double getMinimumDelta() {
+		return minimumDelta;
+	}
+
 	@Override
 	public Function<Integer, Double> getInitializationFunction() {
 		return initializationFunction;
@@ -136,6 +263,39 @@ public final class NNParameters implements IParameters {
 		return errorFunction;
 	}
 
+	@Override
+	public Activation getActivation() {
+		return activation;
+	}
+
+	@Override
+	public Activation getOutputActivation() {
+		return outputActivation;
+	}
+
+	@Override
+	public DoubleBinaryOperator getErrorOperator() {
+		return errorOperator;
+	}
+
+	/**
+	 *
+	 * A hidden layer of its own size, with {@code null} for the activation and initialization
+	 * of the network
+	 */
+	private static final class HiddenLayer {
+
+		private final int size;
+		private final Activation activation;
+		private final Function<Integer, Double> initializationFunction;
+
+		private HiddenLayer(final int size, final Activation activation, final Function<Integer, Double> initializationFunction) {
+			this.size = size;
+			this.activation = activation;
+			this.initializationFunction = initializationFunction;
+		}
+	}
+
 	/**
 	 *
 	 * NNParameters builder
@@ -147,6 +307,8 @@ public final class NNParameters implements IParameters {
 		private static final int HIDDENSIZE = 2;
 		private static final int OUTPUTSIZE = 2;
 		private static final int EPOCHS = 5_000;
+		private static final int BATCHSIZE = 1;
+		private static final int PATIENCE = 5;
 
 		private final long seed = 1;
 		private Random random = new Random(seed);
@@ -155,23 +317,29 @@ public final class NNParameters implements IParameters {
 		private int hiddenLayers = HIDDENSIZE;
 		private int hiddenLayersSize = HIDDENSIZE;
 		private int outputLayerSize = OUTPUTSIZE;
+		private List<HiddenLayer> hiddenLayerSpecs = new ArrayList<>();
 
 		private double momentum = 0;
 		private double learningRate = 1d;
+		private Optimizer optimizer;
+		private LearningRateSchedule learningRateSchedule = LearningRateSchedules.CONSTANT;
 		private int epochs = EPOCHS;
+		private int batchSize = BATCHSIZE;
+		private int parallelism = 0;
+		private boolean vectorized = false;
+		private TrainingListener trainingListener;
+		private TrainingSource validationSource;
+		private int patience = PATIENCE;
+		private double minimumDelta = 0d;
 
 		//Xavier normal initializer
 		private Function<Integer, Double> initializationFunction = x -> random.nextGaussian() * (1d / x);
-		//Sigmoid activation
-		private Function<Double, Double> activationFunction = x -> 1d / (1d + Math.exp(-x));
-		//Sigmoid derivative
-		private Function<Double, Double> derivativeFunction = x -> x * (1d - x);
-		//Sigmoid activation
-		private Function<Double, Double> outputActivationFunction = x -> 1d / (1d + Math.exp(-x));
-		//Sigmoid derivative
-		private Function<Double, Double> outputDerivativeFunction = x -> x * (1d - x);
+		//Sigmoid activation and derivative
+		private Activation activation = Activations.SIGMOID;
+		//Sigmoid activation and derivative
+		private Activation outputActivation = Activations.SIGMOID;
 		//Mean squared error
-		private BiFunction<Double, Double, Double> errorFunction = (output, target) -> Math.pow((target - output), 2) / 2d;
+		private DoubleBinaryOperator errorOperator = (output, target) -> Math.pow((target - output), 2) / 2d;
 
 		/**
 		 *
@@ -213,6 +381,110 @@ public final class NNParameters implements IParameters {
 			return this;
 		}
 
+		/**
+		 * Adds a hidden layer of the given size with the activation and initialization of the
+		 * network. Once hidden layers are added, the network has exactly those, in the order
+		 * they were added, and {@link #setHiddenLayers(int)} and
+		 * {@link #setHiddenLayersSize(int)} are ignored.
+		 *
+		 * @param size number of neurons of the layer
+		 * @return builder
+		 */
+		public Builder addHiddenLayer(final int size) {
+			return addHiddenLayer(size, null, null);
+		}
+
+		/**
+		 * Adds a hidden layer of the given size with its own activation, see
+		 * {@link #addHiddenLayer(int)}
+		 *
+		 * @param size       number of neurons of the layer
+		 * @param activation the activation function of the neurons of the layer, or {@code null}
+		 *                   for that of the network
+		 * @return builder
+		 */
+		public Builder addHiddenLayer(final int size, final Activation activation) {
+			return addHiddenLayer(size, activation, null);
+		}
+
+		/**
+		 * Adds a hidden layer of the given size with its own activation and initialization, see
+		 * {@link #addHiddenLayer(int)}
+		 *
+		 * @param size                   number of neurons of the layer
+		 * @param activation             the activation function of the neurons of the layer, or
+		 *                               {@code null} for that of the network
+		 * @param initializationFunction the initialization function of the weights of the
+		 *                               layer, or {@code null} for that of the network
+		 * @return builder
+		 */
+		public Builder addHiddenLayer(final int size,
+				final Activation activation,
+				final Function<Integer, Double> initializationFunction) {
+
+			assert (size > 0) : "Size of a hidden layer must be greater than 0.";
+			hiddenLayerSpecs.add(new HiddenLayer(size, activation, initializationFunction));
+			return this;
+		}
+
+		/**
+		 * @return a builder with the same settings, whose changes leave this one as it is
+		 */
+		protected Builder copy() {
+
+			final Builder copy = new Builder();
+
+			copy.random = random;
+			copy.inputLayerSize = inputLayerSize;
+			copy.hiddenLayers = hiddenLayers;
+			copy.hiddenLayersSize = hiddenLayersSize;
+			copy.outputLayerSize = outputLayerSize;
+			copy.hiddenLayerSpecs = new ArrayList<>(hiddenLayerSpecs);
+
+			copy.momentum = momentum;
+			copy.learningRate = learningRate;
+			copy.optimizer = optimizer;
+			copy.learningRateSchedule = learningRateSchedule;
+			copy.epochs = epochs;
+			copy.batchSize = batchSize;
+			copy.parallelism = parallelism;
+			copy.vectorized = vectorized;
+			copy.trainingListener = trainingListener;
+			copy.validationSource = validationSource;
+			copy.patience = patience;
+			copy.minimumDelta = minimumDelta;
+
+			copy.initializationFunction = initializationFunction;
+			copy.activation = activation;
+			copy.outputActivation = outputActivation;
+			copy.errorOperator = errorOperator;
+			return copy;
+		}
+
+		/**
+		 * Replaces the hidden layers by those stored in a model file. An activation which the
+		 * file could not store, {@code null}, is kept from the hidden layer added before at the
+		 * same index.
+		 *
+		 * @param sizes       the number of neurons of every hidden layer
+		 * @param activations the activation function of every hidden layer, or {@code null}
+		 * @return builder
+		 */
+		protected Builder setHiddenLayers(final int[] sizes, final Activation[] activations) {
+
+			final List<HiddenLayer> specs = new ArrayList<>();
+			for (int h = 0; h < sizes.length; h++) {
+
+				final HiddenLayer previous = h < hiddenLayerSpecs.size() ? hiddenLayerSpecs.get(h) : null;
+
+				specs.add(new HiddenLayer(sizes[h],
+						activations[h] != null || previous == null ? activations[h] : previous.activation,
+						previous != null ? previous.initializationFunction : null));
+			}
+			hiddenLayerSpecs = specs;
+			return this;
+		}
+
 		/**
 		 *
 		 * @param outputLayerSize size of output layer
@@ -225,7 +497,7 @@ public final class NNParameters implements IParameters {
 
 		/**
 		 *
-		 * @param momentum momentum rate
+		 * @param momentum momentum rate of the default optimizer, ignored if an optimizer is set
 		 * @return builder
 		 */
 		public Builder setMomentum(final double momentum) {
@@ -243,6 +515,29 @@ public final class NNParameters implements IParameters {
 			return this;
 		}
 
+		/**
+		 * Other optimizers than SGD with momentum are only supported by
+		 * {@link PackedNeuralNetwork}.
+		 *
+		 * @param optimizer the rule updating the weights, or {@code null} for
+		 *                  {@link Optimizers#sgd(double)} with the momentum rate
+		 * @return builder
+		 */
+		public Builder setOptimizer(final Optimizer optimizer) {
+			this.optimizer = optimizer;
+			return this;
+		}
+
+		/**
+		 *
+		 * @param learningRateSchedule the learning rate of every epoch
+		 * @return builder
+		 */
+		public Builder setLearningRateSchedule(final LearningRateSchedule learningRateSchedule) {
+			this.learningRateSchedule = Objects.requireNonNull(learningRateSchedule, "Learning rate schedule is null.");
+			return this;
+		}
+
 		/**
 		 *
 		 * @param epochs number of epochs in training
@@ -253,6 +548,114 @@ public final class NNParameters implements IParameters {
 			return this;
 		}
 
+		/**
+		 * Mini-batch learning is supported by {@link PackedNeuralNetwork}; {@link NeuralNetwork}
+		 * always learns per sample.
+		 *
+		 * @param batchSize number of samples per weight update
+		 * @return builder
+		 */
+		public Builder setBatchSize(final int batchSize) {
+			this.batchSize = batchSize;
+			return this;
+		}
+
+		/**
+		 * Splits every mini-batch of a {@link PackedNeuralNetwork} across the given number of
+		 * threads. The gradients are reduced in a fixed order, so the trained weights are the
+		 * same for every parallelism greater than 0. A batch is split into at most 64
+		 * shards of at least 16 samples, and every thread holds up to about log2(shards) + 1
+		 * buffers of the size of all weights for the partial sums, e.g. 7 buffers of 5.4 MB for
+		 * a batch of 1024 samples on a 784x512x512x10 network.
+		 *
+		 * @param parallelism number of threads, 0 to learn on the calling thread
+		 * @return builder
+		 */
+		public Builder setParallelism(final int parallelism) {
+			this.parallelism = parallelism;
+			return this;
+		}
+
+		/**
+		 * Lets a {@link PackedNeuralNetwork} compute with the Vector API when the
+		 * {@code jdk.incubator.vector} module is added to the runtime, and with scalar code
+		 * otherwise. The vector kernels sum in a different order, so results differ from
+		 * {@link NeuralNetwork} in the last bits.
+		 *
+		 * @param vectorized whether to use the Vector API
+		 * @return builder
+		 */
+		public Builder setVectorized(final boolean vectorized) {
+			this.vectorized = vectorized;
+			return this;
+		}
+
+		/**
+		 * Notifies the listener after every epoch of {@code learn}. Without a listener the
+		 * networks do not measure the training.
+		 *
+		 * @param trainingListener the listener, or {@code null}
+		 * @return builder
+		 */
+		public Builder setTrainingListener(final TrainingListener trainingListener) {
+			this.trainingListener = trainingListener;
+			return this;
+		}
+
+		/**
+		 * Scores the validation samples after every epoch of {@code learn} and stops once the
+		 * validation error has not improved for {@link #setPatience(int)} epochs. The weights of
+		 * the best epoch are restored at the end. Only supported by
+		 * {@link PackedNeuralNetwork}.
+		 *
+		 * @param validationSource the validation samples, or {@code null} to always learn all
+		 *                         epochs
+		 * @return builder
+		 */
+		public Builder setValidationSource(final TrainingSource validationSource) {
+			this.validationSource = validationSource;
+			return this;
+		}
+
+		/**
+		 * @param validationData the inputs of the validation samples
+		 * @param targets        the labels of the validation samples
+		 * @return builder
+		 * @see #setValidationSource(TrainingSource)
+		 */
+		public Builder setValidationData(final List<List<Double>> validationData, final List<Integer> targets) {
+
+			Objects.requireNonNull(validationData, "Validation data is null.");
+			assert (!validationData.isEmpty()) : "Validation data cannot be empty.";
+
+			this.validationSource = new ListTrainingSource(validationData, targets, validationData.get(0).size());
+			return this;
+		}
+
+		/**
+		 * @param patience the number of epochs without an improvement of the validation error
+		 *                 after which the training stops, 5 by default
+		 * @return builder
+		 */
+		public Builder setPatience(final int patience) {
+
+			assert (patience > 0) : "Patience must be greater than 0.";
+			this.patience = patience;
+			return this;
+		}
+
+		/**
+		 * @param minimumDelta the decrease of the validation error that counts as an
+		 *                     improvement, 0 by default
+		 * @return builder
+		 */
+		public Builder setMinimumDelta(final double minimumDelta) {
+
+			assert (minimumDelta >= 0d) : "Minimum delta must not be negative.";
+			this.minimumDelta = minimumDelta;
+			return this;
+		}
+
 		/**
 		 *
 		 * @param initializationFunction the initialization function of weights
@@ -269,7 +672,7 @@ public final class NNParameters implements IParameters {
 		 * @return builder
 		 */
 		public Builder setActivationFunction(final Function<Double, Double> activationFunction) {
-			this.activationFunction = activationFunction;
+			this.activation = Activation.of(x -> activationFunction.apply(x), activation::derivative);
 			return this;
 		}
 
@@ -279,7 +682,7 @@ public final class NNParameters implements IParameters {
 		 * @return builder
 		 */
 		public Builder setDerivativeFunction(final Function<Double, Double> derivativeFunction) {
-			this.derivativeFunction = derivativeFunction;
+			this.activation = Activation.of(activation, x -> derivativeFunction.apply(x));
 			return this;
 		}
 
@@ -289,7 +692,7 @@ public final class NNParameters implements IParameters {
 		 * @return builder
 		 */
 		public Builder setOutputActivationFunction(final Function<Double, Double> outputActivationFunction) {
-			this.outputActivationFunction = outputActivationFunction;
+			this.outputActivation = Activation.of(x -> outputActivationFunction.apply(x), outputActivation::derivative);
 			return this;
 		}
 
@@ -299,7 +702,7 @@ public final class NNParameters implements IParameters {
 		 * @return builder
 		 */
 		public Builder setOutputDerivativeFunction(final Function<Double, Double> outputDerivativeFunction) {
-			this.outputDerivativeFunction = outputDerivativeFunction;
+			this.outputActivation = Activation.of(outputActivation, x -> outputDerivativeFunction.apply(x));
 			return this;
 		}
 
@@ -309,7 +712,37 @@ public final class NNParameters implements IParameters {
 		 * @return builder
 		 */
 		public Builder setErrorFunction(final BiFunction<Double, Double, Double> errorFunction) {
-			this.errorFunction = errorFunction;
+			this.errorOperator = (output, target) -> errorFunction.apply(output, target);
+			return this;
+		}
+
+		/**
+		 *
+		 * @param activation the activation function of neurons, with its derivative
+		 * @return builder
+		 */
+		public Builder setActivation(final Activation activation) {
+			this.activation = Objects.requireNonNull(activation, "Activation is null.");
+			return this;
+		}
+
+		/**
+		 *
+		 * @param outputActivation the activation function of output neurons, with its derivative
+		 * @return builder
+		 */
+		public Builder setOutputActivation(final Activation outputActivation) {
+			this.outputActivation = Objects.requireNonNull(outputActivation, "Output activation is null.");
+			return this;
+		}
+
+		/**
+		 *
+		 * @param errorOperator error function of an output and its target
+		 * @return builder
+		 */
+		public Builder setErrorOperator(final DoubleBinaryOperator errorOperator) {
+			this.errorOperator = Objects.requireNonNull(errorOperator, "Error operator is null.");
 			return this;
 		}
 
@@ -320,18 +753,26 @@ public final class NNParameters implements IParameters {
 		public NNParameters build() {
 			return new NNParameters(random,
 					inputLayerSize,
-					hiddenLayers,
-					hiddenLayersSize,
+					hiddenLayerSpecs.isEmpty() ? hiddenLayers : hiddenLayerSpecs.size(),
+					hiddenLayerSpecs.isEmpty() ? hiddenLayersSize : hiddenLayerSpecs.get(0).size,
 					outputLayerSize,
+					List.copyOf(hiddenLayerSpecs),
 					momentum,
 					learningRate,
+					optimizer,
+					learningRateSchedule,
 					epochs,
+					batchSize,
+					parallelism,
+					vectorized,
+					trainingListener,
+					validationSource,
+					patience,
+					minimumDelta,
 					initializationFunction,
-					activationFunction,
-					derivativeFunction,
-					outputActivationFunction,
-					outputDerivativeFunction,
-					errorFunction);
+					activation,
+					outputActivation,
+					errorOperator);
 		}
 	}
 }
@@ -0,0 +1,283 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+
+/**
+ * Compiles a trained network into a {@link CompiledNeuralNetwork}: a hidden class of its own
+ * whose forward pass is straight-line code with the weights as constants, so scoring a
+ * sample neither loops nor reads any weight from memory. Zero weights, e.g. those removed by
+ * {@link Pruner}, are left out.
+ * <p>
+ * The rows are summed with up to four partial sums each, so that the additions of the
+ * neurons overlap, and results differ from the other engines in the last bits. The code of a
+ * layer is split into methods small enough for the JIT compiler, which limits the compiler to
+ * small networks of a few thousand weights.
+ *
+ */
+public final class NetworkCompiler {
+
+	private static final String NAME = "de/plath/csc/machinelearning/neural/net/CompiledNetwork";
+	private static final String SUPER_NAME = "de/plath/csc/machinelearning/neural/net/CompiledNeuralNetwork";
+	private static final String ACTIVATION = "de/plath/csc/machinelearning/neural/api/Activation";
+	private static final String SCORE = "([DI[DI)V";
+
+	private static final int ACC_PUBLIC = 0x0001;
+	private static final int ACC_PRIVATE = 0x0002;
+	private static final int ACC_PROTECTED = 0x0004;
+
+	// HotSpot does not compile methods of more than 8000 bytes of bytecode
+	private static final int MAXIMUM_METHOD_SIZE = 7500;
+	// operand stack of a neuron: output array, index, activation, three partial sums and a product
+	private static final int MAXIMUM_STACK = 13;
+	private static final int PARTIAL_SUMS = 4;
+
+	// locals of a layer method: this, inputs, input offset, outputs, output offset, the
+	// activation of the layer and of the inputs, then the inputs of the layer
+	private static final int LAYER_ACTIVATION = 5;
+	private static final int INPUT_ACTIVATION = 6;
+	private static final int FIRST_INPUT = 8;
+
+	private NetworkCompiler() {
+	}
+
+	/**
+	 * @param neuralNetwork the trained network
+	 * @return the compiled network
+	 * @throws IllegalArgumentException if the network is too large to compile
+	 */
+	public static CompiledNeuralNetwork compile(final NeuralNetwork neuralNetwork) {
+
+		Objects.requireNonNull(neuralNetwork, "Neural network is null.");
+
+		return compile(neuralNetwork.getParameters().getActivation(), neuralNetwork.getPackedLayers());
+	}
+
+	/**
+	 * @param neuralNetwork the trained network
+	 * @return the compiled network
+	 * @throws IllegalArgumentException if the network is too large to compile
+	 */
+	public static CompiledNeuralNetwork compile(final PackedNeuralNetwork neuralNetwork) {
+
+		Objects.requireNonNull(neuralNetwork, "Neural network is null.");
+
+		return compile(neuralNetwork.getParameters().getActivation(), neuralNetwork.getLayers());
+	}
+
+	private static CompiledNeuralNetwork compile(final Activation inputActivation, final List<PackedLayer> layers) {
+
+		final ClassFileWriter writer = new ClassFileWriter(NAME, SUPER_NAME);
+
+		final Activation[] activations = new Activation[layers.size() + 1];
+		activations[0] = inputActivation;
+
+		final List<List<String>> methods = new ArrayList<>();
+		for (int l = 0; l < layers.size(); l++) {
+			activations[l + 1] = layers.get(l).getActivation();
+			methods.add(writeLayer(writer, l, layers.get(l)));
+		}
+
+		writeConstructor(writer);
+		writeScore(writer, layers, methods);
+
+		final int inputLayerSize = layers.get(0).getInputSize();
+		final int outputLayerSize = layers.get(layers.size() - 1).getSize();
+
+		try {
+			final Class<?> compiledClass = MethodHandles.lookup().defineHiddenClass(writer.toByteArray(), true).lookupClass();
+
+			return (CompiledNeuralNetwork) compiledClass
+					.getDeclaredConstructor(Activation[].class, int.class, int.class)
+					.newInstance(activations, inputLayerSize, outputLayerSize);
+
+		} catch (final ReflectiveOperationException e) {
+			throw new IllegalStateException("The compiled network cannot be loaded.", e);
+		}
+	}
+
+	private static void writeConstructor(final ClassFileWriter writer) {
+
+		final String descriptor = "([L" + ACTIVATION + ";II)V";
+
+		final ClassFileWriter.Code code = new ClassFileWriter.Code()
+				.aload(0)
+				.aload(1)
+				.iload(2)
+				.iload(3)
+				.invokespecial(writer.methodRef(SUPER_NAME, "<init>", descriptor))
+				.vreturn();
+
+		writer.addMethod(ACC_PUBLIC, "<init>", descriptor, code, 4, 4);
+	}
+
+	/**
+	 * Calls the methods of every layer in turn, with a buffer for the outputs of every hidden
+	 * layer
+	 */
+	private static void writeScore(final ClassFileWriter writer,
+			final List<PackedLayer> layers,
+			final List<List<String>> methods) {
+
+		final ClassFileWriter.Code code = new ClassFileWriter.Code();
+
+		// local 5 + l holds the outputs of hidden layer l
+		for (int l = 0; l < layers.size() - 1; l++) {
+			code.push(layers.get(l).getSize()).newDoubleArray().astore(5 + l);
+		}
+
+		for (int l = 0; l < layers.size(); l++) {
+			for (final String method : methods.get(l)) {
+
+				code.aload(0);
+				if (l == 0) {
+					code.aload(1).iload(2);
+				} else {
+					code.aload(5 + l - 1).push(0);
+				}
+				if (l == layers.size() - 1) {
+					code.aload(3).iload(4);
+				} else {
+					code.aload(5 + l).push(0);
+				}
+				code.invokespecial(writer.methodRef(NAME, method, SCORE));
+			}
+		}
+		code.vreturn();
+
+		if (code.size() > MAXIMUM_METHOD_SIZE) {
+			throw new IllegalArgumentException("The network has too many layers to compile.");
+		}
+		writer.addMethod(ACC_PROTECTED, "score", SCORE, code, 5, 5 + layers.size());
+	}
+
+	/**
+	 * Writes the neurons of a layer into as few methods as fit the size limit
+	 *
+	 * @return the names of the methods, in order
+	 */
+	private static List<String> writeLayer(final ClassFileWriter writer, final int l, final PackedLayer layer) {
+
+		final int applyAsDouble = writer.interfaceMethodRef("java/util/function/DoubleUnaryOperator", "applyAsDouble", "(D)D");
+		final int activationsField = writer.fieldRef(SUPER_NAME, "activations", "[L" + ACTIVATION + ";");
+
+		final ClassFileWriter.Code prologue = new ClassFileWriter.Code()
+				.aload(0).getfield(activationsField).push(l + 1).aaload().astore(LAYER_ACTIVATION);
+
+		if (l == 0) {
+			prologue.aload(0).getfield(activationsField).push(0).aaload().astore(INPUT_ACTIVATION);
+		}
+
+		for (int i = 0; i < layer.getInputSize(); i++) {
+
+			if (l == 0) {
+				// an input neuron turns -0.0 into 0.0 before its activation
+				prologue.aload(INPUT_ACTIVATION)
+						.aload(1).iload(2).push(i).iadd().daload()
+						.dconst0().dadd()
+						.invokeinterface(applyAsDouble, 3);
+			} else {
+				prologue.aload(1).iload(2).push(i).iadd().daload();
+			}
+			prologue.dstore(FIRST_INPUT + 2 * i);
+		}
+
+		final List<String> methods = new ArrayList<>();
+		ClassFileWriter.Code code = new ClassFileWriter.Code().append(prologue);
+		int neurons = 0;
+
+		for (int neuron = 0; neuron < layer.getSize(); neuron++) {
+
+			final ClassFileWriter.Code neuronCode = writeNeuron(writer, layer, neuron, applyAsDouble);
+
+			if (prologue.size() + neuronCode.size() + 1 > MAXIMUM_METHOD_SIZE) {
+				throw new IllegalArgumentException("Layer " + l + " is too wide to compile.");
+			}
+
+			if (neurons > 0 && code.size() + neuronCode.size() + 1 > MAXIMUM_METHOD_SIZE) {
+				methods.add(addLayerMethod(writer, l, methods.size(), code, layer));
+				code = new ClassFileWriter.Code().append(prologue);
+				neurons = 0;
+			}
+
+			code.append(neuronCode);
+			neurons++;
+		}
+		methods.add(addLayerMethod(writer, l, methods.size(), code, layer));
+
+		return methods;
+	}
+
+	private static String addLayerMethod(final ClassFileWriter writer,
+			final int l,
+			final int part,
+			final ClassFileWriter.Code code,
+			final PackedLayer layer) {
+
+		final String name = "layer" + l + '_' + part;
+
+		code.vreturn();
+		writer.addMethod(ACC_PRIVATE, name, SCORE, code, MAXIMUM_STACK, FIRST_INPUT + 2 * layer.getInputSize());
+
+		return name;
+	}
+
+	/**
+	 * Computes the activated output of one neuron from the inputs in the locals and stores it
+	 */
+	private static ClassFileWriter.Code writeNeuron(final ClassFileWriter writer,
+			final PackedLayer layer,
+			final int neuron,
+			final int applyAsDouble) {
+
+		final int inputSize = layer.getInputSize();
+		final double[] weights = layer.getWeights();
+
+		final List<Integer> inputs = new ArrayList<>();
+		for (int i = 0; i < inputSize; i++) {
+			if (weights[neuron * inputSize + i] != 0d) {
+				inputs.add(i);
+			}
+		}
+
+		final ClassFileWriter.Code code = new ClassFileWriter.Code()
+				.aload(3).iload(4).push(neuron).iadd()
+				.aload(LAYER_ACTIVATION);
+
+		if (inputs.isEmpty()) {
+			code.ldc2w(writer.doubleConstant(layer.getBiases()[neuron]));
+		} else {
+
+			final int partialSums = inputs.size() >= 2 * PARTIAL_SUMS ? PARTIAL_SUMS : 1;
+
+			// ((s0 + s1) + (s2 + s3)) + bias, summing every fourth product into the same s
+			for (int s = 0; s < partialSums; s++) {
+
+				for (int k = s; k < inputs.size(); k += partialSums) {
+
+					final int input = inputs.get(k);
+
+					code.dload(FIRST_INPUT + 2 * input)
+							.ldc2w(writer.doubleConstant(weights[neuron * inputSize + input]))
+							.dmul();
+					if (k != s) {
+						code.dadd();
+					}
+				}
+				if (s % 2 == 1) {
+					code.dadd();
+				}
+			}
+			if (partialSums > 1) {
+				code.dadd();
+			}
+			code.ldc2w(writer.doubleConstant(layer.getBiases()[neuron])).dadd();
+		}
+
+		return code.invokeinterface(applyAsDouble, 3).dastore();
+	}
+}
@@ -4,8 +4,11 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.stream.IntStream;
 
+import de.plath.csc.machinelearning.neural.api.Activation;
 import de.plath.csc.machinelearning.neural.api.IParameters;
 
 /**
@@ -14,8 +17,16 @@ import de.plath.csc.machinelearning.neural.api.IParameters;
  */
 public class NetworkLayers {
 
+	// approximate sizes with compressed references, for the construction event
+	// a neuron, its list of synapses and the header of the list's array
+	private static final long NEURON_BYTES = 32 + 24 + 16;
+	// a synapse, its optional input neuron and its reference in the list
+	private static final long SYNAPSE_BYTES = 40 + 16 + 4;
+
 	private final IParameters nnParameters;
 
+	private final ConstructionEvent constructionEvent = new ConstructionEvent();
+
 	private final List<Neuron> inputLayer = new ArrayList<>();
 	private final List<List<Neuron>> hiddenLayers = new ArrayList<>();
 	private final List<Neuron> outputLayer = new ArrayList<>();
@@ -32,19 +43,37 @@ public class NetworkLayers {
 	 */
 	public void initializeLayers() {
 
-		addNeuronsToLayer(inputLayer, nnParameters.getInputLayerSize());
-		addNeuronsToHiddenLayers(nnParameters.getHiddenLayersSize());
-		addNeuronsToOutputLayer(outputLayer, nnParameters.getOutputLayerSize());
+		constructionEvent.begin();
+
+		addNeuronsToLayer(inputLayer, nnParameters.getInputLayerSize(), nnParameters.getActivation());
+		addNeuronsToHiddenLayers();
+		addNeuronsToLayer(outputLayer, nnParameters.getOutputLayerSize(), nnParameters.getOutputActivation());
 	}
 
 	/**
 	 * Fully connect the layers
 	 */
 	public void connectLayers() {
+		connectLayers(nnParameters::getLayerInitializationFunction);
+	}
+
+	/**
+	 * Fully connect the layers with weights of 0, which are set afterwards, e.g. to the ones of
+	 * a model file, without drawing from the random number generator of the parameters
+	 */
+	protected void connectLayersWithZeroWeights() {
+		connectLayers(layer -> previousLayerSize -> 0d);
+	}
+
+	private void connectLayers(final IntFunction<Function<Integer, Double>> initializationFunctions) {
 
 		connectNeuronsOfInputLayer();
-		connectNeuronsOfHiddenLayers();
-		connectNeuronsOfOutputLayer();
+		connectNeuronsOfHiddenLayers(initializationFunctions);
+		connectNeuronsOfOutputLayer(initializationFunctions);
+
+		if (constructionEvent.shouldCommit()) {
+			commitConstructionEvent();
+		}
 	}
 
 	public List<Neuron> getInputLayer() {
@@ -59,22 +88,36 @@ public class NetworkLayers {
 		return outputLayer;
 	}
 
-	private void addNeuronsToLayer(final List<Neuron> layer, final int size) {
+	private void commitConstructionEvent() {
+
+		final List<List<Neuron>> layers = new ArrayList<>();
+		layers.add(inputLayer);
+		layers.addAll(hiddenLayers);
+		layers.add(outputLayer);
+
+		long neurons = 0;
+		long synapses = 0;
+		for (final List<Neuron> layer : layers) {
+			for (final Neuron neuron : layer) {
+				neurons++;
+				synapses += neuron.getInputs().size();
+			}
+		}
 
-		IntStream.range(0, size)
-				.forEach((i) -> layer.add(new Neuron(nnParameters.getActivationFunction())));
+		constructionEvent.commit(NeuralNetwork.class.getSimpleName(), neurons, synapses,
+				neurons * NEURON_BYTES + synapses * SYNAPSE_BYTES);
 	}
 
-	private void addNeuronsToOutputLayer(final List<Neuron> layer, final int size) {
+	private void addNeuronsToLayer(final List<Neuron> layer, final int size, final Activation activation) {
 
-		IntStream.range(0, size).forEach((i) -> layer.add(new Neuron(nnParameters.getOutputActivationFunction())));
+		IntStream.range(0, size).forEach((i) -> layer.add(new Neuron(activation)));
 	}
 
-	private void addNeuronsToHiddenLayers(final int size) {
+	private void addNeuronsToHiddenLayers() {
 
 		IntStream.range(0, nnParameters.getNumberOfHiddenLayers()).forEach((h) -> {
 			hiddenLayers.add(new ArrayList<>());
-			addNeuronsToLayer(hiddenLayers.get(h), size);
+			addNeuronsToLayer(hiddenLayers.get(h), nnParameters.getLayerSize(h), nnParameters.getLayerActivation(h));
 		});
 	}
 
@@ -87,7 +130,7 @@ public class NetworkLayers {
 		});
 	}
 
-	private void connectNeuronsOfHiddenLayers() {
+	private void connectNeuronsOfHiddenLayers(final IntFunction<Function<Integer, Double>> initializationFunctions) {
 
 		for (int hiddenLayer = 0; hiddenLayer < hiddenLayers.size(); hiddenLayer++) {
 
@@ -95,31 +138,33 @@ public class NetworkLayers {
 			final List<Neuron> currentLayer = hiddenLayers.get(hiddenLayer);
 
 			final int previousLayerSize = previousLayer.size();
+			final Function<Integer, Double> initializationFunction = initializationFunctions.apply(hiddenLayer);
 
 			for (final Neuron neuron : currentLayer) {
 
 				final List<Synapse> synapses = new ArrayList<>();
 
 				previousLayer.forEach((n) -> synapses.add(
-						new Synapse(nnParameters.getInitializationFunction().apply(previousLayerSize), Optional.of(n))));
+						new Synapse(initializationFunction.apply(previousLayerSize), Optional.of(n))));
 
-				synapses.add(new Bias(nnParameters.getInitializationFunction().apply(previousLayerSize)));
+				synapses.add(new Bias(initializationFunction.apply(previousLayerSize)));
 
 				neuron.setInputs(synapses);
 			}
 		}
 	}
 
-	private void connectNeuronsOfOutputLayer() {
+	private void connectNeuronsOfOutputLayer(final IntFunction<Function<Integer, Double>> initializationFunctions) {
 
 		final List<Neuron> previousLayer = hiddenLayers.get(hiddenLayers.size() - 1);
 		final int previousLayerSize = previousLayer.size();
+		final Function<Integer, Double> initializationFunction = initializationFunctions.apply(hiddenLayers.size());
 
 		outputLayer.forEach((neuron) -> {
 			final List<Synapse> synapses = new ArrayList<>();
 			previousLayer.forEach((n) -> synapses
-					.add(new Synapse(nnParameters.getInitializationFunction().apply(previousLayerSize), Optional.of(n))));
-			synapses.add(new Bias(nnParameters.getInitializationFunction().apply(previousLayerSize)));
+					.add(new Synapse(initializationFunction.apply(previousLayerSize), Optional.of(n))));
+			synapses.add(new Bias(initializationFunction.apply(previousLayerSize)));
 			neuron.setInputs(synapses);
 		});
 	}
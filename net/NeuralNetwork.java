@@ -1,18 +1,25 @@
 package de.plath.csc.machinelearning.neural.net;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import de.plath.csc.machinelearning.neural.api.INeuralNetwork;
 import de.plath.csc.machinelearning.neural.api.IParameters;
+import de.plath.csc.machinelearning.neural.api.TrainingListener;
+import de.plath.csc.machinelearning.neural.api.TrainingSource;
 
 /**
  * A feed-forward, fully connected Artificial Neural Network for classification, with
  * back-propagation learning.
+ * <p>
+ * {@link #getOutput(List)} keeps its intermediate results in per-call buffers, so any number
+ * of threads can score on a trained network without locking. Learning must not run at the
+ * same time.
  *
  */
 public class NeuralNetwork implements INeuralNetwork {
@@ -20,11 +27,15 @@ public class NeuralNetwork implements INeuralNetwork {
 	private final IParameters nnParameters;
 
 	private final List<Neuron> inputLayer;
+	private final List<List<Neuron>> hiddenLayers;
 	private final List<Neuron> outputLayer;
 
 	private final FeedForward feedForward;
 	private final Backpropagation backPropagation;
 
+	private final double[] input;
+	private final double[] binaryTargets;
+	private double learningError;
 
 	/**
 	 * C'tor
@@ -43,11 +54,18 @@ public class NeuralNetwork implements INeuralNetwork {
 
 		this.nnParameters = nnParameters;
 		this.inputLayer = Objects.requireNonNull(inputLayer);
+		this.hiddenLayers = Objects.requireNonNull(hiddenLayers);
 		this.outputLayer = Objects.requireNonNull(outputLayer);
 
+		if (nnParameters.getValidationSource() != null) {
+			throw new IllegalArgumentException("Early stopping is not supported here, use createPacked().");
+		}
+
 		feedForward = new FeedForward(inputLayer, hiddenLayers, outputLayer);
 		backPropagation = new Backpropagation(inputLayer, hiddenLayers, outputLayer, nnParameters);
 
+		input = new double[inputLayer.size()];
+		binaryTargets = new double[outputLayer.size()];
 	}
 
 	@Override
@@ -56,24 +74,71 @@ public class NeuralNetwork implements INeuralNetwork {
 		Objects.requireNonNull(trainingData, "Training data is null");
 		assert (!trainingData.isEmpty()) : "Training data cannot be empty";
 		assert (inputLayer.size() == trainingData.get(0).size()) : "Size of inputs must match the size of the input layer.";
-		assert (targets.stream().anyMatch(target -> target < 0)) : "Labels must be integers greater than or equal to 0.";
+		assert (targets.stream().noneMatch(target -> target < 0)) : "Labels must be integers greater than or equal to 0.";
+
+		learn(new ListTrainingSource(trainingData, targets, inputLayer.size()));
+	}
+
+	@Override
+	public void learn(final TrainingSource trainingSource) {
+		learn(trainingSource, nnParameters.getTrainingListener());
+	}
+
+	@Override
+	public void learn(final TrainingSource trainingSource, final TrainingListener listener) {
+
+		Objects.requireNonNull(trainingSource, "Training source is null");
+		assert (inputLayer.size() == trainingSource.getInputSize()) : "Size of inputs must match the size of the input layer.";
+
+		final TrainingTimer timer = TrainingTimer.of(listener, hiddenLayers.size() + 1);
+		feedForward.setTimer(TrainingTimer.detailed(timer));
+		backPropagation.setTimer(TrainingTimer.detailed(timer));
+
+		try {
+			for (int epoch = 1; epoch <= nnParameters.getEpochs(); epoch++) {
+
+				double errors = 0d;
+				int samples = 0;
+
+				final EpochEvent epochEvent = new EpochEvent();
+				epochEvent.begin();
+
+				backPropagation.setLearningRate(nnParameters.getLearningRateSchedule()
+						.getLearningRate(epoch, nnParameters.getLearningRate()));
+
+				if (timer != null) {
+					timer.startEpoch(epoch);
+				}
+
+				try (TrainingSource.Reader reader = trainingSource.open()) {
 
-		IntStream.rangeClosed(1, nnParameters.getEpochs()).forEach(epoch -> {
+					while (reader.next(input, 0)) {
 
-			final Iterator<Integer> targetsIterator1 = targets.iterator();
-			final Iterator<Integer> targetsIterator2 = targets.iterator();
-			final List<Double> errors = new ArrayList<>();
+						extractBinaryTarget(reader.getTarget());
+						errors += timer != null ? learnSample(timer) : learnSample();
+						samples++;
+					}
+				} catch (final IOException e) {
+					throw new UncheckedIOException(e);
+				}
 
-			trainingData.forEach(inputData -> {
+				if (samples == 0) {
+					throw new IllegalArgumentException("The training source has no samples.");
+				}
 
-				feedForward.apply(inputData);
-				backPropagation.apply(extractBinaryTarget(targetsIterator1.next()));
-				calculateLearningError(targetsIterator2, errors, inputData);
-			});
+				learningError = errors / samples;
 
-			//System.out.println(epoch + ", " + errors.stream().mapToDouble(e -> e).average().getAsDouble());
+				epochEvent.commit(this, epoch, samples, learningError);
 
-		});
+				if (timer != null) {
+					timer.finishEpoch(samples, learningError);
+					listener.onEpoch(timer);
+				}
+			}
+		} finally {
+			feedForward.setTimer(null);
+			backPropagation.setTimer(null);
+		}
 	}
 
 	@Override
@@ -82,27 +147,122 @@ public class NeuralNetwork implements INeuralNetwork {
 		Objects.requireNonNull(input, "input is null");
 		assert (inputLayer.size() == input.size()) : "Size of input must match the size of the input layer.";
 
-		feedForward.apply(input);
+		final double[] inputData = input.stream().mapToDouble(value -> value).toArray();
 
-		return outputLayer.stream().map(neuron -> neuron.getOutput()).collect(Collectors.toList());
+		return Arrays.stream(feedForward.calculate(inputData)).boxed().collect(Collectors.toList());
 	}
 
-	private void calculateLearningError(final Iterator<Integer> targetsIterator, final List<Double> errors, final List<Double> inputData) {
+	@Override
+	public void getOutputs(final double[] inputs, final double[] outputs) {
+
+		Objects.requireNonNull(inputs, "inputs are null");
+		Objects.requireNonNull(outputs, "outputs are null");
+		assert (inputs.length % inputLayer.size() == 0) : "Size of inputs must be a multiple of the size of the input layer.";
+		assert (outputs.length == inputs.length / inputLayer.size() * outputLayer.size()) : "Size of outputs must match the number of inputs.";
+
+		final InferenceEvent inferenceEvent = new InferenceEvent();
+		inferenceEvent.begin();
+
+		final double[][] buffers = feedForward.createBuffers();
+		final double[] sampleOutputs = buffers[buffers.length - 1];
+
+		for (int sample = 0; sample < inputs.length / inputLayer.size(); sample++) {
+
+			feedForward.calculate(inputs, sample, buffers);
+			System.arraycopy(sampleOutputs, 0, outputs, sample * outputLayer.size(), outputLayer.size());
+		}
+
+		inferenceEvent.commit(this, inputs.length / inputLayer.size());
+	}
+
+	@Override
+	public int getInputLayerSize() {
+		return inputLayer.size();
+	}
+
+	@Override
+	public int getOutputLayerSize() {
+		return outputLayer.size();
+	}
+
+	/**
+	 * @return the mean error over the samples of the last training epoch, measured during the
+	 *         forward pass of each sample
+	 */
+	public double getLearningError() {
+		return learningError;
+	}
+
+	protected IParameters getParameters() {
+		return nnParameters;
+	}
+
+	protected List<List<Neuron>> getHiddenLayers() {
+		return hiddenLayers;
+	}
+
+	protected List<Neuron> getOutputLayer() {
+		return outputLayer;
+	}
+
+	/**
+	 * @return copies of the weights and biases of the hidden layers and the output layer
+	 */
+	protected List<PackedLayer> getPackedLayers() {
+
+		final List<List<Neuron>> neuronLayers = new ArrayList<>(hiddenLayers);
+		neuronLayers.add(outputLayer);
+
+		final List<PackedLayer> layers = new ArrayList<>();
+		int inputSize = inputLayer.size();
+
+		for (int l = 0; l < neuronLayers.size(); l++) {
+
+			final List<Neuron> neurons = neuronLayers.get(l);
+			final PackedLayer layer = new PackedLayer(inputSize, neurons.size(),
+					nnParameters.getLayerActivation(l));
+
+			for (int neuron = 0; neuron < neurons.size(); neuron++) {
+
+				final List<Synapse> synapses = neurons.get(neuron).getInputs();
+				for (int input = 0; input < inputSize; input++) {
+					layer.getWeights()[neuron * inputSize + input] = synapses.get(input).getWeight();
+				}
+				layer.getBiases()[neuron] = synapses.get(inputSize).getWeight();
+			}
+
+			layers.add(layer);
+			inputSize = neurons.size();
+		}
+		return layers;
+	}
+
+	private double learnSample() {
+
+		feedForward.apply(input);
+		return backPropagation.apply(binaryTargets);
+	}
+
+	private double learnSample(final TrainingTimer timer) {
+
+		final long start = System.nanoTime();
+
+		feedForward.apply(input);
+		final long forwardEnd = timer.forward(start);
+
+		final double error = backPropagation.calculateDeltas(binaryTargets);
+		final long backwardEnd = timer.backward(forwardEnd);
 
-		final List<Double> binaryTargets = extractBinaryTarget(targetsIterator.next());
-		final Iterator<Double> binaryTargetsIterator = binaryTargets.iterator();
+		backPropagation.updateWeights();
+		timer.update(backwardEnd);
 
-		errors.add(getOutput(inputData).stream()
-				.mapToDouble(out -> nnParameters.getErrorFunction().apply(out, binaryTargetsIterator.next()))
-				.average()
-				.getAsDouble());
+		return error;
 	}
 
-	private List<Double> extractBinaryTarget(final Integer target) {
+	private void extractBinaryTarget(final int target) {
 
-		return IntStream.range(0, outputLayer.size())
-				.mapToDouble(i -> i == target ? 1d : 0d)
-				.boxed()
-				.collect(Collectors.toList());
+		for (int i = 0; i < binaryTargets.length; i++) {
+			binaryTargets[i] = i == target ? 1d : 0d;
+		}
 	}
-}
\ No newline at end of file
+}
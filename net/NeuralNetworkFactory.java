@@ -37,4 +37,32 @@ public class NeuralNetworkFactory {
 
 		return neuralNet;
 	}
+
+	/**
+	 * @return PackedNeuralNetwork, which keeps the layers in contiguous arrays and gives the
+	 *         same results as the network built by {@link #create()}
+	 */
+	public PackedNeuralNetwork createPacked() {
+
+		final PackedNetworkLayers networkLayers = new PackedNetworkLayers(nnParameters);
+
+		networkLayers.initializeLayers();
+		networkLayers.connectLayers();
+
+		return new PackedNeuralNetwork(nnParameters, networkLayers.getLayers());
+	}
+
+	/**
+	 * @return FloatNeuralNetwork, which stores and computes in single precision and starts from
+	 *         the weights of {@link #createPacked()}, rounded to {@code float}
+	 */
+	public FloatNeuralNetwork createFloat() {
+
+		final FloatNetworkLayers networkLayers = new FloatNetworkLayers(nnParameters);
+
+		networkLayers.initializeLayers();
+		networkLayers.connectLayers();
+
+		return new FloatNeuralNetwork(nnParameters, networkLayers.getLayers());
+	}
 }
@@ -3,7 +3,7 @@ package de.plath.csc.machinelearning.neural.net;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.function.Function;
+import java.util.function.DoubleUnaryOperator;
 
 /**
  * Artificial Neuron
@@ -13,14 +13,11 @@ class Neuron {
 
 	private List<Synapse> inputs = new ArrayList<>();
 
-	private Double output;
+	private double output;
 
-	private Function<Double, Double> activationFunction;
+	private DoubleUnaryOperator activationFunction;
 
-	private final Function<List<Synapse>, Double> outputFunction = input -> activationFunction
-			.apply(input.stream().mapToDouble(synapse -> synapse.getProduct()).sum());
-
-	protected Neuron(final Function<Double, Double> activationFunction) {
+	protected Neuron(final DoubleUnaryOperator activationFunction) {
 		this.activationFunction = Objects.requireNonNull(activationFunction, "Activation function is null.");
 	}
 
@@ -33,14 +30,58 @@ class Neuron {
 	}
 
 	protected void calculateOutput() {
-		this.output = outputFunction.apply(inputs);
+		this.output = activationFunction.applyAsDouble(sumOfProducts());
 	}
 
-	protected Double getOutput() {
+	protected double getOutput() {
 		return output;
 	}
 
-	public void setActivationFunction(final Function<Double, Double> activationFunction) {
+	/**
+	 * Calculates the output from the given outputs of the previous layer without storing it,
+	 * so that several threads can use the neuron at the same time. The synapse at index
+	 * {@code i < previousOutputs.length} connects to the previous neuron {@code i}; any further
+	 * synapse is a bias.
+	 *
+	 * @param previousOutputs the outputs of the previous layer
+	 * @return the output of the neuron
+	 */
+	protected double calculateOutput(final double[] previousOutputs) {
+
+		final CompensatedSum sum = new CompensatedSum();
+
+		for (int i = 0; i < inputs.size(); i++) {
+			sum.add(i < previousOutputs.length ? inputs.get(i).getWeight() * previousOutputs[i] : inputs.get(i).getProduct());
+		}
+		return activationFunction.applyAsDouble(sum.getSum());
+	}
+
+	/**
+	 * Calculates the output of an input neuron, whose single synapse carries the input,
+	 * without storing it
+	 *
+	 * @param input the input of the neuron
+	 * @return the output of the neuron
+	 */
+	protected double calculateOutput(final double input) {
+
+		final CompensatedSum sum = new CompensatedSum();
+		sum.add(input);
+
+		return activationFunction.applyAsDouble(sum.getSum());
+	}
+
+	private double sumOfProducts() {
+
+		final CompensatedSum sum = new CompensatedSum();
+
+		for (int i = 0; i < inputs.size(); i++) {
+			sum.add(inputs.get(i).getProduct());
+		}
+		return sum.getSum();
+	}
+
+	public void setActivationFunction(final DoubleUnaryOperator activationFunction) {
 		this.activationFunction = activationFunction;
 	}
 }
@@ -0,0 +1,111 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Objects;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+
+/**
+ * Fully connected layer whose weights and biases are stored outside the heap, in the layout
+ * of {@link ModelFile}: little-endian and row-major. The products read every weight straight
+ * from the segments once per block of samples, and sum in the same blocks and order as
+ * {@link ScalarKernels}.
+ *
+ */
+class OffHeapLayer {
+
+	// as in ScalarKernels, so that the sums match those of the packed engine
+	private static final int INNER_BLOCK = 256;
+
+	private final int inputSize;
+	private final int size;
+
+	private final MemorySegment weights;
+	private final MemorySegment biases;
+
+	private final Activation activation;
+
+	/**
+	 * @param weights the {@code size * inputSize} weights, row-major
+	 * @param biases  the {@code size} biases
+	 */
+	protected OffHeapLayer(final int inputSize,
+			final int size,
+			final MemorySegment weights,
+			final MemorySegment biases,
+			final Activation activation) {
+
+		assert (weights.byteSize() == (long) size * inputSize * Double.BYTES) : "Size of weights must match the layer.";
+		assert (biases.byteSize() == (long) size * Double.BYTES) : "Size of biases must match the layer.";
+
+		this.inputSize = inputSize;
+		this.size = size;
+		this.weights = weights;
+		this.biases = biases;
+		this.activation = Objects.requireNonNull(activation, "Activation is null.");
+	}
+
+	protected int getInputSize() {
+		return inputSize;
+	}
+
+	protected int getSize() {
+		return size;
+	}
+
+	protected Activation getActivation() {
+		return activation;
+	}
+
+	/**
+	 * @return the memory of the weights and biases in bytes
+	 */
+	protected long getBytes() {
+		return weights.byteSize() + biases.byteSize();
+	}
+
+	/**
+	 * outputs (size x samples) = activation(weights * inputs (inputSize x samples) + biases)
+	 *
+	 * @param inputs  the outputs of the previous layer, transposed: one row per input
+	 * @param outputs receives the outputs of this layer, transposed: one row per neuron
+	 * @param samples the number of samples
+	 */
+	protected void calculateOutputs(final double[] inputs, final double[] outputs, final int samples) {
+
+		final double[] sums = new double[samples];
+
+		for (int neuron = 0; neuron < size; neuron++) {
+
+			final int outputRow = neuron * samples;
+			final long weightRow = (long) neuron * inputSize;
+
+			Arrays.fill(outputs, outputRow, outputRow + samples, MemoryAccess.getDoubleAtIndex(biases, neuron, ByteOrder.LITTLE_ENDIAN));
+
+			for (int innerBlock = 0; innerBlock < inputSize; innerBlock += INNER_BLOCK) {
+
+				final int innerEnd = Math.min(innerBlock + INNER_BLOCK, inputSize);
+				Arrays.fill(sums, 0d);
+
+				for (int k = innerBlock; k < innerEnd; k++) {
+
+					final double weight = MemoryAccess.getDoubleAtIndex(weights, weightRow + k, ByteOrder.LITTLE_ENDIAN);
+					final int inputRow = k * samples;
+
+					for (int sample = 0; sample < samples; sample++) {
+						sums[sample] += inputs[inputRow + sample] * weight;
+					}
+				}
+
+				for (int sample = 0; sample < samples; sample++) {
+					outputs[outputRow + sample] += sums[sample];
+				}
+			}
+		}
+
+		activation.apply(outputs, 0, size * samples);
+	}
+}
@@ -0,0 +1,142 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.plath.csc.machinelearning.neural.api.IParameters;
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+/**
+ * The memory outside the heap holding the layers of an {@link OffHeapNeuralNetwork}, either
+ * allocated or mapped from a model file. The only class besides {@link OffHeapLayer} which
+ * refers to the {@code jdk.incubator.foreign} module, so that the rest of the engine loads
+ * without it.
+ *
+ */
+final class OffHeapMemory implements AutoCloseable {
+
+	// frees the memory of networks which become unreachable without being closed
+	private static final Cleaner CLEANER = Cleaner.create();
+
+	private final ResourceScope scope;
+	private final List<OffHeapLayer> layers;
+	private final boolean mapped;
+
+	private OffHeapMemory(final ResourceScope scope, final List<OffHeapLayer> layers, final boolean mapped) {
+
+		this.scope = scope;
+		this.layers = layers;
+		this.mapped = mapped;
+	}
+
+	/**
+	 * Copies the layers into a single block of native memory, in the layout of a model file
+	 *
+	 * @param packedLayers the layers to copy
+	 */
+	protected static OffHeapMemory allocate(final List<PackedLayer> packedLayers) {
+
+		long bytes = 0;
+		for (final PackedLayer layer : packedLayers) {
+			bytes += (long) (layer.getWeights().length + layer.getBiases().length) * Double.BYTES;
+		}
+
+		final ResourceScope scope = ResourceScope.newSharedScope(CLEANER);
+		final MemorySegment segment = MemorySegment.allocateNative(bytes, Double.BYTES, scope);
+
+		final List<OffHeapLayer> layers = new ArrayList<>();
+		long offset = 0;
+
+		for (final PackedLayer layer : packedLayers) {
+
+			final MemorySegment weights = copy(layer.getWeights(), segment.asSlice(offset, (long) layer.getWeights().length * Double.BYTES));
+			offset += weights.byteSize();
+			final MemorySegment biases = copy(layer.getBiases(), segment.asSlice(offset, (long) layer.getBiases().length * Double.BYTES));
+			offset += biases.byteSize();
+
+			layers.add(new OffHeapLayer(layer.getInputSize(), layer.getSize(), weights.asReadOnly(), biases.asReadOnly(), layer.getActivation()));
+		}
+		return new OffHeapMemory(scope, layers, false);
+	}
+
+	/**
+	 * Maps the layers of a model file read-only, so that every process mapping the same file
+	 * shares its pages
+	 *
+	 * @param path         the model file
+	 * @param offset       the position of the first layer in the file
+	 * @param nnParameters the topology stored in the file
+	 * @throws IOException if the file cannot be mapped or is too short for its layers
+	 */
+	protected static OffHeapMemory map(final Path path, final long offset, final IParameters nnParameters) throws IOException {
+
+		final ResourceScope scope = ResourceScope.newSharedScope(CLEANER);
+
+		try {
+			final MemorySegment file = MemorySegment.mapFile(path, 0, Files.size(path), FileChannel.MapMode.READ_ONLY, scope);
+
+			final List<OffHeapLayer> layers = new ArrayList<>();
+			long position = offset;
+			int inputSize = nnParameters.getInputLayerSize();
+
+			for (int l = 0; l <= nnParameters.getNumberOfHiddenLayers(); l++) {
+
+				final int size = nnParameters.getLayerSize(l);
+				final long weightBytes = (long) size * inputSize * Double.BYTES;
+
+				if (position + weightBytes + (long) size * Double.BYTES > file.byteSize()) {
+					throw new IOException(path + " is truncated or corrupt.");
+				}
+
+				final MemorySegment weights = file.asSlice(position, weightBytes);
+				position += weightBytes;
+				final MemorySegment biases = file.asSlice(position, (long) size * Double.BYTES);
+				position += biases.byteSize();
+
+				layers.add(new OffHeapLayer(inputSize, size, weights, biases, nnParameters.getLayerActivation(l)));
+
+				inputSize = size;
+			}
+			return new OffHeapMemory(scope, layers, true);
+
+		} catch (final IOException | RuntimeException e) {
+			scope.close();
+			throw e;
+		}
+	}
+
+	protected List<OffHeapLayer> getLayers() {
+		return layers;
+	}
+
+	protected boolean isMapped() {
+		return mapped;
+	}
+
+	/**
+	 * Frees or unmaps the memory; the layers cannot be read afterwards
+	 */
+	@Override
+	public void close() {
+
+		if (scope.isAlive()) {
+			scope.close();
+		}
+	}
+
+	private static MemorySegment copy(final double[] values, final MemorySegment segment) {
+
+		for (int i = 0; i < values.length; i++) {
+			MemoryAccess.setDoubleAtIndex(segment, i, ByteOrder.LITTLE_ENDIAN, values[i]);
+		}
+		return segment;
+	}
+}
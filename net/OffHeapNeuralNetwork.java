@@ -0,0 +1,132 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+import de.plath.csc.machinelearning.neural.api.IParameters;
+
+/**
+ * A trained network whose weights and biases are stored outside the heap, for scoring. The
+ * garbage collector never scans them, and a network loaded by
+ * {@link ModelFile#loadOffHeap(Path)} maps the model file read-only, so that all processes
+ * scoring the same file share one copy of its weights. It cannot learn.
+ * <p>
+ * Off-heap networks need the {@code jdk.incubator.foreign} module, which is added with
+ * {@code --add-modules jdk.incubator.foreign}. The samples are scored in blocks like
+ * {@link PackedNeuralNetwork#getOutputs(double[], double[])} with its scalar kernels, and
+ * give the same results. Scoring a closed network throws an {@link IllegalStateException}.
+ *
+ */
+public class OffHeapNeuralNetwork extends ScoringNeuralNetwork implements AutoCloseable {
+
+	private final IParameters nnParameters;
+	private final Activation inputActivation;
+	private final int[] layerSizes;
+
+	private final OffHeapMemory memory;
+	private final List<OffHeapLayer> layers;
+
+	protected OffHeapNeuralNetwork(final IParameters nnParameters, final OffHeapMemory memory) {
+
+		super("off-heap", nnParameters.getInputLayerSize(), memory.getLayers().get(memory.getLayers().size() - 1).getSize());
+
+		this.nnParameters = Objects.requireNonNull(nnParameters);
+		this.memory = Objects.requireNonNull(memory);
+
+		layers = memory.getLayers();
+		inputActivation = nnParameters.getActivation();
+		layerSizes = layers.stream().mapToInt(OffHeapLayer::getSize).toArray();
+	}
+
+	/**
+	 * @param neuralNetwork the trained network
+	 * @return a copy of the network in native memory
+	 * @throws UnsupportedOperationException if the {@code jdk.incubator.foreign} module is
+	 *                                       missing
+	 */
+	public static OffHeapNeuralNetwork allocate(final NeuralNetwork neuralNetwork) {
+
+		Objects.requireNonNull(neuralNetwork, "Neural network is null.");
+		requireForeignModule();
+
+		return new OffHeapNeuralNetwork(neuralNetwork.getParameters(), OffHeapMemory.allocate(neuralNetwork.getPackedLayers()));
+	}
+
+	/**
+	 * @param neuralNetwork the trained network
+	 * @return a copy of the network in native memory
+	 * @throws UnsupportedOperationException if the {@code jdk.incubator.foreign} module is
+	 *                                       missing
+	 */
+	public static OffHeapNeuralNetwork allocate(final PackedNeuralNetwork neuralNetwork) {
+
+		Objects.requireNonNull(neuralNetwork, "Neural network is null.");
+		requireForeignModule();
+
+		return new OffHeapNeuralNetwork(neuralNetwork.getParameters(), OffHeapMemory.allocate(neuralNetwork.getLayers()));
+	}
+
+	/**
+	 * @param path         the model file
+	 * @param offset       the position of the first layer in the file
+	 * @param nnParameters the topology stored in the file
+	 */
+	protected static OffHeapNeuralNetwork map(final Path path, final long offset, final IParameters nnParameters) throws IOException {
+
+		requireForeignModule();
+
+		return new OffHeapNeuralNetwork(nnParameters, OffHeapMemory.map(path, offset, nnParameters));
+	}
+
+	/**
+	 * @return whether the weights are mapped from a model file rather than allocated
+	 */
+	public boolean isMapped() {
+		return memory.isMapped();
+	}
+
+	/**
+	 * @return the memory of the weights and biases outside the heap in bytes
+	 */
+	public long getBytes() {
+		return layers.stream().mapToLong(OffHeapLayer::getBytes).sum();
+	}
+
+	/**
+	 * Frees the native memory, or unmaps the model file. Networks which become unreachable
+	 * are released without closing them, but only once the garbage collector finds them.
+	 */
+	@Override
+	public void close() {
+		memory.close();
+	}
+
+	protected IParameters getParameters() {
+		return nnParameters;
+	}
+
+	protected List<OffHeapLayer> getLayers() {
+		return layers;
+	}
+
+	/**
+	 * Fails early, before a class referring to the module is loaded
+	 */
+	private static void requireForeignModule() {
+
+		if (ModuleLayer.boot().findModule("jdk.incubator.foreign").isEmpty()) {
+			throw new UnsupportedOperationException("Off-heap networks need --add-modules jdk.incubator.foreign.");
+		}
+	}
+
+	@Override
+	protected void scoreChunk(final double[] inputs, final double[] outputs, final int first, final int samples) {
+
+		BatchInference.scoreTransposed(inputActivation, getInputLayerSize(), layerSizes,
+				(layer, layerInputs, layerOutputs, count) -> layers.get(layer).calculateOutputs(layerInputs, layerOutputs, count),
+				inputs, outputs, first, samples);
+	}
+}
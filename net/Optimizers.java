@@ -0,0 +1,224 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import de.plath.csc.machinelearning.neural.api.IParameters;
+import de.plath.csc.machinelearning.neural.api.Optimizer;
+import de.plath.csc.machinelearning.neural.api.SgdOptimizer;
+
+/**
+ * Built-in optimizers. {@link #sgd(double)} is the update the networks have always used, and
+ * they recognize it by type to apply it fused into back-propagation. The others are applied by
+ * {@link PackedNeuralNetwork} only.
+ *
+ */
+public final class Optimizers {
+
+	private static final double RMSPROP_DECAY = 0.9d;
+	private static final double ADAM_BETA1 = 0.9d;
+	private static final double ADAM_BETA2 = 0.999d;
+	private static final double EPSILON = 1e-8d;
+
+	private Optimizers() {
+	}
+
+	/**
+	 * @param momentum the momentum rate
+	 * @return stochastic gradient descent with momentum, the default of
+	 *         {@link NNParameters.Builder} with its momentum rate
+	 */
+	public static Optimizer sgd(final double momentum) {
+
+		return Optimizer.sgd(momentum);
+	}
+
+	/**
+	 * @param momentum the momentum rate
+	 * @return stochastic gradient descent with Nesterov momentum, which steps along the updated
+	 *         velocity instead of the previous one
+	 */
+	public static Optimizer nesterov(final double momentum) {
+
+		assert (momentum >= 0d && momentum < 1d) : "Momentum must be between 0 and 1.";
+		return new Nesterov(momentum);
+	}
+
+	/**
+	 * @return RMSProp with decay 0.9
+	 */
+	public static Optimizer rmsProp() {
+		return rmsProp(RMSPROP_DECAY, EPSILON);
+	}
+
+	/**
+	 * @param decay   the decay of the mean squared gradient, between 0 and 1
+	 * @param epsilon added to the root mean square to avoid dividing by 0
+	 * @return RMSProp, which divides every gradient by the root of its running mean square
+	 */
+	public static Optimizer rmsProp(final double decay, final double epsilon) {
+
+		assert (decay > 0d && decay < 1d) : "Decay must be between 0 and 1.";
+		return new RmsProp(decay, epsilon);
+	}
+
+	/**
+	 * @return Adam with beta1 0.9 and beta2 0.999
+	 */
+	public static Optimizer adam() {
+		return adam(ADAM_BETA1, ADAM_BETA2, EPSILON);
+	}
+
+	/**
+	 * @param beta1   the decay of the mean gradient, between 0 and 1
+	 * @param beta2   the decay of the mean squared gradient, between 0 and 1
+	 * @param epsilon added to the root mean square to avoid dividing by 0
+	 * @return Adam, which steps along the bias-corrected running mean of the gradient divided by
+	 *         the root of its running mean square
+	 */
+	public static Optimizer adam(final double beta1, final double beta2, final double epsilon) {
+
+		assert (beta1 > 0d && beta1 < 1d) : "Beta1 must be between 0 and 1.";
+		assert (beta2 > 0d && beta2 < 1d) : "Beta2 must be between 0 and 1.";
+		return new Adam(beta1, beta2, epsilon);
+	}
+
+	/**
+	 * @param nnParameters the parameters of an engine that only supports SGD
+	 * @return the momentum rate of the optimizer
+	 * @throws IllegalArgumentException if the optimizer is not {@link #sgd(double)}
+	 */
+	static double getMomentum(final IParameters nnParameters) {
+
+		if (!(nnParameters.getOptimizer() instanceof SgdOptimizer)) {
+			throw new IllegalArgumentException("Only SGD with momentum is supported here, use createPacked().");
+		}
+		return ((SgdOptimizer) nnParameters.getOptimizer()).getMomentum();
+	}
+
+	/**
+	 * @param optimizer the optimizer
+	 * @return the momentum rate of {@link #sgd(double)} and {@link #nesterov(double)}, 0 for
+	 *         the other optimizers
+	 */
+	static double momentumOf(final Optimizer optimizer) {
+
+		if (optimizer instanceof SgdOptimizer) {
+			return ((SgdOptimizer) optimizer).getMomentum();
+		}
+		if (optimizer instanceof Nesterov) {
+			return ((Nesterov) optimizer).getMomentum();
+		}
+		return 0d;
+	}
+
+	static final class Nesterov implements Optimizer {
+
+		private final double momentum;
+
+		private Nesterov(final double momentum) {
+			this.momentum = momentum;
+		}
+
+		protected double getMomentum() {
+			return momentum;
+		}
+
+		@Override
+		public int getStateSize() {
+			return 1;
+		}
+
+		@Override
+		public void update(final double[] gradients,
+				final double[] weights,
+				final double[][] states,
+				final double learningRate,
+				final long step) {
+
+			final double[] velocities = states[0];
+
+			for (int i = 0; i < weights.length; i++) {
+
+				final double delta = learningRate * gradients[i];
+
+				velocities[i] = delta + momentum * velocities[i];
+				weights[i] -= delta + momentum * velocities[i];
+			}
+		}
+	}
+
+	static final class RmsProp implements Optimizer {
+
+		private final double decay;
+		private final double epsilon;
+
+		private RmsProp(final double decay, final double epsilon) {
+			this.decay = decay;
+			this.epsilon = epsilon;
+		}
+
+		@Override
+		public int getStateSize() {
+			return 1;
+		}
+
+		@Override
+		public void update(final double[] gradients,
+				final double[] weights,
+				final double[][] states,
+				final double learningRate,
+				final long step) {
+
+			final double[] squares = states[0];
+
+			for (int i = 0; i < weights.length; i++) {
+
+				final double gradient = gradients[i];
+
+				squares[i] = decay * squares[i] + (1d - decay) * gradient * gradient;
+				weights[i] -= learningRate * gradient / (Math.sqrt(squares[i]) + epsilon);
+			}
+		}
+	}
+
+	static final class Adam implements Optimizer {
+
+		private final double beta1;
+		private final double beta2;
+		private final double epsilon;
+
+		private Adam(final double beta1, final double beta2, final double epsilon) {
+			this.beta1 = beta1;
+			this.beta2 = beta2;
+			this.epsilon = epsilon;
+		}
+
+		@Override
+		public int getStateSize() {
+			return 2;
+		}
+
+		@Override
+		public void update(final double[] gradients,
+				final double[] weights,
+				final double[][] states,
+				final double learningRate,
+				final long step) {
+
+			final double[] means = states[0];
+			final double[] squares = states[1];
+
+			// bias corrections of the moments, which start at 0
+			final double meanCorrection = 1d / (1d - Math.pow(beta1, step));
+			final double squareCorrection = 1d / (1d - Math.pow(beta2, step));
+
+			for (int i = 0; i < weights.length; i++) {
+
+				final double gradient = gradients[i];
+
+				means[i] = beta1 * means[i] + (1d - beta1) * gradient;
+				squares[i] = beta2 * squares[i] + (1d - beta2) * gradient * gradient;
+
+				weights[i] -= learningRate * (means[i] * meanCorrection) / (Math.sqrt(squares[i] * squareCorrection) + epsilon);
+			}
+		}
+	}
+}
@@ -0,0 +1,211 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+import de.plath.csc.machinelearning.neural.api.IParameters;
+
+/**
+ * Back-propagation algorithm with learning rate and momentum over {@link PackedLayer}s. With
+ * {@link Optimizers#sgd(double)} it performs the same updates as {@link Backpropagation};
+ * biases are left untouched.
+ *
+ */
+class PackedBackpropagation {
+
+	private final List<PackedLayer> layers;
+	private final double[][] outputs;
+	private final Kernels kernels;
+	private final WeightUpdate weightUpdate;
+
+	private final DoubleBinaryOperator errorFunction;
+
+	// of the current sample, see WeightUpdate
+	private double momentum;
+	private double learningRate;
+
+	private TrainingTimer timer;
+
+	protected PackedBackpropagation(final List<PackedLayer> layers,
+			final double[][] outputs,
+			final Kernels kernels,
+			final WeightUpdate weightUpdate,
+			final IParameters nnParameters) {
+
+		this.layers = layers;
+		this.outputs = outputs;
+		this.kernels = kernels;
+		this.weightUpdate = weightUpdate;
+
+		this.errorFunction = nnParameters.getErrorOperator();
+	}
+
+	/**
+	 * Updates the weights for one sample, based on the outputs of the preceding forward pass
+	 *
+	 * @param targets the expected outputs of the output layer
+	 * @return the mean error of the output layer before the update
+	 */
+	protected double apply(final double[] targets) {
+
+		final double error = calculateDeltas(targets);
+		updateWeights();
+
+		return error;
+	}
+
+	/**
+	 * @param timer measures the phases per layer, or {@code null}
+	 */
+	protected void setTimer(final TrainingTimer timer) {
+		this.timer = timer;
+	}
+
+	/**
+	 * Calculates the deltas for one sample, based on the outputs of the preceding forward pass
+	 *
+	 * @param targets the expected outputs of the output layer
+	 * @return the mean error of the output layer
+	 */
+	protected double calculateDeltas(final double[] targets) {
+		return calculateDeltas(targets, null, 0);
+	}
+
+	/**
+	 * Calculates the deltas for one sparse sample like {@link #calculateDeltas(double[])}, but
+	 * only for the weights of its non-zero inputs in the first layer. Those of the other inputs
+	 * keep their values and are caught up by {@link WeightUpdate}.
+	 *
+	 * @param targets the expected outputs of the output layer
+	 * @param columns the indices of the non-zero inputs, or {@code null} for a dense sample
+	 * @param count   the number of non-zero inputs
+	 * @return the mean error of the output layer
+	 */
+	protected double calculateDeltas(final double[] targets, final int[] columns, final int count) {
+
+		momentum = weightUpdate.getMomentum();
+		learningRate = weightUpdate.getDeltaRate();
+
+		long start = timer != null ? System.nanoTime() : 0L;
+
+		final double error = calculateDeltasOfOutputLayer(targets, columns, count);
+
+		if (timer != null) {
+			start = timer.backward(layers.size() - 1, start);
+		}
+
+		for (int layer = layers.size() - 2; layer >= 0; layer--) {
+
+			calculateDeltasOfOneHiddenLayer(layer, columns, count);
+
+			if (timer != null) {
+				start = timer.backward(layer, start);
+			}
+		}
+		return error;
+	}
+
+	/**
+	 * Applies the deltas calculated last to the weights
+	 */
+	protected void updateWeights() {
+		weightUpdate.apply(layers, kernels, timer);
+	}
+
+	/**
+	 * Applies the deltas of a sparse sample calculated last to the weights
+	 *
+	 * @param columns the indices of the non-zero inputs
+	 * @param count   the number of non-zero inputs
+	 */
+	protected void updateWeights(final int[] columns, final int count) {
+		weightUpdate.apply(layers, kernels, columns, count, timer);
+	}
+
+	private double calculateDeltasOfOutputLayer(final double[] targets, final int[] columns, final int count) {
+
+		final int layerIndex = layers.size() - 1;
+		final PackedLayer outputLayer = layers.get(layerIndex);
+
+		final double[] previousOutputs = outputs[layerIndex];
+		final double[] layerOutputs = outputs[layerIndex + 1];
+		final int previousSize = outputLayer.getInputSize();
+		final boolean sparse = layerIndex == 0 && columns != null;
+		final int columnCount = sparse ? count : previousSize;
+
+		final double[] deltas = outputLayer.getDeltas();
+		final double[] deltaWeights = outputLayer.getDeltaWeights();
+
+		double error = 0d;
+
+		for (int o = 0; o < outputLayer.getSize(); o++) {
+
+			final double out = layerOutputs[o];
+			final double errorSignal = out - targets[o];
+			final double gradient = learningRate * errorSignal * outputLayer.getActivation().derivative(out);
+
+			final int row = o * previousSize;
+
+			for (int c = 0; c < columnCount; c++) {
+
+				final int p = sparse ? columns[c] : c;
+				final double delta = gradient * previousOutputs[p];
+
+				deltas[row + p] = delta;
+				deltaWeights[row + p] = delta + momentum * deltaWeights[row + p];
+			}
+
+			error += errorFunction.applyAsDouble(out, targets[o]);
+		}
+		return error / outputLayer.getSize();
+	}
+
+	private void calculateDeltasOfOneHiddenLayer(final int layerIndex, final int[] columns, final int count) {
+
+		final PackedLayer hiddenLayer = layers.get(layerIndex);
+		final PackedLayer nextLayer = layers.get(layerIndex + 1);
+
+		final double[] previousOutputs = outputs[layerIndex];
+		final double[] hiddenOutputs = outputs[layerIndex + 1];
+		final double[] nextOutputs = outputs[layerIndex + 2];
+
+		final int previousSize = hiddenLayer.getInputSize();
+		final int hiddenSize = hiddenLayer.getSize();
+		final boolean sparse = layerIndex == 0 && columns != null;
+		final int columnCount = sparse ? count : previousSize;
+
+		final double[] deltas = hiddenLayer.getDeltas();
+		final double[] deltaWeights = hiddenLayer.getDeltaWeights();
+		final double[] nextWeights = nextLayer.getWeights();
+		final double[] nextDeltas = nextLayer.getDeltas();
+		// like Backpropagation, the last hidden layer's derivative is applied to the outputs
+		final Activation nextActivation = layerIndex + 1 < layers.size() - 1 ? nextLayer.getActivation() : hiddenLayer.getActivation();
+
+		for (int h = 0; h < hiddenSize; h++) {
+
+			double totalOutput = 0d;
+
+			for (int n = 0; n < nextLayer.getSize(); n++) {
+
+				final double errorSignal = nextWeights[n * hiddenSize + h] * nextDeltas[n * hiddenSize + h];
+
+				totalOutput += errorSignal * nextActivation.derivative(nextOutputs[n]);
+			}
+
+			final double gradient = learningRate * totalOutput;
+			final double derivative = hiddenLayer.getActivation().derivative(hiddenOutputs[h]);
+
+			final int row = h * previousSize;
+
+			for (int c = 0; c < columnCount; c++) {
+
+				final int p = sparse ? columns[c] : c;
+				final double delta = gradient * (derivative * previousOutputs[p]);
+
+				deltas[row + p] = delta;
+				deltaWeights[row + p] = delta + momentum * deltaWeights[row + p];
+			}
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.List;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+
+
+class PackedFeedForward {
+
+	private final Activation inputActivation;
+	private final int inputLayerSize;
+	private final List<PackedLayer> layers;
+	private final Kernels kernels;
+
+	private final double[][] outputs;
+
+	private TrainingTimer timer;
+
+	protected PackedFeedForward(final Activation inputActivation,
+			final int inputLayerSize,
+			final List<PackedLayer> layers,
+			final Kernels kernels) {
+
+		this.inputActivation = inputActivation;
+		this.inputLayerSize = inputLayerSize;
+		this.layers = layers;
+		this.kernels = kernels;
+
+		outputs = createOutputs();
+	}
+
+	/**
+	 * Feeds the input through the network, keeping the outputs of every layer for
+	 * back-propagation in {@link #getOutputs()}
+	 *
+	 * @param input the input of the network
+	 */
+	protected void apply(final double[] input) {
+
+		feedInputLayer(input, outputs);
+		feedLayers(outputs, timer);
+	}
+
+	/**
+	 * Feeds the input through the network, writing the outputs of every layer to the given
+	 * buffers only. Several threads can use this at the same time, as long as each passes its
+	 * own buffers.
+	 *
+	 * @param input   the input of the network
+	 * @param outputs buffers created by {@link #createOutputs()}
+	 */
+	protected void apply(final double[] input, final double[][] outputs) {
+
+		feedInputLayer(input, outputs);
+		feedLayers(outputs, null);
+	}
+
+	/**
+	 * Feeds a sparse input through the network like {@link #apply(double[])}, touching only the
+	 * weights of the non-zero inputs in the first layer. Only valid if the input activation
+	 * maps 0 to 0; the input layer outputs are only written at the given indices.
+	 *
+	 * @param indices the indices of the non-zero inputs
+	 * @param values  the non-zero inputs
+	 * @param count   the number of non-zero inputs
+	 */
+	protected void apply(final int[] indices, final double[] values, final int count) {
+
+		long start = timer != null ? System.nanoTime() : 0L;
+
+		feedSparseInputLayer(indices, values, 0, count, outputs);
+
+		if (timer != null) {
+			start = timer.forward(0, start);
+		}
+		feedLayers(outputs, timer, 1, start);
+	}
+
+	/**
+	 * Feeds a sparse input through the network like {@link #apply(int[], double[], int)},
+	 * writing the outputs of every layer to the given buffers only
+	 *
+	 * @param indices the indices of the non-zero inputs
+	 * @param values  the non-zero inputs
+	 * @param from    the index of the first non-zero input of the sample
+	 * @param to      the index after the last non-zero input of the sample
+	 * @param outputs buffers created by {@link #createOutputs()}
+	 */
+	protected void apply(final int[] indices, final double[] values, final int from, final int to, final double[][] outputs) {
+
+		feedSparseInputLayer(indices, values, from, to, outputs);
+		feedLayers(outputs, null, 1, 0L);
+	}
+
+	/**
+	 * @param timer measures {@link #apply(double[])} per layer, or {@code null}
+	 */
+	protected void setTimer(final TrainingTimer timer) {
+		this.timer = timer;
+	}
+
+	/**
+	 * @return buffers for the outputs of the input layer at index 0, followed by those of every
+	 *         hidden layer and of the output layer
+	 */
+	protected double[][] createOutputs() {
+
+		final double[][] buffers = new double[layers.size() + 1][];
+		buffers[0] = new double[inputLayerSize];
+		for (int layer = 0; layer < layers.size(); layer++) {
+			buffers[layer + 1] = new double[layers.get(layer).getSize()];
+		}
+		return buffers;
+	}
+
+	/**
+	 * @return the outputs of the input layer at index 0, followed by those of every hidden
+	 *         layer and of the output layer
+	 */
+	protected double[][] getOutputs() {
+		return outputs;
+	}
+
+	private void feedInputLayer(final double[] input, final double[][] outputs) {
+
+		// an input neuron sums its single synapse, which turns -0.0 into 0.0
+		for (int i = 0; i < input.length; i++) {
+			outputs[0][i] = input[i] + 0d;
+		}
+		kernels.apply(inputActivation, outputs[0], 0, input.length);
+	}
+
+	/**
+	 * Activates the non-zero inputs and feeds them through the first layer, summing like
+	 * {@link ScalarKernels#multiplyVector} but without the zero products
+	 */
+	private void feedSparseInputLayer(final int[] indices,
+			final double[] values,
+			final int from,
+			final int to,
+			final double[][] outputs) {
+
+		final PackedLayer layer = layers.get(0);
+		final double[] weights = layer.getWeights();
+		final double[] biases = layer.getBiases();
+
+		for (int i = from; i < to; i++) {
+			outputs[0][indices[i]] = inputActivation.applyAsDouble(values[i] + 0d);
+		}
+
+		for (int row = 0; row < layer.getSize(); row++) {
+
+			final int offset = row * inputLayerSize;
+			final CompensatedSum sum = new CompensatedSum();
+
+			for (int i = from; i < to; i++) {
+				sum.add(weights[offset + indices[i]] * outputs[0][indices[i]]);
+			}
+			sum.add(biases[row]);
+
+			outputs[1][row] = sum.getSum();
+		}
+		kernels.apply(layer.getActivation(), outputs[1], 0, layer.getSize());
+	}
+
+	private void feedLayers(final double[][] outputs, final TrainingTimer layerTimer) {
+		feedLayers(outputs, layerTimer, 0, layerTimer != null ? System.nanoTime() : 0L);
+	}
+
+	private void feedLayers(final double[][] outputs, final TrainingTimer layerTimer, final int first, final long from) {
+
+		long start = from;
+
+		for (int l = first; l < layers.size(); l++) {
+
+			final PackedLayer layer = layers.get(l);
+
+			kernels.multiplyVector(layer.getWeights(), layer.getBiases(), outputs[l], outputs[l + 1],
+					layer.getSize(), layer.getInputSize());
+			kernels.apply(layer.getActivation(), outputs[l + 1], 0, layer.getSize());
+
+			if (layerTimer != null) {
+				start = layerTimer.forward(l, start);
+			}
+		}
+	}
+}
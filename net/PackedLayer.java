@@ -0,0 +1,150 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+
+/**
+ * Fully connected layer which keeps its weights, biases, deltas and momentum terms in
+ * contiguous, row-major arrays. Row {@code n} of {@link #getWeights()} holds the weights of
+ * the synapses feeding neuron {@code n}. The computations on these arrays are done by
+ * {@link Kernels}.
+ *
+ */
+class PackedLayer {
+
+	private final int inputSize;
+	private final int size;
+
+	private final double[] weights;
+	private final double[] biases;
+	private final double[] deltas;
+	private final double[] deltaWeights;
+
+	private final Activation activation;
+
+	// parallel to the weights, allocated by the first update of an optimizer
+	private double[][] optimizerStates = new double[0][];
+
+	// the indices of the weights removed by Pruner, in ascending order
+	private int[] prunedWeights = new int[0];
+
+	protected PackedLayer(final int inputSize,
+			final int size,
+			final Activation activation) {
+
+		this.inputSize = inputSize;
+		this.size = size;
+
+		this.weights = new double[size * inputSize];
+		this.biases = new double[size];
+		this.deltas = new double[size * inputSize];
+		this.deltaWeights = new double[size * inputSize];
+
+		this.activation = Objects.requireNonNull(activation, "Activation is null.");
+	}
+
+	/**
+	 * Draws the initial weights in the same order as {@link NetworkLayers}: the weights of a
+	 * neuron first, then its bias.
+	 *
+	 * @param initializationFunction the initialization of weights function
+	 */
+	protected void initialize(final Function<Integer, Double> initializationFunction) {
+
+		for (int neuron = 0; neuron < size; neuron++) {
+
+			final int row = neuron * inputSize;
+
+			for (int input = 0; input < inputSize; input++) {
+				weights[row + input] = initializationFunction.apply(inputSize);
+			}
+			biases[neuron] = initializationFunction.apply(inputSize);
+		}
+	}
+
+	protected int getInputSize() {
+		return inputSize;
+	}
+
+	protected int getSize() {
+		return size;
+	}
+
+	protected double[] getWeights() {
+		return weights;
+	}
+
+	protected double[] getBiases() {
+		return biases;
+	}
+
+	protected double[] getDeltas() {
+		return deltas;
+	}
+
+	protected double[] getDeltaWeights() {
+		return deltaWeights;
+	}
+
+	protected Activation getActivation() {
+		return activation;
+	}
+
+	/**
+	 * @return the indices of the pruned weights, in ascending order
+	 */
+	protected int[] getPrunedWeights() {
+		return prunedWeights;
+	}
+
+	/**
+	 * Removes weights for good: they are set to 0 now and after every update
+	 *
+	 * @param indices the indices of the weights to remove, including those removed before, in
+	 *                ascending order
+	 */
+	protected void setPrunedWeights(final int[] indices) {
+
+		prunedWeights = indices;
+		applyPruning();
+	}
+
+	/**
+	 * Resets the pruned weights and their momentum terms to 0
+	 */
+	protected void applyPruning() {
+
+		for (final int i : prunedWeights) {
+			weights[i] = 0d;
+			deltaWeights[i] = 0d;
+		}
+	}
+
+	/**
+	 * @return the state arrays of the optimizer, none before its first update
+	 */
+	protected double[][] getOptimizerStates() {
+		return optimizerStates;
+	}
+
+	/**
+	 * @param optimizerStates the state arrays of the optimizer, parallel to the weights
+	 */
+	protected void setOptimizerStates(final double[][] optimizerStates) {
+		this.optimizerStates = Objects.requireNonNull(optimizerStates, "Optimizer states are null.");
+	}
+
+	/**
+	 * @param count the number of state arrays of the optimizer
+	 * @return the state arrays of the optimizer, parallel to the weights
+	 */
+	protected double[][] getOptimizerStates(final int count) {
+
+		if (optimizerStates.length != count) {
+			optimizerStates = new double[count][weights.length];
+		}
+		return optimizerStates;
+	}
+}
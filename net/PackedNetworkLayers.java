@@ -0,0 +1,86 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import de.plath.csc.machinelearning.neural.api.IParameters;
+
+/**
+ *
+ * Initializes and connects the layers of a {@link PackedNeuralNetwork}
+ */
+public class PackedNetworkLayers {
+
+	// the layer object and the headers of its four arrays, for the construction event
+	private static final long LAYER_BYTES = 32 + 4 * 16;
+
+	private final IParameters nnParameters;
+
+	private final ConstructionEvent constructionEvent = new ConstructionEvent();
+
+	private final List<PackedLayer> layers = new ArrayList<>();
+
+	/**
+	 * @param nnParameters the parameters of the Neural Network
+	 */
+	public PackedNetworkLayers(final IParameters nnParameters) {
+		this.nnParameters = Objects.requireNonNull(nnParameters);
+	}
+
+	/**
+	 * Initialize the hidden and output layers
+	 */
+	public void initializeLayers() {
+
+		constructionEvent.begin();
+
+		int previousLayerSize = nnParameters.getInputLayerSize();
+
+		// the hidden layers followed by the output layer
+		for (int l = 0; l <= nnParameters.getNumberOfHiddenLayers(); l++) {
+
+			layers.add(new PackedLayer(previousLayerSize,
+					nnParameters.getLayerSize(l),
+					nnParameters.getLayerActivation(l)));
+
+			previousLayerSize = nnParameters.getLayerSize(l);
+		}
+	}
+
+	/**
+	 * Fully connect the layers
+	 */
+	public void connectLayers() {
+		for (int l = 0; l < layers.size(); l++) {
+			layers.get(l).initialize(nnParameters.getLayerInitializationFunction(l));
+		}
+
+		if (constructionEvent.shouldCommit()) {
+			commitConstructionEvent();
+		}
+	}
+
+	public List<PackedLayer> getLayers() {
+		return layers;
+	}
+
+	private void commitConstructionEvent() {
+
+		long neurons = nnParameters.getInputLayerSize();
+		long synapses = 0;
+		long heap = 0;
+
+		for (final PackedLayer layer : layers) {
+
+			final long weights = (long) layer.getSize() * layer.getInputSize();
+
+			neurons += layer.getSize();
+			synapses += weights + layer.getSize();
+			// weights, deltas and momentum terms, and biases
+			heap += LAYER_BYTES + (3 * weights + layer.getSize()) * Double.BYTES;
+		}
+
+		constructionEvent.commit(PackedNeuralNetwork.class.getSimpleName(), neurons, synapses, heap);
+	}
+}
@@ -0,0 +1,567 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import de.plath.csc.machinelearning.neural.api.INeuralNetwork;
+import de.plath.csc.machinelearning.neural.api.IParameters;
+import de.plath.csc.machinelearning.neural.api.SparseTrainingSource;
+import de.plath.csc.machinelearning.neural.api.TrainingListener;
+import de.plath.csc.machinelearning.neural.api.TrainingSource;
+
+/**
+ * A feed-forward, fully connected Artificial Neural Network for classification, with
+ * back-propagation learning, whose layers are stored in contiguous primitive arrays instead
+ * of a graph of {@link Neuron} and {@link Synapse} objects. Given the same parameters it
+ * produces the same results as {@link NeuralNetwork}.
+ * <p>
+ * {@link #getOutput(List)} keeps its intermediate results in per-call buffers, so any number
+ * of threads can score on a trained network without locking. Learning must not run at the
+ * same time.
+ * <p>
+ * With {@link NNParameters.Builder#setVectorized(boolean)} the products run on the Vector
+ * API, and the results are no longer identical to those of {@link NeuralNetwork}.
+ *
+ */
+public class PackedNeuralNetwork implements INeuralNetwork {
+
+	private final IParameters nnParameters;
+
+	private final int inputLayerSize;
+	private final int outputLayerSize;
+
+	private final PackedFeedForward feedForward;
+	private final PackedBackpropagation backPropagation;
+
+	private final List<PackedLayer> layers;
+	private final Kernels kernels;
+	private final WeightUpdate weightUpdate;
+
+	private final int batchSize;
+	private final double[] batchInputs;
+	private final BatchFeedForward batchFeedForward;
+	private final BatchBackpropagation batchBackPropagation;
+	private ParallelBatchTrainer parallelBatchTrainer;
+	private TrainingTimer timer;
+
+	private final double[] input;
+	private final double[] binaryTargets;
+	private long epochSamples;
+	private double learningError;
+	private double validationError = Double.NaN;
+
+	/**
+	 * C'tor
+	 *
+	 * @param nnParameters the parameters of the neural net
+	 * @param layers       hidden layers followed by the output layer of the neural net
+	 *
+	 */
+	public PackedNeuralNetwork(final IParameters nnParameters, final List<PackedLayer> layers) {
+
+		this.nnParameters = Objects.requireNonNull(nnParameters);
+		this.layers = Objects.requireNonNull(layers);
+
+		inputLayerSize = nnParameters.getInputLayerSize();
+		outputLayerSize = layers.get(layers.size() - 1).getSize();
+
+		kernels = Kernels.create(nnParameters.isVectorized());
+		weightUpdate = new WeightUpdate(nnParameters);
+
+		feedForward = new PackedFeedForward(nnParameters.getActivation(), inputLayerSize, layers, kernels);
+		backPropagation = new PackedBackpropagation(layers, feedForward.getOutputs(), kernels, weightUpdate, nnParameters);
+
+		batchSize = nnParameters.getBatchSize();
+		assert (batchSize > 0) : "Batch size must be greater than 0.";
+
+		if (batchSize > 1) {
+			batchInputs = new double[batchSize * inputLayerSize];
+			batchFeedForward = new BatchFeedForward(nnParameters.getActivation(), inputLayerSize, layers, kernels, batchSize);
+			batchBackPropagation = new BatchBackpropagation(layers, batchFeedForward.getOutputs(), kernels, weightUpdate, nnParameters, batchSize);
+		} else {
+			batchInputs = null;
+			batchFeedForward = null;
+			batchBackPropagation = null;
+		}
+
+		input = new double[inputLayerSize];
+		binaryTargets = new double[batchSize * outputLayerSize];
+	}
+
+	@Override
+	public void learn(final List<List<Double>> trainingData, final List<Integer> targets) {
+
+		Objects.requireNonNull(trainingData, "Training data is null");
+		assert (!trainingData.isEmpty()) : "Training data cannot be empty";
+		assert (inputLayerSize == trainingData.get(0).size()) : "Size of inputs must match the size of the input layer.";
+		assert (targets.stream().noneMatch(target -> target < 0)) : "Labels must be integers greater than or equal to 0.";
+
+		learn(new ListTrainingSource(trainingData, targets, inputLayerSize));
+	}
+
+	@Override
+	public void learn(final TrainingSource trainingSource) {
+		learn(trainingSource, nnParameters.getTrainingListener());
+	}
+
+	@Override
+	public void learn(final TrainingSource trainingSource, final TrainingListener listener) {
+
+		Objects.requireNonNull(trainingSource, "Training source is null");
+		assert (inputLayerSize == trainingSource.getInputSize()) : "Size of inputs must match the size of the input layer.";
+
+		if (batchSize > 1 && nnParameters.getParallelism() > 0) {
+			parallelBatchTrainer = new ParallelBatchTrainer(inputLayerSize, layers, kernels, weightUpdate, nnParameters);
+		}
+
+		learnEpochs(() -> {
+			try (TrainingSource.Reader reader = trainingSource.open()) {
+				return batchSize > 1 ? learnEpochInBatches(reader) : learnEpoch(reader);
+			}
+		}, listener);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If the input activation maps 0 to 0 and the network learns per sample with
+	 * {@link Optimizers#sgd(double)}, the first layer only computes and updates the weights of
+	 * the non-zero inputs of a sample, and the momentum steps the other weights miss are caught
+	 * up when their input is non-zero again and at the end of every epoch. The results can
+	 * differ from those of dense samples in the last bits. Otherwise the samples are learned
+	 * as dense inputs.
+	 */
+	@Override
+	public void learn(final SparseTrainingSource trainingSource) {
+
+		Objects.requireNonNull(trainingSource, "Training source is null");
+		assert (inputLayerSize == trainingSource.getInputSize()) : "Size of inputs must match the size of the input layer.";
+
+		if (batchSize > 1 || !weightUpdate.isFused() || !isSparseInput()) {
+			learn(trainingSource.toDense());
+			return;
+		}
+
+		final int[] indices = new int[inputLayerSize];
+		final double[] values = new double[inputLayerSize];
+
+		learnEpochs(() -> {
+			try (SparseTrainingSource.Reader reader = trainingSource.open()) {
+				return learnSparseEpoch(reader, indices, values);
+			}
+		}, nnParameters.getTrainingListener());
+	}
+
+	private void learnEpochs(final EpochLearner epochLearner, final TrainingListener listener) {
+
+		final EarlyStopping earlyStopping = nnParameters.getValidationSource() != null
+				? new EarlyStopping(nnParameters, layers, weightUpdate)
+				: null;
+
+		setTimer(TrainingTimer.of(listener, layers.size()));
+		int epoch = 0;
+
+		try {
+			while (epoch < nnParameters.getEpochs()) {
+
+				epoch++;
+
+				final EpochEvent epochEvent = new EpochEvent();
+				epochEvent.begin();
+
+				weightUpdate.startEpoch(epoch);
+
+				if (timer != null) {
+					timer.startEpoch(epoch);
+				}
+
+				final double epochErrors = epochLearner.learnEpoch();
+				if (epochSamples == 0) {
+					throw new IllegalArgumentException("The training source has no samples.");
+				}
+				learningError = epochErrors / epochSamples;
+
+				final double epochValidationError = earlyStopping != null ? earlyStopping.validate(this) : Double.NaN;
+				final boolean stop = earlyStopping != null && earlyStopping.update(epoch, epochValidationError, learningError, layers);
+
+				epochEvent.commit(this, epoch, epochSamples, learningError);
+
+				if (timer != null) {
+					timer.finishEpoch(epochSamples, learningError, epochValidationError);
+					listener.onEpoch(timer);
+				}
+
+				if (stop) {
+					break;
+				}
+			}
+
+			if (earlyStopping != null) {
+				earlyStopping.restoreBest(epoch, layers);
+				validationError = earlyStopping.getBestError();
+
+				if (earlyStopping.getBestEpoch() > 0) {
+					learningError = earlyStopping.getBestLearningError();
+				}
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			setTimer(null);
+
+			if (parallelBatchTrainer != null) {
+				parallelBatchTrainer.close();
+				parallelBatchTrainer = null;
+			}
+		}
+	}
+
+	@Override
+	public List<Double> getOutput(final List<Double> input) {
+
+		Objects.requireNonNull(input, "input is null");
+		assert (inputLayerSize == input.size()) : "Size of input must match the size of the input layer.";
+
+		final double[] inputData = new double[inputLayerSize];
+		copyInput(input, inputData, 0);
+
+		final double[][] layerOutputs = feedForward.createOutputs();
+		feedForward.apply(inputData, layerOutputs);
+
+		final double[] outputs = layerOutputs[layerOutputs.length - 1];
+		final List<Double> output = new ArrayList<>(outputs.length);
+		for (final double out : outputs) {
+			output.add(out);
+		}
+		return output;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The samples are fed through the layers in blocks, one matrix-matrix product per layer and
+	 * block, and large batches are split into chunks which are scored in parallel. The
+	 * products are not compensated, so results can differ from {@link #getOutput(List)} in
+	 * the last bits.
+	 */
+	@Override
+	public void getOutputs(final double[] inputs, final double[] outputs) {
+
+		Objects.requireNonNull(inputs, "inputs are null");
+		Objects.requireNonNull(outputs, "outputs are null");
+		assert (inputs.length % inputLayerSize == 0) : "Size of inputs must be a multiple of the size of the input layer.";
+		assert (outputs.length == inputs.length / inputLayerSize * outputLayerSize) : "Size of outputs must match the number of inputs.";
+
+		getOutputs(inputs, outputs, inputs.length / inputLayerSize);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If the input activation maps 0 to 0, the first layer only multiplies the weights of the
+	 * non-zero inputs, and large batches are split into chunks which are scored in parallel.
+	 */
+	@Override
+	public void getOutputs(final int[] offsets, final int[] indices, final double[] values, final double[] outputs) {
+
+		Objects.requireNonNull(offsets, "offsets are null");
+		Objects.requireNonNull(indices, "indices are null");
+		Objects.requireNonNull(values, "values are null");
+		Objects.requireNonNull(outputs, "outputs are null");
+		assert (outputs.length == (offsets.length - 1) * outputLayerSize) : "Size of outputs must match the number of rows.";
+
+		if (!isSparseInput()) {
+			INeuralNetwork.super.getOutputs(offsets, indices, values, outputs);
+			return;
+		}
+
+		final int samples = offsets.length - 1;
+
+		final InferenceEvent inferenceEvent = new InferenceEvent();
+		inferenceEvent.begin();
+
+		BatchInference.score(samples, (first, count) -> scoreSparseChunk(offsets, indices, values, outputs, first, count));
+
+		inferenceEvent.commit(this, samples);
+	}
+
+	/**
+	 * Scores the first samples of the inputs like {@link #getOutputs(double[], double[])}
+	 *
+	 * @param inputs  the inputs, one row per sample
+	 * @param outputs the outputs, one row per sample
+	 * @param samples the number of samples to score
+	 */
+	protected void getOutputs(final double[] inputs, final double[] outputs, final int samples) {
+
+		final InferenceEvent inferenceEvent = new InferenceEvent();
+		inferenceEvent.begin();
+
+		BatchInference.score(samples, (first, count) -> scoreChunk(inputs, outputs, first, count));
+
+		inferenceEvent.commit(this, samples);
+	}
+
+	@Override
+	public int getInputLayerSize() {
+		return inputLayerSize;
+	}
+
+	@Override
+	public int getOutputLayerSize() {
+		return outputLayerSize;
+	}
+
+	/**
+	 * @return the mean error over the samples of the last training epoch, or of the epoch whose
+	 *         weights early stopping restored, measured during the forward pass of each sample
+	 */
+	public double getLearningError() {
+		return learningError;
+	}
+
+	/**
+	 * @return the lowest validation error of the last training, which belongs to the restored
+	 *         weights, or {@code NaN} without validation samples
+	 */
+	public double getValidationError() {
+		return validationError;
+	}
+
+	protected IParameters getParameters() {
+		return nnParameters;
+	}
+
+	protected List<PackedLayer> getLayers() {
+		return layers;
+	}
+
+	private void scoreChunk(final double[] inputs, final double[] outputs, final int first, final int samples) {
+
+		if (samples == 0) {
+			return;
+		}
+
+		final BatchFeedForward blockFeedForward = new BatchFeedForward(nnParameters.getActivation(),
+				inputLayerSize, layers, kernels, Math.min(BatchInference.BLOCK_SIZE, samples));
+		final double[] blockOutputs = blockFeedForward.getOutputs()[layers.size()];
+
+		for (int block = first; block < first + samples; block += BatchInference.BLOCK_SIZE) {
+
+			final int count = Math.min(BatchInference.BLOCK_SIZE, first + samples - block);
+
+			blockFeedForward.apply(inputs, block, count);
+			System.arraycopy(blockOutputs, 0, outputs, block * outputLayerSize, count * outputLayerSize);
+		}
+	}
+
+	/**
+	 * @return whether the input activation maps 0 to 0, so that zero inputs contribute nothing
+	 */
+	private boolean isSparseInput() {
+		return nnParameters.getActivation().applyAsDouble(0d) == 0d;
+	}
+
+	private void scoreSparseChunk(final int[] offsets,
+			final int[] indices,
+			final double[] values,
+			final double[] outputs,
+			final int first,
+			final int samples) {
+
+		final double[][] sampleOutputs = feedForward.createOutputs();
+		final double[] lastOutputs = sampleOutputs[layers.size()];
+
+		for (int sample = first; sample < first + samples; sample++) {
+
+			feedForward.apply(indices, values, offsets[sample], offsets[sample + 1], sampleOutputs);
+			System.arraycopy(lastOutputs, 0, outputs, sample * outputLayerSize, outputLayerSize);
+		}
+	}
+
+	private double learnSparseEpoch(final SparseTrainingSource.Reader reader,
+			final int[] indices,
+			final double[] values) throws IOException {
+
+		final PackedLayer firstLayer = layers.get(0);
+
+		double errors = 0d;
+		epochSamples = 0;
+
+		int count;
+		while ((count = reader.next(indices, values)) >= 0) {
+
+			extractBinaryTarget(reader.getTarget(), 0);
+			weightUpdate.catchUp(firstLayer, indices, count);
+
+			errors += timer != null ? learnSparseSample(indices, values, count, timer) : learnSparseSample(indices, values, count);
+			epochSamples++;
+		}
+
+		weightUpdate.catchUp(firstLayer);
+		return errors;
+	}
+
+	private double learnSparseSample(final int[] indices, final double[] values, final int count) {
+
+		feedForward.apply(indices, values, count);
+
+		final double error = backPropagation.calculateDeltas(binaryTargets, indices, count);
+		backPropagation.updateWeights(indices, count);
+
+		return error;
+	}
+
+	private double learnSparseSample(final int[] indices, final double[] values, final int count, final TrainingTimer sampleTimer) {
+
+		final long start = System.nanoTime();
+
+		feedForward.apply(indices, values, count);
+		final long forwardEnd = sampleTimer.forward(start);
+
+		final double error = backPropagation.calculateDeltas(binaryTargets, indices, count);
+		final long backwardEnd = sampleTimer.backward(forwardEnd);
+
+		backPropagation.updateWeights(indices, count);
+		sampleTimer.update(backwardEnd);
+
+		return error;
+	}
+
+	private double learnEpoch(final TrainingSource.Reader reader) throws IOException {
+
+		double errors = 0d;
+		epochSamples = 0;
+
+		while (reader.next(input, 0)) {
+
+			extractBinaryTarget(reader.getTarget(), 0);
+			errors += timer != null ? learnSample(timer) : learnSample();
+			epochSamples++;
+		}
+		return errors;
+	}
+
+	private double learnSample() {
+
+		feedForward.apply(input);
+		return backPropagation.apply(binaryTargets);
+	}
+
+	private double learnSample(final TrainingTimer sampleTimer) {
+
+		final long start = System.nanoTime();
+
+		feedForward.apply(input);
+		final long forwardEnd = sampleTimer.forward(start);
+
+		final double error = backPropagation.calculateDeltas(binaryTargets);
+		final long backwardEnd = sampleTimer.backward(forwardEnd);
+
+		backPropagation.updateWeights();
+		sampleTimer.update(backwardEnd);
+
+		return error;
+	}
+
+	private double learnEpochInBatches(final TrainingSource.Reader reader) throws IOException {
+
+		double errors = 0d;
+		int samples = 0;
+		epochSamples = 0;
+
+		while (reader.next(batchInputs, samples * inputLayerSize)) {
+
+			extractBinaryTarget(reader.getTarget(), samples * outputLayerSize);
+			epochSamples++;
+
+			if (++samples == batchSize) {
+				errors += learnBatch(samples);
+				samples = 0;
+			}
+		}
+
+		if (samples > 0) {
+			errors += learnBatch(samples);
+		}
+		return errors;
+	}
+
+	private double learnBatch(final int samples) {
+
+		if (parallelBatchTrainer != null) {
+			return parallelBatchTrainer.apply(batchInputs, binaryTargets, samples);
+		}
+
+		if (timer != null) {
+			return learnBatch(samples, timer);
+		}
+
+		batchFeedForward.apply(batchInputs, 0, samples);
+		return batchBackPropagation.apply(binaryTargets, samples);
+	}
+
+	private double learnBatch(final int samples, final TrainingTimer batchTimer) {
+
+		final long start = System.nanoTime();
+
+		batchFeedForward.apply(batchInputs, 0, samples);
+		final long forwardEnd = batchTimer.forward(start);
+
+		final double error = batchBackPropagation.calculateDeltas(binaryTargets, samples);
+		final long backwardEnd = batchTimer.backward(forwardEnd);
+
+		batchBackPropagation.updateWeights(samples);
+		batchTimer.update(backwardEnd);
+
+		return error;
+	}
+
+	/**
+	 * Hands the timer to the training, and only to the layer loops if it measures every layer
+	 */
+	private void setTimer(final TrainingTimer trainingTimer) {
+
+		timer = trainingTimer;
+
+		final TrainingTimer layerTimer = TrainingTimer.detailed(trainingTimer);
+
+		feedForward.setTimer(layerTimer);
+		backPropagation.setTimer(layerTimer);
+
+		if (batchSize > 1) {
+			batchFeedForward.setTimer(layerTimer);
+			batchBackPropagation.setTimer(layerTimer);
+		}
+		if (parallelBatchTrainer != null) {
+			parallelBatchTrainer.setTimer(trainingTimer);
+		}
+	}
+
+	private void copyInput(final List<Double> inputData, final double[] destination, final int offset) {
+
+		for (int i = 0; i < inputLayerSize; i++) {
+			destination[offset + i] = inputData.get(i);
+		}
+	}
+
+	private void extractBinaryTarget(final int target, final int offset) {
+
+		for (int i = 0; i < outputLayerSize; i++) {
+			binaryTargets[offset + i] = i == target ? 1d : 0d;
+		}
+	}
+
+	/**
+	 *
+	 * Learns one epoch and returns the sum of the errors of its samples
+	 */
+	@FunctionalInterface
+	private interface EpochLearner {
+
+		double learnEpoch() throws IOException;
+	}
+}
@@ -0,0 +1,219 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import de.plath.csc.machinelearning.neural.api.IParameters;
+
+/**
+ * Data-parallel mini-batch training of {@link PackedLayer}s on a {@link ForkJoinPool}. A batch
+ * is split into shards whose boundaries only depend on the batch size. Every shard has its own
+ * activation and delta buffers, and the summed deltas of the shards are reduced along a fixed
+ * binary tree before the single weight update of the batch. The weights after training are
+ * therefore the same for any parallelism.
+ * <p>
+ * The summed deltas are as large as the weights. They are not kept per shard but taken from
+ * a pool by the nodes of the tree while they are calculated, and the sums of a right subtree
+ * are returned once they have been added to its left sibling. The pool only grows to the
+ * number of sums alive at the same time, about the parallelism times the depth of the tree.
+ * <p>
+ * With a {@link TrainingTimer}, the forward and backward times are summed over the threads, so
+ * they can exceed the time of the epoch.
+ *
+ */
+class ParallelBatchTrainer implements AutoCloseable {
+
+	private static final int MINIMUM_SHARD_SIZE = 16;
+	private static final int MAXIMUM_SHARDS = 64;
+
+	private final List<PackedLayer> layers;
+	private final Kernels kernels;
+	private final WeightUpdate weightUpdate;
+
+	private final int shardSize;
+	private final BatchFeedForward[] feedForwards;
+	private final BatchBackpropagation[] backPropagations;
+	private final ConcurrentLinkedDeque<DeltaSums> deltaSumsPool = new ConcurrentLinkedDeque<>();
+	private final TrainingTimer[] shardTimers;
+
+	private final ForkJoinPool pool;
+	private TrainingTimer timer;
+
+	private double[] inputs;
+	private double[] targets;
+	private int samples;
+
+	protected ParallelBatchTrainer(final int inputLayerSize,
+			final List<PackedLayer> layers,
+			final Kernels kernels,
+			final WeightUpdate weightUpdate,
+			final IParameters nnParameters) {
+
+		this.layers = layers;
+		this.kernels = kernels;
+		this.weightUpdate = weightUpdate;
+
+		final int batchSize = nnParameters.getBatchSize();
+		shardSize = Math.max(MINIMUM_SHARD_SIZE, (batchSize + MAXIMUM_SHARDS - 1) / MAXIMUM_SHARDS);
+
+		final int shards = (batchSize + shardSize - 1) / shardSize;
+
+		feedForwards = new BatchFeedForward[shards];
+		backPropagations = new BatchBackpropagation[shards];
+		shardTimers = new TrainingTimer[shards];
+
+		for (int shard = 0; shard < shards; shard++) {
+
+			feedForwards[shard] = new BatchFeedForward(nnParameters.getActivation(), inputLayerSize, layers, kernels, shardSize);
+			backPropagations[shard] = new BatchBackpropagation(layers, feedForwards[shard].getOutputs(), kernels, weightUpdate, nnParameters, shardSize);
+		}
+
+		pool = new ForkJoinPool(nnParameters.getParallelism());
+	}
+
+	/**
+	 * Updates the weights for one batch
+	 *
+	 * @param inputs  the inputs, one row per sample
+	 * @param targets the expected outputs of the output layer, one row per sample
+	 * @param samples the number of samples in the batch
+	 * @return the sum over the samples of the mean error of the output layer
+	 */
+	protected double apply(final double[] inputs, final double[] targets, final int samples) {
+
+		this.inputs = inputs;
+		this.targets = targets;
+		this.samples = samples;
+
+		final int shards = (samples + shardSize - 1) / shardSize;
+
+		final DeltaSums deltaSums = pool.invoke(new ShardTask(0, shards));
+
+		final long start = timer != null ? System.nanoTime() : 0L;
+
+		weightUpdate.apply(layers, kernels, deltaSums.deltas, samples, TrainingTimer.detailed(timer));
+		deltaSumsPool.push(deltaSums);
+
+		if (timer != null) {
+			timer.update(start);
+			for (int shard = 0; shard < shards; shard++) {
+				timer.add(shardTimers[shard]);
+			}
+		}
+		return deltaSums.error;
+	}
+
+	/**
+	 * @param timer measures the phases of {@link #apply(double[], double[], int)}, or
+	 *              {@code null}
+	 */
+	protected void setTimer(final TrainingTimer timer) {
+
+		this.timer = timer;
+
+		for (int shard = 0; shard < shardTimers.length; shard++) {
+
+			shardTimers[shard] = timer != null ? new TrainingTimer(layers.size(), timer.isDetailed()) : null;
+
+			feedForwards[shard].setTimer(TrainingTimer.detailed(shardTimers[shard]));
+			backPropagations[shard].setTimer(TrainingTimer.detailed(shardTimers[shard]));
+		}
+	}
+
+	@Override
+	public void close() {
+		pool.shutdown();
+	}
+
+	private DeltaSums calculateShard(final int shard) {
+
+		final int first = shard * shardSize;
+		final int count = Math.min(shardSize, samples - first);
+
+		final TrainingTimer shardTimer = shardTimers[shard];
+		final long start = shardTimer != null ? System.nanoTime() : 0L;
+
+		feedForwards[shard].apply(inputs, first, count);
+		final long forwardEnd = shardTimer != null ? shardTimer.forward(start) : 0L;
+
+		final DeltaSums deltaSums = takeDeltaSums();
+		deltaSums.error = backPropagations[shard].calculateDeltaSums(targets, first, count, deltaSums.deltas);
+
+		if (shardTimer != null) {
+			shardTimer.backward(forwardEnd);
+		}
+		return deltaSums;
+	}
+
+	private DeltaSums reduce(final DeltaSums into, final DeltaSums from) {
+
+		for (int layer = 0; layer < layers.size(); layer++) {
+			kernels.add(into.deltas[layer], from.deltas[layer]);
+		}
+		into.error += from.error;
+
+		deltaSumsPool.push(from);
+		return into;
+	}
+
+	private DeltaSums takeDeltaSums() {
+
+		final DeltaSums deltaSums = deltaSumsPool.poll();
+		if (deltaSums != null) {
+			return deltaSums;
+		}
+
+		final double[][] deltas = new double[layers.size()][];
+		for (int layer = 0; layer < layers.size(); layer++) {
+			deltas[layer] = new double[layers.get(layer).getWeights().length];
+		}
+		return new DeltaSums(deltas);
+	}
+
+	/**
+	 *
+	 * The summed weight deltas of some shards, one array per layer, and their summed error
+	 */
+	private static final class DeltaSums {
+
+		private final double[][] deltas;
+		private double error;
+
+		private DeltaSums(final double[][] deltas) {
+			this.deltas = deltas;
+		}
+	}
+
+	/**
+	 * Calculates the shards {@code [from, to)} and returns their reduced sums
+	 */
+	private final class ShardTask extends RecursiveTask<DeltaSums> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+
+		private ShardTask(final int from, final int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected DeltaSums compute() {
+
+			if (to - from == 1) {
+				return calculateShard(from);
+			}
+
+			final int middle = (from + to) >>> 1;
+
+			final ShardTask left = new ShardTask(from, middle);
+			final ShardTask right = new ShardTask(middle, to);
+			invokeAll(left, right);
+			return reduce(left.join(), right.join());
+		}
+	}
+}
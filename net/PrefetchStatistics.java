@@ -0,0 +1,77 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How the training loop and the loader threads of a {@link PrefetchingTrainingSource} waited
+ * for each other during one epoch. Training waiting for batches means it is I/O-bound,
+ * loaders waiting for free slots means it is compute-bound.
+ *
+ */
+public final class PrefetchStatistics {
+
+	private final long batches;
+	private final long queueDepthSum;
+	private final int maximumQueueDepth;
+	private final long trainingWaitNanos;
+	private final long loaderWaitNanos;
+
+	protected PrefetchStatistics(final long batches,
+			final long queueDepthSum,
+			final int maximumQueueDepth,
+			final long trainingWaitNanos,
+			final long loaderWaitNanos) {
+
+		this.batches = batches;
+		this.queueDepthSum = queueDepthSum;
+		this.maximumQueueDepth = maximumQueueDepth;
+		this.trainingWaitNanos = trainingWaitNanos;
+		this.loaderWaitNanos = loaderWaitNanos;
+	}
+
+	/**
+	 * @return the number of batches the training loop took
+	 */
+	public long getBatches() {
+		return batches;
+	}
+
+	/**
+	 * @return the mean number of loaded batches in the ring when the training loop took one,
+	 *         including the one it took
+	 */
+	public double getAverageQueueDepth() {
+		return batches == 0 ? 0d : (double) queueDepthSum / batches;
+	}
+
+	/**
+	 * @return the largest number of loaded batches in the ring when the training loop took one
+	 */
+	public int getMaximumQueueDepth() {
+		return maximumQueueDepth;
+	}
+
+	/**
+	 * @param unit the unit of the result
+	 * @return the time the training loop waited for loaded batches
+	 */
+	public long getTrainingWait(final TimeUnit unit) {
+		return unit.convert(trainingWaitNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param unit the unit of the result
+	 * @return the time the loader threads together waited for free slots
+	 */
+	public long getLoaderWait(final TimeUnit unit) {
+		return unit.convert(loaderWaitNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "%d batches, queue depth %.2f (maximum %d), training waited %d ms, loaders waited %d ms",
+				batches, getAverageQueueDepth(), maximumQueueDepth,
+				getTrainingWait(TimeUnit.MILLISECONDS), getLoaderWait(TimeUnit.MILLISECONDS));
+	}
+}
@@ -0,0 +1,394 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import de.plath.csc.machinelearning.neural.api.IndexedTrainingSource;
+import de.plath.csc.machinelearning.neural.api.TrainingSource;
+
+/**
+ * Reads another source ahead of the training loop. Loader threads fill a ring of batch slots
+ * while the network trains on the batches loaded before, so that reading and decoding the
+ * samples overlaps with the computation. The slots are primitive arrays, allocated once and
+ * reused for every epoch.
+ * <p>
+ * Batch {@code k} of an epoch is always loaded into slot {@code k % slots}, and the training
+ * loop takes the batches in order, so the samples arrive in the same order for any number of
+ * loaders. An {@link IndexedTrainingSource} can be shuffled: every epoch draws a new
+ * permutation of the sample indices and the loaders read the samples in that order, without
+ * copying the data.
+ * <p>
+ * {@link #getStatistics()} tells whether the training loop waited for the loaders or the
+ * other way around.
+ *
+ */
+public class PrefetchingTrainingSource implements TrainingSource {
+
+	private final TrainingSource source;
+	private final int slots;
+	private final int slotSize;
+	private final int loaders;
+	private final Random random;
+
+	private Slot[] ring;
+	private boolean open;
+	private volatile PrefetchStatistics statistics = new PrefetchStatistics(0L, 0L, 0, 0L, 0L);
+
+	/**
+	 * Reads the samples in the order of the source with one loader thread
+	 *
+	 * @param source   the samples
+	 * @param slots    the number of batches loaded ahead
+	 * @param slotSize the number of samples per batch
+	 */
+	public PrefetchingTrainingSource(final TrainingSource source, final int slots, final int slotSize) {
+		this(source, slots, slotSize, 1, null);
+	}
+
+	/**
+	 * @param source   the samples, an {@link IndexedTrainingSource} for more than one loader or
+	 *                 to shuffle them
+	 * @param slots    the number of batches loaded ahead
+	 * @param slotSize the number of samples per batch
+	 * @param loaders  the number of loader threads
+	 * @param random   shuffles the samples every epoch, or {@code null} to keep their order
+	 */
+	public PrefetchingTrainingSource(final TrainingSource source,
+			final int slots,
+			final int slotSize,
+			final int loaders,
+			final Random random) {
+
+		this.source = Objects.requireNonNull(source, "Training source is null.");
+		this.slots = slots;
+		this.slotSize = slotSize;
+		this.loaders = loaders;
+		this.random = random;
+
+		assert (slots > 0) : "Number of slots must be greater than 0.";
+		assert (slotSize > 0) : "Slot size must be greater than 0.";
+		assert (loaders > 0) : "Number of loaders must be greater than 0.";
+
+		if ((loaders > 1 || random != null) && !(source instanceof IndexedTrainingSource)) {
+			throw new IllegalArgumentException("Several loaders and shuffling need an IndexedTrainingSource.");
+		}
+	}
+
+	@Override
+	public int getInputSize() {
+		return source.getInputSize();
+	}
+
+	/**
+	 * @return the statistics of the epoch read last, available once its reader is closed
+	 */
+	public PrefetchStatistics getStatistics() {
+		return statistics;
+	}
+
+	@Override
+	public synchronized Reader open() throws IOException {
+
+		if (open) {
+			throw new IllegalStateException("Only one epoch can be read at a time.");
+		}
+
+		if (ring == null) {
+			ring = new Slot[slots];
+			for (int i = 0; i < slots; i++) {
+				ring[i] = new Slot(slotSize, source.getInputSize());
+			}
+		}
+
+		final PrefetchReader reader = new PrefetchReader();
+		open = true;
+		return reader;
+	}
+
+	private synchronized void closed(final PrefetchStatistics epochStatistics) {
+
+		statistics = epochStatistics;
+		open = false;
+	}
+
+	private static final class Slot {
+
+		private final double[] inputs;
+		private final int[] targets;
+
+		// the batch to be loaded into this slot next
+		private long batch;
+		private boolean filled;
+		private int count;
+		private boolean last;
+		private Exception failure;
+
+		private Slot(final int slotSize, final int inputSize) {
+
+			inputs = new double[slotSize * inputSize];
+			targets = new int[slotSize];
+		}
+	}
+
+	private final class PrefetchReader implements Reader {
+
+		private final int inputSize = source.getInputSize();
+
+		private final Thread[] threads;
+		private final AtomicInteger filledSlots = new AtomicInteger();
+		private final AtomicLong loaderWaitNanos = new AtomicLong();
+
+		private Slot current;
+		private long batch;
+		private int position;
+		private int target;
+
+		private long batches;
+		private long queueDepthSum;
+		private int maximumQueueDepth;
+		private long trainingWaitNanos;
+
+		private PrefetchReader() throws IOException {
+
+			for (int i = 0; i < slots; i++) {
+				ring[i].batch = i;
+				ring[i].filled = false;
+				ring[i].failure = null;
+			}
+
+			if (source instanceof IndexedTrainingSource && (loaders > 1 || random != null)) {
+
+				final IndexedTrainingSource indexed = (IndexedTrainingSource) source;
+				final long size = indexed.getSize();
+				final int[] permutation = random != null ? permute(size) : null;
+				final long batchCount = Math.max(1L, (size + slotSize - 1) / slotSize);
+
+				threads = new Thread[loaders];
+				for (int i = 0; i < loaders; i++) {
+					final int loader = i;
+					threads[i] = new Thread(() -> loadIndexed(indexed, permutation, size, batchCount, loader));
+				}
+			} else {
+				final Reader reader = source.open();
+
+				threads = new Thread[] { new Thread(() -> loadSequential(reader)) };
+			}
+
+			for (int i = 0; i < threads.length; i++) {
+				threads[i].setName("jann-prefetch-" + i);
+				threads[i].setDaemon(true);
+				threads[i].start();
+			}
+		}
+
+		@Override
+		public boolean next(final double[] inputs, final int offset) throws IOException {
+
+			if (current == null || position == current.count) {
+
+				if (current != null) {
+					if (current.last) {
+						return false;
+					}
+					release(current);
+				}
+
+				current = take(batch++);
+				position = 0;
+
+				if (current.count == 0) {
+					return false;
+				}
+			}
+
+			System.arraycopy(current.inputs, position * inputSize, inputs, offset, inputSize);
+			target = current.targets[position++];
+			return true;
+		}
+
+		@Override
+		public int getTarget() {
+			return target;
+		}
+
+		@Override
+		public void close() throws IOException {
+
+			boolean interrupted = false;
+
+			for (final Thread thread : threads) {
+				thread.interrupt();
+			}
+			for (final Thread thread : threads) {
+				while (thread.isAlive()) {
+					try {
+						thread.join();
+					} catch (final InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			}
+
+			closed(new PrefetchStatistics(batches, queueDepthSum, maximumQueueDepth, trainingWaitNanos, loaderWaitNanos.get()));
+
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private Slot take(final long k) throws IOException {
+
+			final Slot slot = ring[(int) (k % slots)];
+			final long start = System.nanoTime();
+
+			synchronized (slot) {
+				while (!slot.filled) {
+					try {
+						slot.wait();
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("Interrupted while waiting for a batch.");
+					}
+				}
+			}
+
+			trainingWaitNanos += System.nanoTime() - start;
+
+			final int queueDepth = filledSlots.get();
+			batches++;
+			queueDepthSum += queueDepth;
+			maximumQueueDepth = Math.max(maximumQueueDepth, queueDepth);
+
+			if (slot.failure instanceof IOException) {
+				throw (IOException) slot.failure;
+			}
+			if (slot.failure != null) {
+				throw (RuntimeException) slot.failure;
+			}
+			return slot;
+		}
+
+		private void release(final Slot slot) {
+
+			filledSlots.decrementAndGet();
+
+			synchronized (slot) {
+				slot.filled = false;
+				slot.batch += slots;
+				slot.notifyAll();
+			}
+		}
+
+		/**
+		 * Waits until the slot of batch {@code k} is free
+		 *
+		 * @return the slot
+		 */
+		private Slot acquire(final long k) throws InterruptedException {
+
+			final Slot slot = ring[(int) (k % slots)];
+			final long start = System.nanoTime();
+
+			synchronized (slot) {
+				while (slot.filled || slot.batch != k) {
+					slot.wait();
+				}
+			}
+
+			loaderWaitNanos.addAndGet(System.nanoTime() - start);
+			return slot;
+		}
+
+		private void publish(final Slot slot, final int count, final boolean last, final Exception failure) {
+
+			filledSlots.incrementAndGet();
+
+			synchronized (slot) {
+				slot.count = count;
+				slot.last = last;
+				slot.failure = failure;
+				slot.filled = true;
+				slot.notifyAll();
+			}
+		}
+
+		private void loadSequential(final Reader reader) {
+
+			try (reader) {
+				for (long k = 0;; k++) {
+
+					final Slot slot = acquire(k);
+
+					int count = 0;
+					try {
+						while (count < slotSize && reader.next(slot.inputs, count * inputSize)) {
+							slot.targets[count++] = reader.getTarget();
+						}
+					} catch (final IOException | RuntimeException e) {
+						publish(slot, count, true, e);
+						return;
+					}
+
+					final boolean last = count < slotSize;
+					publish(slot, count, last, null);
+					if (last) {
+						return;
+					}
+				}
+			} catch (final InterruptedException | IOException e) {
+				// closed by the training loop
+			}
+		}
+
+		private void loadIndexed(final IndexedTrainingSource indexed,
+				final int[] permutation,
+				final long size,
+				final long batchCount,
+				final int loader) {
+
+			try {
+				for (long k = loader; k < batchCount; k += loaders) {
+
+					final Slot slot = acquire(k);
+					final long first = k * slotSize;
+					final int count = (int) Math.min(slotSize, size - first);
+
+					try {
+						for (int i = 0; i < count; i++) {
+							final long index = permutation != null ? permutation[(int) (first + i)] : first + i;
+							slot.targets[i] = indexed.read(index, slot.inputs, i * inputSize);
+						}
+					} catch (final IOException | RuntimeException e) {
+						publish(slot, count, true, e);
+						return;
+					}
+
+					publish(slot, count, k == batchCount - 1, null);
+				}
+			} catch (final InterruptedException e) {
+				// closed by the training loop
+			}
+		}
+	}
+
+	private int[] permute(final long size) {
+
+		assert (size <= Integer.MAX_VALUE) : "Too many samples to shuffle.";
+
+		final int[] permutation = new int[(int) size];
+		for (int i = 0; i < permutation.length; i++) {
+			permutation[i] = i;
+		}
+		for (int i = permutation.length - 1; i > 0; i--) {
+			final int j = random.nextInt(i + 1);
+			final int swap = permutation[i];
+			permutation[i] = permutation[j];
+			permutation[j] = swap;
+		}
+		return permutation;
+	}
+}
@@ -0,0 +1,159 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.Objects;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+
+/**
+ * Fully connected layer whose zero weights are left out, stored in compressed sparse row
+ * format: the non-zero weights of all neurons in one array, with the offset of every neuron's
+ * first one. The products only visit the non-zero weights.
+ *
+ */
+class PrunedLayer {
+
+	private final int inputSize;
+	private final int size;
+
+	private final int[] rowOffsets;
+	private final int[] columns;
+	private final double[] values;
+	private final double[] biases;
+
+	private final Activation activation;
+
+	/**
+	 * @param layer the layer whose non-zero weights are kept
+	 */
+	protected PrunedLayer(final PackedLayer layer) {
+
+		this.inputSize = layer.getInputSize();
+		this.size = layer.getSize();
+		this.activation = Objects.requireNonNull(layer.getActivation(), "Activation is null.");
+		this.biases = layer.getBiases().clone();
+
+		final double[] weights = layer.getWeights();
+
+		int nonZeros = 0;
+		for (final double weight : weights) {
+			nonZeros += weight != 0d ? 1 : 0;
+		}
+
+		rowOffsets = new int[size + 1];
+		columns = new int[nonZeros];
+		values = new double[nonZeros];
+
+		int k = 0;
+		for (int neuron = 0; neuron < size; neuron++) {
+
+			final int row = neuron * inputSize;
+
+			for (int input = 0; input < inputSize; input++) {
+				if (weights[row + input] != 0d) {
+					columns[k] = input;
+					values[k++] = weights[row + input];
+				}
+			}
+			rowOffsets[neuron + 1] = k;
+		}
+	}
+
+	/**
+	 * @param inputSize  the number of inputs
+	 * @param rowOffsets the offset of the first non-zero weight of every neuron, followed by
+	 *                   the number of non-zero weights
+	 * @param columns    the input of every non-zero weight
+	 * @param values     the non-zero weights
+	 * @param biases     the biases
+	 * @param activation the activation function
+	 */
+	protected PrunedLayer(final int inputSize,
+			final int[] rowOffsets,
+			final int[] columns,
+			final double[] values,
+			final double[] biases,
+			final Activation activation) {
+
+		this.inputSize = inputSize;
+		this.size = biases.length;
+		this.rowOffsets = rowOffsets;
+		this.columns = columns;
+		this.values = values;
+		this.biases = biases;
+		this.activation = Objects.requireNonNull(activation, "Activation is null.");
+	}
+
+	/**
+	 * Calculates the outputs of a block of samples. Inputs and outputs are stored transposed,
+	 * one row per neuron with one column per sample, so that every non-zero weight is applied
+	 * to the whole block in one pass.
+	 *
+	 * @param inputs  the inputs, {@code inputs[input * samples + sample]}
+	 * @param outputs receives the outputs, {@code outputs[neuron * samples + sample]}
+	 * @param samples the number of samples in the block
+	 */
+	protected void calculateOutputs(final double[] inputs, final double[] outputs, final int samples) {
+
+		for (int neuron = 0; neuron < size; neuron++) {
+
+			final int row = neuron * samples;
+
+			for (int sample = 0; sample < samples; sample++) {
+				outputs[row + sample] = biases[neuron];
+			}
+
+			for (int k = rowOffsets[neuron]; k < rowOffsets[neuron + 1]; k++) {
+
+				final double weight = values[k];
+				final int input = columns[k] * samples;
+
+				for (int sample = 0; sample < samples; sample++) {
+					outputs[row + sample] += weight * inputs[input + sample];
+				}
+			}
+		}
+		activation.apply(outputs, 0, size * samples);
+	}
+
+	protected int getInputSize() {
+		return inputSize;
+	}
+
+	protected int getSize() {
+		return size;
+	}
+
+	protected int[] getRowOffsets() {
+		return rowOffsets;
+	}
+
+	protected int[] getColumns() {
+		return columns;
+	}
+
+	protected double[] getValues() {
+		return values;
+	}
+
+	protected double[] getBiases() {
+		return biases;
+	}
+
+	protected Activation getActivation() {
+		return activation;
+	}
+
+	/**
+	 * @return the share of the weights which are left out
+	 */
+	protected double getSparsity() {
+		return 1d - (double) values.length / ((long) size * inputSize);
+	}
+
+	/**
+	 * @return the memory of the offsets, columns, weights and biases in bytes
+	 */
+	protected long getBytes() {
+		return (long) (rowOffsets.length + columns.length) * Integer.BYTES + (long) (values.length + biases.length) * Double.BYTES;
+	}
+}
@@ -0,0 +1,70 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.List;
+import java.util.Objects;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+import de.plath.csc.machinelearning.neural.api.IParameters;
+
+/**
+ * A trained network whose zero weights are left out, for scoring, created by
+ * {@link Pruner#compress(PackedNeuralNetwork)}. Its layers are stored in compressed sparse row
+ * format, so scoring only multiplies the remaining weights. It cannot learn.
+ *
+ */
+public class PrunedNeuralNetwork extends ScoringNeuralNetwork {
+
+	private final IParameters nnParameters;
+	private final Activation inputActivation;
+	private final int[] layerSizes;
+
+	private final List<PrunedLayer> layers;
+
+	protected PrunedNeuralNetwork(final IParameters nnParameters, final List<PrunedLayer> layers) {
+
+		super("pruned", nnParameters.getInputLayerSize(), layers.get(layers.size() - 1).getSize());
+
+		this.nnParameters = Objects.requireNonNull(nnParameters);
+		this.layers = Objects.requireNonNull(layers);
+
+		inputActivation = nnParameters.getActivation();
+		layerSizes = layers.stream().mapToInt(PrunedLayer::getSize).toArray();
+	}
+
+	/**
+	 * @return the share of the weights which are left out, over all layers
+	 */
+	public double getSparsity() {
+
+		long weights = 0;
+		long nonZeros = 0;
+		for (final PrunedLayer layer : layers) {
+			weights += (long) layer.getSize() * layer.getInputSize();
+			nonZeros += layer.getValues().length;
+		}
+		return 1d - (double) nonZeros / weights;
+	}
+
+	/**
+	 * @return the memory of the offsets, columns, weights and biases in bytes
+	 */
+	public long getBytes() {
+		return layers.stream().mapToLong(PrunedLayer::getBytes).sum();
+	}
+
+	protected IParameters getParameters() {
+		return nnParameters;
+	}
+
+	protected List<PrunedLayer> getLayers() {
+		return layers;
+	}
+
+	@Override
+	protected void scoreChunk(final double[] inputs, final double[] outputs, final int first, final int samples) {
+
+		BatchInference.scoreTransposed(inputActivation, getInputLayerSize(), layerSizes,
+				(layer, layerInputs, layerOutputs, count) -> layers.get(layer).calculateOutputs(layerInputs, layerOutputs, count),
+				inputs, outputs, first, samples);
+	}
+}
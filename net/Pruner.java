@@ -0,0 +1,213 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import de.plath.csc.machinelearning.neural.api.INeuralNetwork;
+
+/**
+ * Magnitude pruning of a trained {@link PackedNeuralNetwork}: the smallest weights of every
+ * layer are set to 0 and stay 0 while the network learns on. The pruned network can be
+ * compressed into a {@link PrunedNeuralNetwork}, which skips the removed weights when scoring.
+ *
+ */
+public final class Pruner {
+
+	// scoring runs per network in report, the fastest counts
+	private static final int TIMED_RUNS = 5;
+
+	private Pruner() {
+	}
+
+	/**
+	 * Removes the weights with the smallest magnitudes from every layer, in addition to those
+	 * removed before
+	 *
+	 * @param neuralNetwork the trained network, pruned in place
+	 * @param sparsity      the share of the weights of every layer to remove, between 0 and 1
+	 */
+	public static void prune(final PackedNeuralNetwork neuralNetwork, final double sparsity) {
+
+		Objects.requireNonNull(neuralNetwork, "Neural network is null.");
+		assert (sparsity >= 0d && sparsity < 1d) : "Sparsity must be between 0 and 1.";
+
+		for (final PackedLayer layer : neuralNetwork.getLayers()) {
+			prune(layer, sparsity);
+		}
+	}
+
+	/**
+	 * Prunes the network in rounds of growing sparsity up to the target, so that the network
+	 * can adapt to the removed weights in between
+	 *
+	 * @param neuralNetwork  the trained network, pruned in place
+	 * @param targetSparsity the share of the weights of every layer to remove in the end
+	 * @param rounds         the number of rounds, each removing the same share of the weights
+	 * @param fineTuning     called after every round, e.g. to {@code learn} for a few epochs,
+	 *                       or {@code null}
+	 */
+	public static void prune(final PackedNeuralNetwork neuralNetwork,
+			final double targetSparsity,
+			final int rounds,
+			final Consumer<PackedNeuralNetwork> fineTuning) {
+
+		assert (rounds > 0) : "Number of rounds must be greater than 0.";
+
+		for (int round = 1; round <= rounds; round++) {
+
+			prune(neuralNetwork, targetSparsity * round / rounds);
+
+			if (fineTuning != null) {
+				fineTuning.accept(neuralNetwork);
+			}
+		}
+	}
+
+	/**
+	 * @param neuralNetwork the pruned network
+	 * @return a network for scoring which only keeps the non-zero weights
+	 */
+	public static PrunedNeuralNetwork compress(final PackedNeuralNetwork neuralNetwork) {
+
+		Objects.requireNonNull(neuralNetwork, "Neural network is null.");
+
+		final List<PrunedLayer> prunedLayers = new ArrayList<>();
+		for (final PackedLayer layer : neuralNetwork.getLayers()) {
+			prunedLayers.add(new PrunedLayer(layer));
+		}
+		return new PrunedNeuralNetwork(neuralNetwork.getParameters(), prunedLayers);
+	}
+
+	/**
+	 * Scores the samples with both networks, timing a batch inference of all samples
+	 *
+	 * @param reference the network before pruning
+	 * @param pruned    the compressed pruned network
+	 * @param data      the inputs
+	 * @param targets   the labels of the inputs
+	 * @return the accuracies, scoring times and sizes of both networks
+	 */
+	public static PruningReport report(final PackedNeuralNetwork reference,
+			final PrunedNeuralNetwork pruned,
+			final List<List<Double>> data,
+			final List<Integer> targets) {
+
+		Objects.requireNonNull(reference, "Reference network is null.");
+		Objects.requireNonNull(pruned, "Pruned network is null.");
+		assert (data.size() == targets.size()) : "Every input needs a label.";
+
+		final int inputSize = reference.getInputLayerSize();
+		final int outputSize = reference.getOutputLayerSize();
+
+		final double[] inputs = new double[data.size() * inputSize];
+		for (int sample = 0; sample < data.size(); sample++) {
+			for (int i = 0; i < inputSize; i++) {
+				inputs[sample * inputSize + i] = data.get(sample).get(i);
+			}
+		}
+
+		final double[] referenceOutputs = new double[data.size() * outputSize];
+		final double[] prunedOutputs = new double[data.size() * outputSize];
+
+		final long referenceNanos = time(reference, inputs, referenceOutputs);
+		final long prunedNanos = time(pruned, inputs, prunedOutputs);
+
+		long referenceBytes = 0;
+		for (final PackedLayer layer : reference.getLayers()) {
+			referenceBytes += (long) (layer.getWeights().length + layer.getBiases().length) * Double.BYTES;
+		}
+
+		return new PruningReport(pruned.getSparsity(),
+				accuracy(referenceOutputs, outputSize, targets),
+				accuracy(prunedOutputs, outputSize, targets),
+				referenceNanos,
+				prunedNanos,
+				referenceBytes,
+				pruned.getBytes());
+	}
+
+	private static void prune(final PackedLayer layer, final double sparsity) {
+
+		final double[] weights = layer.getWeights();
+		final int[] prunedWeights = layer.getPrunedWeights();
+		final int count = (int) Math.round(sparsity * weights.length);
+
+		if (count <= prunedWeights.length) {
+			return;
+		}
+
+		final boolean[] removed = new boolean[weights.length];
+		for (final int i : prunedWeights) {
+			removed[i] = true;
+		}
+
+		final double[] magnitudes = new double[weights.length - prunedWeights.length];
+		int k = 0;
+		for (int i = 0; i < weights.length; i++) {
+			if (!removed[i]) {
+				magnitudes[k++] = Math.abs(weights[i]);
+			}
+		}
+		Arrays.sort(magnitudes);
+
+		// the largest magnitude to remove, which may be shared by weights that are kept
+		final double threshold = magnitudes[count - prunedWeights.length - 1];
+
+		int below = 0;
+		for (final double magnitude : magnitudes) {
+			if (magnitude < threshold) {
+				below++;
+			}
+		}
+		int ties = count - prunedWeights.length - below;
+
+		final int[] indices = new int[count];
+		k = 0;
+		for (int i = 0; i < weights.length; i++) {
+
+			final double magnitude = Math.abs(weights[i]);
+
+			if (removed[i] || magnitude < threshold) {
+				indices[k++] = i;
+			} else if (magnitude == threshold && ties > 0) {
+				indices[k++] = i;
+				ties--;
+			}
+		}
+		layer.setPrunedWeights(indices);
+	}
+
+	private static long time(final INeuralNetwork neuralNetwork,
+			final double[] inputs,
+			final double[] outputs) {
+
+		long fastest = Long.MAX_VALUE;
+
+		for (int run = 0; run < TIMED_RUNS; run++) {
+
+			final long start = System.nanoTime();
+			neuralNetwork.getOutputs(inputs, outputs);
+			fastest = Math.min(fastest, System.nanoTime() - start);
+		}
+		return fastest;
+	}
+
+	private static double accuracy(final double[] outputs, final int outputSize, final List<Integer> targets) {
+
+		int correct = 0;
+		for (int sample = 0; sample < targets.size(); sample++) {
+
+			int label = 0;
+			for (int o = 1; o < outputSize; o++) {
+				if (outputs[sample * outputSize + o] > outputs[sample * outputSize + label]) {
+					label = o;
+				}
+			}
+			correct += label == targets.get(sample) ? 1 : 0;
+		}
+		return (double) correct / targets.size();
+	}
+}
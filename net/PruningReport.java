@@ -0,0 +1,108 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accuracy, scoring time and size of a network and of its pruned version on the same samples,
+ * see {@link Pruner#report}
+ *
+ */
+public final class PruningReport {
+
+	private final double sparsity;
+	private final double referenceAccuracy;
+	private final double prunedAccuracy;
+	private final long referenceNanos;
+	private final long prunedNanos;
+	private final long referenceBytes;
+	private final long prunedBytes;
+
+	protected PruningReport(final double sparsity,
+			final double referenceAccuracy,
+			final double prunedAccuracy,
+			final long referenceNanos,
+			final long prunedNanos,
+			final long referenceBytes,
+			final long prunedBytes) {
+
+		this.sparsity = sparsity;
+		this.referenceAccuracy = referenceAccuracy;
+		this.prunedAccuracy = prunedAccuracy;
+		this.referenceNanos = referenceNanos;
+		this.prunedNanos = prunedNanos;
+		this.referenceBytes = referenceBytes;
+		this.prunedBytes = prunedBytes;
+	}
+
+	/**
+	 * @return the share of the weights the pruned network leaves out
+	 */
+	public double getSparsity() {
+		return sparsity;
+	}
+
+	/**
+	 * @return the share of samples the reference network classifies correctly
+	 */
+	public double getReferenceAccuracy() {
+		return referenceAccuracy;
+	}
+
+	/**
+	 * @return the share of samples the pruned network classifies correctly
+	 */
+	public double getPrunedAccuracy() {
+		return prunedAccuracy;
+	}
+
+	/**
+	 * @return the reference accuracy minus the pruned accuracy
+	 */
+	public double getAccuracyDrop() {
+		return referenceAccuracy - prunedAccuracy;
+	}
+
+	/**
+	 * @param unit the unit of the result
+	 * @return the fastest batch inference of all samples by the reference network
+	 */
+	public long getReferenceTime(final TimeUnit unit) {
+		return unit.convert(referenceNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param unit the unit of the result
+	 * @return the fastest batch inference of all samples by the pruned network
+	 */
+	public long getPrunedTime(final TimeUnit unit) {
+		return unit.convert(prunedNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @return how many times faster the pruned network scores
+	 */
+	public double getSpeedup() {
+		return (double) referenceNanos / prunedNanos;
+	}
+
+	/**
+	 * @return the memory of the dense weights and biases in bytes
+	 */
+	public long getReferenceBytes() {
+		return referenceBytes;
+	}
+
+	/**
+	 * @return the memory of the pruned weights, their indices and the biases in bytes
+	 */
+	public long getPrunedBytes() {
+		return prunedBytes;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "sparsity %.2f, accuracy %.4f -> %.4f (drop %.4f), scoring %.2fx faster, %d -> %d bytes",
+				sparsity, referenceAccuracy, prunedAccuracy, getAccuracyDrop(), getSpeedup(), referenceBytes, prunedBytes);
+	}
+}
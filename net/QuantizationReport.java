@@ -0,0 +1,78 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.Locale;
+
+/**
+ * Accuracy of a network and of its quantized version on the same samples, see
+ * {@link Quantizer#report}
+ *
+ */
+public final class QuantizationReport {
+
+	private final double referenceAccuracy;
+	private final double quantizedAccuracy;
+	private final double agreement;
+	private final double maximumOutputDifference;
+	private final long quantizedBytes;
+
+	protected QuantizationReport(final double referenceAccuracy,
+			final double quantizedAccuracy,
+			final double agreement,
+			final double maximumOutputDifference,
+			final long quantizedBytes) {
+
+		this.referenceAccuracy = referenceAccuracy;
+		this.quantizedAccuracy = quantizedAccuracy;
+		this.agreement = agreement;
+		this.maximumOutputDifference = maximumOutputDifference;
+		this.quantizedBytes = quantizedBytes;
+	}
+
+	/**
+	 * @return the share of samples the reference network classifies correctly
+	 */
+	public double getReferenceAccuracy() {
+		return referenceAccuracy;
+	}
+
+	/**
+	 * @return the share of samples the quantized network classifies correctly
+	 */
+	public double getQuantizedAccuracy() {
+		return quantizedAccuracy;
+	}
+
+	/**
+	 * @return the reference accuracy minus the quantized accuracy
+	 */
+	public double getAccuracyDrop() {
+		return referenceAccuracy - quantizedAccuracy;
+	}
+
+	/**
+	 * @return the share of samples both networks assign the same label
+	 */
+	public double getAgreement() {
+		return agreement;
+	}
+
+	/**
+	 * @return the largest absolute difference between outputs of the two networks
+	 */
+	public double getMaximumOutputDifference() {
+		return maximumOutputDifference;
+	}
+
+	/**
+	 * @return the memory of the quantized weights, scales and biases in bytes
+	 */
+	public long getQuantizedBytes() {
+		return quantizedBytes;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "accuracy %.4f -> %.4f (drop %.4f), agreement %.4f, maximum output difference %.2e, %d bytes",
+				referenceAccuracy, quantizedAccuracy, getAccuracyDrop(), agreement, maximumOutputDifference, quantizedBytes);
+	}
+}
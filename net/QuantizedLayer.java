@@ -0,0 +1,118 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.Objects;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+
+/**
+ * Fully connected layer with int8 weights, quantized symmetrically per row, and int8 inputs,
+ * quantized symmetrically with one scale per layer. The dot products accumulate in
+ * {@code int} over blocks of inputs which cannot overflow, then in {@code long}, and are
+ * dequantized before the bias and the activation function.
+ *
+ */
+class QuantizedLayer {
+
+	protected static final int MAXIMUM = 127;
+	// the most products of two quantized values whose sum fits into an int
+	private static final int ACCUMULATION_BLOCK = Integer.MAX_VALUE / (MAXIMUM * MAXIMUM);
+
+	private final int inputSize;
+	private final int size;
+
+	private final byte[] weights;
+	// weight scale of the row times the input scale
+	private final double[] scales;
+	private final double[] biases;
+	private final double inputScale;
+
+	private final Activation activation;
+
+	/**
+	 * @param layer        the layer to quantize
+	 * @param maximumInput the largest absolute input of the layer seen during calibration
+	 */
+	protected QuantizedLayer(final PackedLayer layer, final double maximumInput) {
+
+		this.inputSize = layer.getInputSize();
+		this.size = layer.getSize();
+		this.activation = Objects.requireNonNull(layer.getActivation(), "Activation is null.");
+
+		this.inputScale = scaleOf(maximumInput);
+		this.weights = new byte[size * inputSize];
+		this.scales = new double[size];
+		this.biases = layer.getBiases().clone();
+
+		final double[] packedWeights = layer.getWeights();
+
+		for (int neuron = 0; neuron < size; neuron++) {
+
+			final int row = neuron * inputSize;
+
+			double maximumWeight = 0d;
+			for (int input = 0; input < inputSize; input++) {
+				maximumWeight = Math.max(maximumWeight, Math.abs(packedWeights[row + input]));
+			}
+
+			final double weightScale = scaleOf(maximumWeight);
+			for (int input = 0; input < inputSize; input++) {
+				weights[row + input] = quantize(packedWeights[row + input], weightScale);
+			}
+			scales[neuron] = weightScale * inputScale;
+		}
+	}
+
+	/**
+	 * @param inputs          the inputs of the layer
+	 * @param quantizedInputs buffer for the quantized inputs, at least of the input size
+	 * @param outputs         receives the outputs of the layer
+	 */
+	protected void calculateOutputs(final double[] inputs, final byte[] quantizedInputs, final double[] outputs) {
+
+		for (int input = 0; input < inputSize; input++) {
+			quantizedInputs[input] = quantize(inputs[input], inputScale);
+		}
+
+		for (int neuron = 0; neuron < size; neuron++) {
+
+			final int row = neuron * inputSize;
+			long sum = 0L;
+
+			for (int block = 0; block < inputSize; block += ACCUMULATION_BLOCK) {
+
+				final int end = Math.min(block + ACCUMULATION_BLOCK, inputSize);
+				int blockSum = 0;
+
+				for (int input = block; input < end; input++) {
+					blockSum += weights[row + input] * quantizedInputs[input];
+				}
+				sum += blockSum;
+			}
+			outputs[neuron] = sum * scales[neuron] + biases[neuron];
+		}
+		activation.apply(outputs, 0, size);
+	}
+
+	protected int getInputSize() {
+		return inputSize;
+	}
+
+	protected int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the memory of the weights, scales and biases in bytes
+	 */
+	protected long getBytes() {
+		return weights.length + (long) (scales.length + biases.length) * Double.BYTES;
+	}
+
+	private static double scaleOf(final double maximum) {
+		return maximum > 0d ? maximum / MAXIMUM : 1d;
+	}
+
+	private static byte quantize(final double value, final double scale) {
+		return (byte) Math.max(-MAXIMUM, Math.min(MAXIMUM, Math.round(value / scale)));
+	}
+}
@@ -0,0 +1,87 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.List;
+import java.util.Objects;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+
+/**
+ * A trained network with int8 weights and activations for scoring, created by
+ * {@link Quantizer}. It cannot learn.
+ *
+ */
+public class QuantizedNeuralNetwork extends ScoringNeuralNetwork {
+
+	private final Activation inputActivation;
+
+	private final List<QuantizedLayer> layers;
+	private final int maximumLayerSize;
+
+	protected QuantizedNeuralNetwork(final Activation inputActivation,
+			final int inputLayerSize,
+			final List<QuantizedLayer> layers) {
+
+		super("quantized", inputLayerSize, layers.get(layers.size() - 1).getSize());
+
+		this.inputActivation = Objects.requireNonNull(inputActivation);
+		this.layers = Objects.requireNonNull(layers);
+
+		int maximum = inputLayerSize;
+		for (final QuantizedLayer layer : layers) {
+			maximum = Math.max(maximum, layer.getSize());
+		}
+		maximumLayerSize = maximum;
+	}
+
+	/**
+	 * @return the memory of the weights, scales and biases in bytes
+	 */
+	public long getBytes() {
+		return layers.stream().mapToLong(QuantizedLayer::getBytes).sum();
+	}
+
+	@Override
+	protected void scoreChunk(final double[] inputs, final double[] outputs, final int first, final int samples) {
+
+		final int inputLayerSize = getInputLayerSize();
+		final int outputLayerSize = getOutputLayerSize();
+
+		final double[][] buffers = createBuffers();
+		final byte[] quantizedInputs = new byte[maximumLayerSize];
+
+		for (int sample = first; sample < first + samples; sample++) {
+			calculate(inputs, sample * inputLayerSize, outputs, sample * outputLayerSize, buffers, quantizedInputs);
+		}
+	}
+
+	private double[][] createBuffers() {
+
+		final double[][] buffers = new double[layers.size() + 1][];
+		buffers[0] = new double[getInputLayerSize()];
+		for (int layer = 0; layer < layers.size(); layer++) {
+			buffers[layer + 1] = new double[layers.get(layer).getSize()];
+		}
+		return buffers;
+	}
+
+	private void calculate(final double[] inputs,
+			final int inputOffset,
+			final double[] outputs,
+			final int outputOffset,
+			final double[][] buffers,
+			final byte[] quantizedInputs) {
+
+		final double[] inputBuffer = buffers[0];
+
+		// an input neuron sums its single synapse, which turns -0.0 into 0.0
+		for (int i = 0; i < inputBuffer.length; i++) {
+			inputBuffer[i] = inputs[inputOffset + i] + 0d;
+		}
+		inputActivation.apply(inputBuffer, 0, inputBuffer.length);
+
+		for (int layer = 0; layer < layers.size(); layer++) {
+			layers.get(layer).calculateOutputs(buffers[layer], quantizedInputs, buffers[layer + 1]);
+		}
+		System.arraycopy(buffers[layers.size()], 0, outputs, outputOffset, buffers[layers.size()].length);
+	}
+}
@@ -0,0 +1,139 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+import de.plath.csc.machinelearning.neural.api.INeuralNetwork;
+
+/**
+ * Post-training quantization of a trained network to a {@link QuantizedNeuralNetwork}, and a
+ * report of the accuracy the quantization costs.
+ *
+ */
+public final class Quantizer {
+
+	private Quantizer() {
+	}
+
+	/**
+	 * @param neuralNetwork the trained network
+	 * @param calibration   representative inputs, which determine the scale of the inputs of
+	 *                      every layer
+	 * @return the quantized network
+	 */
+	public static QuantizedNeuralNetwork quantize(final NeuralNetwork neuralNetwork, final List<List<Double>> calibration) {
+
+		Objects.requireNonNull(neuralNetwork, "Neural network is null.");
+
+		return quantize(neuralNetwork.getParameters().getActivation(), neuralNetwork.getPackedLayers(), calibration);
+	}
+
+	/**
+	 * @param neuralNetwork the trained network
+	 * @param calibration   representative inputs, which determine the scale of the inputs of
+	 *                      every layer
+	 * @return the quantized network
+	 */
+	public static QuantizedNeuralNetwork quantize(final PackedNeuralNetwork neuralNetwork, final List<List<Double>> calibration) {
+
+		Objects.requireNonNull(neuralNetwork, "Neural network is null.");
+
+		return quantize(neuralNetwork.getParameters().getActivation(), neuralNetwork.getLayers(), calibration);
+	}
+
+	/**
+	 * Scores the samples with both networks
+	 *
+	 * @param reference the network which was quantized
+	 * @param quantized the quantized network
+	 * @param data      the inputs
+	 * @param targets   the labels of the inputs
+	 * @return the accuracies of both networks and how far their outputs are apart
+	 */
+	public static QuantizationReport report(final INeuralNetwork reference,
+			final QuantizedNeuralNetwork quantized,
+			final List<List<Double>> data,
+			final List<Integer> targets) {
+
+		Objects.requireNonNull(reference, "Reference network is null.");
+		Objects.requireNonNull(quantized, "Quantized network is null.");
+		assert (data.size() == targets.size()) : "Every input needs a label.";
+
+		int referenceCorrect = 0;
+		int quantizedCorrect = 0;
+		int agreements = 0;
+		double maximumDifference = 0d;
+
+		for (int sample = 0; sample < data.size(); sample++) {
+
+			final List<Double> referenceOutput = reference.getOutput(data.get(sample));
+			final List<Double> quantizedOutput = quantized.getOutput(data.get(sample));
+
+			final int referenceLabel = argMax(referenceOutput);
+			final int quantizedLabel = argMax(quantizedOutput);
+
+			referenceCorrect += referenceLabel == targets.get(sample) ? 1 : 0;
+			quantizedCorrect += quantizedLabel == targets.get(sample) ? 1 : 0;
+			agreements += referenceLabel == quantizedLabel ? 1 : 0;
+
+			for (int o = 0; o < referenceOutput.size(); o++) {
+				maximumDifference = Math.max(maximumDifference, Math.abs(referenceOutput.get(o) - quantizedOutput.get(o)));
+			}
+		}
+
+		return new QuantizationReport((double) referenceCorrect / data.size(),
+				(double) quantizedCorrect / data.size(),
+				(double) agreements / data.size(),
+				maximumDifference,
+				quantized.getBytes());
+	}
+
+	private static QuantizedNeuralNetwork quantize(final Activation inputActivation,
+			final List<PackedLayer> layers,
+			final List<List<Double>> calibration) {
+
+		Objects.requireNonNull(calibration, "Calibration data is null.");
+		assert (!calibration.isEmpty()) : "Calibration data cannot be empty";
+
+		final int inputLayerSize = layers.get(0).getInputSize();
+		final PackedFeedForward feedForward = new PackedFeedForward(inputActivation, inputLayerSize, layers, ScalarKernels.INSTANCE);
+		final double[][] outputs = feedForward.createOutputs();
+		final double[] input = new double[inputLayerSize];
+
+		// the largest absolute input of every layer
+		final double[] maximumInputs = new double[layers.size()];
+
+		for (final List<Double> inputData : calibration) {
+
+			for (int i = 0; i < inputLayerSize; i++) {
+				input[i] = inputData.get(i);
+			}
+			feedForward.apply(input, outputs);
+
+			for (int layer = 0; layer < layers.size(); layer++) {
+				for (final double value : outputs[layer]) {
+					maximumInputs[layer] = Math.max(maximumInputs[layer], Math.abs(value));
+				}
+			}
+		}
+
+		final List<QuantizedLayer> quantizedLayers = new ArrayList<>();
+		for (int layer = 0; layer < layers.size(); layer++) {
+			quantizedLayers.add(new QuantizedLayer(layers.get(layer), maximumInputs[layer]));
+		}
+		return new QuantizedNeuralNetwork(inputActivation, inputLayerSize, quantizedLayers);
+	}
+
+	private static int argMax(final List<Double> output) {
+
+		int label = 0;
+		for (int o = 1; o < output.size(); o++) {
+			if (output.get(o) > output.get(label)) {
+				label = o;
+			}
+		}
+		return label;
+	}
+}
@@ -0,0 +1,178 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+
+/**
+ * Scalar kernels with cache-blocked matrix products. The matrix-vector product sums in the
+ * same order and with the same compensation as the {@link Neuron} graph, so that the packed
+ * engine matches it bit for bit.
+ *
+ */
+final class ScalarKernels implements Kernels {
+
+	protected static final ScalarKernels INSTANCE = new ScalarKernels();
+
+	// tile sizes chosen so that a tile of a 784-wide weight matrix stays in the L2 cache
+	private static final int ROW_BLOCK = 64;
+	private static final int INNER_BLOCK = 256;
+
+	private ScalarKernels() {
+	}
+
+	@Override
+	public void multiplyVector(final double[] weights,
+			final double[] biases,
+			final double[] inputs,
+			final double[] outputs,
+			final int rows,
+			final int inner) {
+
+		for (int row = 0; row < rows; row++) {
+
+			final int offset = row * inner;
+			final CompensatedSum sum = new CompensatedSum();
+
+			for (int k = 0; k < inner; k++) {
+				sum.add(weights[offset + k] * inputs[k]);
+			}
+			sum.add(biases[row]);
+
+			outputs[row] = sum.getSum();
+		}
+	}
+
+	@Override
+	public void multiplyTransposed(final double[] a,
+			final double[] b,
+			final double[] c,
+			final int rows,
+			final int inner,
+			final int cols) {
+
+		for (int colBlock = 0; colBlock < cols; colBlock += ROW_BLOCK) {
+
+			final int colEnd = Math.min(colBlock + ROW_BLOCK, cols);
+
+			for (int innerBlock = 0; innerBlock < inner; innerBlock += INNER_BLOCK) {
+
+				final int innerEnd = Math.min(innerBlock + INNER_BLOCK, inner);
+
+				for (int row = 0; row < rows; row++) {
+
+					final int aRow = row * inner;
+
+					for (int col = colBlock; col < colEnd; col++) {
+
+						final int bRow = col * inner;
+						double sum = 0d;
+
+						for (int k = innerBlock; k < innerEnd; k++) {
+							sum += a[aRow + k] * b[bRow + k];
+						}
+						c[row * cols + col] += sum;
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void multiply(final double[] a,
+			final double[] b,
+			final double[] c,
+			final int rows,
+			final int inner,
+			final int cols) {
+
+		for (int innerBlock = 0; innerBlock < inner; innerBlock += ROW_BLOCK) {
+
+			final int innerEnd = Math.min(innerBlock + ROW_BLOCK, inner);
+
+			for (int row = 0; row < rows; row++) {
+
+				final int cRow = row * cols;
+
+				for (int k = innerBlock; k < innerEnd; k++) {
+
+					final double value = a[row * inner + k];
+					final int bRow = k * cols;
+
+					for (int col = 0; col < cols; col++) {
+						c[cRow + col] += value * b[bRow + col];
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void transposedMultiply(final double[] a,
+			final double[] b,
+			final double[] c,
+			final int rows,
+			final int inner,
+			final int cols) {
+
+		for (int rowBlock = 0; rowBlock < rows; rowBlock += ROW_BLOCK) {
+
+			final int rowEnd = Math.min(rowBlock + ROW_BLOCK, rows);
+
+			for (int k = 0; k < inner; k++) {
+
+				final int bRow = k * cols;
+
+				for (int row = rowBlock; row < rowEnd; row++) {
+
+					final double value = a[k * rows + row];
+					final int cRow = row * cols;
+
+					for (int col = 0; col < cols; col++) {
+						c[cRow + col] += value * b[bRow + col];
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void apply(final Activation activation, final double[] values, final int from, final int to) {
+		activation.apply(values, from, to);
+	}
+
+	@Override
+	public void derivative(final Activation activation, final double[] outputs, final int from, final int to) {
+		activation.derivative(outputs, from, to);
+	}
+
+	@Override
+	public void add(final double[] target, final double[] source) {
+
+		for (int i = 0; i < target.length; i++) {
+			target[i] += source[i];
+		}
+	}
+
+	@Override
+	public void subtract(final double[] weights, final double[] deltaWeights) {
+
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] -= deltaWeights[i];
+		}
+	}
+
+	@Override
+	public void updateWeights(final double[] deltaSums,
+			final double scale,
+			final double momentum,
+			final double[] deltas,
+			final double[] deltaWeights,
+			final double[] weights) {
+
+		for (int i = 0; i < deltas.length; i++) {
+
+			deltas[i] = deltaSums[i] * scale;
+			deltaWeights[i] = deltas[i] + momentum * deltaWeights[i];
+			weights[i] -= deltaWeights[i];
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import de.plath.csc.machinelearning.neural.api.INeuralNetwork;
+import de.plath.csc.machinelearning.neural.api.TrainingListener;
+import de.plath.csc.machinelearning.neural.api.TrainingSource;
+
+/**
+ * A trained network for scoring only, which cannot learn. Batches are scored by
+ * {@link BatchInference} with the kernel of the engine, which keeps its intermediate results
+ * in per-call buffers, so any number of threads can score at the same time.
+ *
+ */
+abstract class ScoringNeuralNetwork implements INeuralNetwork {
+
+	private final String kind;
+	private final int inputLayerSize;
+	private final int outputLayerSize;
+
+	/**
+	 * @param kind            the kind of network, e.g. "pruned", for error messages
+	 * @param inputLayerSize  the number of inputs
+	 * @param outputLayerSize the number of outputs
+	 */
+	protected ScoringNeuralNetwork(final String kind, final int inputLayerSize, final int outputLayerSize) {
+
+		this.kind = Objects.requireNonNull(kind);
+		this.inputLayerSize = inputLayerSize;
+		this.outputLayerSize = outputLayerSize;
+	}
+
+	/**
+	 * @throws UnsupportedOperationException always, the network cannot learn
+	 */
+	@Override
+	public void learn(final List<List<Double>> trainingData, final List<Integer> targets) {
+		throw cannotLearn();
+	}
+
+	/**
+	 * @throws UnsupportedOperationException always, the network cannot learn
+	 */
+	@Override
+	public void learn(final TrainingSource trainingSource) {
+		throw cannotLearn();
+	}
+
+	/**
+	 * @throws UnsupportedOperationException always, the network cannot learn
+	 */
+	@Override
+	public void learn(final TrainingSource trainingSource, final TrainingListener listener) {
+		throw cannotLearn();
+	}
+
+	@Override
+	public List<Double> getOutput(final List<Double> input) {
+
+		Objects.requireNonNull(input, "input is null");
+		assert (inputLayerSize == input.size()) : "Size of input must match the size of the input layer.";
+
+		final double[] inputData = new double[inputLayerSize];
+		for (int i = 0; i < inputLayerSize; i++) {
+			inputData[i] = input.get(i);
+		}
+
+		final double[] outputs = new double[outputLayerSize];
+		scoreChunk(inputData, outputs, 0, 1);
+
+		final List<Double> output = new ArrayList<>(outputLayerSize);
+		for (final double out : outputs) {
+			output.add(out);
+		}
+		return output;
+	}
+
+	@Override
+	public void getOutputs(final double[] inputs, final double[] outputs) {
+
+		Objects.requireNonNull(inputs, "inputs are null");
+		Objects.requireNonNull(outputs, "outputs are null");
+		assert (inputs.length % inputLayerSize == 0) : "Size of inputs must be a multiple of the size of the input layer.";
+		assert (outputs.length == inputs.length / inputLayerSize * outputLayerSize) : "Size of outputs must match the number of inputs.";
+
+		final int samples = inputs.length / inputLayerSize;
+
+		final InferenceEvent inferenceEvent = new InferenceEvent();
+		inferenceEvent.begin();
+
+		BatchInference.score(samples, (first, count) -> scoreChunk(inputs, outputs, first, count));
+
+		inferenceEvent.commit(this, samples);
+	}
+
+	@Override
+	public int getInputLayerSize() {
+		return inputLayerSize;
+	}
+
+	@Override
+	public int getOutputLayerSize() {
+		return outputLayerSize;
+	}
+
+	/**
+	 * Scores consecutive samples, possibly on several threads at the same time
+	 *
+	 * @param inputs  the inputs, one row per sample
+	 * @param outputs receives the outputs, one row per sample
+	 * @param first   the first sample to score
+	 * @param samples the number of samples to score
+	 */
+	protected abstract void scoreChunk(double[] inputs, double[] outputs, int first, int samples);
+
+	private UnsupportedOperationException cannotLearn() {
+		return new UnsupportedOperationException("The " + kind + " network cannot learn.");
+	}
+}
@@ -0,0 +1,87 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The load of a {@link BatchingScorer} at one point in time: its queue, the sizes of the
+ * batches it has scored and the latencies of its requests, from submitting a sample to
+ * completing its future
+ *
+ */
+public final class ScoringStatistics {
+
+	private final int queueLength;
+	private final long[] batchSizes;
+	private final long[] latencies;
+
+	protected ScoringStatistics(final int queueLength, final long[] batchSizes, final long[] latencies) {
+
+		this.queueLength = queueLength;
+		this.batchSizes = batchSizes;
+		this.latencies = latencies;
+	}
+
+	/**
+	 * @return the number of samples waiting for a batch
+	 */
+	public int getQueueLength() {
+		return queueLength;
+	}
+
+	/**
+	 * @return the number of batches scored per batch size, indexed by the size
+	 */
+	public long[] getBatchSizeHistogram() {
+		return batchSizes.clone();
+	}
+
+	/**
+	 * @return the number of batches scored
+	 */
+	public long getBatches() {
+
+		long batches = 0;
+		for (final long count : batchSizes) {
+			batches += count;
+		}
+		return batches;
+	}
+
+	/**
+	 * @return the number of samples scored
+	 */
+	public long getRequests() {
+
+		long requests = 0;
+		for (int size = 0; size < batchSizes.length; size++) {
+			requests += size * batchSizes[size];
+		}
+		return requests;
+	}
+
+	/**
+	 * @return the mean number of samples per batch, or 0 before the first batch
+	 */
+	public double getMeanBatchSize() {
+
+		final long batches = getBatches();
+		return batches > 0 ? (double) getRequests() / batches : 0d;
+	}
+
+	/**
+	 * @param percentile the percentile, between 0 and 100, e.g. 50 or 99
+	 * @param unit       the unit of the result
+	 * @return the latency which the given share of the requests did not exceed, within 12.5%
+	 */
+	public long getLatency(final double percentile, final TimeUnit unit) {
+		return unit.convert(LatencyHistogram.percentile(latencies, percentile), TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "%d requests in %d batches (mean %.1f), queue %d, latency p50 %d us, p99 %d us",
+				getRequests(), getBatches(), getMeanBatchSize(), queueLength,
+				getLatency(50d, TimeUnit.MICROSECONDS), getLatency(99d, TimeUnit.MICROSECONDS));
+	}
+}
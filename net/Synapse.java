@@ -43,7 +43,7 @@ class Synapse {
 		this.input = input;
 	}
 
-	protected void setDelta(final Double delta) {
+	protected void setDelta(final double delta) {
 		this.delta = delta;
 	}
 
@@ -0,0 +1,220 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import de.plath.csc.machinelearning.neural.api.TrainingListener;
+
+/**
+ * Accumulates the times of one training epoch for a {@link TrainingListener}. The networks
+ * only create one when a listener is registered, and only hand it to their layer loops when
+ * the listener is detailed, so that training without a listener does not read the clock.
+ * <p>
+ * The methods taking a start time add the time since then and return the current time, so
+ * that consecutive phases can be measured with one clock read each.
+ *
+ */
+final class TrainingTimer implements TrainingListener.Epoch {
+
+	private final boolean detailed;
+
+	private final long[] layerForwardNanos;
+	private final long[] layerBackwardNanos;
+	private final long[] layerUpdateNanos;
+
+	private int epoch;
+	private long samples;
+	private double loss;
+	private double validationLoss = Double.NaN;
+	private long start;
+	private long durationNanos;
+
+	private long forwardNanos;
+	private long backwardNanos;
+	private long updateNanos;
+
+	protected TrainingTimer(final int layers, final boolean detailed) {
+
+		this.detailed = detailed;
+
+		layerForwardNanos = new long[layers];
+		layerBackwardNanos = new long[layers];
+		layerUpdateNanos = new long[layers];
+	}
+
+	/**
+	 * @param listener the listener, or {@code null}
+	 * @param layers   the number of hidden and output layers
+	 * @return a timer for the listener, or {@code null} without a listener
+	 */
+	protected static TrainingTimer of(final TrainingListener listener, final int layers) {
+		return listener == null ? null : new TrainingTimer(layers, listener.isDetailed());
+	}
+
+	/**
+	 * @param timer a timer, or {@code null}
+	 * @return the timer if it measures every layer, {@code null} otherwise
+	 */
+	protected static TrainingTimer detailed(final TrainingTimer timer) {
+		return timer != null && timer.detailed ? timer : null;
+	}
+
+	protected boolean isDetailed() {
+		return detailed;
+	}
+
+	protected void startEpoch(final int epochNumber) {
+
+		epoch = epochNumber;
+		reset();
+		start = System.nanoTime();
+	}
+
+	protected void finishEpoch(final long epochSamples, final double epochLoss) {
+		finishEpoch(epochSamples, epochLoss, Double.NaN);
+	}
+
+	protected void finishEpoch(final long epochSamples, final double epochLoss, final double epochValidationLoss) {
+
+		durationNanos = System.nanoTime() - start;
+		samples = epochSamples;
+		loss = epochLoss;
+		validationLoss = epochValidationLoss;
+	}
+
+	protected long forward(final long from) {
+
+		final long now = System.nanoTime();
+		forwardNanos += now - from;
+		return now;
+	}
+
+	protected long backward(final long from) {
+
+		final long now = System.nanoTime();
+		backwardNanos += now - from;
+		return now;
+	}
+
+	protected long update(final long from) {
+
+		final long now = System.nanoTime();
+		updateNanos += now - from;
+		return now;
+	}
+
+	protected long forward(final int layer, final long from) {
+
+		final long now = System.nanoTime();
+		layerForwardNanos[layer] += now - from;
+		return now;
+	}
+
+	protected long backward(final int layer, final long from) {
+
+		final long now = System.nanoTime();
+		layerBackwardNanos[layer] += now - from;
+		return now;
+	}
+
+	protected long update(final int layer, final long from) {
+
+		final long now = System.nanoTime();
+		layerUpdateNanos[layer] += now - from;
+		return now;
+	}
+
+	/**
+	 * Adds the phase and layer times of another timer, e.g. of a thread working on a part of a
+	 * batch, and resets it
+	 */
+	protected void add(final TrainingTimer other) {
+
+		forwardNanos += other.forwardNanos;
+		backwardNanos += other.backwardNanos;
+		updateNanos += other.updateNanos;
+
+		for (int layer = 0; layer < layerForwardNanos.length; layer++) {
+			layerForwardNanos[layer] += other.layerForwardNanos[layer];
+			layerBackwardNanos[layer] += other.layerBackwardNanos[layer];
+			layerUpdateNanos[layer] += other.layerUpdateNanos[layer];
+		}
+		other.reset();
+	}
+
+	@Override
+	public int getEpoch() {
+		return epoch;
+	}
+
+	@Override
+	public long getSamples() {
+		return samples;
+	}
+
+	@Override
+	public double getLoss() {
+		return loss;
+	}
+
+	@Override
+	public double getValidationLoss() {
+		return validationLoss;
+	}
+
+	@Override
+	public long getDuration(final TimeUnit unit) {
+		return unit.convert(durationNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public double getSamplesPerSecond() {
+		return durationNanos == 0L ? 0d : samples * 1e9d / durationNanos;
+	}
+
+	@Override
+	public long getForwardTime(final TimeUnit unit) {
+		return unit.convert(forwardNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public long getBackwardTime(final TimeUnit unit) {
+		return unit.convert(backwardNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public long getUpdateTime(final TimeUnit unit) {
+		return unit.convert(updateNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public int getLayers() {
+		return layerForwardNanos.length;
+	}
+
+	@Override
+	public long getForwardTime(final int layer, final TimeUnit unit) {
+		return unit.convert(layerForwardNanos[layer], TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public long getBackwardTime(final int layer, final TimeUnit unit) {
+		return unit.convert(layerBackwardNanos[layer], TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public long getUpdateTime(final int layer, final TimeUnit unit) {
+		return unit.convert(layerUpdateNanos[layer], TimeUnit.NANOSECONDS);
+	}
+
+	private void reset() {
+
+		forwardNanos = 0L;
+		backwardNanos = 0L;
+		updateNanos = 0L;
+
+		Arrays.fill(layerForwardNanos, 0L);
+		Arrays.fill(layerBackwardNanos, 0L);
+		Arrays.fill(layerUpdateNanos, 0L);
+	}
+}
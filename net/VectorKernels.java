@@ -0,0 +1,260 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import de.plath.csc.machinelearning.neural.api.Activation;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels using the {@code jdk.incubator.vector} module. The dot products are summed lane by
+ * lane without compensation, so results can differ from {@link ScalarKernels} in the last
+ * bits. Only created by {@link Kernels#create(boolean)}, which falls back to the scalar kernels
+ * when the module is not available.
+ *
+ */
+final class VectorKernels implements Kernels {
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	// same tiles as the scalar kernels
+	private static final int ROW_BLOCK = 64;
+	private static final int INNER_BLOCK = 256;
+
+	@Override
+	public void multiplyVector(final double[] weights,
+			final double[] biases,
+			final double[] inputs,
+			final double[] outputs,
+			final int rows,
+			final int inner) {
+
+		for (int row = 0; row < rows; row++) {
+			outputs[row] = dot(weights, row * inner, inputs, 0, inner) + biases[row];
+		}
+	}
+
+	@Override
+	public void multiplyTransposed(final double[] a,
+			final double[] b,
+			final double[] c,
+			final int rows,
+			final int inner,
+			final int cols) {
+
+		for (int colBlock = 0; colBlock < cols; colBlock += ROW_BLOCK) {
+
+			final int colEnd = Math.min(colBlock + ROW_BLOCK, cols);
+
+			for (int innerBlock = 0; innerBlock < inner; innerBlock += INNER_BLOCK) {
+
+				final int length = Math.min(innerBlock + INNER_BLOCK, inner) - innerBlock;
+
+				for (int row = 0; row < rows; row++) {
+					for (int col = colBlock; col < colEnd; col++) {
+						c[row * cols + col] += dot(a, row * inner + innerBlock, b, col * inner + innerBlock, length);
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void multiply(final double[] a,
+			final double[] b,
+			final double[] c,
+			final int rows,
+			final int inner,
+			final int cols) {
+
+		for (int innerBlock = 0; innerBlock < inner; innerBlock += ROW_BLOCK) {
+
+			final int innerEnd = Math.min(innerBlock + ROW_BLOCK, inner);
+
+			for (int row = 0; row < rows; row++) {
+				for (int k = innerBlock; k < innerEnd; k++) {
+					multiplyAdd(a[row * inner + k], b, k * cols, c, row * cols, cols);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void transposedMultiply(final double[] a,
+			final double[] b,
+			final double[] c,
+			final int rows,
+			final int inner,
+			final int cols) {
+
+		for (int rowBlock = 0; rowBlock < rows; rowBlock += ROW_BLOCK) {
+
+			final int rowEnd = Math.min(rowBlock + ROW_BLOCK, rows);
+
+			for (int k = 0; k < inner; k++) {
+				for (int row = rowBlock; row < rowEnd; row++) {
+					multiplyAdd(a[k * rows + row], b, k * cols, c, row * cols, cols);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void apply(final Activation activation, final double[] values, final int from, final int to) {
+
+		final int bound = from + SPECIES.loopBound(to - from);
+		final DoubleVector one = DoubleVector.broadcast(SPECIES, 1d);
+
+		if (activation instanceof Activations.Sigmoid) {
+			for (int i = from; i < bound; i += SPECIES.length()) {
+				final DoubleVector v = DoubleVector.fromArray(SPECIES, values, i);
+				one.div(one.add(v.neg().lanewise(VectorOperators.EXP))).intoArray(values, i);
+			}
+		} else if (activation instanceof Activations.Tanh) {
+			for (int i = from; i < bound; i += SPECIES.length()) {
+				DoubleVector.fromArray(SPECIES, values, i).lanewise(VectorOperators.TANH).intoArray(values, i);
+			}
+		} else if (activation instanceof Activations.ReLU) {
+			for (int i = from; i < bound; i += SPECIES.length()) {
+				DoubleVector.fromArray(SPECIES, values, i).max(0d).intoArray(values, i);
+			}
+		} else if (activation instanceof Activations.LeakyReLU) {
+			final double slope = ((Activations.LeakyReLU) activation).getSlope();
+			for (int i = from; i < bound; i += SPECIES.length()) {
+				final DoubleVector v = DoubleVector.fromArray(SPECIES, values, i);
+				v.mul(slope).blend(v, v.compare(VectorOperators.GT, 0d)).intoArray(values, i);
+			}
+		} else {
+			activation.apply(values, from, to);
+			return;
+		}
+		activation.apply(values, bound, to);
+	}
+
+	@Override
+	public void derivative(final Activation activation, final double[] outputs, final int from, final int to) {
+
+		final int bound = from + SPECIES.loopBound(to - from);
+		final DoubleVector one = DoubleVector.broadcast(SPECIES, 1d);
+
+		if (activation instanceof Activations.Sigmoid) {
+			for (int i = from; i < bound; i += SPECIES.length()) {
+				final DoubleVector v = DoubleVector.fromArray(SPECIES, outputs, i);
+				v.mul(one.sub(v)).intoArray(outputs, i);
+			}
+		} else if (activation instanceof Activations.Tanh) {
+			for (int i = from; i < bound; i += SPECIES.length()) {
+				final DoubleVector v = DoubleVector.fromArray(SPECIES, outputs, i);
+				one.sub(v.mul(v)).intoArray(outputs, i);
+			}
+		} else if (activation instanceof Activations.ReLU || activation instanceof Activations.LeakyReLU) {
+			final DoubleVector negative = DoubleVector.broadcast(SPECIES,
+					activation instanceof Activations.LeakyReLU ? ((Activations.LeakyReLU) activation).getSlope() : 0d);
+			for (int i = from; i < bound; i += SPECIES.length()) {
+				final VectorMask<Double> positive = DoubleVector.fromArray(SPECIES, outputs, i).compare(VectorOperators.GT, 0d);
+				negative.blend(one, positive).intoArray(outputs, i);
+			}
+		} else {
+			activation.derivative(outputs, from, to);
+			return;
+		}
+		activation.derivative(outputs, bound, to);
+	}
+
+	@Override
+	public void add(final double[] target, final double[] source) {
+
+		final int bound = SPECIES.loopBound(target.length);
+
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			DoubleVector.fromArray(SPECIES, target, i).add(DoubleVector.fromArray(SPECIES, source, i)).intoArray(target, i);
+		}
+		for (; i < target.length; i++) {
+			target[i] += source[i];
+		}
+	}
+
+	@Override
+	public void subtract(final double[] weights, final double[] deltaWeights) {
+
+		final int bound = SPECIES.loopBound(weights.length);
+
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+			DoubleVector.fromArray(SPECIES, weights, i).sub(DoubleVector.fromArray(SPECIES, deltaWeights, i)).intoArray(weights, i);
+		}
+		for (; i < weights.length; i++) {
+			weights[i] -= deltaWeights[i];
+		}
+	}
+
+	@Override
+	public void updateWeights(final double[] deltaSums,
+			final double scale,
+			final double momentum,
+			final double[] deltas,
+			final double[] deltaWeights,
+			final double[] weights) {
+
+		final int bound = SPECIES.loopBound(deltas.length);
+
+		int i = 0;
+		for (; i < bound; i += SPECIES.length()) {
+
+			final DoubleVector delta = DoubleVector.fromArray(SPECIES, deltaSums, i).mul(scale);
+			final DoubleVector deltaWeight = DoubleVector.fromArray(SPECIES, deltaWeights, i).mul(momentum).add(delta);
+
+			delta.intoArray(deltas, i);
+			deltaWeight.intoArray(deltaWeights, i);
+			DoubleVector.fromArray(SPECIES, weights, i).sub(deltaWeight).intoArray(weights, i);
+		}
+		for (; i < deltas.length; i++) {
+
+			deltas[i] = deltaSums[i] * scale;
+			deltaWeights[i] = deltas[i] + momentum * deltaWeights[i];
+			weights[i] -= deltaWeights[i];
+		}
+	}
+
+	private static double dot(final double[] a, final int aOffset, final double[] b, final int bOffset, final int length) {
+
+		final int bound = SPECIES.loopBound(length);
+
+		DoubleVector sum = DoubleVector.zero(SPECIES);
+		int k = 0;
+		for (; k < bound; k += SPECIES.length()) {
+			sum = DoubleVector.fromArray(SPECIES, a, aOffset + k).fma(DoubleVector.fromArray(SPECIES, b, bOffset + k), sum);
+		}
+
+		double result = sum.reduceLanes(VectorOperators.ADD);
+		for (; k < length; k++) {
+			result += a[aOffset + k] * b[bOffset + k];
+		}
+		return result;
+	}
+
+	/**
+	 * c[cOffset, cOffset + length) += value * b[bOffset, bOffset + length)
+	 */
+	private static void multiplyAdd(final double value,
+			final double[] b,
+			final int bOffset,
+			final double[] c,
+			final int cOffset,
+			final int length) {
+
+		final DoubleVector factor = DoubleVector.broadcast(SPECIES, value);
+		final int bound = SPECIES.loopBound(length);
+
+		int k = 0;
+		for (; k < bound; k += SPECIES.length()) {
+			DoubleVector.fromArray(SPECIES, b, bOffset + k)
+					.fma(factor, DoubleVector.fromArray(SPECIES, c, cOffset + k))
+					.intoArray(c, cOffset + k);
+		}
+		for (; k < length; k++) {
+			c[cOffset + k] += value * b[bOffset + k];
+		}
+	}
+}
@@ -0,0 +1,326 @@
+package de.plath.csc.machinelearning.neural.net;
+
+import java.util.List;
+import java.util.Objects;
+
+import de.plath.csc.machinelearning.neural.api.IParameters;
+import de.plath.csc.machinelearning.neural.api.LearningRateSchedule;
+import de.plath.csc.machinelearning.neural.api.Optimizer;
+import de.plath.csc.machinelearning.neural.api.SgdOptimizer;
+
+/**
+ * The weight update of a {@link PackedNeuralNetwork}, shared by its back-propagations. With
+ * {@link Optimizers#sgd(double)} the deltas are scaled by the learning rate of the epoch and
+ * the momentum terms are updated during back-propagation, as they always were. Any other
+ * {@link Optimizer} gets the unscaled deltas as gradients and keeps its state in
+ * {@link PackedLayer#getOptimizerStates(int)}.
+ * <p>
+ * For sparse samples only the columns of the non-zero inputs of the first layer are updated.
+ * The momentum steps the other columns miss are applied at once, in closed form, before their
+ * input is non-zero again or when {@link #catchUp(PackedLayer)} is called.
+ * <p>
+ * Every update leaves the weights removed by {@link Pruner} at 0.
+ *
+ */
+class WeightUpdate {
+
+	private final Optimizer optimizer;
+	private final boolean fused;
+	private final double momentum;
+
+	private final double learningRate;
+	private final LearningRateSchedule learningRateSchedule;
+
+	private double epochLearningRate;
+	private long step;
+
+	// per input column, the sparse step up to which its momentum terms have been applied
+	private long[] columnSteps;
+	private long sparseStep;
+
+	protected WeightUpdate(final IParameters nnParameters) {
+
+		optimizer = Objects.requireNonNull(nnParameters.getOptimizer(), "Optimizer is null.");
+		fused = optimizer instanceof SgdOptimizer;
+		momentum = fused ? ((SgdOptimizer) optimizer).getMomentum() : 0d;
+
+		learningRate = nnParameters.getLearningRate();
+		learningRateSchedule = Objects.requireNonNull(nnParameters.getLearningRateSchedule(), "Learning rate schedule is null.");
+		epochLearningRate = learningRate;
+	}
+
+	/**
+	 * @param epoch the number of the epoch, starting at 1
+	 */
+	protected void startEpoch(final int epoch) {
+		epochLearningRate = learningRateSchedule.getLearningRate(epoch, learningRate);
+	}
+
+	/**
+	 * @return the factor of the deltas calculated by back-propagation: the learning rate of the
+	 *         epoch for SGD, 1 for an optimizer, which gets the gradients
+	 */
+	protected double getDeltaRate() {
+		return fused ? epochLearningRate : 1d;
+	}
+
+	/**
+	 * @return whether SGD is fused into back-propagation, which sparse samples require
+	 */
+	protected boolean isFused() {
+		return fused;
+	}
+
+	/**
+	 * @return the momentum rate of the momentum terms updated during back-propagation, 0 for an
+	 *         optimizer
+	 */
+	protected double getMomentum() {
+		return momentum;
+	}
+
+	/**
+	 * @return the number of updates so far, which the bias correction of Adam depends on
+	 */
+	protected long getStep() {
+		return step;
+	}
+
+	/**
+	 * @param step the number of updates, of restored optimizer states
+	 */
+	protected void setStep(final long step) {
+		this.step = step;
+	}
+
+	/**
+	 * Updates the weights after one sample from the deltas of the layers
+	 *
+	 * @param layers  the layers
+	 * @param kernels the kernels computing the update
+	 * @param timer   measures the update per layer, or {@code null}
+	 */
+	protected void apply(final List<PackedLayer> layers, final Kernels kernels, final TrainingTimer timer) {
+
+		step++;
+		long start = timer != null ? System.nanoTime() : 0L;
+
+		for (int layer = 0; layer < layers.size(); layer++) {
+
+			final PackedLayer packedLayer = layers.get(layer);
+
+			if (fused) {
+				kernels.subtract(packedLayer.getWeights(), packedLayer.getDeltaWeights());
+			} else {
+				optimize(packedLayer);
+			}
+			packedLayer.applyPruning();
+
+			if (timer != null) {
+				start = timer.update(layer, start);
+			}
+		}
+	}
+
+	/**
+	 * Updates the weights after a batch from the weight deltas averaged over the batch
+	 *
+	 * @param layers    the layers
+	 * @param kernels   the kernels computing the update
+	 * @param deltaSums the summed weight deltas, one array per layer
+	 * @param samples   the number of samples in the batch
+	 * @param timer     measures the update per layer, or {@code null}
+	 */
+	protected void apply(final List<PackedLayer> layers,
+			final Kernels kernels,
+			final double[][] deltaSums,
+			final int samples,
+			final TrainingTimer timer) {
+
+		step++;
+		final double scale = 1d / samples;
+		long start = timer != null ? System.nanoTime() : 0L;
+
+		for (int layer = 0; layer < layers.size(); layer++) {
+
+			final PackedLayer packedLayer = layers.get(layer);
+			final double[] deltas = packedLayer.getDeltas();
+
+			if (fused) {
+				kernels.updateWeights(deltaSums[layer], scale, momentum,
+						deltas, packedLayer.getDeltaWeights(), packedLayer.getWeights());
+			} else {
+				for (int i = 0; i < deltas.length; i++) {
+					deltas[i] = deltaSums[layer][i] * scale;
+				}
+				optimize(packedLayer);
+			}
+			packedLayer.applyPruning();
+
+			if (timer != null) {
+				start = timer.update(layer, start);
+			}
+		}
+	}
+
+	/**
+	 * Updates the weights after one sparse sample: the first layer only in the columns of the
+	 * non-zero inputs, the other layers as after a dense one
+	 *
+	 * @param layers  the layers
+	 * @param kernels the kernels computing the update
+	 * @param columns the indices of the non-zero inputs, caught up before the sample
+	 * @param count   the number of non-zero inputs
+	 * @param timer   measures the update per layer, or {@code null}
+	 */
+	protected void apply(final List<PackedLayer> layers,
+			final Kernels kernels,
+			final int[] columns,
+			final int count,
+			final TrainingTimer timer) {
+
+		assert (fused) : "Sparse samples need SGD.";
+
+		step++;
+		sparseStep++;
+		long start = timer != null ? System.nanoTime() : 0L;
+
+		final PackedLayer firstLayer = layers.get(0);
+		final double[] weights = firstLayer.getWeights();
+		final double[] deltaWeights = firstLayer.getDeltaWeights();
+		final int inputSize = firstLayer.getInputSize();
+
+		for (int c = 0; c < count; c++) {
+
+			final int column = columns[c];
+
+			for (int i = column; i < weights.length; i += inputSize) {
+				weights[i] -= deltaWeights[i];
+			}
+			getColumnSteps(inputSize)[column] = sparseStep;
+		}
+		firstLayer.applyPruning();
+
+		if (timer != null) {
+			start = timer.update(0, start);
+		}
+
+		for (int layer = 1; layer < layers.size(); layer++) {
+
+			kernels.subtract(layers.get(layer).getWeights(), layers.get(layer).getDeltaWeights());
+			layers.get(layer).applyPruning();
+
+			if (timer != null) {
+				start = timer.update(layer, start);
+			}
+		}
+	}
+
+	/**
+	 * Applies the momentum steps the given columns of the first layer missed since their last
+	 * non-zero input
+	 *
+	 * @param layer   the first layer
+	 * @param columns the indices of the columns
+	 * @param count   the number of columns
+	 */
+	protected void catchUp(final PackedLayer layer, final int[] columns, final int count) {
+
+		for (int c = 0; c < count; c++) {
+			catchUp(layer, columns[c]);
+		}
+	}
+
+	/**
+	 * Applies the momentum steps all columns of the first layer missed, so that its weights are
+	 * those of dense samples with zero inputs
+	 *
+	 * @param layer the first layer
+	 */
+	protected void catchUp(final PackedLayer layer) {
+
+		final int inputSize = layer.getInputSize();
+		final long[] steps = getColumnSteps(inputSize);
+
+		final double[] decays = new double[inputSize];
+		final double[] movements = new double[inputSize];
+
+		for (int column = 0; column < inputSize; column++) {
+
+			decays[column] = getDecay(sparseStep - steps[column]);
+			movements[column] = getMovement(decays[column]);
+			steps[column] = sparseStep;
+		}
+
+		if (momentum == 0d) {
+			// the weights of zero inputs do not move without momentum
+			return;
+		}
+
+		final double[] weights = layer.getWeights();
+		final double[] deltaWeights = layer.getDeltaWeights();
+
+		// row by row, as the weights are stored
+		for (int row = 0; row < weights.length; row += inputSize) {
+			for (int column = 0; column < inputSize; column++) {
+
+				weights[row + column] -= deltaWeights[row + column] * movements[column];
+				deltaWeights[row + column] *= decays[column];
+			}
+		}
+	}
+
+	private void catchUp(final PackedLayer layer, final int column) {
+
+		final long[] steps = getColumnSteps(layer.getInputSize());
+		final long missed = sparseStep - steps[column];
+
+		if (missed == 0) {
+			return;
+		}
+
+		final double decay = getDecay(missed);
+		final double movement = getMovement(decay);
+
+		final double[] weights = layer.getWeights();
+		final double[] deltaWeights = layer.getDeltaWeights();
+
+		for (int i = column; i < weights.length; i += layer.getInputSize()) {
+
+			weights[i] -= deltaWeights[i] * movement;
+			deltaWeights[i] *= decay;
+		}
+		steps[column] = sparseStep;
+	}
+
+	/**
+	 * @return the factor of a momentum term after the given number of steps with a zero input
+	 */
+	private double getDecay(final long missed) {
+		return missed == 0 ? 1d : Math.pow(momentum, missed);
+	}
+
+	/**
+	 * A zero input leaves deltaWeight = m * deltaWeight, so after k steps the weight has moved
+	 * by deltaWeight * (m + m^2 + ... + m^k)
+	 *
+	 * @return the movement of a weight, as a factor of its momentum term
+	 */
+	private double getMovement(final double decay) {
+		return momentum == 0d ? 0d : momentum * (1d - decay) / (1d - momentum);
+	}
+
+	private long[] getColumnSteps(final int inputSize) {
+
+		if (columnSteps == null) {
+			columnSteps = new long[inputSize];
+		}
+		return columnSteps;
+	}
+
+	private void optimize(final PackedLayer layer) {
+
+		optimizer.update(layer.getDeltas(), layer.getWeights(),
+				layer.getOptimizerStates(optimizer.getStateSize()), epochLearningRate, step);
+	}
+}